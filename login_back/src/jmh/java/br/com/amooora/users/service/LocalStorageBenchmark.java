@@ -0,0 +1,77 @@
+package br.com.amooora.users.service;
+
+import br.com.amooora.users.service.storage.PhotoResponses;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Vazão de upload e download do storage local em alguns tamanhos de objeto (de um ícone a
+ * uma foto grande). O upload sobrescreve sempre a mesma chave e inclui o fsync; o download
+ * lê o corpo inteiro da resposta, como o controller faz ao copiar para o cliente.
+ * A vazão em bytes/s é o tamanho dividido pelo tempo médio de cada operação.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LocalStorageBenchmark {
+
+    private static final String UPLOADED = "users/123/upload.jpg";
+    private static final String STORED = "users/123/stored.jpg";
+
+    @Param({"4096", "262144", "4194304"})
+    public int size;
+
+    private Path root;
+    private LocalStorageService storage;
+    private byte[] content;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("storage-benchmark-");
+        storage = new LocalStorageService(new PhotoResponses(60), root.toString(), "http://localhost:8080",
+                "benchmark-signing-key");
+        storage.loadIndex();
+
+        content = new byte[size];
+        ThreadLocalRandom.current().nextBytes(content);
+        storage.uploadPhoto(STORED, new ByteArrayInputStream(content), size, "image/jpeg");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        FileSystemUtils.deleteRecursively(root);
+    }
+
+    @Benchmark
+    public String upload() {
+        return storage.uploadPhoto(UPLOADED, new ByteArrayInputStream(content), size, null);
+    }
+
+    @Benchmark
+    public long download() throws IOException {
+        ResponseEntity<InputStreamResource> response = storage.downloadPhoto(STORED);
+        try (InputStream body = response.getBody().getInputStream()) {
+            return body.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+}
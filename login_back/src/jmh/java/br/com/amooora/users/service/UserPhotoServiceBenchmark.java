@@ -0,0 +1,93 @@
+package br.com.amooora.users.service;
+
+import br.com.amooora.users.dto.PhotoPage;
+import br.com.amooora.users.service.storage.PhotoResponses;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caminhos quentes do UserPhotoService sobre o storage local: montagem da chave
+ * users/{userId}/{nome}, filtro de imagens na listagem e geração das URLs pré-assinadas.
+ * O storage é populado uma vez com fotos de extensões variadas (e alguns arquivos que não
+ * são imagem); nenhuma operação medida escreve em disco.
+ * <p>
+ * photoExists e userPhotoExists fazem o mesmo stat no índice em memória: a diferença entre
+ * os dois é o custo de montar a chave.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class UserPhotoServiceBenchmark {
+
+    private static final String USER_ID = "123";
+    private static final int PHOTOS = 200;
+    private static final List<String> EXTENSIONS = List.of(".jpg", ".JPEG", ".png", ".webp", ".gif", ".txt");
+
+    private Path root;
+    private LocalStorageService storage;
+    private UserPhotoService userPhotoService;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("photo-benchmark-");
+        storage = new LocalStorageService(new PhotoResponses(60), root.toString(), "http://localhost:8080",
+                "benchmark-signing-key");
+        storage.loadIndex();
+
+        byte[] content = new byte[64];
+        for (int i = 0; i < PHOTOS; i++) {
+            String objectName = "users/" + USER_ID + "/photo-" + i + EXTENSIONS.get(i % EXTENSIONS.size());
+            storage.uploadPhoto(objectName, new ByteArrayInputStream(content), content.length, null);
+        }
+
+        // Manifesto sem reconciliação: as listagens vão direto ao storage
+        UserPhotoManifest manifest = new UserPhotoManifest(null, storage, true);
+        userPhotoService = new UserPhotoService(storage, null, null, null, manifest);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        FileSystemUtils.deleteRecursively(root);
+    }
+
+    @Benchmark
+    public boolean photoExists() {
+        return storage.photoExists("users/" + USER_ID + "/photo-0.jpg");
+    }
+
+    @Benchmark
+    public boolean userPhotoExists() {
+        return userPhotoService.userPhotoExists(USER_ID, "photo-0.jpg");
+    }
+
+    @Benchmark
+    public PhotoPage listUserPhotos() {
+        return storage.listPhotos("users/" + USER_ID + "/", 100, null);
+    }
+
+    @Benchmark
+    public String presignedUrl() {
+        return storage.getPresignedDownloadUrl("users/" + USER_ID + "/photo-0.jpg", 60);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<UserPhotoService.PhotoUrlInfo> allUserPhotoUrls() {
+        return userPhotoService.getAllUserPhotoUrls(USER_ID, 60);
+    }
+}
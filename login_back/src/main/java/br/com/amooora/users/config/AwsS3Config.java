@@ -5,6 +5,8 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.http.SdkHttpClient;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.presigner.S3Presigner;
@@ -22,15 +24,20 @@ public class AwsS3Config {
     private String secretKey;
 
     @Bean
-    public S3Client s3Client() {
+    public S3Client s3Client(SdkHttpClient storageSdkHttpClient, S3PoolMetricPublisher s3PoolMetricPublisher) {
         AwsBasicCredentials credentials = AwsBasicCredentials.create(accessKey, secretKey);
         
         return S3Client.builder()
                 .region(Region.of(region))
                 .credentialsProvider(StaticCredentialsProvider.create(credentials))
+                .httpClient(storageSdkHttpClient)
+                .overrideConfiguration(ClientOverrideConfiguration.builder()
+                        .addMetricPublisher(s3PoolMetricPublisher)
+                        .build())
                 .build();
     }
 
+    // O presigner só assina localmente, sem chamadas HTTP
     @Bean
     public S3Presigner s3Presigner() {
         AwsBasicCredentials credentials = AwsBasicCredentials.create(accessKey, secretKey);
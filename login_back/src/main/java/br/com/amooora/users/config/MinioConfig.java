@@ -1,6 +1,7 @@
 package br.com.amooora.users.config;
 
 import io.minio.MinioClient;
+import okhttp3.OkHttpClient;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -18,10 +19,11 @@ public class MinioConfig {
     private String secretKey;
 
     @Bean
-    public MinioClient minioClient() {
+    public MinioClient minioClient(OkHttpClient storageOkHttpClient) {
         return MinioClient.builder()
                 .endpoint(minioUrl)
                 .credentials(accessKey, secretKey)
+                .httpClient(storageOkHttpClient)
                 .build();
     }
 }
\ No newline at end of file
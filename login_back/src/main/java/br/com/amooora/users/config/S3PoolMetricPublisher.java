@@ -0,0 +1,57 @@
+package br.com.amooora.users.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import software.amazon.awssdk.http.HttpMetric;
+import software.amazon.awssdk.metrics.MetricCollection;
+import software.amazon.awssdk.metrics.MetricPublisher;
+import software.amazon.awssdk.metrics.SdkMetric;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Repassa para o Micrometer o estado do pool de conexões do S3Client. O SDK só publica
+ * esses valores ao fim de cada chamada, então os gauges mostram o último estado observado.
+ */
+public class S3PoolMetricPublisher implements MetricPublisher, MeterBinder {
+
+    private final AtomicInteger max;
+    private final AtomicInteger leased = new AtomicInteger();
+    private final AtomicInteger available = new AtomicInteger();
+    private final AtomicInteger pending = new AtomicInteger();
+
+    public S3PoolMetricPublisher(int maxConnections) {
+        this.max = new AtomicInteger(maxConnections);
+    }
+
+    @Override
+    public void publish(MetricCollection metrics) {
+        update(metrics, HttpMetric.MAX_CONCURRENCY, max);
+        update(metrics, HttpMetric.LEASED_CONCURRENCY, leased);
+        update(metrics, HttpMetric.AVAILABLE_CONCURRENCY, available);
+        update(metrics, HttpMetric.PENDING_CONCURRENCY_ACQUIRES, pending);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("storage.http.pool.max", max, AtomicInteger::get).tag("client", "s3").register(registry);
+        Gauge.builder("storage.http.pool.leased", leased, AtomicInteger::get).tag("client", "s3").register(registry);
+        Gauge.builder("storage.http.pool.available", available, AtomicInteger::get).tag("client", "s3").register(registry);
+        Gauge.builder("storage.http.pool.pending", pending, AtomicInteger::get).tag("client", "s3").register(registry);
+    }
+
+    @Override
+    public void close() {
+    }
+
+    // As métricas HTTP ficam nas coleções filhas (ApiCallAttempt > HttpClient); vale a última tentativa
+    private void update(MetricCollection metrics, SdkMetric<Integer> metric, AtomicInteger target) {
+        List<Integer> values = metrics.metricValues(metric);
+        if (!values.isEmpty()) {
+            target.set(values.get(values.size() - 1));
+        }
+        metrics.children().forEach(child -> update(child, metric, target));
+    }
+}
@@ -0,0 +1,72 @@
+package br.com.amooora.users.config;
+
+import br.com.amooora.users.service.PhotoDedupService;
+import br.com.amooora.users.service.UserPhotoManifest;
+import br.com.amooora.users.service.storage.CachingStorageService;
+import br.com.amooora.users.service.storage.DedupStorageService;
+import br.com.amooora.users.service.storage.ManifestStorageService;
+import br.com.amooora.users.service.storage.MetricsStorageService;
+import br.com.amooora.users.service.storage.PhotoResponses;
+import br.com.amooora.users.service.storage.StorageService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.time.Duration;
+
+/**
+ * Monta o StorageService usado pela aplicação: o provider configurado em
+ * storage.provider (bean "storageBackend"), instrumentado com métricas, com o cache
+ * de objetos quentes na frente e o manifesto de fotos dos usuários atualizado a cada
+ * upload e remoção. Por fora fica a resolução das fotos deduplicadas, que apontam para
+ * blobs/{sha256}.
+ */
+@Configuration
+public class StorageConfig {
+
+    @Value("${storage.provider:minio}")
+    private String provider;
+
+    @Value("${storage.hot-cache.enabled:true}")
+    private boolean hotCacheEnabled;
+
+    @Value("${storage.hot-cache.max-object-size:262144}")
+    private long maxObjectSize;
+
+    @Value("${storage.hot-cache.capacity-bytes:67108864}")
+    private long capacityBytes;
+
+    @Value("${storage.hot-cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    @Value("${storage.hot-cache.off-heap:true}")
+    private boolean offHeap;
+
+    /**
+     * O provider com métricas: também é o que usam os beans que precisam dele direto
+     * (sem cache nem manifesto), como o manifesto e a deduplicação
+     */
+    @Bean
+    @Qualifier("meteredStorageBackend")
+    public StorageService meteredStorageBackend(@Qualifier("storageBackend") StorageService backend,
+                                                MeterRegistry registry) {
+        return new MetricsStorageService(backend, registry, provider);
+    }
+
+    @Bean
+    @Primary
+    public StorageService storageService(@Qualifier("meteredStorageBackend") StorageService backend,
+                                         PhotoResponses photoResponses,
+                                         UserPhotoManifest manifest,
+                                         PhotoDedupService dedup) {
+        StorageService storage = backend;
+        if (hotCacheEnabled) {
+            storage = new CachingStorageService(backend, photoResponses, maxObjectSize, capacityBytes,
+                    Duration.ofSeconds(ttlSeconds), offHeap);
+        }
+        return new DedupStorageService(new ManifestStorageService(storage, manifest), dedup);
+    }
+}
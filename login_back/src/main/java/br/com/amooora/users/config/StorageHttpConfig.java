@@ -0,0 +1,120 @@
+package br.com.amooora.users.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import software.amazon.awssdk.http.SdkHttpClient;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Clientes HTTP compartilhados pelos clientes de storage (S3Client e MinioClient),
+ * com pool, timeouts e keep-alive configurados em storage.http.*, e as métricas
+ * dos pools (storage.http.pool.*) para enxergar esgotamento de conexões.
+ */
+@Configuration
+public class StorageHttpConfig {
+
+    @Value("${storage.http.max-connections:200}")
+    private int maxConnections;
+
+    @Value("${storage.http.connect-timeout-ms:2000}")
+    private long connectTimeoutMs;
+
+    @Value("${storage.http.read-timeout-ms:30000}")
+    private long readTimeoutMs;
+
+    @Value("${storage.http.write-timeout-ms:30000}")
+    private long writeTimeoutMs;
+
+    @Value("${storage.http.acquire-timeout-ms:5000}")
+    private long acquireTimeoutMs;
+
+    @Value("${storage.http.connection-ttl-ms:300000}")
+    private long connectionTtlMs;
+
+    @Value("${storage.http.max-idle-ms:60000}")
+    private long maxIdleMs;
+
+    /**
+     * Cliente HTTP do SDK da AWS (Apache), com o reaper fechando conexões ociosas
+     */
+    @Bean(destroyMethod = "close")
+    public SdkHttpClient storageSdkHttpClient() {
+        return ApacheHttpClient.builder()
+                .maxConnections(maxConnections)
+                .connectionTimeout(Duration.ofMillis(connectTimeoutMs))
+                .socketTimeout(Duration.ofMillis(readTimeoutMs))
+                .connectionAcquisitionTimeout(Duration.ofMillis(acquireTimeoutMs))
+                .connectionTimeToLive(Duration.ofMillis(connectionTtlMs))
+                .connectionMaxIdleTime(Duration.ofMillis(maxIdleMs))
+                .useIdleConnectionReaper(true)
+                .tcpKeepAlive(true)
+                .build();
+    }
+
+    /**
+     * Cliente HTTP do MinIO (OkHttp). O pool do OkHttp não tem TTL nem espera por conexão:
+     * conexões ociosas são fechadas depois de max-idle-ms pela thread de limpeza do próprio pool.
+     * No shutdown o executor do dispatcher é encerrado e o pool esvaziado.
+     */
+    @Bean
+    public OkHttpClient storageOkHttpClient() {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(maxConnections);
+        dispatcher.setMaxRequestsPerHost(maxConnections);
+
+        return new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(maxConnections, maxIdleMs, TimeUnit.MILLISECONDS))
+                .dispatcher(dispatcher)
+                .connectTimeout(connectTimeoutMs, TimeUnit.MILLISECONDS)
+                .readTimeout(readTimeoutMs, TimeUnit.MILLISECONDS)
+                .writeTimeout(writeTimeoutMs, TimeUnit.MILLISECONDS)
+                // Mesmo protocolo do cliente padrão do MinIO
+                .protocols(List.of(Protocol.HTTP_1_1))
+                .build();
+    }
+
+    /**
+     * Encerra o cliente OkHttp compartilhado (o OkHttp não tem close())
+     */
+    @Bean
+    public DisposableBean storageOkHttpClientShutdown(OkHttpClient storageOkHttpClient) {
+        return () -> {
+            storageOkHttpClient.dispatcher().executorService().shutdown();
+            storageOkHttpClient.connectionPool().evictAll();
+        };
+    }
+
+    @Bean
+    public S3PoolMetricPublisher s3PoolMetricPublisher() {
+        return new S3PoolMetricPublisher(maxConnections);
+    }
+
+    /**
+     * Métricas do pool do MinIO. Não há "pending": o SDK usa execute() síncrono,
+     * que não passa pela fila do dispatcher, e o OkHttp não espera por conexão livre.
+     */
+    @Bean
+    public MeterBinder minioPoolMetrics(OkHttpClient storageOkHttpClient) {
+        ConnectionPool pool = storageOkHttpClient.connectionPool();
+        return registry -> {
+            Gauge.builder("storage.http.pool.max", () -> maxConnections)
+                    .tag("client", "minio").register(registry);
+            Gauge.builder("storage.http.pool.leased", () -> pool.connectionCount() - pool.idleConnectionCount())
+                    .tag("client", "minio").register(registry);
+            Gauge.builder("storage.http.pool.available", pool::idleConnectionCount)
+                    .tag("client", "minio").register(registry);
+        };
+    }
+}
@@ -0,0 +1,40 @@
+package br.com.amooora.users.controller;
+
+import br.com.amooora.users.dto.PhotoDownloadRequest;
+import br.com.amooora.users.service.LocalStorageService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Serve os links "pré-assinados" do storage local (storage.provider=local)
+ */
+@RestController
+@RequestMapping("/api/storage/local")
+@ConditionalOnProperty(name = "storage.provider", havingValue = "local")
+@RequiredArgsConstructor
+public class LocalStorageController {
+
+    private final LocalStorageService localStorageService;
+
+    /**
+     * Download por link assinado
+     * GET /api/storage/local?object=...&expires=...&signature=...
+     */
+    @GetMapping
+    public ResponseEntity<InputStreamResource> download(
+            @RequestParam String object,
+            @RequestParam long expires,
+            @RequestParam String signature,
+            @RequestHeader HttpHeaders headers) {
+        
+        if (!localStorageService.verifySignature(object, expires, signature)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        return localStorageService.downloadPhoto(object, PhotoDownloadRequest.from(headers));
+    }
+}
@@ -1,15 +1,18 @@
 package br.com.amooora.users.controller;
 
-import br.com.amooora.users.dto.PhotoMetadata;
+import br.com.amooora.users.dto.PhotoDownloadRequest;
+import br.com.amooora.users.dto.PhotoPage;
 import br.com.amooora.users.service.storage.StorageService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.core.io.InputStreamResource;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
 
@@ -18,6 +21,9 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class PhotoController {
 
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final StorageService storageService;
 
     /**
@@ -37,11 +43,15 @@ public class PhotoController {
         // Se não fornecer nome, usa o nome original do arquivo
         String finalObjectName = objectName != null ? objectName : file.getOriginalFilename();
         
-        String uploadedName = storageService.uploadPhoto(
-                finalObjectName,
-                file.getBytes(),
-                file.getContentType()
-        );
+        String uploadedName;
+        try (InputStream photoStream = file.getInputStream()) {
+            uploadedName = storageService.uploadPhoto(
+                    finalObjectName,
+                    photoStream,
+                    file.getSize(),
+                    file.getContentType()
+            );
+        }
         
         return ResponseEntity.status(HttpStatus.CREATED)
                 .body(Map.of(
@@ -51,12 +61,14 @@ public class PhotoController {
     }
 
     /**
-     * Faz download direto de uma foto
+     * Faz download direto de uma foto (responde 304 para If-None-Match/If-Modified-Since atendidos)
      * GET /api/photos/download/{photoName}
      */
     @GetMapping("/download/{photoName}")
-    public ResponseEntity<InputStreamResource> downloadPhoto(@PathVariable String photoName) {
-        return storageService.downloadPhoto(photoName);
+    public ResponseEntity<InputStreamResource> downloadPhoto(
+            @PathVariable String photoName,
+            @RequestHeader HttpHeaders headers) {
+        return storageService.downloadPhoto(photoName, PhotoDownloadRequest.from(headers));
     }
 
     /**
@@ -73,13 +85,23 @@ public class PhotoController {
     }
 
     /**
-     * Lista todas as fotos disponíveis
-     * GET /api/photos/list
+     * Lista as fotos disponíveis, paginadas
+     * GET /api/photos/list?limit=100&cursor=...
+     * O cursor da próxima página volta no header X-Next-Cursor
      */
     @GetMapping("/list")
-    public ResponseEntity<List<String>> listPhotos(@RequestParam(required = false, defaultValue = "") String prefix) {
-        List<String> photos = storageService.listPhotos(prefix);
-        return ResponseEntity.ok(photos);
+    public ResponseEntity<List<String>> listPhotos(
+            @RequestParam(required = false, defaultValue = "") String prefix,
+            @RequestParam(defaultValue = "1000") int limit,
+            @RequestParam(required = false) String cursor) {
+        
+        PhotoPage page = storageService.listPhotos(prefix, Math.clamp(limit, 1, MAX_PAGE_SIZE), cursor);
+        
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.hasMore()) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return response.body(page.photos());
     }
 
     /**
@@ -98,16 +120,14 @@ public class PhotoController {
      */
     @GetMapping("/info/{photoName}")
     public ResponseEntity<Map<String, Object>> getPhotoInfo(@PathVariable String photoName) {
-        PhotoMetadata info = storageService.getPhotoInfo(photoName);
-        
-        Map<String, Object> photoInfo = Map.of(
-                "name", photoName,
-                "size", info.getSize(),
-                "contentType", info.getContentType(),
-                "lastModified", info.getLastModified(),
-                "etag", info.getEtag()
-        );
-        
-        return ResponseEntity.ok(photoInfo);
+        return storageService.stat(photoName)
+                .map(info -> ResponseEntity.ok(Map.<String, Object>of(
+                        "name", photoName,
+                        "size", info.getSize(),
+                        "contentType", info.getContentType(),
+                        "lastModified", info.getLastModified(),
+                        "etag", info.getEtag()
+                )))
+                .orElseGet(() -> ResponseEntity.notFound().build());
     }
 }
\ No newline at end of file
@@ -1,24 +1,87 @@
 package br.com.amooora.users.controller;
 
+import br.com.amooora.users.service.UserImportService;
 import br.com.amooora.users.service.UserService;
 import br.com.amooora.users.service.dto.UserDTO;
+import br.com.amooora.users.service.dto.UserPatchDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/users")
 public class UserController {
 
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final String TEXT_CSV_VALUE = "text/csv";
+    private static final String VERSION_CONFLICT_MESSAGE =
+            "Usuário alterado por outra requisição, leia de novo antes de alterar";
+    // Outra requisição cadastrou o e-mail entre a conferência e a gravação (índice único)
+    private static final String EMAIL_CONFLICT_MESSAGE = "E-mail já cadastrado";
+
     private UserService userService;
+    private UserImportService userImportService;
+    private ObjectMapper objectMapper;
 
-    public UserController(UserService userService){
+    public UserController(UserService userService, UserImportService userImportService, ObjectMapper objectMapper){
         this.userService = userService;
+        this.userImportService = userImportService;
+        this.objectMapper = objectMapper;
     }
 
-    @GetMapping("")
-    public List<UserDTO> findAll(){
-        return userService.findAll();
+    /**
+     * Uma página de usuários em ordem de id
+     * GET /users?limit=100&after=...
+     * O corpo continua sendo a lista; a próxima página vem no header Link (rel="next"),
+     * ausente na última página.
+     */
+    @GetMapping(value = "", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<UserDTO>> findAll(@RequestParam(defaultValue = "100") int limit,
+                                                 @RequestParam(defaultValue = "0") long after){
+        int pageSize = Math.clamp(limit, 1, MAX_PAGE_SIZE);
+        List<UserDTO> users = userService.findPage(after, pageSize);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (users.size() == pageSize) {
+            String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("limit", pageSize)
+                    .replaceQueryParam("after", users.get(users.size() - 1).id())
+                    .toUriString();
+            response.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+        }
+        return response.body(users);
+    }
+
+    /**
+     * Todos os usuários, um JSON por linha, escritos conforme são lidos do banco
+     * GET /users com Accept: application/x-ndjson
+     */
+    @GetMapping(value = "", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAll(){
+        StreamingResponseBody body = output -> userService.streamAll(user -> {
+            try {
+                output.write(objectMapper.writeValueAsBytes(user));
+                output.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
     }
 
     @GetMapping("/id")
@@ -31,14 +94,82 @@ public class UserController {
         return userService.findUserByEmail(email);
     }
 
+    /**
+     * Cadastrar usuário
+     * POST /users
+     * 400 com o e-mail já cadastrado; 409 quando outra requisição o cadastrou ao mesmo tempo.
+     */
     @PostMapping("")
-    public UserDTO saveUser(@RequestBody UserDTO user){
-        return userService.saveUser(user);
+    public ResponseEntity<?> saveUser(@RequestBody UserDTO user){
+        try {
+            return ResponseEntity.ok(userService.saveUser(user));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (DataIntegrityViolationException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", EMAIL_CONFLICT_MESSAGE));
+        }
     }
 
+    /**
+     * Importar usuários em massa, lidos em streaming do corpo da requisição
+     * POST /users/import com Content-Type application/x-ndjson ou text/csv
+     * Linhas com erro não interrompem a importação e vêm no relatório.
+     */
+    @PostMapping(value = "/import", consumes = {MediaType.APPLICATION_NDJSON_VALUE, TEXT_CSV_VALUE})
+    public ResponseEntity<?> importUsers(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                         InputStream body){
+        UserImportService.Format format = MediaType.APPLICATION_NDJSON.isCompatibleWith(contentType)
+                ? UserImportService.Format.NDJSON : UserImportService.Format.CSV;
+        try {
+            return ResponseEntity.ok(userImportService.importUsers(body, format));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Substituir os dados do usuário
+     * PUT /users com o usuário completo; com a version lida, só altera se ele não mudou desde a leitura
+     * Responde com o usuário e a nova version; 409 quando outra requisição alterou o usuário antes
+     * ou cadastrou o mesmo e-mail ao mesmo tempo.
+     */
     @PutMapping("")
-    public UserDTO updateUser(@RequestBody UserDTO userDTO){
-        return userService.updateUser(userDTO);
+    public ResponseEntity<?> updateUser(@RequestBody UserDTO userDTO){
+        try {
+            return ResponseEntity.ok(userService.updateUser(userDTO));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", VERSION_CONFLICT_MESSAGE));
+        } catch (DataIntegrityViolationException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", EMAIL_CONFLICT_MESSAGE));
+        }
+    }
+
+    /**
+     * Alterar só os campos enviados, se o usuário não mudou desde a leitura
+     * PATCH /users com {"id": 1, "version": 3, "biography": "..."}
+     * Responde com a nova version; 409 quando outra requisição alterou o usuário antes.
+     */
+    @PatchMapping("")
+    public ResponseEntity<Map<String, Object>> patchUser(@RequestBody UserPatchDTO patch){
+        UserService.PatchResult result;
+        try {
+            result = userService.patchUser(patch);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+
+        return switch (result.outcome()) {
+            case UPDATED -> ResponseEntity.ok(Map.of("id", patch.id(), "version", result.version()));
+            case NOT_FOUND -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", "Usuário não encontrado"));
+            case VERSION_CONFLICT -> ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", VERSION_CONFLICT_MESSAGE));
+        };
     }
 
     @DeleteMapping("")
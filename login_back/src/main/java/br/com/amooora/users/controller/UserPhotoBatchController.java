@@ -0,0 +1,188 @@
+package br.com.amooora.users.controller;
+
+import br.com.amooora.users.dto.PhotoBatchRequest;
+import br.com.amooora.users.dto.PhotoInfoDto;
+import br.com.amooora.users.service.UserPhotoBatchService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Operações em lote sobre as fotos de um usuário: uma requisição no lugar de uma por foto
+ * (ex: telas de galeria que precisavam de N chamadas a /info, /exists e /url).
+ */
+@RestController
+@RequestMapping("/api/users/{userId}/photos/batch")
+@RequiredArgsConstructor
+public class UserPhotoBatchController {
+
+    private final UserPhotoBatchService batchService;
+
+    @Value("${storage.batch.max-items:100}")
+    private int maxItems;
+
+    /**
+     * Upload de várias fotos numa única requisição multipart (campo "files")
+     * POST /api/users/{userId}/photos/batch
+     */
+    @PostMapping
+    public ResponseEntity<Map<String, Object>> uploadUserPhotos(
+            @PathVariable String userId,
+            @RequestParam("files") List<MultipartFile> files) {
+        
+        if (files.isEmpty() || files.size() > maxItems) {
+            return invalidBatchSize();
+        }
+
+        List<UserPhotoBatchService.UploadResult> results = batchService.upload(userId, files);
+        
+        List<Map<String, String>> uploaded = results.stream()
+                .filter(UserPhotoBatchService.UploadResult::succeeded)
+                .map(result -> Map.of(
+                        "originalName", String.valueOf(result.originalName()),
+                        "photoName", result.photoName(),
+                        "fullPath", result.fullPath()
+                ))
+                .toList();
+        List<Map<String, String>> failed = results.stream()
+                .filter(result -> !result.succeeded())
+                .map(result -> Map.of(
+                        "originalName", String.valueOf(result.originalName()),
+                        "error", String.valueOf(result.error())
+                ))
+                .toList();
+        
+        // 207 quando parte dos arquivos falhou
+        return ResponseEntity.status(failed.isEmpty() ? HttpStatus.CREATED : HttpStatus.MULTI_STATUS)
+                .body(Map.of(
+                        "userId", userId,
+                        "uploaded", uploaded,
+                        "failed", failed
+                ));
+    }
+
+    /**
+     * Informações de várias fotos
+     * POST /api/users/{userId}/photos/batch/info  {"photoNames": [...]}
+     */
+    @PostMapping("/info")
+    public ResponseEntity<Map<String, Object>> getUserPhotosInfo(
+            @PathVariable String userId,
+            @RequestBody PhotoBatchRequest request) {
+        
+        List<String> photoNames = request.photoNames();
+        if (photoNames.isEmpty() || photoNames.size() > maxItems) {
+            return invalidBatchSize();
+        }
+
+        List<PhotoInfoDto> photos = new ArrayList<>();
+        List<String> notFound = new ArrayList<>();
+        batchService.stat(userId, photoNames).forEach((photoName, info) -> info.ifPresentOrElse(
+                metadata -> photos.add(new PhotoInfoDto(
+                        photoName,
+                        metadata.getSize(),
+                        metadata.getContentType(),
+                        metadata.getLastModified(),
+                        metadata.getEtag(),
+                        null
+                )),
+                () -> notFound.add(photoName)
+        ));
+        
+        return ResponseEntity.ok(Map.of(
+                "userId", userId,
+                "photos", photos,
+                "notFound", notFound
+        ));
+    }
+
+    /**
+     * Existência de várias fotos
+     * POST /api/users/{userId}/photos/batch/exists  {"photoNames": [...]}
+     */
+    @PostMapping("/exists")
+    public ResponseEntity<Map<String, Object>> userPhotosExist(
+            @PathVariable String userId,
+            @RequestBody PhotoBatchRequest request) {
+        
+        List<String> photoNames = request.photoNames();
+        if (photoNames.isEmpty() || photoNames.size() > maxItems) {
+            return invalidBatchSize();
+        }
+
+        Map<String, Boolean> exists = new LinkedHashMap<>();
+        batchService.stat(userId, photoNames).forEach((photoName, info) -> exists.put(photoName, info.isPresent()));
+        
+        return ResponseEntity.ok(Map.of(
+                "userId", userId,
+                "photos", exists
+        ));
+    }
+
+    /**
+     * URLs pré-assinadas de várias fotos
+     * POST /api/users/{userId}/photos/batch/urls  {"photoNames": [...], "expiryMinutes": 60}
+     */
+    @PostMapping("/urls")
+    public ResponseEntity<Map<String, Object>> getUserPhotoUrls(
+            @PathVariable String userId,
+            @RequestBody PhotoBatchRequest request) {
+        
+        List<String> photoNames = request.photoNames();
+        if (photoNames.isEmpty() || photoNames.size() > maxItems) {
+            return invalidBatchSize();
+        }
+
+        Map<String, PhotoInfoDto> urls = batchService.presignedUrls(userId, photoNames, request.expiryMinutesOrDefault());
+        List<String> notFound = photoNames.stream()
+                .filter(photoName -> !urls.containsKey(photoName))
+                .toList();
+        
+        return ResponseEntity.ok(Map.of(
+                "userId", userId,
+                "expiryMinutes", request.expiryMinutesOrDefault(),
+                "photos", List.copyOf(urls.values()),
+                "notFound", notFound
+        ));
+    }
+
+    /**
+     * Remoção de várias fotos (e das variantes delas) em lote
+     * POST /api/users/{userId}/photos/batch/delete  {"photoNames": [...]}
+     */
+    @PostMapping("/delete")
+    public ResponseEntity<Map<String, Object>> deleteUserPhotos(
+            @PathVariable String userId,
+            @RequestBody PhotoBatchRequest request) {
+        
+        List<String> photoNames = request.photoNames();
+        if (photoNames.isEmpty() || photoNames.size() > maxItems) {
+            return invalidBatchSize();
+        }
+
+        Map<String, String> failed = batchService.delete(userId, photoNames);
+        List<String> deleted = photoNames.stream()
+                .filter(photoName -> !failed.containsKey(photoName))
+                .toList();
+        
+        return ResponseEntity.status(failed.isEmpty() ? HttpStatus.OK : HttpStatus.MULTI_STATUS)
+                .body(Map.of(
+                        "userId", userId,
+                        "deleted", deleted,
+                        "failed", failed
+                ));
+    }
+
+    private ResponseEntity<Map<String, Object>> invalidBatchSize() {
+        return ResponseEntity.badRequest()
+                .body(Map.of("error", "Informe entre 1 e " + maxItems + " fotos por requisição"));
+    }
+}
@@ -1,17 +1,31 @@
 package br.com.amooora.users.controller;
 
-import br.com.amooora.users.dto.PhotoMetadata;
+import br.com.amooora.users.dto.PhotoDownloadRequest;
+import br.com.amooora.users.dto.PhotoPage;
+import br.com.amooora.users.dto.ResizeSpec;
+import br.com.amooora.users.dto.VariantJobStatus;
+import br.com.amooora.users.service.PhotoDedupService;
+import br.com.amooora.users.service.PhotoFormatNegotiator;
+import br.com.amooora.users.service.PhotoVariantService;
+import br.com.amooora.users.service.UserAvatarLocator;
+import br.com.amooora.users.service.UserPhotoManifest;
+import br.com.amooora.users.service.VariantPrecomputeQueue;
+import br.com.amooora.users.service.VariantSizePolicy;
 import br.com.amooora.users.service.storage.StorageService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.core.io.InputStreamResource;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 
 @RestController
@@ -19,7 +33,15 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class UserPhotoController {
 
+    private static final int MAX_PAGE_SIZE = 1000;
+
     private final StorageService storageService;
+    private final UserAvatarLocator avatarLocator;
+    private final PhotoVariantService variantService;
+    private final VariantPrecomputeQueue precomputeQueue;
+    private final UserPhotoManifest manifest;
+    private final PhotoDedupService dedup;
+    private final VariantSizePolicy variantSizes;
 
     /**
      * Upload de foto para um usuário específico
@@ -42,11 +64,20 @@ public class UserPhotoController {
         // Cria o caminho: users/{userId}/{fileName}
         String objectName = buildUserPhotoPath(userId, fileName);
         
-        String uploadedName = storageService.uploadPhoto(
-                objectName,
-                file.getBytes(),
-                file.getContentType()
-        );
+        String uploadedName;
+        try (InputStream photoStream = file.getInputStream()) {
+            uploadedName = storageService.uploadPhoto(
+                    objectName,
+                    photoStream,
+                    file.getSize(),
+                    file.getContentType()
+            );
+        }
+        // Nome gerado é sempre novo; só um nome informado pode sobrescrever uma foto com variantes
+        if (photoName != null) {
+            variantService.invalidate(objectName);
+        }
+        precomputeQueue.submit(objectName, VariantPrecomputeQueue.Kind.PHOTO);
         
         return ResponseEntity.status(HttpStatus.CREATED)
                 .body(Map.of(
@@ -57,6 +88,40 @@ public class UserPhotoController {
                 ));
     }
 
+    /**
+     * Cria a foto a partir de um conteúdo já armazenado, informando só o SHA-256 (sem enviar o arquivo).
+     * 404 quando o conteúdo não existe ou a deduplicação está desligada: o cliente faz o upload normal.
+     * POST /api/users/{userId}/photos/by-hash?sha256=...&photoName=...
+     */
+    @PostMapping("/by-hash")
+    public ResponseEntity<Map<String, String>> linkUserPhoto(
+            @PathVariable String userId,
+            @RequestParam String sha256,
+            @RequestParam(required = false) String photoName,
+            @RequestParam(required = false) String fileName) {
+
+        // fileName só serve para a extensão do nome gerado
+        String name = photoName != null ? photoName : generateUniqueFileName(fileName);
+        String objectName = buildUserPhotoPath(userId, name);
+
+        if (!dedup.linkExisting(objectName, sha256)) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", "Conteúdo não encontrado, envie o arquivo"));
+        }
+        if (photoName != null) {
+            variantService.invalidate(objectName);
+        }
+        precomputeQueue.submit(objectName, VariantPrecomputeQueue.Kind.PHOTO);
+
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(Map.of(
+                        "message", "Foto enviada com sucesso",
+                        "userId", userId,
+                        "photoName", name,
+                        "fullPath", objectName
+                ));
+    }
+
     /**
      * Upload de avatar do usuário (substitui o anterior)
      * POST /api/users/{userId}/photos/avatar
@@ -75,11 +140,18 @@ public class UserPhotoController {
         String extension = getFileExtension(file.getOriginalFilename());
         String objectName = buildUserPhotoPath(userId, "avatar" + extension);
         
-        String uploadedName = storageService.uploadPhoto(
-                objectName,
-                file.getBytes(),
-                file.getContentType()
-        );
+        String uploadedName;
+        try (InputStream photoStream = file.getInputStream()) {
+            uploadedName = storageService.uploadPhoto(
+                    objectName,
+                    photoStream,
+                    file.getSize(),
+                    file.getContentType()
+            );
+        }
+        avatarLocator.evict(userId);
+        variantService.invalidate(objectName);
+        precomputeQueue.submit(objectName, VariantPrecomputeQueue.Kind.AVATAR);
         
         return ResponseEntity.status(HttpStatus.CREATED)
                 .body(Map.of(
@@ -90,40 +162,61 @@ public class UserPhotoController {
     }
 
     /**
-     * Download de foto específica do usuário
-     * GET /api/users/{userId}/photos/{photoName}
+     * Download de foto específica do usuário, opcionalmente redimensionada, no formato aceito pelo cliente
+     * GET /api/users/{userId}/photos/{photoName}?w=256&h=256&fit=cover (ou ?preset=thumb)
+     * Só os presets e os tamanhos de storage.variants.allowed-sizes; outros respondem 400.
      */
     @GetMapping("/{photoName}")
     public ResponseEntity<InputStreamResource> downloadUserPhoto(
             @PathVariable String userId,
-            @PathVariable String photoName) {
+            @PathVariable String photoName,
+            @RequestParam(required = false) Integer w,
+            @RequestParam(required = false) Integer h,
+            @RequestParam(required = false) String fit,
+            @RequestParam(required = false) String preset,
+            @RequestHeader HttpHeaders headers) {
+        
+        Optional<ResizeSpec> spec;
+        try {
+            spec = variantSizes.resolve(preset, w, h, fit);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
         
         String objectName = buildUserPhotoPath(userId, photoName);
-        return storageService.downloadPhoto(objectName);
+        return download(objectName, spec, headers);
     }
 
     /**
-     * Download do avatar do usuário
-     * GET /api/users/{userId}/photos/avatar
+     * Download do avatar do usuário, opcionalmente redimensionado
+     * GET /api/users/{userId}/photos/avatar?preset=avatar
      */
     @GetMapping("/avatar")
-    public ResponseEntity<InputStreamResource> downloadAvatar(@PathVariable String userId) {
-        // Tenta encontrar avatar com diferentes extensões
-        String[] extensions = {".jpg", ".jpeg", ".png", ".webp"};
+    public ResponseEntity<InputStreamResource> downloadAvatar(
+            @PathVariable String userId,
+            @RequestParam(required = false) Integer w,
+            @RequestParam(required = false) Integer h,
+            @RequestParam(required = false) String fit,
+            @RequestParam(required = false) String preset,
+            @RequestHeader HttpHeaders headers) {
         
-        for (String ext : extensions) {
-            String objectName = buildUserPhotoPath(userId, "avatar" + ext);
-            if (storageService.photoExists(objectName)) {
-                return storageService.downloadPhoto(objectName);
-            }
+        Optional<ResizeSpec> spec;
+        try {
+            spec = variantSizes.resolve(preset, w, h, fit);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
         }
         
-        return ResponseEntity.notFound().build();
+        // A extensão do avatar é resolvida uma vez e fica em cache
+        return avatarLocator.findAvatar(userId)
+                .map(objectName -> download(objectName, spec, headers))
+                .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
     /**
      * Obter URL pré-assinada para foto do usuário
      * GET /api/users/{userId}/photos/{photoName}/url
+     * Um único stat confere a foto; a URL é assinada a partir dele, como no /batch/urls.
      */
     @GetMapping("/{photoName}/url")
     public ResponseEntity<Map<String, String>> getUserPhotoUrl(
@@ -133,38 +226,38 @@ public class UserPhotoController {
         
         String objectName = buildUserPhotoPath(userId, photoName);
         
-        if (!storageService.photoExists(objectName)) {
-            return ResponseEntity.notFound().build();
-        }
-        
-        String url = storageService.getPresignedDownloadUrl(objectName, expiryMinutes);
-        return ResponseEntity.ok(Map.of(
-                "downloadUrl", url,
-                "expiryMinutes", String.valueOf(expiryMinutes),
-                "userId", userId,
-                "photoName", photoName
-        ));
+        return storageService.stat(objectName)
+                .map(metadata -> ResponseEntity.ok(Map.of(
+                        "downloadUrl", storageService.getPresignedDownloadUrl(metadata.getObject(), expiryMinutes),
+                        "expiryMinutes", String.valueOf(expiryMinutes),
+                        "userId", userId,
+                        "photoName", photoName
+                )))
+                .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
     /**
-     * Listar todas as fotos de um usuário
-     * GET /api/users/{userId}/photos
+     * Listar as fotos de um usuário, paginadas (pelo manifesto, sem LIST no bucket)
+     * GET /api/users/{userId}/photos?limit=100&cursor=...
      */
     @GetMapping
-    public ResponseEntity<Map<String, Object>> listUserPhotos(@PathVariable String userId) {
-        String prefix = "users/" + userId + "/";
-        List<String> photos = storageService.listPhotos(prefix);
+    public ResponseEntity<Map<String, Object>> listUserPhotos(
+            @PathVariable String userId,
+            @RequestParam(defaultValue = "1000") int limit,
+            @RequestParam(required = false) String cursor) {
         
-        // Remove o prefixo para retornar apenas os nomes dos arquivos
-        List<String> photoNames = photos.stream()
-                .map(path -> path.replace(prefix, ""))
-                .toList();
+        PhotoPage page = manifest.listPhotos(userId, Math.clamp(limit, 1, MAX_PAGE_SIZE), cursor);
+        List<String> photoNames = page.photos();
         
-        return ResponseEntity.ok(Map.of(
-                "userId", userId,
-                "totalPhotos", photoNames.size(),
-                "photos", photoNames
-        ));
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("userId", userId);
+        // Fotos nesta página; o total exigiria contar todas a cada página
+        body.put("count", photoNames.size());
+        body.put("photos", photoNames);
+        if (page.hasMore()) {
+            body.put("nextCursor", page.nextCursor());
+        }
+        return ResponseEntity.ok(body);
     }
 
     /**
@@ -197,20 +290,32 @@ public class UserPhotoController {
         
         String objectName = buildUserPhotoPath(userId, photoName);
         
-        if (!storageService.photoExists(objectName)) {
-            return ResponseEntity.notFound().build();
-        }
-        
-        PhotoMetadata info = storageService.getPhotoInfo(objectName);
+        // Existência e metadados numa única consulta ao storage
+        return storageService.stat(objectName)
+                .map(info -> ResponseEntity.ok(Map.<String, Object>of(
+                        "userId", userId,
+                        "photoName", photoName,
+                        "size", info.getSize(),
+                        "contentType", info.getContentType(),
+                        "lastModified", info.getLastModified(),
+                        "etag", info.getEtag()
+                )))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Situação da geração das variantes após o upload
+     * GET /api/users/{userId}/photos/{photoName}/variants/status
+     */
+    @GetMapping("/{photoName}/variants/status")
+    public ResponseEntity<VariantJobStatus> getVariantStatus(
+            @PathVariable String userId,
+            @PathVariable String photoName) {
         
-        return ResponseEntity.ok(Map.of(
-                "userId", userId,
-                "photoName", photoName,
-                "size", info.getSize(),
-                "contentType", info.getContentType(),
-                "lastModified", info.getLastModified(),
-                "etag", info.getEtag()
-        ));
+        String objectName = buildUserPhotoPath(userId, photoName);
+        return precomputeQueue.status(objectName)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
     /**
@@ -222,13 +327,10 @@ public class UserPhotoController {
             @PathVariable String userId,
             @RequestParam(defaultValue = "60") int expiryMinutes) {
         
-        String prefix = "users/" + userId + "/";
-        List<String> photos = storageService.listPhotos(prefix);
-        
-        List<Map<String, String>> photoUrls = photos.stream()
-                .map(fullPath -> {
-                    String photoName = fullPath.replace(prefix, "");
-                    String url = storageService.getPresignedDownloadUrl(fullPath, expiryMinutes);
+        List<Map<String, String>> photoUrls = manifest.listPhotos(userId).stream()
+                .map(photoName -> {
+                    String url = storageService.getPresignedDownloadUrl(
+                            buildUserPhotoPath(userId, photoName), expiryMinutes);
                     return Map.of(
                             "photoName", photoName,
                             "url", url
@@ -246,6 +348,13 @@ public class UserPhotoController {
 
     // Métodos auxiliares
 
+    // O formato servido (WebP, JPEG recomprimido...) é escolhido pelo Accept
+    private ResponseEntity<InputStreamResource> download(String objectName, Optional<ResizeSpec> spec,
+                                                         HttpHeaders headers) {
+        return variantService.download(objectName, spec, PhotoDownloadRequest.from(headers),
+                PhotoFormatNegotiator.accept(headers));
+    }
+
     private String buildUserPhotoPath(String userId, String photoName) {
         return String.format("users/%s/%s", userId, photoName);
     }
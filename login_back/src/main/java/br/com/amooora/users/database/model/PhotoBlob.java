@@ -0,0 +1,52 @@
+package br.com.amooora.users.database.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * Conteúdo de foto gravado uma única vez no storage, em blobs/{sha256}.
+ * As fotos dos usuários que têm esse conteúdo apontam para ele (UserPhoto.blobDigest);
+ * refCount conta essas referências e, quando chega a zero, o blob pode ser coletado.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "photo_blob",
+        uniqueConstraints = @UniqueConstraint(name = "uk_photo_blob_digest", columnNames = "digest"))
+public class PhotoBlob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // SHA-256 do conteúdo em hexadecimal
+    @Column(nullable = false, length = 64)
+    private String digest;
+
+    private Long size;
+
+    private String contentType;
+
+    private String etag;
+
+    @Column(nullable = false)
+    private long refCount;
+
+    // Último acquire/release: a coleta só remove blobs sem referência há algum tempo
+    @Column(nullable = false)
+    private Instant updatedAt;
+
+    public PhotoBlob(String digest, Long size, String contentType, String etag) {
+        this.digest = digest;
+        this.size = size;
+        this.contentType = contentType;
+        this.etag = etag;
+        this.refCount = 1;
+        this.updatedAt = Instant.now();
+    }
+}
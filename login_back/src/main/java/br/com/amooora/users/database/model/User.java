@@ -10,12 +10,14 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 import java.time.LocalDate;
+import java.util.Locale;
 
 @Entity
 @Getter
 @Setter
 @NoArgsConstructor
-@Table(name = "user")
+@Table(name = "user",
+        uniqueConstraints = @UniqueConstraint(name = "uk_user_email_normalized", columnNames = "email_normalized"))
 public class User {
 
     @Id
@@ -29,6 +31,10 @@ public class User {
     @NotBlank
     private String email;
 
+    // E-mail sem espaços e em minúsculas: a busca do login é exata e usa o índice único
+    @Column(name = "email_normalized")
+    private String emailNormalized;
+
     @NotBlank
     private String phone_number;
 
@@ -45,6 +51,11 @@ public class User {
 
     private String url_picture;
 
+    // Linhas anteriores à coluna começam na versão 0
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint not null default 0")
+    private Long version;
+
     public User(String name, String email, String phone_number,
                 String cep, LocalDate birthday, String biography, String url_picture) {
         this.name = name;
@@ -55,4 +66,14 @@ public class User {
         this.biography = biography;
         this.url_picture = url_picture;
     }
+
+    public static String normalizeEmail(String email) {
+        return email != null ? email.trim().toLowerCase(Locale.ROOT) : null;
+    }
+
+    @PrePersist
+    @PreUpdate
+    void syncEmailNormalized() {
+        this.emailNormalized = normalizeEmail(email);
+    }
 }
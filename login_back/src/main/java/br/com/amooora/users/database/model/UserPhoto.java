@@ -0,0 +1,49 @@
+package br.com.amooora.users.database.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * Entrada do manifesto de fotos de um usuário (objeto users/{userId}/{name} no storage).
+ * Evita LIST no bucket para listar e contar as fotos.
+ */
+@Entity
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "user_photo",
+        uniqueConstraints = @UniqueConstraint(name = "uk_user_photo_user_name", columnNames = {"user_id", "name"}))
+public class UserPhoto {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private String userId;
+
+    @Column(nullable = false)
+    private String name;
+
+    private Long size;
+
+    private String contentType;
+
+    private String etag;
+
+    @Column(nullable = false)
+    private Instant uploadedAt;
+
+    // Com deduplicação: o conteúdo está em blobs/{blobDigest} e não em users/{userId}/{name}
+    @Column(length = 64)
+    private String blobDigest;
+
+    public UserPhoto(String userId, String name) {
+        this.userId = userId;
+        this.name = name;
+    }
+}
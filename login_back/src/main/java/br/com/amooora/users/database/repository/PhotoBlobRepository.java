@@ -0,0 +1,45 @@
+package br.com.amooora.users.database.repository;
+
+import br.com.amooora.users.database.model.PhotoBlob;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+// Interno da deduplicação: não é exposto pelo Spring Data REST
+@Repository
+@RepositoryRestResource(exported = false)
+public interface PhotoBlobRepository extends JpaRepository<PhotoBlob, Long> {
+
+    Optional<PhotoBlob> findByDigest(String digest);
+
+    /**
+     * Soma uma referência ao blob. Devolve 0 quando o blob não existe (ou acabou de ser coletado).
+     */
+    @Transactional
+    @Modifying
+    @Query("update PhotoBlob b set b.refCount = b.refCount + 1, b.updatedAt = :now where b.digest = :digest")
+    int acquire(String digest, Instant now);
+
+    @Transactional
+    @Modifying
+    @Query("update PhotoBlob b set b.refCount = b.refCount - 1, b.updatedAt = :now "
+            + "where b.digest = :digest and b.refCount > 0")
+    int release(String digest, Instant now);
+
+    List<PhotoBlob> findByRefCountAndUpdatedAtBefore(long refCount, Instant cutoff, Limit limit);
+
+    // A coleta trava a linha: um acquire concorrente espera e, depois do commit, não acha mais o blob
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select b from PhotoBlob b where b.id = :id")
+    Optional<PhotoBlob> lockById(Long id);
+}
@@ -0,0 +1,35 @@
+package br.com.amooora.users.database.repository;
+
+import br.com.amooora.users.database.model.UserPhoto;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+// Manifesto interno: não é exposto pelo Spring Data REST
+@Repository
+@RepositoryRestResource(exported = false)
+public interface UserPhotoRepository extends JpaRepository<UserPhoto, Long> {
+
+    Optional<UserPhoto> findByUserIdAndName(String userId, String name);
+
+    List<UserPhoto> findByUserIdOrderByNameAsc(String userId);
+
+    // Paginação por chave: a próxima página começa depois do último nome devolvido
+    List<UserPhoto> findByUserIdAndNameGreaterThanOrderByNameAsc(String userId, String after, Limit limit);
+
+    List<UserPhoto> findByUserIdOrderByNameAsc(String userId, Limit limit);
+
+    long countByUserId(String userId);
+
+    @Transactional
+    void deleteByUserIdAndNameIn(String userId, List<String> names);
+
+    @Query("select distinct p.userId from UserPhoto p")
+    List<String> findDistinctUserIds();
+}
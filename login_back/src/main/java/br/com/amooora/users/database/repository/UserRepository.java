@@ -1,16 +1,52 @@
 package br.com.amooora.users.database.repository;
 
 import br.com.amooora.users.database.model.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
 
-    @Query("select u from User u where u.email like :email")
-    Optional<User> findUserByEmail(String email);
+    Optional<User> findByEmailNormalized(String emailNormalized);
+
+    @Query("select u.emailNormalized from User u where u.emailNormalized in :emails")
+    List<String> findRegisteredEmails(Collection<String> emails);
+
+    // Só enquanto o email_normalized das linhas antigas não foi preenchido (UserEmailBackfill)
+    @Query("select u from User u where u.emailNormalized is null and lower(trim(u.email)) = :email")
+    List<User> findUnnormalizedByEmail(String email);
+
+    @Query("select max(u.id) from User u")
+    Optional<Long> findMaxId();
+
+    // IGNORE: e-mails que ficariam duplicados depois de normalizados são pulados, não abortam o lote
+    @Transactional
+    @Modifying
+    @Query(value = "update ignore user set email_normalized = lower(trim(email)) "
+            + "where email_normalized is null and email is not null and id > :after and id <= :until",
+            nativeQuery = true)
+    int normalizeEmails(long after, long until);
+
+    long countByEmailNormalizedIsNullAndEmailIsNotNull();
+
+    // Paginação por chave: a próxima página começa depois do último id devolvido
+    List<User> findByIdGreaterThanOrderByIdAsc(Long after, Limit limit);
+
+    // Fetch size Integer.MIN_VALUE faz o driver do MySQL ler linha a linha, sem carregar o resultado inteiro
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query("select u from User u order by u.id")
+    Stream<User> streamAll();
 
 }
@@ -0,0 +1,18 @@
+package br.com.amooora.users.dto;
+
+import java.util.List;
+
+/**
+ * Corpo das operações em lote sobre fotos de um usuário.
+ * expiryMinutes só é usado na geração de URLs (padrão 60).
+ */
+public record PhotoBatchRequest(List<String> photoNames, Integer expiryMinutes) {
+
+    public List<String> photoNames() {
+        return photoNames != null ? photoNames.stream().distinct().toList() : List.of();
+    }
+
+    public int expiryMinutesOrDefault() {
+        return expiryMinutes != null ? expiryMinutes : 60;
+    }
+}
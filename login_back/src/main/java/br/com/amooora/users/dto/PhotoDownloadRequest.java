@@ -0,0 +1,119 @@
+package br.com.amooora.users.dto;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Condições HTTP enviadas pelo cliente no download de uma foto
+ * (If-None-Match / If-Modified-Since / Range / If-Range).
+ */
+public record PhotoDownloadRequest(List<String> ifNoneMatch, Instant ifModifiedSince,
+                                   List<HttpRange> ranges, String ifRange) {
+
+    public static PhotoDownloadRequest unconditional() {
+        return new PhotoDownloadRequest(List.of(), null, List.of(), null);
+    }
+
+    public static PhotoDownloadRequest from(HttpHeaders headers) {
+        long ifModifiedSince = headers.getIfModifiedSince();
+        return new PhotoDownloadRequest(
+                headers.getIfNoneMatch(),
+                ifModifiedSince >= 0 ? Instant.ofEpochMilli(ifModifiedSince) : null,
+                parseRanges(headers),
+                headers.getFirst(HttpHeaders.IF_RANGE)
+        );
+    }
+
+    /**
+     * Avalia as condições contra os validadores do objeto (RFC 9110, seção 13.2.2):
+     * If-None-Match tem precedência e, quando presente, If-Modified-Since é ignorado.
+     */
+    public boolean isNotModified(String etag, ZonedDateTime lastModified) {
+        if (!ifNoneMatch.isEmpty()) {
+            return etag != null && ifNoneMatch.stream()
+                    .anyMatch(candidate -> candidate.equals("*") || opaqueTag(candidate).equals(opaqueTag(etag)));
+        }
+        if (ifModifiedSince != null && lastModified != null) {
+            // Datas HTTP têm precisão de segundos
+            return !lastModified.toInstant().truncatedTo(ChronoUnit.SECONDS).isAfter(ifModifiedSince);
+        }
+        return false;
+    }
+
+    /**
+     * Faixa pedida no header Range. Só um intervalo é suportado: pedidos com
+     * vários intervalos são ignorados e recebem a foto inteira (RFC 9110, seção 14.2).
+     */
+    public Optional<HttpRange> singleRange() {
+        return ranges.size() == 1 ? Optional.of(ranges.get(0)) : Optional.empty();
+    }
+
+    /**
+     * Faixa a servir para o objeto com esses validadores: vazia se não houver Range
+     * ou se o If-Range não bater com a versão atual (aí a foto vai inteira).
+     */
+    public Optional<HttpRange> rangeFor(String etag, ZonedDateTime lastModified) {
+        return singleRange().filter(range -> ifRangeMatches(etag, lastModified));
+    }
+
+    /**
+     * O If-Range traz um ETag (e não uma data)?
+     */
+    public boolean ifRangeIsEtag() {
+        return ifRange != null && (ifRange.startsWith("\"") || ifRange.startsWith("W/"));
+    }
+
+    /**
+     * Data do If-Range, quando ele não traz um ETag
+     */
+    public Optional<Instant> ifRangeDate() {
+        if (ifRange == null || ifRangeIsEtag()) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(ZonedDateTime.parse(ifRange, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant());
+        } catch (DateTimeParseException e) {
+            return Optional.empty();
+        }
+    }
+
+    private boolean ifRangeMatches(String etag, ZonedDateTime lastModified) {
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRangeIsEtag()) {
+            // If-Range exige comparação forte
+            return etag != null && !ifRange.startsWith("W/") && !etag.startsWith("W/")
+                    && opaqueTag(ifRange).equals(opaqueTag(etag));
+        }
+        return lastModified != null && ifRangeDate()
+                .map(date -> lastModified.toInstant().truncatedTo(ChronoUnit.SECONDS).equals(date))
+                .orElse(false);
+    }
+
+    // Range inválido é ignorado, como se não tivesse sido enviado
+    private static List<HttpRange> parseRanges(HttpHeaders headers) {
+        try {
+            return headers.getRange();
+        } catch (IllegalArgumentException e) {
+            return List.of();
+        }
+    }
+
+    // Comparação fraca: ignora o prefixo W/ e as aspas
+    private static String opaqueTag(String etag) {
+        String tag = etag.trim();
+        if (tag.startsWith("W/")) {
+            tag = tag.substring(2);
+        }
+        return tag.replace("\"", "");
+    }
+}
@@ -0,0 +1,14 @@
+package br.com.amooora.users.dto;
+
+import java.util.List;
+
+/**
+ * Página de uma listagem de fotos. O nextCursor é opaco para o cliente e deve
+ * ser reenviado como cursor para buscar a próxima página (null = última página).
+ */
+public record PhotoPage(List<String> photos, String nextCursor) {
+
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,79 @@
+package br.com.amooora.users.dto;
+
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Dimensões pedidas para uma variante da foto (?w=&h=&fit= ou ?preset=).
+ * Basta uma das dimensões: a outra segue a proporção do original.
+ * A imagem nunca é ampliada além do tamanho original.
+ */
+public record ResizeSpec(Integer width, Integer height, Fit fit) {
+
+    public static final int MAX_DIMENSION = 2048;
+
+    public enum Fit {
+        /** Preenche w x h e corta o excesso, centralizado */
+        COVER,
+        /** Cabe inteira dentro de w x h, mantendo a proporção */
+        CONTAIN,
+        /** Estica para exatamente w x h */
+        FILL
+    }
+
+    public ResizeSpec {
+        if (width == null && height == null) {
+            throw new IllegalArgumentException("Informe largura ou altura da variante");
+        }
+        checkDimension(width);
+        checkDimension(height);
+        if (fit == null) {
+            fit = Fit.CONTAIN;
+        }
+    }
+
+    /**
+     * Lê os parâmetros da requisição. Vazio quando nenhum foi enviado (foto original);
+     * IllegalArgumentException quando algum é inválido.
+     */
+    public static Optional<ResizeSpec> from(String preset, Integer width, Integer height, String fit) {
+        if (preset != null) {
+            return Optional.of(VariantPreset.fromName(preset).spec());
+        }
+        if (width == null && height == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new ResizeSpec(width, height, parseFit(fit)));
+    }
+
+    /**
+     * Parte da chave da variante no storage, ex: "w64-h64-cover"
+     */
+    public String key() {
+        StringBuilder key = new StringBuilder();
+        if (width != null) {
+            key.append('w').append(width).append('-');
+        }
+        if (height != null) {
+            key.append('h').append(height).append('-');
+        }
+        return key.append(fit.name().toLowerCase(Locale.ROOT)).toString();
+    }
+
+    private static Fit parseFit(String fit) {
+        if (fit == null || fit.isBlank()) {
+            return Fit.CONTAIN;
+        }
+        try {
+            return Fit.valueOf(fit.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Modo de ajuste inválido: " + fit);
+        }
+    }
+
+    private static void checkDimension(Integer dimension) {
+        if (dimension != null && (dimension < 1 || dimension > MAX_DIMENSION)) {
+            throw new IllegalArgumentException("Dimensão deve estar entre 1 e " + MAX_DIMENSION + ": " + dimension);
+        }
+    }
+}
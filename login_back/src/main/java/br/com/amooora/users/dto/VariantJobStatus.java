@@ -0,0 +1,27 @@
+package br.com.amooora.users.dto;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Situação da geração antecipada das variantes de uma foto
+ */
+public record VariantJobStatus(State state, List<String> variants, int attempts, String error, Instant updatedAt) {
+
+    public enum State {
+        /** Aguardando um worker */
+        QUEUED,
+        /** Sendo gerada */
+        PROCESSING,
+        /** Variantes gravadas no storage */
+        DONE,
+        /** Falhou em todas as tentativas; as variantes serão geradas no primeiro acesso */
+        FAILED,
+        /** Fila cheia; as variantes serão geradas no primeiro acesso */
+        REJECTED
+    }
+
+    public VariantJobStatus next(State state, int attempts, String error) {
+        return new VariantJobStatus(state, variants, attempts, error, Instant.now());
+    }
+}
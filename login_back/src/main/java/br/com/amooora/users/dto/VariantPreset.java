@@ -0,0 +1,35 @@
+package br.com.amooora.users.dto;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Tamanhos nomeados para as telas do app (?preset=thumb)
+ */
+public enum VariantPreset {
+
+    AVATAR(64, 64, ResizeSpec.Fit.COVER),
+    THUMB(256, 256, ResizeSpec.Fit.COVER),
+    MEDIUM(1024, 1024, ResizeSpec.Fit.CONTAIN);
+
+    private final int width;
+    private final int height;
+    private final ResizeSpec.Fit fit;
+
+    VariantPreset(int width, int height, ResizeSpec.Fit fit) {
+        this.width = width;
+        this.height = height;
+        this.fit = fit;
+    }
+
+    public ResizeSpec spec() {
+        return new ResizeSpec(width, height, fit);
+    }
+
+    public static VariantPreset fromName(String name) {
+        return Arrays.stream(values())
+                .filter(preset -> preset.name().equalsIgnoreCase(name))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Preset inválido: " + name.toLowerCase(Locale.ROOT)));
+    }
+}
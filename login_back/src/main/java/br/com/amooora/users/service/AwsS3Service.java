@@ -1,100 +1,271 @@
 package br.com.amooora.users.service;
 
+import br.com.amooora.users.dto.PhotoDownloadRequest;
 import br.com.amooora.users.dto.PhotoMetadata;
+import br.com.amooora.users.dto.PhotoPage;
+import br.com.amooora.users.service.storage.MultipartStore;
+import br.com.amooora.users.service.storage.MultipartTransferEngine;
+import br.com.amooora.users.service.storage.PhotoResponses;
+import br.com.amooora.users.service.storage.PresignedUrlCache;
+import br.com.amooora.users.service.storage.S3MultipartStore;
 import br.com.amooora.users.service.storage.StorageService;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.core.io.InputStreamResource;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.http.SdkHttpResponse;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.*;
 import software.amazon.awssdk.services.s3.presigner.S3Presigner;
 import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
 import software.amazon.awssdk.services.s3.presigner.model.PresignedGetObjectRequest;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
-import java.util.ArrayList;
+import java.time.format.DateTimeFormatter;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Service
 @ConditionalOnProperty(name = "storage.provider", havingValue = "s3")
+@Qualifier("storageBackend")
 @RequiredArgsConstructor
 @Slf4j
 public class AwsS3Service implements StorageService {
 
+    // Limite de chaves por chamada ao DeleteObjects
+    private static final int MAX_KEYS_PER_DELETE = 1000;
+
     private final S3Client s3Client;
     private final S3Presigner s3Presigner;
+    private final PresignedUrlCache presignedUrlCache;
+    private final PhotoResponses photoResponses;
+    private final MultipartTransferEngine multipartTransfers;
 
     @Value("${aws.s3.bucket-name}")
     private String bucketName;
 
+    private MultipartStore multipartStore;
+
+    @PostConstruct
+    void initMultipartStore() {
+        multipartStore = new S3MultipartStore(s3Client, bucketName);
+    }
+
     /**
-     * Faz upload de uma foto para o S3
+     * Faz upload de uma foto para o S3.
+     * Arquivos grandes vão em partes enviadas em paralelo (storage.multipart.*).
      */
     @Override
-    public String uploadPhoto(String objectName, byte[] photoData, String contentType) {
+    public String uploadPhoto(String objectName, InputStream photoStream, long size, String contentType) {
         try {
-            PutObjectRequest putObjectRequest = PutObjectRequest.builder()
-                    .bucket(bucketName)
-                    .key(objectName)
-                    .contentType(contentType)
-                    .build();
+            if (multipartTransfers.useMultipart(size)) {
+                multipartTransfers.upload(multipartStore, objectName, photoStream, size, contentType);
+            } else {
+                PutObjectRequest putObjectRequest = PutObjectRequest.builder()
+                        .bucket(bucketName)
+                        .key(objectName)
+                        .contentType(contentType)
+                        .build();
 
-            s3Client.putObject(putObjectRequest, RequestBody.fromBytes(photoData));
+                s3Client.putObject(putObjectRequest, RequestBody.fromInputStream(photoStream, size));
+            }
             
             log.info("Foto enviada com sucesso para S3: {}", objectName);
             return objectName;
             
-        } catch (S3Exception e) {
+        } catch (IOException | S3Exception e) {
             log.error("Erro ao fazer upload da foto para S3: {}", objectName, e);
             throw new RuntimeException("Erro ao fazer upload da foto: " + e.getMessage());
         }
     }
 
     /**
-     * Faz download direto de uma foto do S3
+     * Remove uma foto do S3
      */
     @Override
-    public ResponseEntity<InputStreamResource> downloadPhoto(String objectName) {
+    public void deletePhoto(String objectName) {
         try {
-            GetObjectRequest getObjectRequest = GetObjectRequest.builder()
+            DeleteObjectRequest deleteObjectRequest = DeleteObjectRequest.builder()
                     .bucket(bucketName)
                     .key(objectName)
                     .build();
 
-            ResponseInputStream<GetObjectResponse> s3Object = s3Client.getObject(getObjectRequest);
-            GetObjectResponse response = s3Object.response();
+            s3Client.deleteObject(deleteObjectRequest);
+            presignedUrlCache.invalidate(objectName);
+            
+            log.info("Foto removida do S3: {}", objectName);
+            
+        } catch (S3Exception e) {
+            log.error("Erro ao remover a foto do S3: {}", objectName, e);
+            throw new RuntimeException("Erro ao remover a foto: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Remove várias fotos com DeleteObjects (até 1000 chaves por chamada)
+     */
+    @Override
+    public Map<String, String> deletePhotos(Collection<String> objectNames) {
+        List<String> keys = List.copyOf(objectNames);
+        Map<String, String> failures = new LinkedHashMap<>();
+        for (int from = 0; from < keys.size(); from += MAX_KEYS_PER_DELETE) {
+            List<String> chunk = keys.subList(from, Math.min(from + MAX_KEYS_PER_DELETE, keys.size()));
+            try {
+                DeleteObjectsRequest deleteObjectsRequest = DeleteObjectsRequest.builder()
+                        .bucket(bucketName)
+                        .delete(Delete.builder()
+                                .objects(chunk.stream()
+                                        .map(key -> ObjectIdentifier.builder().key(key).build())
+                                        .toList())
+                                .quiet(true)
+                                .build())
+                        .build();
 
-            String contentType = response.contentType() != null ? 
-                    response.contentType() : determineContentType(objectName);
+                // No modo quiet a resposta só traz as chaves que falharam
+                s3Client.deleteObjects(deleteObjectsRequest).errors()
+                        .forEach(error -> failures.put(error.key(), error.message()));
+            } catch (S3Exception e) {
+                log.error("Erro ao remover fotos do S3 em lote", e);
+                chunk.forEach(key -> failures.put(key, e.getMessage()));
+            }
+            chunk.forEach(presignedUrlCache::invalidate);
+        }
 
-            return ResponseEntity.ok()
-                    .contentType(MediaType.parseMediaType(contentType))
-                    .contentLength(response.contentLength())
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + objectName + "\"")
-                    .body(new InputStreamResource(s3Object));
+        log.info("{} fotos removidas do S3", keys.size() - failures.size());
+        return failures;
+    }
 
+    /**
+     * Faz download direto de uma foto do S3.
+     * As condições do cliente vão no próprio GetObject: se nada mudou o S3 responde 304
+     * e nenhum byte do objeto é transferido; com header Range, o S3 devolve só a faixa pedida.
+     * Sem Range, o GetObject pede só a primeira parte: objetos maiores que ela têm o resto
+     * lido por faixas em paralelo enquanto a resposta é enviada.
+     */
+    @Override
+    public ResponseEntity<InputStreamResource> downloadPhoto(String objectName, PhotoDownloadRequest request) {
+        HttpRange range = request.singleRange().orElse(null);
+        try {
+            try {
+                return getObject(objectName, request, range);
+            } catch (S3Exception e) {
+                if (e.statusCode() != HttpStatus.PRECONDITION_FAILED.value() || range == null) {
+                    throw e;
+                }
+                // If-Range não bateu com a versão atual: envia a foto inteira
+                return getObject(objectName, request, null);
+            }
+        } catch (NoSuchKeyException e) {
+            return ResponseEntity.notFound().build();
         } catch (S3Exception e) {
+            if (e.statusCode() == HttpStatus.NOT_MODIFIED.value()) {
+                return photoResponses.notModified(notModifiedMetadata(objectName, e));
+            }
+            if (e.statusCode() == HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value()) {
+                // Sem Range do cliente, só a primeira parte foi pedida: o objeto está vazio
+                return stat(objectName)
+                        .map(metadata -> range == null
+                                ? photoResponses.ok(metadata, InputStream.nullInputStream())
+                                : photoResponses.rangeNotSatisfiable(metadata))
+                        .orElseGet(() -> ResponseEntity.notFound().build());
+            }
             log.error("Erro ao fazer download da foto do S3: {}", objectName, e);
             throw new RuntimeException("Erro ao fazer download da foto: " + e.getMessage());
         }
     }
 
+    private ResponseEntity<InputStreamResource> getObject(String objectName, PhotoDownloadRequest request,
+                                                          HttpRange range) {
+        GetObjectRequest.Builder getObjectRequest = GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(objectName);
+        if (!request.ifNoneMatch().isEmpty()) {
+            getObjectRequest.ifNoneMatch(String.join(", ", request.ifNoneMatch()));
+        } else if (request.ifModifiedSince() != null) {
+            getObjectRequest.ifModifiedSince(request.ifModifiedSince());
+        }
+
+        // If-Range vira precondição do GetObject; ETag fraco nunca satisfaz If-Range
+        if (range != null && request.ifRange() != null) {
+            if (request.ifRange().startsWith("W/")) {
+                range = null;
+            } else if (request.ifRangeIsEtag()) {
+                getObjectRequest.ifMatch(request.ifRange());
+            } else {
+                request.ifRangeDate().ifPresent(getObjectRequest::ifUnmodifiedSince);
+            }
+        }
+        if (range != null) {
+            getObjectRequest.range("bytes=" + range);
+        } else {
+            getObjectRequest.range("bytes=0-" + (multipartTransfers.partSize() - 1));
+        }
+
+        ResponseInputStream<GetObjectResponse> s3Object = s3Client.getObject(getObjectRequest.build());
+        GetObjectResponse response = s3Object.response();
+
+        String contentType = response.contentType() != null ? 
+                response.contentType() : determineContentType(objectName);
+
+        PhotoMetadata metadata = new PhotoMetadata(
+                bucketName,
+                objectName,
+                response.contentLength(),
+                contentType,
+                toZonedDateTime(response.lastModified()),
+                response.eTag()
+        );
+
+        if (response.contentRange() == null) {
+            return photoResponses.ok(metadata, s3Object);
+        }
+        if (range != null) {
+            return photoResponses.partial(metadata, response.contentRange(), s3Object);
+        }
+        return wholeObject(metadata, response.contentRange(), s3Object);
+    }
+
+    // A primeira parte veio no GetObject; o restante, se houver, é buscado por faixas em paralelo
+    private ResponseEntity<InputStreamResource> wholeObject(PhotoMetadata metadata, String contentRange,
+                                                            InputStream firstPart) {
+        long firstPartLength = metadata.getSize();
+        long total = MultipartTransferEngine.totalLength(contentRange);
+        metadata.setSize(total);
+        InputStream stream = total > firstPartLength
+                ? multipartTransfers.openStream(multipartStore, metadata.getObject(), metadata.getEtag(),
+                        total, firstPart, firstPartLength)
+                : firstPart;
+        return photoResponses.ok(metadata, stream);
+    }
+
     /**
      * Gera URL pré-assinada para download da foto (válida por tempo limitado)
      */
     @Override
     public String getPresignedDownloadUrl(String objectName, int expiryInMinutes) {
+        return presignedUrlCache.get(objectName, expiryInMinutes, () -> presign(objectName, expiryInMinutes));
+    }
+
+    private String presign(String objectName, int expiryInMinutes) {
         try {
             GetObjectRequest getObjectRequest = GetObjectRequest.builder()
                     .bucket(bucketName)
@@ -117,63 +288,62 @@ public class AwsS3Service implements StorageService {
     }
 
     /**
-     * Lista fotos com prefixo específico (ex: pasta)
+     * Lista uma página de fotos com prefixo específico (ex: pasta).
+     * O cursor é a última chave lida (startAfter), e não o continuation token do S3,
+     * para valer o mesmo formato em todos os providers.
      */
     @Override
-    public List<String> listPhotos(String prefix) {
-        List<String> photoNames = new ArrayList<>();
-        
+    public PhotoPage listPhotos(String prefix, int limit, String cursor) {
         try {
             ListObjectsV2Request listRequest = ListObjectsV2Request.builder()
                     .bucket(bucketName)
                     .prefix(prefix)
+                    .maxKeys(limit)
+                    .startAfter(cursor)
                     .build();
 
             ListObjectsV2Response listResponse = s3Client.listObjectsV2(listRequest);
+            List<String> keys = listResponse.contents().stream().map(S3Object::key).toList();
 
-            for (S3Object s3Object : listResponse.contents()) {
-                String objectName = s3Object.key();
-                
-                // Filtra apenas arquivos de imagem
-                if (isImageFile(objectName)) {
-                    photoNames.add(objectName);
-                }
-            }
+            // Filtra apenas arquivos de imagem
+            List<String> photoNames = keys.stream()
+                    .filter(this::isImageFile)
+                    .toList();
+
+            String nextCursor = Boolean.TRUE.equals(listResponse.isTruncated()) && !keys.isEmpty()
+                    ? keys.get(keys.size() - 1)
+                    : null;
+
+            return new PhotoPage(photoNames, nextCursor);
         } catch (S3Exception e) {
             log.error("Erro ao listar fotos do S3", e);
             throw new RuntimeException("Erro ao listar fotos: " + e.getMessage());
         }
-
-        return photoNames;
     }
 
     /**
-     * Verifica se o arquivo existe no S3
+     * Percorre todas as fotos do prefixo seguindo os continuation tokens;
+     * cada página de até 1000 chaves só é buscada quando o stream chega nela
      */
     @Override
-    public boolean photoExists(String objectName) {
-        try {
-            HeadObjectRequest headObjectRequest = HeadObjectRequest.builder()
-                    .bucket(bucketName)
-                    .key(objectName)
-                    .build();
+    public Stream<String> streamPhotos(String prefix) {
+        ListObjectsV2Request listRequest = ListObjectsV2Request.builder()
+                .bucket(bucketName)
+                .prefix(prefix)
+                .build();
 
-            s3Client.headObject(headObjectRequest);
-            return true;
-            
-        } catch (NoSuchKeyException e) {
-            return false;
-        } catch (S3Exception e) {
-            log.error("Erro ao verificar existência da foto no S3: {}", objectName, e);
-            return false;
-        }
+        return s3Client.listObjectsV2Paginator(listRequest)
+                .contents()
+                .stream()
+                .map(S3Object::key)
+                .filter(this::isImageFile);
     }
 
     /**
-     * Obtém informações sobre a foto
+     * Obtém os metadados da foto num único HeadObject (vazio se não existir)
      */
     @Override
-    public PhotoMetadata getPhotoInfo(String objectName) {
+    public Optional<PhotoMetadata> stat(String objectName) {
         try {
             HeadObjectRequest headObjectRequest = HeadObjectRequest.builder()
                     .bucket(bucketName)
@@ -182,27 +352,43 @@ public class AwsS3Service implements StorageService {
 
             HeadObjectResponse headResponse = s3Client.headObject(headObjectRequest);
 
-            // Converte Instant para ZonedDateTime
-            ZonedDateTime lastModified = headResponse.lastModified() != null 
-                    ? headResponse.lastModified().atZone(ZoneId.systemDefault())
-                    : null;
-
             // Converte para PhotoMetadata
-            return new PhotoMetadata(
+            return Optional.of(new PhotoMetadata(
                     bucketName,
                     objectName,
                     headResponse.contentLength(),
                     headResponse.contentType(),
-                    lastModified,
+                    toZonedDateTime(headResponse.lastModified()),
                     headResponse.eTag()
-            );
+            ));
             
+        } catch (NoSuchKeyException e) {
+            return Optional.empty();
         } catch (S3Exception e) {
+            // HeadObject não tem corpo, então o 404 nem sempre vira NoSuchKeyException
+            if (e.statusCode() == HttpStatus.NOT_FOUND.value()) {
+                return Optional.empty();
+            }
             log.error("Erro ao obter informações da foto do S3: {}", objectName, e);
             throw new RuntimeException("Erro ao obter informações da foto: " + e.getMessage());
         }
     }
 
+    // O 304 do S3 traz ETag e Last-Modified nos headers da resposta de erro
+    private PhotoMetadata notModifiedMetadata(String objectName, S3Exception e) {
+        SdkHttpResponse httpResponse = e.awsErrorDetails().sdkHttpResponse();
+        ZonedDateTime lastModified = httpResponse.firstMatchingHeader(HttpHeaders.LAST_MODIFIED)
+                .map(value -> ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME))
+                .orElse(null);
+        String etag = httpResponse.firstMatchingHeader(HttpHeaders.ETAG).orElse(null);
+        return new PhotoMetadata(bucketName, objectName, null, determineContentType(objectName), lastModified, etag);
+    }
+
+    // Converte Instant para ZonedDateTime
+    private ZonedDateTime toZonedDateTime(Instant instant) {
+        return instant != null ? instant.atZone(ZoneId.systemDefault()) : null;
+    }
+
     private String determineContentType(String objectName) {
         String extension = objectName.substring(objectName.lastIndexOf('.') + 1).toLowerCase();
         
@@ -211,6 +397,7 @@ public class AwsS3Service implements StorageService {
             case "png" -> "image/png";
             case "gif" -> "image/gif";
             case "webp" -> "image/webp";
+            case "avif" -> "image/avif";
             case "bmp" -> "image/bmp";
             case "svg" -> "image/svg+xml";
             default -> "application/octet-stream";
@@ -219,6 +406,6 @@ public class AwsS3Service implements StorageService {
 
     private boolean isImageFile(String objectName) {
         String extension = objectName.substring(objectName.lastIndexOf('.') + 1).toLowerCase();
-        return List.of("jpg", "jpeg", "png", "gif", "webp", "bmp", "svg").contains(extension);
+        return List.of("jpg", "jpeg", "png", "gif", "webp", "avif", "bmp", "svg").contains(extension);
     }
 }
\ No newline at end of file
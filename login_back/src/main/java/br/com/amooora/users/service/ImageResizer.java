@@ -0,0 +1,226 @@
+package br.com.amooora.users.service;
+
+import br.com.amooora.users.dto.ResizeSpec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Optional;
+
+/**
+ * Redimensiona e converte fotos só com ImageIO/Java2D (sem dependências nativas).
+ * Lê JPEG, PNG, GIF e BMP; PNG e GIF saem como PNG (mantém transparência), o resto como JPEG.
+ * Outros formatos dependem de um plugin do ImageIO no classpath: WebP (leitura e escrita)
+ * vem do webp-imageio, com a libwebp nativa; AVIF não tem writer.
+ */
+@Component
+public class ImageResizer {
+
+    private final float jpegQuality;
+    private final long maxSourcePixels;
+
+    public ImageResizer(@Value("${storage.variants.jpeg-quality:0.85}") float jpegQuality,
+                        @Value("${storage.variants.max-source-pixels:40000000}") long maxSourcePixels) {
+        this.jpegQuality = jpegQuality;
+        this.maxSourcePixels = maxSourcePixels;
+    }
+
+    /**
+     * Extensão da variante gerada a partir do original (.png ou .jpg)
+     */
+    public static String outputExtension(String objectName) {
+        String name = objectName.toLowerCase();
+        return name.endsWith(".png") || name.endsWith(".gif") ? ".png" : ".jpg";
+    }
+
+    /**
+     * Há um writer do ImageIO para a extensão (ex: ".webp")?
+     */
+    public static boolean canWrite(String extension) {
+        return ImageIO.getImageWritersBySuffix(extension.substring(1)).hasNext();
+    }
+
+    public static String contentType(String extension) {
+        return switch (extension) {
+            case ".png" -> MediaType.IMAGE_PNG_VALUE;
+            case ".webp" -> "image/webp";
+            case ".avif" -> "image/avif";
+            default -> MediaType.IMAGE_JPEG_VALUE;
+        };
+    }
+
+    /**
+     * Gera a variante no formato da extensão; spec null mantém o tamanho original (só converte).
+     * Vazio quando o formato não é suportado pelo ImageIO (ex: AVIF, sem writer)
+     * ou quando a imagem tem pixels demais para decodificar com segurança.
+     */
+    public Optional<ResizedImage> resize(InputStream source, ResizeSpec spec, String extension) throws IOException {
+        BufferedImage image = read(source);
+        if (image == null) {
+            return Optional.empty();
+        }
+
+        // JPEG não tem canal alfa; PNG, WebP e AVIF mantêm a transparência
+        boolean alpha = !".jpg".equals(extension);
+        int imageType = alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage resized = spec != null ? resize(image, spec, imageType) : convert(image, imageType);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        write(resized, extension, output);
+        return Optional.of(new ResizedImage(output.toByteArray(), contentType(extension)));
+    }
+
+    // Confere as dimensões pelo cabeçalho antes de decodificar os pixels
+    private BufferedImage read(InputStream source) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(source)) {
+            Iterator<ImageReader> readers = input != null ? ImageIO.getImageReaders(input) : null;
+            if (readers == null || !readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                if ((long) reader.getWidth(0) * reader.getHeight(0) > maxSourcePixels) {
+                    return null;
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private BufferedImage resize(BufferedImage source, ResizeSpec spec, int imageType) {
+        int sourceWidth = source.getWidth();
+        int sourceHeight = source.getHeight();
+        double scaleX = spec.width() != null ? (double) spec.width() / sourceWidth : Double.NaN;
+        double scaleY = spec.height() != null ? (double) spec.height() / sourceHeight : Double.NaN;
+
+        // Escala da imagem inteira e tamanho final (menor que a escalada no COVER, que corta)
+        int scaledWidth;
+        int scaledHeight;
+        if (spec.width() != null && spec.height() != null && spec.fit() == ResizeSpec.Fit.FILL) {
+            scaledWidth = Math.min(spec.width(), sourceWidth);
+            scaledHeight = Math.min(spec.height(), sourceHeight);
+        } else {
+            double scale;
+            if (Double.isNaN(scaleX)) {
+                scale = scaleY;
+            } else if (Double.isNaN(scaleY)) {
+                scale = scaleX;
+            } else {
+                scale = spec.fit() == ResizeSpec.Fit.COVER ? Math.max(scaleX, scaleY) : Math.min(scaleX, scaleY);
+            }
+            scale = Math.min(scale, 1.0);
+            scaledWidth = Math.max(1, (int) Math.round(sourceWidth * scale));
+            scaledHeight = Math.max(1, (int) Math.round(sourceHeight * scale));
+        }
+
+        int targetWidth = scaledWidth;
+        int targetHeight = scaledHeight;
+        if (spec.fit() == ResizeSpec.Fit.COVER && spec.width() != null && spec.height() != null) {
+            targetWidth = Math.min(spec.width(), scaledWidth);
+            targetHeight = Math.min(spec.height(), scaledHeight);
+        }
+
+        BufferedImage halved = halveDown(source, scaledWidth, scaledHeight);
+
+        BufferedImage target = new BufferedImage(targetWidth, targetHeight, imageType);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            if (imageType == BufferedImage.TYPE_INT_RGB) {
+                // JPEG não tem canal alfa: áreas transparentes ficam brancas
+                graphics.setColor(Color.WHITE);
+                graphics.fillRect(0, 0, targetWidth, targetHeight);
+            }
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            int offsetX = (scaledWidth - targetWidth) / 2;
+            int offsetY = (scaledHeight - targetHeight) / 2;
+            graphics.drawImage(halved, -offsetX, -offsetY, scaledWidth, scaledHeight, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private BufferedImage convert(BufferedImage source, int imageType) {
+        if (source.getType() == imageType) {
+            return source;
+        }
+        BufferedImage target = new BufferedImage(source.getWidth(), source.getHeight(), imageType);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            if (imageType == BufferedImage.TYPE_INT_RGB) {
+                graphics.setColor(Color.WHITE);
+                graphics.fillRect(0, 0, source.getWidth(), source.getHeight());
+            }
+            graphics.drawImage(source, 0, 0, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    // Reduções grandes em um passo só geram serrilhado: divide pela metade até perto do tamanho final
+    private BufferedImage halveDown(BufferedImage source, int width, int height) {
+        BufferedImage current = source;
+        int currentWidth = source.getWidth();
+        int currentHeight = source.getHeight();
+        while (currentWidth / 2 >= width && currentHeight / 2 >= height) {
+            currentWidth /= 2;
+            currentHeight /= 2;
+            BufferedImage next = new BufferedImage(currentWidth, currentHeight, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D graphics = next.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.drawImage(current, 0, 0, currentWidth, currentHeight, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = next;
+        }
+        return current;
+    }
+
+    private void write(BufferedImage image, String extension, ByteArrayOutputStream output) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersBySuffix(extension.substring(1)).next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        // Formatos com perda (JPEG, WebP, AVIF) usam a mesma qualidade; o PNG fica com o padrão
+        if (!".png".equals(extension) && param.canWriteCompressed()) {
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            String[] types = param.getCompressionTypes();
+            if (types != null && types.length > 0) {
+                param.setCompressionType(Arrays.stream(types)
+                        .filter(type -> type.toLowerCase().contains("lossy"))
+                        .findFirst()
+                        .orElse(types[0]));
+            }
+            param.setCompressionQuality(jpegQuality);
+        }
+        try (ImageOutputStream imageOutput = ImageIO.createImageOutputStream(output)) {
+            writer.setOutput(imageOutput);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    public record ResizedImage(byte[] data, String contentType) {}
+}
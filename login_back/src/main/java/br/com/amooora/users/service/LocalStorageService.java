@@ -0,0 +1,420 @@
+package br.com.amooora.users.service;
+
+import br.com.amooora.users.dto.PhotoDownloadRequest;
+import br.com.amooora.users.dto.PhotoMetadata;
+import br.com.amooora.users.dto.PhotoPage;
+import br.com.amooora.users.service.storage.ByteBufferInputStream;
+import br.com.amooora.users.service.storage.PhotoResponses;
+import br.com.amooora.users.service.storage.StorageService;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.http.HttpRange;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Storage em disco local, para deploys de um nó só e testes de carga sem object store.
+ * <p>
+ * Cada objeto fica em {root}/{aa}/{bb}/{sha256 da chave}.bin, com os metadados num arquivo
+ * .meta ao lado. Os .meta são lidos na inicialização para montar um índice ordenado em
+ * memória, usado nas listagens e no stat. As escritas usam FileChannel e as leituras são
+ * mapeadas em memória (mmap), sem cópia extra para o heap. Uploads e remoções da mesma chave
+ * são serializados por um lock listrado, para que arquivo, .meta e índice não fiquem divergentes.
+ * URLs pré-assinadas são links locais assinados com HMAC, servidos pelo LocalStorageController.
+ */
+@Service
+@ConditionalOnProperty(name = "storage.provider", havingValue = "local")
+@Qualifier("storageBackend")
+@Slf4j
+public class LocalStorageService implements StorageService {
+
+    private static final String BUCKET = "local";
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final int LOCK_STRIPES = 64;
+
+    private final PhotoResponses photoResponses;
+    private final Path root;
+    private final String publicUrl;
+    private final SecretKeySpec signingKey;
+    private final ConcurrentSkipListMap<String, LocalObject> index = new ConcurrentSkipListMap<>();
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+
+    public LocalStorageService(PhotoResponses photoResponses,
+                               @Value("${storage.local.root-dir:./data/photos}") String rootDir,
+                               @Value("${storage.local.public-url:http://localhost:8080}") String publicUrl,
+                               @Value("${storage.local.signing-key:}") String signingKey) {
+        this.photoResponses = photoResponses;
+        this.root = Paths.get(rootDir).toAbsolutePath().normalize();
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        this.publicUrl = publicUrl;
+        this.signingKey = new SecretKeySpec(signingKeyBytes(signingKey), HMAC_ALGORITHM);
+    }
+
+    /**
+     * Monta o índice a partir dos arquivos .meta já gravados
+     */
+    @PostConstruct
+    public void loadIndex() {
+        try {
+            Files.createDirectories(root);
+            try (Stream<Path> files = Files.walk(root)) {
+                files.filter(path -> path.toString().endsWith(".meta"))
+                        .forEach(this::indexSidecar);
+            }
+            log.info("Storage local em {} com {} objetos", root, index.size());
+        } catch (IOException e) {
+            throw new RuntimeException("Erro ao carregar o storage local: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Grava a foto num arquivo temporário via FileChannel e move para o lugar definitivo,
+     * para que leitores nunca vejam um arquivo pela metade
+     */
+    @Override
+    public String uploadPhoto(String objectName, InputStream photoStream, long size, String contentType) {
+        Path data = dataPath(objectName);
+        try {
+            Files.createDirectories(data.getParent());
+            Path temp = Files.createTempFile(data.getParent(), "upload-", ".tmp");
+            try {
+                MessageDigest md5 = MessageDigest.getInstance("MD5");
+                try (ReadableByteChannel source = Channels.newChannel(new DigestInputStream(photoStream, md5));
+                     FileChannel target = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                    long written = 0;
+                    while (written < size) {
+                        long transferred = target.transferFrom(source, written, size - written);
+                        if (transferred <= 0) {
+                            break;
+                        }
+                        written += transferred;
+                    }
+                    if (written != size) {
+                        throw new IOException("Esperados " + size + " bytes, recebidos " + written);
+                    }
+                    target.force(true);
+                }
+
+                LocalObject object = new LocalObject(size,
+                        contentType != null ? contentType : determineContentType(objectName),
+                        Instant.now(), HexFormat.of().formatHex(md5.digest()));
+                // Só a troca do arquivo, do .meta e do índice fica sob o lock da chave
+                ReentrantLock lock = lockFor(objectName);
+                lock.lock();
+                try {
+                    Files.move(temp, data, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    writeSidecar(objectName, object);
+                    index.put(objectName, object);
+                } finally {
+                    lock.unlock();
+                }
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+
+            log.info("Foto gravada no storage local: {}", objectName);
+            return objectName;
+
+        } catch (IOException | NoSuchAlgorithmException e) {
+            log.error("Erro ao fazer upload da foto: {}", objectName, e);
+            throw new RuntimeException("Erro ao fazer upload da foto: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Serve a foto (ou a faixa pedida) a partir de um mapeamento do arquivo em memória
+     */
+    @Override
+    public ResponseEntity<InputStreamResource> downloadPhoto(String objectName, PhotoDownloadRequest request) {
+        Optional<PhotoMetadata> stat = stat(objectName);
+        if (stat.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        PhotoMetadata metadata = stat.get();
+        if (request.isNotModified(metadata.getEtag(), metadata.getLastModified())) {
+            return photoResponses.notModified(metadata);
+        }
+
+        try {
+            Optional<HttpRange> range = request.rangeFor(metadata.getEtag(), metadata.getLastModified());
+            if (range.isEmpty()) {
+                return map(objectName, 0, metadata.getSize())
+                        .map(stream -> photoResponses.ok(metadata, stream))
+                        .orElseGet(() -> ResponseEntity.notFound().build());
+            }
+
+            long start;
+            long end;
+            try {
+                start = range.get().getRangeStart(metadata.getSize());
+                end = range.get().getRangeEnd(metadata.getSize());
+            } catch (IllegalArgumentException e) {
+                return photoResponses.rangeNotSatisfiable(metadata);
+            }
+            return map(objectName, start, end - start + 1)
+                    .map(stream -> photoResponses.partial(metadata, start, end, stream))
+                    .orElseGet(() -> ResponseEntity.notFound().build());
+
+        } catch (IOException e) {
+            log.error("Erro ao fazer download da foto: {}", objectName, e);
+            throw new RuntimeException("Erro ao fazer download da foto: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Gera um link local assinado com HMAC, válido até o tempo informado
+     */
+    @Override
+    public String getPresignedDownloadUrl(String objectName, int expiryInMinutes) {
+        long expires = Instant.now().plusSeconds(expiryInMinutes * 60L).getEpochSecond();
+        return UriComponentsBuilder.fromUriString(publicUrl)
+                .path("/api/storage/local")
+                .queryParam("object", objectName)
+                .queryParam("expires", expires)
+                .queryParam("signature", sign(objectName, expires))
+                .encode()
+                .toUriString();
+    }
+
+    /**
+     * Confere a assinatura e a validade de um link gerado por getPresignedDownloadUrl
+     */
+    public boolean verifySignature(String objectName, long expires, String signature) {
+        if (signature == null || Instant.now().getEpochSecond() > expires) {
+            return false;
+        }
+        // Comparação em tempo constante
+        return MessageDigest.isEqual(
+                sign(objectName, expires).getBytes(StandardCharsets.US_ASCII),
+                signature.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Lista uma página de fotos do índice, em ordem de chave.
+     * O cursor é a última chave da página anterior.
+     */
+    @Override
+    public PhotoPage listPhotos(String prefix, int limit, String cursor) {
+        List<String> photoNames = new ArrayList<>();
+        for (String objectName : keysFrom(prefix, cursor)) {
+            if (!objectName.startsWith(prefix)) {
+                break;
+            }
+            if (!isImageFile(objectName)) {
+                continue;
+            }
+            if (photoNames.size() == limit) {
+                return new PhotoPage(photoNames, photoNames.get(photoNames.size() - 1));
+            }
+            photoNames.add(objectName);
+        }
+        return new PhotoPage(photoNames, null);
+    }
+
+    @Override
+    public Stream<String> streamPhotos(String prefix) {
+        return keysFrom(prefix, null).stream()
+                .takeWhile(objectName -> objectName.startsWith(prefix))
+                .filter(this::isImageFile);
+    }
+
+    @Override
+    public Optional<PhotoMetadata> stat(String objectName) {
+        LocalObject object = index.get(objectName);
+        if (object == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new PhotoMetadata(
+                BUCKET,
+                objectName,
+                object.size(),
+                object.contentType(),
+                ZonedDateTime.ofInstant(object.lastModified(), ZoneOffset.UTC),
+                object.etag()
+        ));
+    }
+
+    @Override
+    public void deletePhoto(String objectName) {
+        ReentrantLock lock = lockFor(objectName);
+        lock.lock();
+        try {
+            index.remove(objectName);
+            Files.deleteIfExists(sidecarPath(objectName));
+            Files.deleteIfExists(dataPath(objectName));
+            log.info("Foto removida do storage local: {}", objectName);
+        } catch (IOException e) {
+            log.error("Erro ao remover a foto: {}", objectName, e);
+            throw new RuntimeException("Erro ao remover a foto: " + e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // O mapeamento continua válido depois que o canal é fechado. Vazio se o arquivo foi removido
+    // entre o stat e a leitura
+    private Optional<InputStream> map(String objectName, long position, long length) throws IOException {
+        try (FileChannel channel = FileChannel.open(dataPath(objectName), StandardOpenOption.READ)) {
+            ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            return Optional.of(new ByteBufferInputStream(mapped));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        }
+    }
+
+    private ReentrantLock lockFor(String objectName) {
+        return locks[Math.floorMod(objectName.hashCode(), locks.length)];
+    }
+
+    private NavigableSet<String> keysFrom(String prefix, String cursor) {
+        return cursor != null && !cursor.isEmpty()
+                ? index.tailMap(cursor, false).navigableKeySet()
+                : index.tailMap(prefix, true).navigableKeySet();
+    }
+
+    // Shard por hash: distribui os arquivos entre 65536 diretórios e evita usar a chave como caminho
+    private Path dataPath(String objectName) {
+        return shardPath(objectName, ".bin");
+    }
+
+    private Path sidecarPath(String objectName) {
+        return shardPath(objectName, ".meta");
+    }
+
+    private Path shardPath(String objectName, String suffix) {
+        String hash = sha256(objectName);
+        return root.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash + suffix);
+    }
+
+    private void writeSidecar(String objectName, LocalObject object) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("object", objectName);
+        properties.setProperty("size", String.valueOf(object.size()));
+        properties.setProperty("contentType", object.contentType());
+        properties.setProperty("lastModified", object.lastModified().toString());
+        properties.setProperty("etag", object.etag());
+
+        Path sidecar = sidecarPath(objectName);
+        Path temp = Files.createTempFile(sidecar.getParent(), "meta-", ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                properties.store(writer, null);
+            }
+            Files.move(temp, sidecar, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private void indexSidecar(Path sidecar) {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(sidecar, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+            index.put(properties.getProperty("object"), new LocalObject(
+                    Long.parseLong(properties.getProperty("size")),
+                    properties.getProperty("contentType"),
+                    Instant.parse(properties.getProperty("lastModified")),
+                    properties.getProperty("etag")
+            ));
+        } catch (IOException | RuntimeException e) {
+            log.warn("Ignorando metadados inválidos: {}", sidecar, e);
+        }
+    }
+
+    private String sign(String objectName, long expires) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(signingKey);
+            byte[] signature = mac.doFinal((objectName + "\n" + expires).getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(signature);
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException("Erro ao assinar URL: " + e.getMessage());
+        }
+    }
+
+    // Sem chave configurada, os links valem só até o próximo restart
+    private static byte[] signingKeyBytes(String signingKey) {
+        if (signingKey != null && !signingKey.isBlank()) {
+            return signingKey.getBytes(StandardCharsets.UTF_8);
+        }
+        log.warn("storage.local.signing-key não configurada, usando chave aleatória");
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        return key;
+    }
+
+    private static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String determineContentType(String objectName) {
+        String extension = objectName.substring(objectName.lastIndexOf('.') + 1).toLowerCase();
+        
+        return switch (extension) {
+            case "jpg", "jpeg" -> "image/jpeg";
+            case "png" -> "image/png";
+            case "gif" -> "image/gif";
+            case "webp" -> "image/webp";
+            case "avif" -> "image/avif";
+            case "bmp" -> "image/bmp";
+            case "svg" -> "image/svg+xml";
+            default -> "application/octet-stream";
+        };
+    }
+
+    private boolean isImageFile(String objectName) {
+        String extension = objectName.substring(objectName.lastIndexOf('.') + 1).toLowerCase();
+        return List.of("jpg", "jpeg", "png", "gif", "webp", "avif", "bmp", "svg").contains(extension);
+    }
+
+    private record LocalObject(long size, String contentType, Instant lastModified, String etag) {}
+}
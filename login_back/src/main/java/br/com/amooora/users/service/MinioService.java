@@ -1,60 +1,102 @@
 package br.com.amooora.users.service;
 
+import br.com.amooora.users.dto.PhotoDownloadRequest;
 import br.com.amooora.users.dto.PhotoMetadata;
+import br.com.amooora.users.dto.PhotoPage;
+import br.com.amooora.users.service.storage.MinioMultipartStore;
+import br.com.amooora.users.service.storage.MultipartStore;
+import br.com.amooora.users.service.storage.MultipartTransferEngine;
+import br.com.amooora.users.service.storage.PhotoResponses;
+import br.com.amooora.users.service.storage.PresignedUrlCache;
 import br.com.amooora.users.service.storage.StorageService;
 import io.minio.GetObjectArgs;
+import io.minio.GetObjectResponse;
 import io.minio.GetPresignedObjectUrlArgs;
 import io.minio.ListObjectsArgs;
 import io.minio.MinioClient;
 import io.minio.PutObjectArgs;
+import io.minio.RemoveObjectArgs;
+import io.minio.RemoveObjectsArgs;
 import io.minio.Result;
 import io.minio.StatObjectArgs;
 import io.minio.StatObjectResponse;
+import io.minio.errors.ErrorResponseException;
 import io.minio.http.Method;
+import io.minio.messages.DeleteError;
+import io.minio.messages.DeleteObject;
 import io.minio.messages.Item;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import okhttp3.Headers;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.core.io.InputStreamResource;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 
-import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @Service
 @ConditionalOnProperty(name = "storage.provider", havingValue = "minio")
+@Qualifier("storageBackend")
 @RequiredArgsConstructor
 @Slf4j
 public class MinioService implements StorageService {
 
     private final MinioClient minioClient;
+    private final PresignedUrlCache presignedUrlCache;
+    private final PhotoResponses photoResponses;
+    private final MultipartTransferEngine multipartTransfers;
 
     @Value("${minio.bucket-name}")
     private String bucketName;
 
+    @Value("${minio.upload.part-size:5242880}")
+    private long partSize;
+
+    private MultipartStore multipartStore;
+
+    @PostConstruct
+    void initMultipartStore() {
+        multipartStore = new MinioMultipartStore(minioClient, bucketName);
+    }
+
     /**
-     * Faz upload de uma foto para o MinIO
+     * Faz upload de uma foto para o MinIO.
+     * Arquivos grandes vão em partes enviadas em paralelo (storage.multipart.*).
      */
     @Override
-    public String uploadPhoto(String objectName, byte[] photoData, String contentType) {
+    public String uploadPhoto(String objectName, InputStream photoStream, long size, String contentType) {
         try {
-            ByteArrayInputStream inputStream = new ByteArrayInputStream(photoData);
-            
-            minioClient.putObject(
-                    PutObjectArgs.builder()
-                            .bucket(bucketName)
-                            .object(objectName)
-                            .stream(inputStream, photoData.length, -1)
-                            .contentType(contentType)
-                            .build()
-            );
+            if (multipartTransfers.useMultipart(size)) {
+                multipartTransfers.upload(multipartStore, objectName, photoStream, size, contentType);
+            } else {
+                // Com o tamanho conhecido, o client lê no máximo uma parte por vez do stream
+                minioClient.putObject(
+                        PutObjectArgs.builder()
+                                .bucket(bucketName)
+                                .object(objectName)
+                                .stream(photoStream, size, partSize)
+                                .contentType(contentType)
+                                .build()
+                );
+            }
             
             log.info("Foto enviada com sucesso para MinIO: {}", objectName);
             return objectName;
@@ -66,47 +108,222 @@ public class MinioService implements StorageService {
     }
 
     /**
-     * Faz download direto de uma foto do MinIO
+     * Remove uma foto do MinIO
      */
     @Override
-    public ResponseEntity<InputStreamResource> downloadPhoto(String objectName) {
+    public void deletePhoto(String objectName) {
         try {
-            // Verifica se o objeto existe
-            StatObjectResponse stat = minioClient.statObject(
-                    StatObjectArgs.builder()
+            minioClient.removeObject(
+                    RemoveObjectArgs.builder()
                             .bucket(bucketName)
                             .object(objectName)
                             .build()
             );
+            presignedUrlCache.invalidate(objectName);
+            
+            log.info("Foto removida do MinIO: {}", objectName);
+            
+        } catch (Exception e) {
+            log.error("Erro ao remover a foto: {}", objectName, e);
+            throw new RuntimeException("Erro ao remover a foto: " + e.getMessage());
+        }
+    }
 
-            // Obtém o stream do objeto
-            InputStream stream = minioClient.getObject(
-                    GetObjectArgs.builder()
+    /**
+     * Remove várias fotos com uma requisição de multi-delete (o client divide em lotes de 1000).
+     * O resultado é preguiçoso: as requisições só acontecem ao percorrer os erros.
+     */
+    @Override
+    public Map<String, String> deletePhotos(Collection<String> objectNames) {
+        Map<String, String> failures = new LinkedHashMap<>();
+        try {
+            Iterable<Result<DeleteError>> errors = minioClient.removeObjects(
+                    RemoveObjectsArgs.builder()
                             .bucket(bucketName)
-                            .object(objectName)
+                            .objects(objectNames.stream().map(DeleteObject::new).toList())
                             .build()
             );
+            for (Result<DeleteError> result : errors) {
+                DeleteError error = result.get();
+                failures.put(error.objectName(), error.message());
+            }
+        } catch (Exception e) {
+            log.error("Erro ao remover fotos em lote", e);
+            objectNames.forEach(objectName -> failures.putIfAbsent(objectName, e.getMessage()));
+        }
+        objectNames.forEach(presignedUrlCache::invalidate);
 
-            // Determina o tipo de conteúdo baseado na extensão
-            String contentType = determineContentType(objectName);
+        log.info("{} fotos removidas do MinIO", objectNames.size() - failures.size());
+        return failures;
+    }
+
+    /**
+     * Faz download direto de uma foto do MinIO.
+     * O caso comum (sem condições, ou Range com início definido) é resolvido num único
+     * getObject, com os metadados lidos dos headers da própria resposta. Só revalidações
+     * (If-None-Match/If-Modified-Since), If-Range e faixas finais (bytes=-N) fazem o stat
+     * antes, para responder 304 sem abrir o objeto ou para conhecer o tamanho.
+     * Sem Range, o getObject pede só a primeira parte: objetos maiores que ela têm o resto
+     * lido por faixas em paralelo enquanto a resposta é enviada.
+     */
+    @Override
+    public ResponseEntity<InputStreamResource> downloadPhoto(String objectName, PhotoDownloadRequest request) {
+        try {
+            if (needsStatFirst(request)) {
+                return downloadAfterStat(objectName, request);
+            }
 
-            return ResponseEntity.ok()
-                    .contentType(MediaType.parseMediaType(contentType))
-                    .contentLength(stat.size())
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + objectName + "\"")
-                    .body(new InputStreamResource(stream));
+            GetObjectArgs.Builder args = GetObjectArgs.builder()
+                    .bucket(bucketName)
+                    .object(objectName);
+            HttpRange range = request.singleRange().orElse(null);
+            if (range != null) {
+                // Só chega aqui com início explícito: bytes=inicio- ou bytes=inicio-fim
+                long start = range.getRangeStart(Long.MAX_VALUE);
+                long end = range.getRangeEnd(Long.MAX_VALUE);
+                args.offset(start);
+                if (end < Long.MAX_VALUE - 1) {
+                    args.length(end - start + 1);
+                }
+            } else {
+                args.offset(0L).length(multipartTransfers.partSize());
+            }
+
+            GetObjectResponse response = minioClient.getObject(args.build());
+            PhotoMetadata metadata = metadataFrom(objectName, response.headers());
+
+            String contentRange = response.headers().get(HttpHeaders.CONTENT_RANGE);
+            if (contentRange == null) {
+                return photoResponses.ok(metadata, response);
+            }
+            if (range != null) {
+                return photoResponses.partial(metadata, contentRange, response);
+            }
+            return wholeObject(metadata, contentRange, response);
 
+        } catch (ErrorResponseException e) {
+            String code = e.errorResponse().code();
+            if ("NoSuchKey".equals(code)) {
+                return ResponseEntity.notFound().build();
+            }
+            if ("InvalidRange".equals(code)) {
+                // Sem Range do cliente, só a primeira parte foi pedida: o objeto está vazio
+                return stat(objectName)
+                        .map(metadata -> request.singleRange().isEmpty()
+                                ? photoResponses.ok(withContentType(metadata), InputStream.nullInputStream())
+                                : photoResponses.rangeNotSatisfiable(metadata))
+                        .orElseGet(() -> ResponseEntity.notFound().build());
+            }
+            log.error("Erro ao fazer download da foto: {}", objectName, e);
+            throw new RuntimeException("Erro ao fazer download da foto: " + e.getMessage());
         } catch (Exception e) {
             log.error("Erro ao fazer download da foto: {}", objectName, e);
             throw new RuntimeException("Erro ao fazer download da foto: " + e.getMessage());
         }
     }
 
+    // A primeira parte veio no getObject; o restante, se houver, é buscado por faixas em paralelo
+    private ResponseEntity<InputStreamResource> wholeObject(PhotoMetadata metadata, String contentRange,
+                                                            InputStream firstPart) {
+        long firstPartLength = metadata.getSize();
+        long total = MultipartTransferEngine.totalLength(contentRange);
+        metadata.setSize(total);
+        InputStream stream = total > firstPartLength
+                ? multipartTransfers.openStream(multipartStore, metadata.getObject(), metadata.getEtag(),
+                        total, firstPart, firstPartLength)
+                : firstPart;
+        return photoResponses.ok(metadata, stream);
+    }
+
+    // Faixas finais ("-500") não têm início conhecido sem o tamanho do objeto
+    private boolean needsStatFirst(PhotoDownloadRequest request) {
+        return !request.ifNoneMatch().isEmpty()
+                || request.ifModifiedSince() != null
+                || request.ifRange() != null
+                || request.singleRange().map(range -> range.toString().startsWith("-")).orElse(false);
+    }
+
+    private ResponseEntity<InputStreamResource> downloadAfterStat(String objectName, PhotoDownloadRequest request)
+            throws Exception {
+        Optional<PhotoMetadata> stat = stat(objectName);
+        if (stat.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        PhotoMetadata metadata = withContentType(stat.get());
+
+        if (request.isNotModified(metadata.getEtag(), metadata.getLastModified())) {
+            return photoResponses.notModified(metadata);
+        }
+
+        Optional<HttpRange> range = request.rangeFor(metadata.getEtag(), metadata.getLastModified());
+        if (range.isPresent()) {
+            return downloadRange(metadata, range.get());
+        }
+
+        // Obtém o stream do objeto
+        InputStream stream = minioClient.getObject(
+                GetObjectArgs.builder()
+                        .bucket(bucketName)
+                        .object(objectName)
+                        .build()
+        );
+
+        return photoResponses.ok(metadata, stream);
+    }
+
+    // Resolve a faixa com o tamanho do stat e busca só esses bytes (offset/length)
+    private ResponseEntity<InputStreamResource> downloadRange(PhotoMetadata metadata, HttpRange range) throws Exception {
+        long start;
+        long end;
+        try {
+            start = range.getRangeStart(metadata.getSize());
+            end = range.getRangeEnd(metadata.getSize());
+        } catch (IllegalArgumentException e) {
+            return photoResponses.rangeNotSatisfiable(metadata);
+        }
+
+        InputStream stream = minioClient.getObject(
+                GetObjectArgs.builder()
+                        .bucket(bucketName)
+                        .object(metadata.getObject())
+                        .offset(start)
+                        .length(end - start + 1)
+                        .build()
+        );
+
+        return photoResponses.partial(metadata, start, end, stream);
+    }
+
+    // Usa o Content-Type gravado no upload; a extensão só vale quando ele falta (ex: blobs/{sha256} não têm)
+    private PhotoMetadata withContentType(PhotoMetadata metadata) {
+        metadata.setContentType(contentType(metadata.getContentType(), metadata.getObject()));
+        return metadata;
+    }
+
+    // Metadados a partir dos headers do GetObject, sem precisar de um statObject
+    private PhotoMetadata metadataFrom(String objectName, Headers headers) {
+        String lastModified = headers.get(HttpHeaders.LAST_MODIFIED);
+        String contentLength = headers.get(HttpHeaders.CONTENT_LENGTH);
+        return new PhotoMetadata(
+                bucketName,
+                objectName,
+                contentLength != null ? Long.parseLong(contentLength) : null,
+                contentType(headers.get(HttpHeaders.CONTENT_TYPE), objectName),
+                lastModified != null ? ZonedDateTime.parse(lastModified, DateTimeFormatter.RFC_1123_DATE_TIME) : null,
+                headers.get(HttpHeaders.ETAG)
+        );
+    }
+
     /**
      * Gera URL pré-assinada para download da foto (válida por tempo limitado)
      */
     @Override
     public String getPresignedDownloadUrl(String objectName, int expiryInMinutes) {
+        return presignedUrlCache.get(objectName, expiryInMinutes, () -> presign(objectName, expiryInMinutes));
+    }
+
+    private String presign(String objectName, int expiryInMinutes) {
         try {
             return minioClient.getPresignedObjectUrl(
                     GetPresignedObjectUrlArgs.builder()
@@ -123,27 +340,36 @@ public class MinioService implements StorageService {
     }
 
     /**
-     * Lista fotos com prefixo específico (ex: pasta)
+     * Lista uma página de fotos com prefixo específico (ex: pasta), incluindo subpastas
+     * como no S3. O cursor é a última chave da página anterior (startAfter).
      */
     @Override
-    public List<String> listPhotos(String prefix) {
+    public PhotoPage listPhotos(String prefix, int limit, String cursor) {
         List<String> photoNames = new ArrayList<>();
-        
+        String lastKey = null;
+
         try {
-            Iterable<Result<Item>> results = minioClient.listObjects(
-                    ListObjectsArgs.builder()
-                            .bucket(bucketName)
-                            .prefix(prefix)
-                            .build()
-            );
+            ListObjectsArgs.Builder args = ListObjectsArgs.builder()
+                    .bucket(bucketName)
+                    .prefix(prefix)
+                    .recursive(true)
+                    .maxKeys(limit);
+            if (cursor != null && !cursor.isEmpty()) {
+                args.startAfter(cursor);
+            }
+
+            Iterable<Result<Item>> results = minioClient.listObjects(args.build());
 
             for (Result<Item> result : results) {
                 Item item = result.get();
-                String objectName = item.objectName();
-                
+                lastKey = item.objectName();
+
                 // Filtra apenas arquivos de imagem
-                if (isImageFile(objectName)) {
-                    photoNames.add(objectName);
+                if (!item.isDir() && isImageFile(lastKey)) {
+                    photoNames.add(lastKey);
+                    if (photoNames.size() >= limit) {
+                        return new PhotoPage(photoNames, lastKey);
+                    }
                 }
             }
         } catch (Exception e) {
@@ -151,32 +377,35 @@ public class MinioService implements StorageService {
             throw new RuntimeException("Erro ao listar fotos: " + e.getMessage());
         }
 
-        return photoNames;
+        return new PhotoPage(photoNames, null);
     }
 
     /**
-     * Verifica se o arquivo existe no MinIO
+     * Percorre as fotos do prefixo, subpastas incluídas, sem carregar a listagem inteira
+     * em memória (o iterator do MinIO busca as páginas sob demanda). Sem recursive o MinIO
+     * devolveria só as subpastas de users/, e não as fotos.
      */
     @Override
-    public boolean photoExists(String objectName) {
-        try {
-            minioClient.statObject(
-                    StatObjectArgs.builder()
-                            .bucket(bucketName)
-                            .object(objectName)
-                            .build()
-            );
-            return true;
-        } catch (Exception e) {
-            return false;
-        }
+    public Stream<String> streamPhotos(String prefix) {
+        Iterable<Result<Item>> results = minioClient.listObjects(
+                ListObjectsArgs.builder()
+                        .bucket(bucketName)
+                        .prefix(prefix)
+                        .recursive(true)
+                        .build()
+        );
+
+        return StreamSupport.stream(results.spliterator(), false)
+                .map(this::getItem)
+                .filter(item -> !item.isDir() && isImageFile(item.objectName()))
+                .map(Item::objectName);
     }
 
     /**
-     * Obtém informações sobre a foto
+     * Obtém os metadados da foto num único statObject (vazio se não existir)
      */
     @Override
-    public PhotoMetadata getPhotoInfo(String objectName) {
+    public Optional<PhotoMetadata> stat(String objectName) {
         try {
             StatObjectResponse stat = minioClient.statObject(
                     StatObjectArgs.builder()
@@ -185,20 +414,33 @@ public class MinioService implements StorageService {
                             .build()
             );
             
-            return new PhotoMetadata(
+            return Optional.of(new PhotoMetadata(
                     bucketName,
                     objectName,
                     stat.size(),
                     stat.contentType(),
                     stat.lastModified(),
                     stat.etag()
-            );
+            ));
+        } catch (ErrorResponseException e) {
+            if ("NoSuchKey".equals(e.errorResponse().code())) {
+                return Optional.empty();
+            }
+            log.error("Erro ao obter informações da foto: {}", objectName, e);
+            throw new RuntimeException("Erro ao obter informações da foto: " + e.getMessage());
         } catch (Exception e) {
             log.error("Erro ao obter informações da foto: {}", objectName, e);
             throw new RuntimeException("Erro ao obter informações da foto: " + e.getMessage());
         }
     }
 
+    private String contentType(String stored, String objectName) {
+        if (stored == null || stored.isBlank() || MediaType.APPLICATION_OCTET_STREAM_VALUE.equals(stored)) {
+            return determineContentType(objectName);
+        }
+        return stored;
+    }
+
     private String determineContentType(String objectName) {
         String extension = objectName.substring(objectName.lastIndexOf('.') + 1).toLowerCase();
         
@@ -207,14 +449,24 @@ public class MinioService implements StorageService {
             case "png" -> "image/png";
             case "gif" -> "image/gif";
             case "webp" -> "image/webp";
+            case "avif" -> "image/avif";
             case "bmp" -> "image/bmp";
             case "svg" -> "image/svg+xml";
             default -> "application/octet-stream";
         };
     }
 
+    private Item getItem(Result<Item> result) {
+        try {
+            return result.get();
+        } catch (Exception e) {
+            log.error("Erro ao listar fotos", e);
+            throw new RuntimeException("Erro ao listar fotos: " + e.getMessage());
+        }
+    }
+
     private boolean isImageFile(String objectName) {
         String extension = objectName.substring(objectName.lastIndexOf('.') + 1).toLowerCase();
-        return List.of("jpg", "jpeg", "png", "gif", "webp", "bmp", "svg").contains(extension);
+        return List.of("jpg", "jpeg", "png", "gif", "webp", "avif", "bmp", "svg").contains(extension);
     }
 }
\ No newline at end of file
@@ -0,0 +1,322 @@
+package br.com.amooora.users.service;
+
+import br.com.amooora.users.database.model.PhotoBlob;
+import br.com.amooora.users.database.model.UserPhoto;
+import br.com.amooora.users.database.repository.PhotoBlobRepository;
+import br.com.amooora.users.database.repository.UserPhotoRepository;
+import br.com.amooora.users.dto.PhotoMetadata;
+import br.com.amooora.users.service.storage.StorageService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Deduplicação das fotos dos usuários pelo conteúdo: os bytes são gravados uma vez em
+ * blobs/{sha256} e cada users/{userId}/{name} vira só uma referência no manifesto
+ * (UserPhoto.blobDigest), com contagem de referências em PhotoBlob. Reenviar uma foto
+ * que já existe não grava nada no storage, e o cliente que já conhece o hash nem precisa
+ * enviar o arquivo (linkExisting). Blobs sem referência são coletados em segundo plano.
+ * <p>
+ * Desligar a deduplicação depois de ligada não quebra as fotos já deduplicadas: as
+ * referências continuam sendo resolvidas, só os novos uploads deixam de ser deduplicados.
+ * <p>
+ * A resolução foto → blob fica em cache (storage.dedup.resolve-cache.*), inclusive "não é
+ * referência", para os downloads não consultarem o banco a cada pedido. Os uploads e remoções
+ * desta instância descartam a entrada; os das outras aparecem em até ttl-seconds.
+ */
+@Service
+@Slf4j
+public class PhotoDedupService {
+
+    private static final String BLOBS_PREFIX = "blobs/";
+    private static final Pattern SHA256_HEX = Pattern.compile("[0-9a-f]{64}");
+    private static final int GC_BATCH_SIZE = 500;
+
+    private final PhotoBlobRepository blobRepository;
+    private final UserPhotoRepository photoRepository;
+    private final StorageService backend;
+    private final TransactionTemplate transactions;
+    private final boolean enabled;
+    private final Duration gcGrace;
+    // Sem nenhum blob (deduplicação nunca usada) as leituras não consultam o banco
+    private volatile boolean referencesExist;
+    private final Cache<String, Optional<String>> resolutions;
+    // Muda a cada descarte: uma leitura do banco que cruzou um descarte não vai para o cache
+    private final AtomicLong resolutionGeneration = new AtomicLong();
+
+    // Os blobs são imutáveis, então vão direto ao provider (sem cache e sem manifesto)
+    public PhotoDedupService(PhotoBlobRepository blobRepository,
+                             UserPhotoRepository photoRepository,
+                             @Qualifier("meteredStorageBackend") StorageService backend,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${storage.dedup.enabled:false}") boolean enabled,
+                             @Value("${storage.dedup.gc-grace-minutes:60}") long gcGraceMinutes,
+                             @Value("${storage.dedup.resolve-cache.max-size:100000}") long resolveCacheMaxSize,
+                             @Value("${storage.dedup.resolve-cache.ttl-seconds:60}") long resolveCacheTtlSeconds) {
+        this.blobRepository = blobRepository;
+        this.photoRepository = photoRepository;
+        this.backend = backend;
+        this.transactions = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.gcGrace = Duration.ofMinutes(gcGraceMinutes);
+        this.resolutions = Caffeine.newBuilder()
+                .maximumSize(resolveCacheMaxSize)
+                .expireAfterWrite(Duration.ofSeconds(resolveCacheTtlSeconds))
+                .build();
+    }
+
+    @PostConstruct
+    void init() {
+        referencesExist = enabled || blobRepository.count() > 0;
+    }
+
+    /**
+     * O upload dessa chave é deduplicado? Só fotos em users/{userId}/, com a deduplicação ligada.
+     */
+    public boolean accepts(String objectName) {
+        return enabled && UserPhotoManifest.parse(objectName).isPresent();
+    }
+
+    /**
+     * Chave do blob para a qual a foto aponta; vazio se ela não for uma referência
+     */
+    public Optional<String> resolve(String objectName) {
+        if (!referencesExist) {
+            return Optional.empty();
+        }
+        Optional<UserPhotoManifest.PhotoKey> key = UserPhotoManifest.parse(objectName);
+        if (key.isEmpty()) {
+            return Optional.empty();
+        }
+        Optional<String> cached = resolutions.getIfPresent(objectName);
+        if (cached != null) {
+            return cached;
+        }
+
+        // Consulta fora do cache, sem segurar lock durante o I/O (como no UserCache)
+        long generation = resolutionGeneration.get();
+        Optional<String> blob = photoRepository.findByUserIdAndName(key.get().userId(), key.get().name())
+                .map(UserPhoto::getBlobDigest)
+                .map(PhotoDedupService::blobKey);
+        if (resolutionGeneration.get() == generation) {
+            resolutions.put(objectName, blob);
+        }
+        return blob;
+    }
+
+    /**
+     * Calcula o SHA-256 enquanto copia o stream para um arquivo temporário e só envia os
+     * bytes ao storage se esse conteúdo ainda não existir. A foto passa a apontar para o blob.
+     */
+    public String upload(String objectName, InputStream photoStream, String contentType) {
+        UserPhotoManifest.PhotoKey key = UserPhotoManifest.parse(objectName)
+                .orElseThrow(() -> new IllegalArgumentException("Foto fora de users/{userId}/: " + objectName));
+
+        Path spool = null;
+        try {
+            spool = Files.createTempFile("photo-", ".upload");
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            try (InputStream hashing = new DigestInputStream(photoStream, sha256)) {
+                Files.copy(hashing, spool, StandardCopyOption.REPLACE_EXISTING);
+            }
+            String digest = HexFormat.of().formatHex(sha256.digest());
+
+            if (blobRepository.acquire(digest, Instant.now()) > 0) {
+                log.info("Conteúdo já armazenado, foto {} aponta para o blob {}", objectName, digest);
+            } else {
+                try (InputStream content = Files.newInputStream(spool)) {
+                    backend.uploadPhoto(blobKey(digest), content, Files.size(spool), contentType);
+                }
+                createBlob(digest, contentType);
+            }
+            link(key, objectName, digest);
+            return objectName;
+        } catch (IOException | NoSuchAlgorithmException e) {
+            log.error("Erro ao fazer upload da foto: {}", objectName, e);
+            throw new RuntimeException("Erro ao fazer upload da foto: " + e.getMessage());
+        } finally {
+            deleteSpool(spool);
+        }
+    }
+
+    /**
+     * Cria a foto apontando para um conteúdo já armazenado, sem receber os bytes.
+     * Devolve false se a deduplicação estiver desligada ou se não houver blob com esse hash.
+     */
+    public boolean linkExisting(String objectName, String sha256) {
+        String digest = sha256.toLowerCase();
+        if (!accepts(objectName) || !SHA256_HEX.matcher(digest).matches()) {
+            return false;
+        }
+        if (blobRepository.acquire(digest, Instant.now()) == 0) {
+            return false;
+        }
+        link(UserPhotoManifest.parse(objectName).orElseThrow(), objectName, digest);
+        return true;
+    }
+
+    /**
+     * Remove as referências das fotos informadas, liberando os blobs.
+     * Devolve as que eram referências; as outras são objetos comuns do storage.
+     */
+    public Set<String> unlink(Collection<String> objectNames) {
+        Set<String> unlinked = new LinkedHashSet<>();
+        if (!referencesExist) {
+            return unlinked;
+        }
+        for (String objectName : objectNames) {
+            Optional<UserPhotoManifest.PhotoKey> key = UserPhotoManifest.parse(objectName);
+            if (key.isEmpty()) {
+                continue;
+            }
+            Boolean removed = transactions.execute(status ->
+                    photoRepository.findByUserIdAndName(key.get().userId(), key.get().name())
+                            .filter(photo -> photo.getBlobDigest() != null)
+                            .map(photo -> {
+                                photoRepository.delete(photo);
+                                blobRepository.release(photo.getBlobDigest(), Instant.now());
+                                return true;
+                            })
+                            .orElse(false));
+            if (Boolean.TRUE.equals(removed)) {
+                evictResolution(objectName);
+                unlinked.add(objectName);
+            }
+        }
+        return unlinked;
+    }
+
+    /**
+     * Remove do storage os blobs sem referência há mais de storage.dedup.gc-grace-minutes
+     */
+    @Scheduled(initialDelayString = "${storage.dedup.gc-interval-ms:3600000}",
+            fixedDelayString = "${storage.dedup.gc-interval-ms:3600000}")
+    public void collectGarbage() {
+        if (!referencesExist) {
+            return;
+        }
+        List<PhotoBlob> candidates = blobRepository.findByRefCountAndUpdatedAtBefore(
+                0, Instant.now().minus(gcGrace), Limit.of(GC_BATCH_SIZE));
+        int removed = 0;
+        for (PhotoBlob candidate : candidates) {
+            try {
+                Boolean deleted = transactions.execute(status -> blobRepository.lockById(candidate.getId())
+                        .filter(blob -> blob.getRefCount() == 0)
+                        .map(blob -> {
+                            backend.deletePhoto(blobKey(blob.getDigest()));
+                            blobRepository.delete(blob);
+                            return true;
+                        })
+                        .orElse(false));
+                if (Boolean.TRUE.equals(deleted)) {
+                    removed++;
+                }
+            } catch (RuntimeException e) {
+                log.warn("Erro ao remover o blob {}: {}", candidate.getDigest(), e.getMessage());
+            }
+        }
+        if (removed > 0) {
+            log.info("Coleta de blobs: {} blobs sem referência removidos", removed);
+        }
+    }
+
+    static String blobKey(String digest) {
+        return BLOBS_PREFIX + digest;
+    }
+
+    // Dois uploads do mesmo conteúdo ao mesmo tempo: o segundo insert falha e vira acquire
+    private void createBlob(String digest, String contentType) {
+        PhotoMetadata metadata = backend.stat(blobKey(digest))
+                .orElseThrow(() -> new RuntimeException("Blob não encontrado após o upload: " + digest));
+        try {
+            blobRepository.saveAndFlush(new PhotoBlob(digest, metadata.getSize(), contentType, metadata.getEtag()));
+        } catch (DataIntegrityViolationException e) {
+            blobRepository.acquire(digest, Instant.now());
+        }
+    }
+
+    /**
+     * Aponta a foto para o blob (que já recebeu a referência) e libera o conteúdo anterior.
+     * Se a foto era um objeto comum em users/, o objeto antigo é removido do storage.
+     */
+    private void link(UserPhotoManifest.PhotoKey key, String objectName, String digest) {
+        PhotoBlob blob = blobRepository.findByDigest(digest).orElseThrow();
+        Boolean replacedObject;
+        try {
+            replacedObject = transactions.execute(status -> {
+                UserPhoto photo = photoRepository.findByUserIdAndName(key.userId(), key.name())
+                        .orElseGet(() -> new UserPhoto(key.userId(), key.name()));
+                String previous = photo.getBlobDigest();
+                boolean storedObject = photo.getId() != null && previous == null;
+                photo.setBlobDigest(digest);
+                photo.setSize(blob.getSize());
+                photo.setContentType(blob.getContentType());
+                photo.setEtag(blob.getEtag());
+                photo.setUploadedAt(Instant.now());
+                photoRepository.save(photo);
+                if (previous != null) {
+                    // Mesmo conteúdo reenviado com o mesmo nome: a referência nova anula esta
+                    blobRepository.release(previous, Instant.now());
+                }
+                return storedObject;
+            });
+        } catch (RuntimeException e) {
+            blobRepository.release(digest, Instant.now());
+            throw e;
+        }
+        referencesExist = true;
+        evictResolution(objectName);
+
+        if (Boolean.TRUE.equals(replacedObject)) {
+            try {
+                backend.deletePhoto(objectName);
+            } catch (RuntimeException e) {
+                log.warn("Não foi possível remover o objeto substituído {}: {}", objectName, e.getMessage());
+            }
+        }
+    }
+
+    private void evictResolution(String objectName) {
+        resolutionGeneration.incrementAndGet();
+        resolutions.invalidate(objectName);
+    }
+
+    private void deleteSpool(Path spool) {
+        if (spool == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(spool);
+        } catch (IOException e) {
+            log.warn("Não foi possível remover o arquivo temporário {}: {}", spool, e.getMessage());
+        }
+    }
+}
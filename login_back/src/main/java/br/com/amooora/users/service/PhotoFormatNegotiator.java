@@ -0,0 +1,119 @@
+package br.com.amooora.users.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Escolhe pelo header Accept o formato em que a foto é servida (ex: WebP para o navegador
+ * que aceita). Só há conversão para formatos mais compactos que os originais (AVIF e WebP),
+ * e só com writer do ImageIO no classpath: o JDK não traz encoder de nenhum dos dois. O WebP
+ * vem do plugin webp-imageio (build.gradle); o AVIF fica de fora até haver um writer para ele.
+ * Recomprimir no formato do próprio original
+ * (ex: JPEG em JPEG) gastaria CPU sem ganho garantido e nunca é negociado.
+ * <p>
+ * Pedidos sem um tipo de imagem explícito no Accept (ausente ou só com curinga) recebem o original.
+ */
+@Component
+@Slf4j
+public class PhotoFormatNegotiator {
+
+    // AVIF e WebP têm canal alfa, então servem também para PNG
+    private static final Map<String, String> EXTENSIONS = Map.of(
+            "image/avif", ".avif",
+            "image/webp", ".webp"
+    );
+
+    private final boolean enabled;
+    // Em ordem de preferência, só os que o ImageIO consegue escrever
+    private final List<MediaType> formats;
+
+    public PhotoFormatNegotiator(@Value("${storage.transcoding.enabled:true}") boolean enabled,
+                                 @Value("${storage.transcoding.formats:image/avif,image/webp}")
+                                 List<String> formats) {
+        this.enabled = enabled;
+        this.formats = formats.stream()
+                .map(String::trim)
+                .filter(EXTENSIONS::containsKey)
+                .filter(format -> ImageResizer.canWrite(EXTENSIONS.get(format)))
+                .map(MediaType::parseMediaType)
+                .toList();
+        if (enabled) {
+            log.info("Conversão de formato das fotos pelo Accept: {}", this.formats);
+        }
+    }
+
+    /**
+     * Accept da requisição; um header malformado conta como ausente
+     */
+    public static List<MediaType> accept(HttpHeaders headers) {
+        try {
+            return headers.getAccept();
+        } catch (InvalidMediaTypeException e) {
+            return List.of();
+        }
+    }
+
+    /**
+     * A resposta dessa foto depende do Accept (e precisa de Vary: Accept)?
+     */
+    public boolean varies(String objectName) {
+        return enabled && !targetsFor(objectName).isEmpty();
+    }
+
+    /**
+     * Extensão do formato a servir (ex: ".webp"); vazio para servir o original
+     */
+    public Optional<String> negotiate(String objectName, List<MediaType> accept) {
+        if (!enabled || accept.stream().allMatch(MediaType::isWildcardType)) {
+            return Optional.empty();
+        }
+
+        MediaType best = null;
+        double bestQuality = 0;
+        for (MediaType format : targetsFor(objectName)) {
+            double quality = quality(format, accept);
+            // Empate fica com o primeiro, que é o preferido
+            if (quality > bestQuality) {
+                best = format;
+                bestQuality = quality;
+            }
+        }
+        return Optional.ofNullable(best).map(format -> EXTENSIONS.get(format.toString()));
+    }
+
+    private List<MediaType> targetsFor(String objectName) {
+        String extension = objectName.substring(objectName.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+        return switch (extension) {
+            case "jpg", "jpeg", "bmp", "png" -> formats;
+            // GIF pode ser animado, SVG é vetorial e WebP/AVIF já são compactos: ficam como estão
+            default -> List.of();
+        };
+    }
+
+    // Vale a faixa mais específica que inclui o formato (image/webp > image/* > */*)
+    private double quality(MediaType format, List<MediaType> accept) {
+        MediaType match = null;
+        for (MediaType range : accept) {
+            if (range.includes(format) && (match == null || specificity(range) > specificity(match))) {
+                match = range;
+            }
+        }
+        return match != null ? match.getQualityValue() : 0;
+    }
+
+    private int specificity(MediaType range) {
+        if (range.isWildcardType()) {
+            return 0;
+        }
+        return range.isWildcardSubtype() ? 1 : 2;
+    }
+}
@@ -0,0 +1,252 @@
+package br.com.amooora.users.service;
+
+import br.com.amooora.users.dto.PhotoDownloadRequest;
+import br.com.amooora.users.dto.ResizeSpec;
+import br.com.amooora.users.service.storage.StorageService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Variantes redimensionadas das fotos (thumbnails, avatar pequeno etc.) e conversões de
+ * formato escolhidas pelo Accept (PhotoFormatNegotiator).
+ * Cada variante é gerada uma vez e gravada no storage em
+ * variants/{chave do original}/{spec ou "original"}.{ext}; depois é servida como qualquer foto.
+ * A conversão no tamanho original lê a foto inteira, então a primeira é feita pela
+ * VariantPrecomputeQueue e até lá é servido o original. Pedidos simultâneos da mesma variante
+ * ainda não gerada esperam uma única geração, em vez de cada um decodificar o original.
+ * Quem sobrescreve o original deve chamar invalidate().
+ */
+@Service
+@Slf4j
+public class PhotoVariantService {
+
+    private static final String VARIANTS_PREFIX = "variants/";
+    private static final String ORIGINAL_SIZE = "original";
+
+    private final StorageService storageService;
+    private final ImageResizer imageResizer;
+    private final PhotoFormatNegotiator formatNegotiator;
+    private final VariantPrecomputeQueue precomputeQueue;
+    // Gerações em andamento por chave da variante; quem chega depois espera a mesma
+    private final ConcurrentHashMap<String, CompletableFuture<Boolean>> generations = new ConcurrentHashMap<>();
+
+    // A fila também depende deste serviço: @Lazy a resolve só no primeiro uso
+    public PhotoVariantService(StorageService storageService, ImageResizer imageResizer,
+                               PhotoFormatNegotiator formatNegotiator, @Lazy VariantPrecomputeQueue precomputeQueue) {
+        this.storageService = storageService;
+        this.imageResizer = imageResizer;
+        this.formatNegotiator = formatNegotiator;
+        this.precomputeQueue = precomputeQueue;
+    }
+
+    /**
+     * Serve a foto, ou a variante redimensionada, no formato negociado pelo Accept.
+     * Sem conversão de formato é o mesmo que downloadVariant() ou o download do original.
+     */
+    public ResponseEntity<InputStreamResource> download(String objectName, Optional<ResizeSpec> spec,
+                                                        PhotoDownloadRequest request, List<MediaType> accept) {
+        Optional<String> format = formatNegotiator.negotiate(objectName, accept);
+        ResponseEntity<InputStreamResource> response;
+        if (format.isPresent() && spec.isPresent()) {
+            response = downloadVariant(objectName, spec.get(), format.get(), request);
+        } else if (format.isPresent()) {
+            response = downloadConverted(objectName, format.get(), request);
+        } else {
+            response = spec.map(resize -> downloadVariant(objectName, resize, request))
+                    .orElseGet(() -> storageService.downloadPhoto(objectName, request));
+        }
+        if (!formatNegotiator.varies(objectName)) {
+            return response;
+        }
+        // Caches (CDN, navegador) precisam separar as respostas por Accept
+        HttpHeaders headers = new HttpHeaders();
+        headers.addAll(response.getHeaders());
+        headers.setVary(List.of(HttpHeaders.ACCEPT));
+        return new ResponseEntity<>(response.getBody(), headers, response.getStatusCode());
+    }
+
+    /**
+     * Serve a variante pedida, gerando e gravando no storage na primeira vez
+     */
+    public ResponseEntity<InputStreamResource> downloadVariant(String objectName, ResizeSpec spec,
+                                                               PhotoDownloadRequest request) {
+        return downloadVariant(objectName, spec, ImageResizer.outputExtension(objectName), request);
+    }
+
+    /**
+     * Gera a variante a partir do original e grava no storage.
+     * Retorna false quando não há o que gerar (original inexistente ou formato não suportado).
+     */
+    public boolean generate(String objectName, ResizeSpec spec) {
+        return generate(objectName, spec, ImageResizer.outputExtension(objectName));
+    }
+
+    /**
+     * Converte a foto, no tamanho original, para o formato da extensão (ex: ".webp") e grava no storage.
+     * Retorna false quando não há o que converter (original inexistente ou formato não suportado).
+     */
+    public boolean convert(String objectName, String extension) {
+        return generate(objectName, null, extension);
+    }
+
+    // Enquanto a conversão não está no storage, ela vai para a fila e o cliente recebe o original
+    private ResponseEntity<InputStreamResource> downloadConverted(String objectName, String extension,
+                                                                  PhotoDownloadRequest request) {
+        ResponseEntity<InputStreamResource> converted =
+                storageService.downloadPhoto(variantKey(objectName, null, extension), request);
+        if (converted.getStatusCode() != HttpStatus.NOT_FOUND) {
+            return converted;
+        }
+        precomputeQueue.submitConversion(objectName, extension);
+        return storageService.downloadPhoto(objectName, request);
+    }
+
+    private ResponseEntity<InputStreamResource> downloadVariant(String objectName, ResizeSpec spec, String extension,
+                                                                PhotoDownloadRequest request) {
+        String variantKey = variantKey(objectName, spec, extension);
+
+        ResponseEntity<InputStreamResource> variant = storageService.downloadPhoto(variantKey, request);
+        if (variant.getStatusCode() != HttpStatus.NOT_FOUND) {
+            return variant;
+        }
+
+        if (!generate(objectName, spec, extension)) {
+            // Original inexistente (404) ou formato que o ImageIO não lê (ex: SVG): entrega o original
+            return storageService.downloadPhoto(objectName, request);
+        }
+        return storageService.downloadPhoto(variantKey, request);
+    }
+
+    private boolean generate(String objectName, ResizeSpec spec, String extension) {
+        String variantKey = variantKey(objectName, spec, extension);
+        CompletableFuture<Boolean> generation = new CompletableFuture<>();
+        CompletableFuture<Boolean> running = generations.putIfAbsent(variantKey, generation);
+        if (running != null) {
+            return await(running);
+        }
+        try {
+            boolean generated = generate(objectName, spec, extension, variantKey);
+            generation.complete(generated);
+            return generated;
+        } catch (RuntimeException e) {
+            generation.completeExceptionally(e);
+            throw e;
+        } finally {
+            generations.remove(variantKey, generation);
+        }
+    }
+
+    private boolean await(CompletableFuture<Boolean> generation) {
+        try {
+            return generation.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private boolean generate(String objectName, ResizeSpec spec, String extension, String variantKey) {
+        String name = spec != null ? spec.key() + extension : ORIGINAL_SIZE + extension;
+        ResponseEntity<InputStreamResource> original = storageService.downloadPhoto(objectName);
+        if (!original.getStatusCode().is2xxSuccessful() || original.getBody() == null) {
+            return false;
+        }
+
+        byte[] source = null;
+        Optional<ImageResizer.ResizedImage> resized;
+        try (InputStream stream = original.getBody().getInputStream()) {
+            if (spec != null) {
+                resized = imageResizer.resize(stream, spec, extension);
+            } else {
+                // Na conversão o original fica em memória: se ela não diminuir a foto, ele vira a variante
+                source = stream.readAllBytes();
+                resized = imageResizer.resize(new ByteArrayInputStream(source), null, extension);
+            }
+        } catch (IOException e) {
+            log.error("Erro ao gerar variante {} da foto: {}", name, objectName, e);
+            throw new RuntimeException("Erro ao gerar variante da foto: " + e.getMessage());
+        }
+
+        if (resized.isEmpty()) {
+            log.warn("Não foi possível redimensionar a foto {}, variante {} não gerada", objectName, name);
+            return false;
+        }
+
+        if (source != null && resized.get().data().length >= source.length) {
+            // Gravar o original evita tentar a conversão de novo a cada download
+            MediaType contentType = original.getHeaders().getContentType();
+            storageService.uploadPhoto(variantKey, source,
+                    contentType != null ? contentType.toString() : MediaType.APPLICATION_OCTET_STREAM_VALUE);
+            log.info("Conversão {} não reduziu a foto {}, variante guarda o original", name, objectName);
+            return true;
+        }
+        storageService.uploadPhoto(variantKey, resized.get().data(), resized.get().contentType());
+        log.info("Variante {} gerada para a foto: {}", name, objectName);
+        return true;
+    }
+
+    /**
+     * Remove as variantes já geradas da foto (chamar quando o original é sobrescrito)
+     */
+    public void invalidate(String objectName) {
+        List<String> variants;
+        try (Stream<String> keys = storageService.streamPhotos(variantPrefix(objectName))) {
+            variants = keys.toList();
+        }
+        deleteVariants(variants);
+    }
+
+    /**
+     * Remove as variantes de várias fotos do mesmo diretório (ex: users/123/) com uma
+     * única listagem e uma remoção em lote, em vez de uma listagem por foto
+     */
+    public void invalidateAll(String directory, Collection<String> objectNames) {
+        Set<String> originals = Set.copyOf(objectNames);
+        List<String> variants;
+        try (Stream<String> keys = storageService.streamPhotos(VARIANTS_PREFIX + directory)) {
+            variants = keys.filter(key -> originals.contains(originalOf(key))).toList();
+        }
+        deleteVariants(variants);
+    }
+
+    private void deleteVariants(List<String> variants) {
+        if (variants.isEmpty()) {
+            return;
+        }
+        storageService.deletePhotos(variants).forEach((variant, error) ->
+                log.warn("Não foi possível remover a variante {}: {}", variant, error));
+    }
+
+    // variants/{original}/{spec}.{ext} → {original}
+    private String originalOf(String variantKey) {
+        return variantKey.substring(VARIANTS_PREFIX.length(), variantKey.lastIndexOf('/'));
+    }
+
+    private String variantKey(String objectName, ResizeSpec spec, String extension) {
+        return variantPrefix(objectName) + (spec != null ? spec.key() : ORIGINAL_SIZE) + extension;
+    }
+
+    private String variantPrefix(String objectName) {
+        return VARIANTS_PREFIX + objectName + "/";
+    }
+}
@@ -0,0 +1,102 @@
+package br.com.amooora.users.service;
+
+import br.com.amooora.users.service.storage.AsyncStorageService;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Descobre qual arquivo é o avatar do usuário (avatar.jpg, .jpeg, .png ou .webp).
+ * Cada tentativa é um HEAD no storage, então o resultado fica em cache por usuário,
+ * inclusive quando o usuário não tem avatar. Os uploads de avatar devem chamar evict().
+ * As quatro tentativas saem em paralelo, e o cache assíncrono não segura nenhum lock
+ * durante o I/O (importante com virtual threads).
+ */
+@Component
+public class UserAvatarLocator {
+
+    private static final String[] AVATAR_EXTENSIONS = {".jpg", ".jpeg", ".png", ".webp"};
+
+    private final AsyncStorageService asyncStorageService;
+    private final AsyncCache<String, Optional<String>> avatarLocations;
+
+    public UserAvatarLocator(AsyncStorageService asyncStorageService,
+                             @Value("${storage.avatar-cache.max-size:10000}") long maxSize,
+                             @Value("${storage.avatar-cache.ttl-seconds:300}") long ttlSeconds,
+                             @Value("${storage.avatar-cache.negative-ttl-seconds:60}") long negativeTtlSeconds) {
+        this.asyncStorageService = asyncStorageService;
+        this.avatarLocations = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new AvatarExpiry(Duration.ofSeconds(ttlSeconds), Duration.ofSeconds(negativeTtlSeconds)))
+                .buildAsync();
+    }
+
+    /**
+     * Retorna o caminho completo do avatar (users/{userId}/avatar.ext), se existir
+     */
+    public Optional<String> findAvatar(String userId) {
+        try {
+            return avatarLocations.get(userId, (key, executor) -> probeAvatar(key)).join();
+        } catch (CompletionException e) {
+            // Falhas não ficam em cache: a próxima chamada tenta de novo
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Descarta a localização em cache (chamar após upload de avatar)
+     */
+    public void evict(String userId) {
+        avatarLocations.synchronous().invalidate(userId);
+    }
+
+    // Consulta todas as extensões ao mesmo tempo; vence a primeira da lista que existir
+    private CompletableFuture<Optional<String>> probeAvatar(String userId) {
+        List<String> candidates = Arrays.stream(AVATAR_EXTENSIONS)
+                .map(ext -> String.format("users/%s/avatar%s", userId, ext))
+                .toList();
+        List<CompletableFuture<Boolean>> probes = candidates.stream()
+                .map(asyncStorageService::photoExists)
+                .toList();
+        return CompletableFuture.allOf(probes.toArray(CompletableFuture[]::new))
+                .thenApply(done -> {
+                    for (int i = 0; i < candidates.size(); i++) {
+                        if (probes.get(i).join()) {
+                            return Optional.of(candidates.get(i));
+                        }
+                    }
+                    return Optional.empty();
+                });
+    }
+
+    // Resultados negativos expiram antes, para um avatar novo enviado por outra instância aparecer logo
+    private record AvatarExpiry(Duration ttl, Duration negativeTtl) implements Expiry<String, Optional<String>> {
+
+        @Override
+        public long expireAfterCreate(String userId, Optional<String> location, long currentTime) {
+            return (location.isPresent() ? ttl : negativeTtl).toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String userId, Optional<String> location, long currentTime, long currentDuration) {
+            return expireAfterCreate(userId, location, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String userId, Optional<String> location, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
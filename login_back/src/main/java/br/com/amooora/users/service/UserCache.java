@@ -0,0 +1,114 @@
+package br.com.amooora.users.service;
+
+import br.com.amooora.users.database.model.User;
+import br.com.amooora.users.service.dto.UserDTO;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Cache dos usuários lidos por id e por e-mail. Cada usuário fica uma vez só, por id; o
+ * índice por e-mail normalizado guarda apenas o id. Um e-mail que mudou em outra instância
+ * é detectado na leitura (o usuário em cache não tem mais aquele e-mail) e vira miss.
+ * <p>
+ * As escritas desta instância chamam evict(); as das outras aparecem em até
+ * users.cache.ttl-seconds. Acertos, erros e remoções ficam em cache.gets e cache.evictions
+ * (tags cache=users.by-id e users.by-email).
+ * <p>
+ * As leituras do banco rodam fora do Caffeine (nada de compute segurando lock durante o I/O,
+ * que prenderia a carrier thread com virtual threads); uma leitura que cruzou um evict()
+ * não é publicada, para não recolocar no cache a versão anterior à escrita.
+ */
+@Component
+public class UserCache {
+
+    private final Cache<Long, UserDTO> usersById;
+    private final Cache<String, Long> idsByEmail;
+    private final AtomicLong evictions = new AtomicLong();
+
+    public UserCache(MeterRegistry registry,
+                     @Value("${users.cache.max-size:100000}") long maxSize,
+                     @Value("${users.cache.ttl-seconds:300}") long ttlSeconds) {
+        this.usersById = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        this.idsByEmail = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, usersById, "users.by-id");
+        CaffeineCacheMetrics.monitor(registry, idsByEmail, "users.by-email");
+    }
+
+    /**
+     * Usuário pelo id, lendo do banco com loader em caso de miss
+     */
+    public UserDTO getById(Long id, Function<Long, UserDTO> loader) {
+        UserDTO cached = usersById.getIfPresent(id);
+        if (cached != null) {
+            return cached;
+        }
+
+        long generation = evictions.get();
+        UserDTO loaded = loader.apply(id);
+        publish(loaded, generation);
+        return loaded;
+    }
+
+    /**
+     * Usuário pelo e-mail já normalizado, lendo do banco com loader em caso de miss.
+     * Usuários não encontrados não ficam em cache.
+     */
+    public Optional<UserDTO> getByEmail(String normalizedEmail, Supplier<Optional<UserDTO>> loader) {
+        Long id = idsByEmail.getIfPresent(normalizedEmail);
+        UserDTO cached = id != null ? usersById.getIfPresent(id) : null;
+        if (cached != null && normalizedEmail.equals(User.normalizeEmail(cached.email()))) {
+            return Optional.of(cached);
+        }
+
+        long generation = evictions.get();
+        Optional<UserDTO> loaded = loader.get();
+        loaded.ifPresentOrElse(user -> publish(user, generation), () -> idsByEmail.invalidate(normalizedEmail));
+        return loaded;
+    }
+
+    public void put(UserDTO user) {
+        usersById.put(user.id(), user);
+        idsByEmail.put(User.normalizeEmail(user.email()), user.id());
+    }
+
+    private void publish(UserDTO user, long generation) {
+        if (user == null || evictions.get() != generation) {
+            return;
+        }
+        put(user);
+        // Um evict() entre a conferência e o put: na dúvida, descarta (vira só um miss)
+        if (evictions.get() != generation) {
+            usersById.invalidate(user.id());
+        }
+    }
+
+    /**
+     * Descarta o usuário e o índice do e-mail dele (chamar após atualizar ou remover)
+     */
+    public void evict(Long id) {
+        evictions.incrementAndGet();
+        UserDTO cached = usersById.getIfPresent(id);
+        usersById.invalidate(id);
+        if (cached != null) {
+            idsByEmail.invalidate(User.normalizeEmail(cached.email()));
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package br.com.amooora.users.service;
+
+import br.com.amooora.users.database.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * Preenche o email_normalized dos usuários cadastrados antes da coluna existir, em faixas
+ * de id. Os novos e os atualizados já são gravados normalizados (User.normalizeEmail).
+ * Até terminar, a busca por e-mail também tenta a comparação sem o índice.
+ * <p>
+ * Usuários cujo e-mail normalizado colide com o de outro ficam sem a coluna e são
+ * informados no log, para serem resolvidos manualmente. Enquanto houver colisões o
+ * backfill não é dado como completo: a busca continua olhando essas linhas e, com mais
+ * de um usuário para o mesmo e-mail, só aceita o e-mail exatamente igual ao cadastrado.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class UserEmailBackfill implements ApplicationRunner {
+
+    private static final long BATCH_SIZE = 1000;
+
+    private final UserRepository userRepository;
+    private volatile boolean complete;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        try {
+            long maxId = userRepository.findMaxId().orElse(0L);
+            long normalized = 0;
+            for (long after = 0; after < maxId; after += BATCH_SIZE) {
+                normalized += userRepository.normalizeEmails(after, after + BATCH_SIZE);
+            }
+            if (normalized > 0) {
+                log.info("E-mail normalizado preenchido em {} usuários", normalized);
+            }
+
+            long conflicts = userRepository.countByEmailNormalizedIsNullAndEmailIsNotNull();
+            if (conflicts > 0) {
+                log.warn("{} usuários com e-mail duplicado após a normalização ficaram sem email_normalized; "
+                        + "a busca por e-mail segue conferindo essas linhas até serem resolvidas", conflicts);
+                return;
+            }
+            complete = true;
+        } catch (RuntimeException e) {
+            log.error("Erro ao normalizar os e-mails dos usuários: {}", e.getMessage());
+        }
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+}
@@ -0,0 +1,264 @@
+package br.com.amooora.users.service;
+
+import br.com.amooora.users.database.model.User;
+import br.com.amooora.users.database.repository.UserRepository;
+import br.com.amooora.users.service.dto.UserDTO;
+import com.fasterxml.jackson.core.JacksonException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Importação de usuários em massa a partir de NDJSON (um usuário por linha, no formato do
+ * POST /users) ou CSV (cabeçalho com os nomes dos campos). O arquivo é lido em streaming:
+ * cada linha é validada ao ser lida e as válidas são gravadas em lotes de
+ * users.import.batch-size com batch do JDBC (o driver junta o lote num INSERT só, com
+ * rewriteBatchedStatements). A inserção não passa pelo Hibernate, que desliga o batch
+ * para ids IDENTITY.
+ * <p>
+ * Linhas inválidas ou com e-mail já cadastrado não interrompem a importação: vão para o
+ * relatório com o número da linha. Cada lote é confirmado ao ser gravado.
+ */
+@Service
+@Slf4j
+public class UserImportService {
+
+    public enum Format { NDJSON, CSV }
+
+    private static final String INSERT_SQL = "insert into user (name, email, email_normalized, phone_number, cep, "
+            + "birthday, biography, url_picture, open_network, version) values (?, ?, ?, ?, ?, ?, ?, ?, false, 0)";
+    private static final List<String> CSV_FIELDS =
+            List.of("name", "email", "phone_number", "cep", "birthday", "biography", "url_picture");
+    private static final Pattern EMAIL = Pattern.compile("[^@\\s]+@[^@\\s]+\\.[^@\\s]+");
+    private static final DateTimeFormatter BIRTHDAY_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    // O relatório guarda no máximo esses erros; os demais só entram na contagem
+    private static final int MAX_REPORTED_ERRORS = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final UserRepository userRepository;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+
+    public UserImportService(JdbcTemplate jdbcTemplate,
+                             UserRepository userRepository,
+                             ObjectMapper objectMapper,
+                             @Value("${users.import.batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.userRepository = userRepository;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+    }
+
+    public ImportReport importUsers(InputStream input, Format format) {
+        Import progress = new Import();
+        List<Row> batch = new ArrayList<>(batchSize);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            List<String> header = format == Format.CSV ? readHeader(reader) : null;
+            long lineNumber = header != null ? 1 : 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    UserDTO user = format == Format.CSV ? parseCsv(header, line) : parseJson(line);
+                    batch.add(new Row(lineNumber, validate(user)));
+                } catch (IllegalArgumentException e) {
+                    progress.fail(lineNumber, e.getMessage());
+                }
+                if (batch.size() >= batchSize) {
+                    insert(batch, progress);
+                    batch.clear();
+                }
+            }
+            insert(batch, progress);
+        } catch (IOException e) {
+            log.error("Erro ao ler a importação de usuários", e);
+            throw new RuntimeException("Erro ao ler a importação de usuários: " + e.getMessage());
+        }
+
+        log.info("Importação de usuários: {} importados, {} com erro", progress.imported, progress.failed);
+        return new ImportReport(progress.imported, progress.failed, progress.errors);
+    }
+
+    /**
+     * Grava um lote: descarta os e-mails já cadastrados (uma consulta pelo índice único) e
+     * insere o resto num batch só. Se o batch falhar (ex: o e-mail foi cadastrado nesse meio
+     * tempo), as linhas do lote são inseridas uma a uma para achar as que falham.
+     */
+    private void insert(List<Row> batch, Import progress) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        Set<String> registered = new HashSet<>(userRepository.findRegisteredEmails(
+                batch.stream().map(row -> row.user().emailNormalized()).toList()));
+        List<Row> rows = new ArrayList<>();
+        for (Row row : batch) {
+            if (registered.contains(row.user().emailNormalized()) || !progress.emails.add(row.user().emailNormalized())) {
+                progress.fail(row.line(), "E-mail já cadastrado");
+            } else {
+                rows.add(row);
+            }
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        try {
+            jdbcTemplate.batchUpdate(INSERT_SQL, rows.stream().map(row -> row.user().parameters()).toList());
+            progress.imported += rows.size();
+        } catch (DataAccessException e) {
+            log.warn("Lote da importação de usuários falhou, inserindo linha a linha: {}", e.getMessage());
+            for (Row row : rows) {
+                try {
+                    jdbcTemplate.update(INSERT_SQL, row.user().parameters());
+                    progress.imported++;
+                } catch (DataAccessException rowError) {
+                    progress.fail(row.line(), "Erro ao gravar o usuário: " + rowError.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+    }
+
+    private UserDTO parseJson(String line) {
+        try {
+            return objectMapper.readValue(line, UserDTO.class);
+        } catch (JacksonException e) {
+            throw new IllegalArgumentException("JSON inválido: " + e.getOriginalMessage());
+        }
+    }
+
+    private List<String> readHeader(BufferedReader reader) throws IOException {
+        String line = reader.readLine();
+        if (line == null) {
+            return List.of();
+        }
+        List<String> header = splitCsv(line.replace("\uFEFF", "")).stream().map(String::trim).toList();
+        if (!header.containsAll(List.of("name", "email", "phone_number", "cep", "birthday"))) {
+            throw new IllegalArgumentException("Cabeçalho do CSV deve ter as colunas " + CSV_FIELDS);
+        }
+        return header;
+    }
+
+    private UserDTO parseCsv(List<String> header, String line) {
+        List<String> values = splitCsv(line);
+        if (values.size() != header.size()) {
+            throw new IllegalArgumentException("Esperadas " + header.size() + " colunas, encontradas " + values.size());
+        }
+        Map<String, String> fields = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            String value = values.get(i).trim();
+            fields.put(header.get(i), value.isEmpty() ? null : value);
+        }
+        LocalDate birthday;
+        try {
+            birthday = fields.get("birthday") != null ? LocalDate.parse(fields.get("birthday"), BIRTHDAY_FORMAT) : null;
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Data de nascimento inválida, use dd/MM/yyyy");
+        }
+        return new UserDTO(null, fields.get("name"), fields.get("email"), fields.get("phone_number"),
+                fields.get("cep"), birthday, fields.get("biography"), fields.get("url_picture"), null);
+    }
+
+    // Campos separados por vírgula; aspas duplas delimitam campos com vírgula ("" é uma aspa)
+    private static List<String> splitCsv(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        values.add(value.toString());
+        return values;
+    }
+
+    // Mesmas regras da entidade User, que não são aplicadas no insert via JDBC
+    private ValidUser validate(UserDTO user) {
+        requireNotBlank("name", user.name());
+        requireNotBlank("email", user.email());
+        requireNotBlank("phone_number", user.phone_number());
+        requireNotBlank("cep", user.cep());
+        String email = User.normalizeEmail(user.email());
+        if (!EMAIL.matcher(email).matches()) {
+            throw new IllegalArgumentException("E-mail inválido");
+        }
+        if (user.birthday() == null || !user.birthday().isBefore(LocalDate.now())) {
+            throw new IllegalArgumentException("Data de nascimento inválida");
+        }
+        return new ValidUser(user, email);
+    }
+
+    private void requireNotBlank(String field, String value) {
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Campo obrigatório: " + field);
+        }
+    }
+
+    public record ImportReport(int imported, int failed, List<RowError> errors) {}
+
+    public record RowError(long line, String error) {}
+
+    private record Row(long line, ValidUser user) {}
+
+    private record ValidUser(UserDTO user, String emailNormalized) {
+
+        Object[] parameters() {
+            return new Object[]{user.name(), user.email().trim(), emailNormalized, user.phone_number(), user.cep(),
+                    Date.valueOf(user.birthday()), user.biography(), user.url_picture()};
+        }
+    }
+
+    // Andamento da importação; emails guarda os já aceitos, para acusar repetidos no próprio arquivo
+    private static class Import {
+
+        private final Set<String> emails = new HashSet<>();
+        private final List<RowError> errors = new ArrayList<>();
+        private int imported;
+        private int failed;
+
+        void fail(long line, String error) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new RowError(line, error));
+            }
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package br.com.amooora.users.service;
+
+import br.com.amooora.users.dto.PhotoInfoDto;
+import br.com.amooora.users.dto.PhotoMetadata;
+import br.com.amooora.users.service.storage.AsyncStorageService;
+import br.com.amooora.users.service.storage.StorageService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * Operações em lote sobre as fotos de um usuário. As consultas ao storage de cada foto
+ * saem em paralelo pelo AsyncStorageService, limitadas pelo semáforo dele
+ * (storage.async.max-concurrency); remoções usam o delete em lote do provider.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UserPhotoBatchService {
+
+    private final StorageService storageService;
+    private final AsyncStorageService asyncStorageService;
+    private final UserAvatarLocator avatarLocator;
+    private final PhotoVariantService variantService;
+    private final VariantPrecomputeQueue precomputeQueue;
+
+    /**
+     * Metadados das fotos, na ordem pedida (vazio para as que não existem)
+     */
+    public Map<String, Optional<PhotoMetadata>> stat(String userId, List<String> photoNames) {
+        return fanOut(userId, photoNames, asyncStorageService::stat);
+    }
+
+    /**
+     * Informações e URL pré-assinada das fotos que existem; as inexistentes ficam de fora
+     */
+    public Map<String, PhotoInfoDto> presignedUrls(String userId, List<String> photoNames, int expiryMinutes) {
+        Map<String, PhotoInfoDto> urls = new LinkedHashMap<>();
+        stat(userId, photoNames).forEach((photoName, info) -> info.ifPresent(metadata -> urls.put(photoName,
+                new PhotoInfoDto(
+                        photoName,
+                        metadata.getSize(),
+                        metadata.getContentType(),
+                        metadata.getLastModified(),
+                        metadata.getEtag(),
+                        storageService.getPresignedDownloadUrl(metadata.getObject(), expiryMinutes)
+                ))));
+        return urls;
+    }
+
+    /**
+     * Envia os arquivos em paralelo, cada um com um nome gerado. Falhas de um arquivo
+     * não impedem os demais: ficam no resultado com a mensagem de erro.
+     */
+    public List<UploadResult> upload(String userId, List<MultipartFile> files) {
+        List<CompletableFuture<UploadResult>> uploads = new ArrayList<>();
+        for (MultipartFile file : files) {
+            uploads.add(upload(userId, file));
+        }
+        return uploads.stream().map(CompletableFuture::join).toList();
+    }
+
+    /**
+     * Remove as fotos e as variantes delas. Devolve as que não puderam ser removidas (nome → erro).
+     */
+    public Map<String, String> delete(String userId, List<String> photoNames) {
+        String directory = buildUserPhotoPath(userId, "");
+        Map<String, String> objectNames = new LinkedHashMap<>();
+        photoNames.forEach(photoName -> objectNames.put(buildUserPhotoPath(userId, photoName), photoName));
+
+        Map<String, String> failures = new LinkedHashMap<>();
+        storageService.deletePhotos(objectNames.keySet())
+                .forEach((objectName, error) -> failures.put(objectNames.get(objectName), error));
+
+        List<String> deleted = objectNames.keySet().stream()
+                .filter(objectName -> !failures.containsKey(objectNames.get(objectName)))
+                .toList();
+        variantService.invalidateAll(directory, deleted);
+        if (deleted.stream().anyMatch(objectName -> objectNames.get(objectName).startsWith("avatar."))) {
+            avatarLocator.evict(userId);
+        }
+
+        log.info("{} fotos removidas do usuário {}", deleted.size(), userId);
+        return failures;
+    }
+
+    private CompletableFuture<UploadResult> upload(String userId, MultipartFile file) {
+        String originalName = file.getOriginalFilename();
+        if (file.isEmpty()) {
+            return CompletableFuture.completedFuture(UploadResult.failed(originalName, "Arquivo não pode estar vazio"));
+        }
+
+        String fileName = generateUniqueFileName(originalName);
+        String objectName = buildUserPhotoPath(userId, fileName);
+        InputStream photoStream;
+        try {
+            photoStream = file.getInputStream();
+        } catch (IOException e) {
+            return CompletableFuture.completedFuture(UploadResult.failed(originalName, e.getMessage()));
+        }
+
+        return asyncStorageService.uploadPhoto(objectName, photoStream, file.getSize(), file.getContentType())
+                .handle((uploadedName, error) -> {
+                    closeQuietly(photoStream);
+                    if (error != null) {
+                        Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                        log.error("Erro ao enviar foto {} do usuário {}", originalName, userId, cause);
+                        return UploadResult.failed(originalName, cause.getMessage());
+                    }
+                    precomputeQueue.submit(objectName, VariantPrecomputeQueue.Kind.PHOTO);
+                    return new UploadResult(originalName, fileName, uploadedName, null);
+                });
+    }
+
+    // Dispara uma chamada por foto e espera todas, mantendo a ordem dos nomes
+    private <T> Map<String, T> fanOut(String userId, List<String> photoNames,
+                                      Function<String, CompletableFuture<T>> call) {
+        Map<String, CompletableFuture<T>> futures = new LinkedHashMap<>();
+        photoNames.forEach(photoName -> futures.put(photoName, call.apply(buildUserPhotoPath(userId, photoName))));
+
+        Map<String, T> results = new LinkedHashMap<>();
+        try {
+            futures.forEach((photoName, future) -> results.put(photoName, future.join()));
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        return results;
+    }
+
+    private void closeQuietly(InputStream stream) {
+        try {
+            stream.close();
+        } catch (IOException e) {
+            log.warn("Erro ao fechar o arquivo enviado: {}", e.getMessage());
+        }
+    }
+
+    private String buildUserPhotoPath(String userId, String photoName) {
+        return String.format("users/%s/%s", userId, photoName);
+    }
+
+    private String generateUniqueFileName(String originalFilename) {
+        String extension = getFileExtension(originalFilename);
+        return UUID.randomUUID().toString() + extension;
+    }
+
+    private String getFileExtension(String filename) {
+        if (filename == null || !filename.contains(".")) {
+            return ".jpg";
+        }
+        return filename.substring(filename.lastIndexOf('.'));
+    }
+
+    /**
+     * Resultado do upload de um arquivo do lote: photoName/fullPath quando enviado, error quando falhou
+     */
+    public record UploadResult(String originalName, String photoName, String fullPath, String error) {
+
+        static UploadResult failed(String originalName, String error) {
+            return new UploadResult(originalName, null, null, error);
+        }
+
+        public boolean succeeded() {
+            return error == null;
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package br.com.amooora.users.service;
+
+import br.com.amooora.users.database.model.UserPhoto;
+import br.com.amooora.users.database.repository.UserPhotoRepository;
+import br.com.amooora.users.dto.PhotoMetadata;
+import br.com.amooora.users.dto.PhotoPage;
+import br.com.amooora.users.service.storage.StorageService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Manifesto das fotos de cada usuário no MySQL (tabela user_photo), para listar e contar
+ * sem LIST no bucket. É mantido pelo ManifestStorageService a cada upload e remoção, e
+ * uma reconciliação em segundo plano corrige divergências (ex: falha ao gravar no banco,
+ * objetos alterados fora da aplicação).
+ * <p>
+ * Até a primeira reconciliação terminar, as listagens continuam usando o LIST do storage,
+ * já que fotos enviadas antes do manifesto ainda não estão nele.
+ */
+@Service
+@Slf4j
+public class UserPhotoManifest {
+
+    private static final String USERS_PREFIX = "users/";
+    private static final Set<String> IMAGE_EXTENSIONS = Set.of("jpg", "jpeg", "png", "gif", "webp", "avif", "bmp", "svg");
+
+    private final UserPhotoRepository repository;
+    private final StorageService backend;
+    private final boolean enabled;
+    private volatile boolean ready;
+
+    // Usa o provider direto (sem cache e sem o ManifestStorageService, que depende deste bean)
+    public UserPhotoManifest(UserPhotoRepository repository,
+                             @Qualifier("meteredStorageBackend") StorageService backend,
+                             @Value("${storage.manifest.enabled:true}") boolean enabled) {
+        this.repository = repository;
+        this.backend = backend;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Página de nomes das fotos do usuário (sem o prefixo users/{userId}/), em ordem de nome.
+     * O cursor é sempre o último nome da página anterior, com ou sem a primeira reconciliação:
+     * um cursor obtido antes dela continua valendo depois, e vice-versa.
+     */
+    public PhotoPage listPhotos(String userId, int limit, String cursor) {
+        if (!ready) {
+            // O storage pagina pela chave completa: o cursor vira users/{userId}/{nome} e volta a ser só o nome
+            String prefix = userPrefix(userId);
+            PhotoPage page = backend.listPhotos(prefix, limit, cursor != null ? prefix + cursor : null);
+            return new PhotoPage(page.photos().stream().map(path -> path.replace(prefix, "")).toList(),
+                    page.hasMore() ? page.nextCursor().substring(prefix.length()) : null);
+        }
+
+        // Busca um a mais para saber se existe próxima página
+        List<UserPhoto> photos = cursor == null
+                ? repository.findByUserIdOrderByNameAsc(userId, Limit.of(limit + 1))
+                : repository.findByUserIdAndNameGreaterThanOrderByNameAsc(userId, cursor, Limit.of(limit + 1));
+        List<String> names = photos.stream().limit(limit).map(UserPhoto::getName).toList();
+        return new PhotoPage(names, photos.size() > limit ? names.get(names.size() - 1) : null);
+    }
+
+    /**
+     * Todos os nomes das fotos do usuário
+     */
+    public List<String> listPhotos(String userId) {
+        if (!ready) {
+            String prefix = userPrefix(userId);
+            try (Stream<String> photos = backend.streamPhotos(prefix)) {
+                return photos.map(path -> path.replace(prefix, "")).toList();
+            }
+        }
+        return repository.findByUserIdOrderByNameAsc(userId).stream().map(UserPhoto::getName).toList();
+    }
+
+    public long countPhotos(String userId) {
+        if (!ready) {
+            try (Stream<String> photos = backend.streamPhotos(userPrefix(userId))) {
+                return photos.count();
+            }
+        }
+        return repository.countByUserId(userId);
+    }
+
+    /**
+     * Registra (ou atualiza) a foto recém-enviada com os metadados do storage.
+     * Chaves fora de users/{userId}/ são ignoradas. Falhas só são logadas: o objeto já
+     * foi gravado e a reconciliação acerta o manifesto depois.
+     */
+    public void recordUpload(String objectName) {
+        if (!enabled) {
+            return;
+        }
+        parse(objectName).ifPresent(key -> {
+            try {
+                Optional<PhotoMetadata> metadata = backend.stat(objectName);
+                if (metadata.isEmpty()) {
+                    return;
+                }
+                UserPhoto photo = repository.findByUserIdAndName(key.userId(), key.name())
+                        .orElseGet(() -> new UserPhoto(key.userId(), key.name()));
+                photo.setSize(metadata.get().getSize());
+                photo.setContentType(metadata.get().getContentType());
+                photo.setEtag(metadata.get().getEtag());
+                photo.setUploadedAt(Instant.now());
+                repository.save(photo);
+            } catch (RuntimeException e) {
+                log.warn("Erro ao registrar a foto {} no manifesto: {}", objectName, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Remove as fotos do manifesto (chaves fora de users/{userId}/ são ignoradas)
+     */
+    public void recordDelete(Collection<String> objectNames) {
+        if (!enabled) {
+            return;
+        }
+        Map<String, List<String>> namesByUser = objectNames.stream()
+                .map(UserPhotoManifest::parse)
+                .flatMap(Optional::stream)
+                .collect(Collectors.groupingBy(PhotoKey::userId,
+                        Collectors.mapping(PhotoKey::name, Collectors.toList())));
+        namesByUser.forEach((userId, names) -> {
+            try {
+                repository.deleteByUserIdAndNameIn(userId, names);
+            } catch (RuntimeException e) {
+                log.warn("Erro ao remover fotos do usuário {} do manifesto: {}", userId, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Compara o manifesto com o bucket (um LIST completo de users/) e corrige as diferenças.
+     * O storage lista em ordem de chave, então as fotos de cada usuário chegam juntas e só
+     * um usuário por vez fica em memória.
+     */
+    @Scheduled(initialDelayString = "${storage.manifest.reconcile-initial-delay-ms:10000}",
+            fixedDelayString = "${storage.manifest.reconcile-interval-ms:21600000}")
+    public void reconcile() {
+        if (!enabled) {
+            return;
+        }
+        // Entradas gravadas depois do início podem não ter aparecido no LIST: não são removidas
+        Instant startedAt = Instant.now();
+        Set<String> seenUsers = new HashSet<>();
+        try (Stream<String> keys = backend.streamPhotos(USERS_PREFIX)) {
+            Iterator<PhotoKey> iterator = keys.map(UserPhotoManifest::parse).flatMap(Optional::stream).iterator();
+            String currentUser = null;
+            Set<String> names = new HashSet<>();
+            while (iterator.hasNext()) {
+                PhotoKey key = iterator.next();
+                if (!key.userId().equals(currentUser)) {
+                    if (currentUser != null) {
+                        reconcileUser(currentUser, names, startedAt, seenUsers.add(currentUser));
+                    }
+                    currentUser = key.userId();
+                    names = new HashSet<>();
+                }
+                names.add(key.name());
+            }
+            if (currentUser != null) {
+                reconcileUser(currentUser, names, startedAt, seenUsers.add(currentUser));
+            }
+        } catch (RuntimeException e) {
+            log.error("Erro na reconciliação do manifesto de fotos", e);
+            return;
+        }
+
+        // Usuários que não têm mais nenhuma foto no bucket. Um LIST sem nenhum usuário com o
+        // manifesto preenchido indica listagem errada (ex: sem recursão), e não bucket vazio
+        List<String> manifestUsers = repository.findDistinctUserIds();
+        if (seenUsers.isEmpty() && !manifestUsers.isEmpty()) {
+            log.warn("Reconciliação do manifesto: o storage não listou nenhuma foto em {}, mas o manifesto tem "
+                    + "{} usuários; nada foi removido", USERS_PREFIX, manifestUsers.size());
+            return;
+        }
+        manifestUsers.stream()
+                .filter(userId -> !seenUsers.contains(userId))
+                .forEach(userId -> reconcileUser(userId, Set.of(), startedAt, true));
+
+        ready = true;
+        log.info("Manifesto de fotos reconciliado: {} usuários", seenUsers.size());
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // Sem removeStale (usuário que reapareceu fora de ordem no LIST) só adiciona o que falta
+    private void reconcileUser(String userId, Set<String> names, Instant startedAt, boolean removeStale) {
+        Map<String, UserPhoto> manifest = repository.findByUserIdOrderByNameAsc(userId).stream()
+                .collect(Collectors.toMap(UserPhoto::getName, Function.identity()));
+
+        if (removeStale) {
+            List<String> stale = manifest.values().stream()
+                    // Fotos deduplicadas ficam em blobs/ e não aparecem no LIST de users/
+                    .filter(photo -> photo.getBlobDigest() == null)
+                    .filter(photo -> !names.contains(photo.getName()) && photo.getUploadedAt().isBefore(startedAt))
+                    .map(UserPhoto::getName)
+                    .toList();
+            if (!stale.isEmpty()) {
+                repository.deleteByUserIdAndNameIn(userId, stale);
+                log.info("Manifesto do usuário {}: {} fotos removidas", userId, stale.size());
+            }
+        }
+
+        List<String> missing = new ArrayList<>(names);
+        missing.removeAll(manifest.keySet());
+        missing.forEach(name -> recordUpload(userPrefix(userId) + name));
+        if (!missing.isEmpty()) {
+            log.info("Manifesto do usuário {}: {} fotos adicionadas", userId, missing.size());
+        }
+    }
+
+    private static String userPrefix(String userId) {
+        return USERS_PREFIX + userId + "/";
+    }
+
+    // users/{userId}/{name}, só imagens e sem subpastas (o mesmo que a listagem do storage devolve)
+    static Optional<PhotoKey> parse(String objectName) {
+        if (!objectName.startsWith(USERS_PREFIX)) {
+            return Optional.empty();
+        }
+        String rest = objectName.substring(USERS_PREFIX.length());
+        int slash = rest.indexOf('/');
+        if (slash <= 0 || rest.indexOf('/', slash + 1) >= 0) {
+            return Optional.empty();
+        }
+        String name = rest.substring(slash + 1);
+        String extension = name.substring(name.lastIndexOf('.') + 1).toLowerCase();
+        if (name.isEmpty() || !IMAGE_EXTENSIONS.contains(extension)) {
+            return Optional.empty();
+        }
+        return Optional.of(new PhotoKey(rest.substring(0, slash), name));
+    }
+
+    record PhotoKey(String userId, String name) {}
+}
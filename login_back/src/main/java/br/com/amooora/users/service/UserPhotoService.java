@@ -1,5 +1,6 @@
 package br.com.amooora.users.service;
 
+import br.com.amooora.users.dto.PhotoPage;
 import br.com.amooora.users.service.storage.StorageService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -7,6 +8,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.UUID;
 
@@ -16,6 +18,10 @@ import java.util.UUID;
 public class UserPhotoService {
 
     private final StorageService storageService;
+    private final UserAvatarLocator avatarLocator;
+    private final PhotoVariantService variantService;
+    private final VariantPrecomputeQueue precomputeQueue;
+    private final UserPhotoManifest manifest;
 
     /**
      * Upload de foto para usuário com nome automático
@@ -24,7 +30,8 @@ public class UserPhotoService {
         String fileName = generateUniqueFileName(file.getOriginalFilename());
         String objectName = buildUserPhotoPath(userId, fileName);
         
-        storageService.uploadPhoto(objectName, file.getBytes(), file.getContentType());
+        upload(objectName, file);
+        precomputeQueue.submit(objectName, VariantPrecomputeQueue.Kind.PHOTO);
         log.info("Foto enviada para usuário {}: {}", userId, fileName);
         
         return fileName;
@@ -36,7 +43,9 @@ public class UserPhotoService {
     public String uploadUserPhoto(String userId, String photoName, MultipartFile file) throws IOException {
         String objectName = buildUserPhotoPath(userId, photoName);
         
-        storageService.uploadPhoto(objectName, file.getBytes(), file.getContentType());
+        upload(objectName, file);
+        variantService.invalidate(objectName);
+        precomputeQueue.submit(objectName, VariantPrecomputeQueue.Kind.PHOTO);
         log.info("Foto enviada para usuário {}: {}", userId, photoName);
         
         return photoName;
@@ -49,7 +58,10 @@ public class UserPhotoService {
         String extension = getFileExtension(file.getOriginalFilename());
         String objectName = buildUserPhotoPath(userId, "avatar" + extension);
         
-        storageService.uploadPhoto(objectName, file.getBytes(), file.getContentType());
+        upload(objectName, file);
+        avatarLocator.evict(userId);
+        variantService.invalidate(objectName);
+        precomputeQueue.submit(objectName, VariantPrecomputeQueue.Kind.AVATAR);
         log.info("Avatar atualizado para usuário {}", userId);
         
         return objectName;
@@ -59,16 +71,9 @@ public class UserPhotoService {
      * Obter URL do avatar do usuário
      */
     public String getUserAvatarUrl(String userId, int expiryMinutes) {
-        String[] extensions = {".jpg", ".jpeg", ".png", ".webp"};
-        
-        for (String ext : extensions) {
-            String objectName = buildUserPhotoPath(userId, "avatar" + ext);
-            if (storageService.photoExists(objectName)) {
-                return storageService.getPresignedDownloadUrl(objectName, expiryMinutes);
-            }
-        }
-        
-        return null;
+        return avatarLocator.findAvatar(userId)
+                .map(objectName -> storageService.getPresignedDownloadUrl(objectName, expiryMinutes))
+                .orElse(null);
     }
 
     /**
@@ -88,29 +93,21 @@ public class UserPhotoService {
      * Listar todas as fotos de um usuário
      */
     public List<String> listUserPhotos(String userId) {
-        String prefix = "users/" + userId + "/";
-        List<String> photos = storageService.listPhotos(prefix);
-        
-        // Remove o prefixo para retornar apenas os nomes dos arquivos
-        return photos.stream()
-                .map(path -> path.replace(prefix, ""))
-                .toList();
+        return manifest.listPhotos(userId);
+    }
+
+    /**
+     * Listar uma página das fotos de um usuário
+     */
+    public PhotoPage listUserPhotos(String userId, int limit, String cursor) {
+        return manifest.listPhotos(userId, limit, cursor);
     }
 
     /**
      * Verificar se usuário tem avatar
      */
     public boolean userHasAvatar(String userId) {
-        String[] extensions = {".jpg", ".jpeg", ".png", ".webp"};
-        
-        for (String ext : extensions) {
-            String objectName = buildUserPhotoPath(userId, "avatar" + ext);
-            if (storageService.photoExists(objectName)) {
-                return true;
-            }
-        }
-        
-        return false;
+        return avatarLocator.findAvatar(userId).isPresent();
     }
 
     /**
@@ -125,19 +122,16 @@ public class UserPhotoService {
      * Contar fotos do usuário
      */
     public int countUserPhotos(String userId) {
-        return listUserPhotos(userId).size();
+        return (int) manifest.countPhotos(userId);
     }
 
     /**
      * Obter URLs de todas as fotos do usuário
      */
     public List<PhotoUrlInfo> getAllUserPhotoUrls(String userId, int expiryMinutes) {
-        String prefix = "users/" + userId + "/";
-        List<String> photos = storageService.listPhotos(prefix);
-        
-        return photos.stream()
-                .map(fullPath -> {
-                    String photoName = fullPath.replace(prefix, "");
+        return manifest.listPhotos(userId).stream()
+                .map(photoName -> {
+                    String fullPath = buildUserPhotoPath(userId, photoName);
                     String url = storageService.getPresignedDownloadUrl(fullPath, expiryMinutes);
                     return new PhotoUrlInfo(photoName, url, fullPath);
                 })
@@ -146,6 +140,12 @@ public class UserPhotoService {
 
     // Métodos auxiliares
 
+    private void upload(String objectName, MultipartFile file) throws IOException {
+        try (InputStream photoStream = file.getInputStream()) {
+            storageService.uploadPhoto(objectName, photoStream, file.getSize(), file.getContentType());
+        }
+    }
+
     private String buildUserPhotoPath(String userId, String photoName) {
         return String.format("users/%s/%s", userId, photoName);
     }
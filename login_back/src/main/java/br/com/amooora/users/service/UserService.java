@@ -1,16 +1,24 @@
 package br.com.amooora.users.service;
 
 import br.com.amooora.users.service.dto.UserDTO;
+import br.com.amooora.users.service.dto.UserPatchDTO;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface UserService {
 
-    List<UserDTO> findAll();
+    List<UserDTO> findPage(long after, int limit);
+    void streamAll(Consumer<UserDTO> consumer);
     UserDTO findUserById(Long id);
     UserDTO findUserByEmail(String email);
     UserDTO saveUser(UserDTO userDTO);
     UserDTO updateUser(UserDTO userDTO);
+    PatchResult patchUser(UserPatchDTO patch);
     void deleteUser(Long id);
 
+    enum PatchOutcome { UPDATED, NOT_FOUND, VERSION_CONFLICT }
+
+    record PatchResult(PatchOutcome outcome, Long version) {}
+
 }
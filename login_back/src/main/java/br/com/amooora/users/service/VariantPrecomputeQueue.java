@@ -0,0 +1,202 @@
+package br.com.amooora.users.service;
+
+import br.com.amooora.users.dto.ResizeSpec;
+import br.com.amooora.users.dto.VariantJobStatus;
+import br.com.amooora.users.dto.VariantPreset;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Gera as variantes configuradas logo após o upload, em background, para que
+ * o primeiro acesso já encontre o thumbnail pronto no storage.
+ * Pool próprio e fila limitada: com a fila cheia o job é descartado (REJECTED) e a
+ * variante volta a ser gerada sob demanda, sem atrasar a resposta do upload.
+ * As conversões de formato pedidas nos downloads (submitConversion) usam o mesmo pool.
+ */
+@Component
+@Slf4j
+public class VariantPrecomputeQueue {
+
+    private static final Duration STATUS_TTL = Duration.ofHours(1);
+
+    public enum Kind { PHOTO, AVATAR }
+
+    private final PhotoVariantService variantService;
+    private final List<ResizeSpec> photoSpecs;
+    private final List<ResizeSpec> avatarSpecs;
+    private final int maxAttempts;
+    private final long retryBackoffMillis;
+    private final ThreadPoolExecutor executor;
+    private final Cache<String, Job> jobs;
+    // Conversões na fila ou que falharam há pouco, para não agendar de novo a cada download
+    private final Cache<String, Boolean> conversions;
+
+    public VariantPrecomputeQueue(PhotoVariantService variantService,
+                                  @Value("${storage.variants.precompute.photo:thumb,medium}") List<String> photoPresets,
+                                  @Value("${storage.variants.precompute.avatar:avatar,thumb}") List<String> avatarPresets,
+                                  @Value("${storage.variants.queue.workers:2}") int workers,
+                                  @Value("${storage.variants.queue.capacity:500}") int capacity,
+                                  @Value("${storage.variants.queue.max-attempts:3}") int maxAttempts,
+                                  @Value("${storage.variants.queue.retry-backoff-ms:500}") long retryBackoffMillis) {
+        this.variantService = variantService;
+        this.photoSpecs = toSpecs(photoPresets);
+        this.avatarSpecs = toSpecs(avatarPresets);
+        this.maxAttempts = maxAttempts;
+        this.retryBackoffMillis = retryBackoffMillis;
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacity), new WorkerThreadFactory(), new ThreadPoolExecutor.AbortPolicy());
+        this.jobs = Caffeine.newBuilder()
+                .maximumSize(Math.max(10_000, capacity * 4L))
+                .expireAfterWrite(STATUS_TTL)
+                .build();
+        this.conversions = Caffeine.newBuilder()
+                .maximumSize(Math.max(10_000, capacity * 4L))
+                .expireAfterWrite(STATUS_TTL)
+                .build();
+    }
+
+    /**
+     * Agenda a geração das variantes da foto recém-enviada. Nunca bloqueia.
+     */
+    public VariantJobStatus submit(String objectName, Kind kind) {
+        List<ResizeSpec> specs = kind == Kind.AVATAR ? avatarSpecs : photoSpecs;
+        if (specs.isEmpty()) {
+            return null;
+        }
+
+        // Um novo upload da mesma foto substitui o job anterior na consulta de status
+        Job job = new Job(new VariantJobStatus(VariantJobStatus.State.QUEUED,
+                specs.stream().map(ResizeSpec::key).toList(), 0, null, Instant.now()));
+        jobs.put(objectName, job);
+        try {
+            executor.execute(() -> process(objectName, specs, job));
+        } catch (RejectedExecutionException e) {
+            log.warn("Fila de variantes cheia, {} será gerada sob demanda", objectName);
+            job.update(VariantJobStatus.State.REJECTED, 0, "Fila de variantes cheia");
+        }
+        return job.status;
+    }
+
+    /**
+     * Agenda a conversão da foto, no tamanho original, para o formato da extensão (ex: ".webp").
+     * Nunca bloqueia; ignora a foto se a mesma conversão já está na fila ou falhou há menos de uma hora.
+     */
+    public void submitConversion(String objectName, String extension) {
+        String key = objectName + extension;
+        if (conversions.asMap().putIfAbsent(key, Boolean.TRUE) != null) {
+            return;
+        }
+        try {
+            executor.execute(() -> convert(objectName, extension, key));
+        } catch (RejectedExecutionException e) {
+            log.warn("Fila de variantes cheia, conversão {} de {} fica para o próximo download", extension, objectName);
+            conversions.invalidate(key);
+        }
+    }
+
+    /**
+     * Situação do último job da foto (vazio se não houve upload recente)
+     */
+    public Optional<VariantJobStatus> status(String objectName) {
+        return Optional.ofNullable(jobs.getIfPresent(objectName)).map(job -> job.status);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void process(String objectName, List<ResizeSpec> specs, Job job) {
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            job.update(VariantJobStatus.State.PROCESSING, attempt, job.status.error());
+            try {
+                for (ResizeSpec spec : specs) {
+                    variantService.generate(objectName, spec);
+                }
+                job.update(VariantJobStatus.State.DONE, attempt, null);
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Falha ao gerar variantes de {} (tentativa {}/{}): {}",
+                        objectName, attempt, maxAttempts, e.getMessage());
+                if (attempt == maxAttempts || !backoff(attempt)) {
+                    job.update(VariantJobStatus.State.FAILED, attempt, e.getMessage());
+                    return;
+                }
+                job.update(VariantJobStatus.State.PROCESSING, attempt, e.getMessage());
+            }
+        }
+    }
+
+    // Só libera a chave quando a conversão foi gravada; uma falha fica marcada até o STATUS_TTL
+    private void convert(String objectName, String extension, String key) {
+        try {
+            if (variantService.convert(objectName, extension)) {
+                conversions.invalidate(key);
+            } else {
+                log.warn("Foto {} não pôde ser convertida para {}, segue sendo servida como foi enviada",
+                        objectName, extension);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Falha ao converter {} para {}: {}", objectName, extension, e.getMessage());
+        }
+    }
+
+    // Espera exponencial entre tentativas; false se o worker foi interrompido (shutdown)
+    private boolean backoff(int attempt) {
+        try {
+            Thread.sleep(retryBackoffMillis << (attempt - 1));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static List<ResizeSpec> toSpecs(List<String> presets) {
+        return presets.stream()
+                .map(String::trim)
+                .filter(name -> !name.isEmpty())
+                .map(name -> VariantPreset.fromName(name).spec())
+                .toList();
+    }
+
+    private static class Job {
+
+        private volatile VariantJobStatus status;
+
+        private Job(VariantJobStatus status) {
+            this.status = status;
+        }
+
+        private void update(VariantJobStatus.State state, int attempts, String error) {
+            status = status.next(state, attempts, error);
+        }
+    }
+
+    private static class WorkerThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "variant-worker-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
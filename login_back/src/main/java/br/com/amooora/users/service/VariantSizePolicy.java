@@ -0,0 +1,46 @@
+package br.com.amooora.users.service;
+
+import br.com.amooora.users.dto.ResizeSpec;
+import br.com.amooora.users.dto.VariantPreset;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Tamanhos que podem ser gerados sob demanda: os presets e os listados em
+ * storage.variants.allowed-sizes, no formato da chave da variante (ex: w128-h128-cover).
+ * Cada tamanho distinto vira mais um arquivo gravado por foto, então com ?w=&h= livres
+ * um cliente poderia gerar variantes sem limite.
+ */
+@Component
+public class VariantSizePolicy {
+
+    private final Set<String> allowedKeys;
+
+    public VariantSizePolicy(@Value("${storage.variants.allowed-sizes:}") List<String> allowedSizes) {
+        this.allowedKeys = Stream.concat(
+                        Arrays.stream(VariantPreset.values()).map(preset -> preset.spec().key()),
+                        allowedSizes.stream().map(size -> size.trim().toLowerCase(Locale.ROOT)))
+                .filter(key -> !key.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    /**
+     * Lê os parâmetros da requisição como ResizeSpec.from() e confere se o tamanho é permitido.
+     * IllegalArgumentException quando algum parâmetro é inválido ou o tamanho não está liberado.
+     */
+    public Optional<ResizeSpec> resolve(String preset, Integer width, Integer height, String fit) {
+        Optional<ResizeSpec> spec = ResizeSpec.from(preset, width, height, fit);
+        if (spec.isPresent() && !allowedKeys.contains(spec.get().key())) {
+            throw new IllegalArgumentException("Tamanho não permitido: " + spec.get().key() + ", use um preset");
+        }
+        return spec;
+    }
+}
@@ -17,12 +17,13 @@ public record UserDTO (
         @NotBlank String cep,
         @Past @NotNull @JsonFormat(pattern = "dd/MM/yyyy") LocalDate birthday,
         String biography,
-        String url_picture
+        String url_picture,
+        Long version
 ) {
     public static UserDTO fromUser(User user){
         return new UserDTO(user.getId(), user.getName(), user.getEmail(),
                 user.getPhone_number(), user.getCep(), user.getBirthday(),
-                user.getBiography(), user.getUrl_picture()
+                user.getBiography(), user.getUrl_picture(), user.getVersion()
         );
     }
 
@@ -32,4 +33,14 @@ public record UserDTO (
                 user.biography, user.url_picture
         );
     }
+
+    public static void copyToUser(UserDTO user, User target){
+        target.setName(user.name);
+        target.setEmail(user.email);
+        target.setPhone_number(user.phone_number);
+        target.setCep(user.cep);
+        target.setBirthday(user.birthday);
+        target.setBiography(user.biography);
+        target.setUrl_picture(user.url_picture);
+    }
 }
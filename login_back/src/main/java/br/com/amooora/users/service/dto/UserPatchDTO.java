@@ -0,0 +1,23 @@
+package br.com.amooora.users.service.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.time.LocalDate;
+
+/**
+ * Alteração parcial de um usuário: só os campos enviados (não nulos) são alterados.
+ * O version é o recebido na última leitura; se o usuário mudou desde então, nada é alterado.
+ */
+public record UserPatchDTO(
+        Long id,
+        Long version,
+        String name,
+        String email,
+        String phone_number,
+        String cep,
+        @JsonFormat(pattern = "dd/MM/yyyy") LocalDate birthday,
+        Boolean open_network,
+        String biography,
+        String url_picture
+) {
+}
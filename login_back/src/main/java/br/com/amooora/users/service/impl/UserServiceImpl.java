@@ -2,63 +2,236 @@ package br.com.amooora.users.service.impl;
 
 import br.com.amooora.users.database.model.User;
 import br.com.amooora.users.database.repository.UserRepository;
+import br.com.amooora.users.service.UserCache;
+import br.com.amooora.users.service.UserEmailBackfill;
 import br.com.amooora.users.service.UserService;
 import br.com.amooora.users.service.dto.UserDTO;
+import br.com.amooora.users.service.dto.UserPatchDTO;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.domain.Limit;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 public class UserServiceImpl implements UserService {
 
     private UserRepository userRepository;
+    private EntityManager entityManager;
+    private UserEmailBackfill emailBackfill;
+    private UserCache userCache;
 
-    public UserServiceImpl(UserRepository userRepository){
+    public UserServiceImpl(UserRepository userRepository, EntityManager entityManager,
+                           UserEmailBackfill emailBackfill, UserCache userCache){
         this.userRepository = userRepository;
+        this.entityManager = entityManager;
+        this.emailBackfill = emailBackfill;
+        this.userCache = userCache;
     }
 
     @Override
-    public List<UserDTO> findAll() {
-        var result = userRepository.findAll();
+    public List<UserDTO> findPage(long after, int limit) {
+        var result = userRepository.findByIdGreaterThanOrderByIdAsc(after, Limit.of(limit));
         return result.stream()
                 .map(UserDTO::fromUser)
-                .collect(Collectors.toList());
+                .toList();
+    }
+
+    /**
+     * Percorre todos os usuários em ordem de id sem carregar a tabela na memória:
+     * o driver entrega linha a linha e cada entidade sai do contexto de persistência
+     * assim que é convertida.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAll(Consumer<UserDTO> consumer) {
+        try (Stream<User> users = userRepository.streamAll()) {
+            users.forEach(user -> {
+                consumer.accept(UserDTO.fromUser(user));
+                entityManager.detach(user);
+            });
+        }
     }
 
     @Override
     public UserDTO findUserById(Long id) {
-        var result = userRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Usuário não encontrado"));
-        return UserDTO.fromUser(result);
+        return userCache.getById(id, key -> userRepository.findById(key)
+                .map(UserDTO::fromUser)
+                .orElseThrow(() -> new RuntimeException("Usuário não encontrado")));
     }
 
     @Override
     public UserDTO findUserByEmail(String email){
+        String normalized = User.normalizeEmail(email);
+        if (normalized == null) throw new RuntimeException("Usuário não encontrado");
 
-        var result = userRepository.findUserByEmail(email)
-                .orElseThrow(() -> new RuntimeException("Usuário não encontrado"));;
-        return UserDTO.fromUser(result);
+        // Com colisões pendentes o usuário depende do e-mail exato enviado, que o cache não distingue
+        if (!emailBackfill.isComplete()) {
+            return findByEmail(email).map(UserDTO::fromUser)
+                    .orElseThrow(() -> new RuntimeException("Usuário não encontrado"));
+        }
+        return userCache.getByEmail(normalized, () -> findByEmail(email).map(UserDTO::fromUser))
+                .orElseThrow(() -> new RuntimeException("Usuário não encontrado"));
     }
 
     @Override
     public UserDTO saveUser(UserDTO userDTO) {
-        var result = userRepository.save(UserDTO.toUser(userDTO));
-        return UserDTO.fromUser(result);
+        String normalized = User.normalizeEmail(userDTO.email());
+        if (normalized != null && !findAllByEmail(normalized).isEmpty()) throw new IllegalArgumentException("E-mail já cadastrado");
+        var result = UserDTO.fromUser(userRepository.save(UserDTO.toUser(userDTO)));
+        userCache.put(result);
+        return result;
     }
 
+    /**
+     * Altera a entidade carregada: um SELECT e um UPDATE, sem a releitura do merge.
+     * Se o cliente enviar a version, como no PATCH, só altera se o usuário ainda está nela;
+     * sem version vale a última escrita, como antes. O flush antes de montar a resposta
+     * devolve a version nova, já incrementada.
+     */
     @Override
+    @Transactional
     public UserDTO updateUser(UserDTO userDTO) {
-        UserDTO user = findUserById(userDTO.id());
-        User userToUpdate = UserDTO.toUser(userDTO);
-        userToUpdate.setId(user.id());
-        var result = userRepository.save(userToUpdate);
+        if (userDTO.id() == null) {
+            throw new IllegalArgumentException("Informe o id do usuário");
+        }
+        User user = userRepository.findById(userDTO.id())
+                .orElseThrow(() -> new RuntimeException("Usuário não encontrado"));
+        if (userDTO.version() != null && !userDTO.version().equals(user.getVersion())) {
+            throw new ObjectOptimisticLockingFailureException(User.class, userDTO.id());
+        }
+        requireEmailAvailable(userDTO.email(), userDTO.id());
+        UserDTO.copyToUser(userDTO, user);
+        var result = userRepository.saveAndFlush(user);
+        evictAfterCommit(user.getId());
         return UserDTO.fromUser(result);
     }
 
+    /**
+     * Um único UPDATE com os campos enviados, condicionado à versão lida pelo cliente:
+     * "where id = ? and version = ?". Sem SELECT antes; só quando nenhuma linha muda é
+     * que se consulta se o usuário existe, para diferenciar remoção de edição concorrente.
+     */
+    @Override
+    @Transactional
+    public PatchResult patchUser(UserPatchDTO patch) {
+        String normalizedEmail = validatePatch(patch);
+
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<User> update = builder.createCriteriaUpdate(User.class);
+        Root<User> user = update.from(User.class);
+        setIfPresent(update, user, "name", patch.name());
+        setIfPresent(update, user, "email", patch.email());
+        setIfPresent(update, user, "emailNormalized", normalizedEmail);
+        setIfPresent(update, user, "phone_number", patch.phone_number());
+        setIfPresent(update, user, "cep", patch.cep());
+        setIfPresent(update, user, "birthday", patch.birthday());
+        setIfPresent(update, user, "open_network", patch.open_network());
+        setIfPresent(update, user, "biography", patch.biography());
+        setIfPresent(update, user, "url_picture", patch.url_picture());
+
+        update.set(user.<Long>get("version"), builder.sum(user.<Long>get("version"), 1L));
+        update.where(builder.equal(user.get("id"), patch.id()),
+                builder.equal(user.get("version"), patch.version()));
+
+        if (entityManager.createQuery(update).executeUpdate() == 0) {
+            return new PatchResult(userRepository.existsById(patch.id())
+                    ? PatchOutcome.VERSION_CONFLICT : PatchOutcome.NOT_FOUND, null);
+        }
+        evictAfterCommit(patch.id());
+        return new PatchResult(PatchOutcome.UPDATED, patch.version() + 1);
+    }
+
     @Override
     public void deleteUser(Long id) {
         if( !userRepository.existsById(id)) throw new RuntimeException("Usuário não encontrado");
         userRepository.deleteById(id);
+        userCache.evict(id);
+    }
+
+    // O UPDATE em massa não passa pelo Bean Validation: os campos são conferidos aqui.
+    // Devolve o e-mail normalizado, se o e-mail for alterado.
+    private String validatePatch(UserPatchDTO patch) {
+        if (patch.id() == null || patch.version() == null) {
+            throw new IllegalArgumentException("Informe o id e a version do usuário");
+        }
+        if (Stream.of(patch.name(), patch.email(), patch.phone_number(), patch.cep(), patch.birthday(),
+                patch.open_network(), patch.biography(), patch.url_picture()).allMatch(Objects::isNull)) {
+            throw new IllegalArgumentException("Nenhum campo para alterar");
+        }
+        requireNotBlank("name", patch.name());
+        requireNotBlank("phone_number", patch.phone_number());
+        requireNotBlank("cep", patch.cep());
+        if (patch.birthday() != null && !patch.birthday().isBefore(LocalDate.now())) {
+            throw new IllegalArgumentException("Data de nascimento inválida");
+        }
+        if (patch.email() == null) return null;
+
+        String normalized = User.normalizeEmail(patch.email());
+        if (!normalized.contains("@")) throw new IllegalArgumentException("E-mail inválido");
+        requireEmailAvailable(patch.email(), patch.id());
+        return normalized;
+    }
+
+    // O índice único barraria de qualquer forma; conferir antes dá a mensagem certa no caso comum
+    private void requireEmailAvailable(String email, Long id) {
+        String normalized = User.normalizeEmail(email);
+        if (normalized != null && findAllByEmail(normalized).stream().anyMatch(other -> !other.getId().equals(id))) {
+            throw new IllegalArgumentException("E-mail já cadastrado");
+        }
+    }
+
+    private void requireNotBlank(String field, String value) {
+        if (value != null && value.isBlank()) throw new IllegalArgumentException("Campo obrigatório: " + field);
+    }
+
+    private <T> void setIfPresent(CriteriaUpdate<User> update, Root<User> user, String field, T value) {
+        if (value != null) update.set(user.<T>get(field), value);
+    }
+
+    // Busca exata pelo índice único; antes do backfill terminar, as linhas antigas ainda não têm a coluna
+    private List<User> findAllByEmail(String normalized) {
+        List<User> users = new ArrayList<>();
+        userRepository.findByEmailNormalized(normalized).ifPresent(users::add);
+        if (!emailBackfill.isComplete()) {
+            users.addAll(userRepository.findUnnormalizedByEmail(normalized));
+        }
+        return users;
+    }
+
+    // Mais de um usuário com o mesmo e-mail normalizado: só vale o que tem exatamente o e-mail enviado
+    private Optional<User> findByEmail(String email) {
+        List<User> users = findAllByEmail(User.normalizeEmail(email));
+        if (users.size() > 1) {
+            users = users.stream().filter(user -> email.equals(user.getEmail())).toList();
+        }
+        return users.size() == 1 ? Optional.of(users.get(0)) : Optional.empty();
+    }
+
+    // Descartar antes do commit deixaria outra leitura recolocar a versão antiga no cache
+    private void evictAfterCommit(Long id) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            userCache.evict(id);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                userCache.evict(id);
+            }
+        });
     }
 }
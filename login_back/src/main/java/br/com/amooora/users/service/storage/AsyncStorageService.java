@@ -0,0 +1,93 @@
+package br.com.amooora.users.service.storage;
+
+import br.com.amooora.users.dto.PhotoDownloadRequest;
+import br.com.amooora.users.dto.PhotoMetadata;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/**
+ * Versão assíncrona do StorageService: cada chamada roda numa virtual thread, que
+ * libera a thread da plataforma enquanto espera o I/O do storage. Serve para disparar
+ * várias consultas ao storage em paralelo sem ocupar uma thread por consulta.
+ * O semáforo limita quantas chamadas ficam abertas ao mesmo tempo contra o storage.
+ */
+@Component
+public class AsyncStorageService {
+
+    private final StorageService storageService;
+    private final Semaphore permits;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public AsyncStorageService(StorageService storageService,
+                               @Value("${storage.async.max-concurrency:256}") int maxConcurrency) {
+        this.storageService = storageService;
+        this.permits = new Semaphore(maxConcurrency);
+    }
+
+    public CompletableFuture<Optional<PhotoMetadata>> stat(String objectName) {
+        return submit(() -> storageService.stat(objectName));
+    }
+
+    public CompletableFuture<Boolean> photoExists(String objectName) {
+        return submit(() -> storageService.photoExists(objectName));
+    }
+
+    public CompletableFuture<ResponseEntity<InputStreamResource>> downloadPhoto(String objectName,
+                                                                               PhotoDownloadRequest request) {
+        return submit(() -> storageService.downloadPhoto(objectName, request));
+    }
+
+    public CompletableFuture<String> uploadPhoto(String objectName, InputStream photoStream, long size,
+                                                 String contentType) {
+        return submit(() -> storageService.uploadPhoto(objectName, photoStream, size, contentType));
+    }
+
+    public CompletableFuture<String> uploadPhoto(String objectName, byte[] photoData, String contentType) {
+        return submit(() -> storageService.uploadPhoto(objectName, photoData, contentType));
+    }
+
+    public CompletableFuture<Void> deletePhoto(String objectName) {
+        return submit(() -> {
+            storageService.deletePhoto(objectName);
+            return null;
+        });
+    }
+
+    public CompletableFuture<String> getPresignedDownloadUrl(String objectName, int expiryInMinutes) {
+        return submit(() -> storageService.getPresignedDownloadUrl(objectName, expiryInMinutes));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    // A espera pelo semáforo acontece na virtual thread, sem bloquear quem chamou
+    private <T> CompletableFuture<T> submit(Supplier<T> call) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                permits.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            }
+            try {
+                return call.get();
+            } finally {
+                permits.release();
+            }
+        }, executor);
+    }
+}
@@ -0,0 +1,210 @@
+package br.com.amooora.users.service.storage;
+
+import br.com.amooora.users.dto.PhotoDownloadRequest;
+import br.com.amooora.users.dto.PhotoMetadata;
+import br.com.amooora.users.dto.PhotoPage;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Cache em memória dos objetos pequenos e mais lidos (avatares, thumbnails) na frente
+ * do provider de storage. A política do Caffeine (W-TinyLFU) considera a frequência de
+ * acesso, então poucos avatares muito acessados não são expulsos por uma listagem de fotos.
+ * <p>
+ * Os bytes podem ficar fora do heap (ByteBuffer direto), limitados por
+ * -XX:MaxDirectMemorySize, para não aumentar as pausas do GC. Uploads e remoções feitos
+ * por este serviço descartam a entrada; alterações feitas por outras instâncias aparecem
+ * depois do TTL.
+ */
+@Slf4j
+public class CachingStorageService implements StorageService {
+
+    private final StorageService delegate;
+    private final PhotoResponses photoResponses;
+    private final long maxObjectSize;
+    private final boolean offHeap;
+    private final Cache<String, CachedPhoto> cache;
+
+    public CachingStorageService(StorageService delegate, PhotoResponses photoResponses, long maxObjectSize,
+                                 long capacityBytes, Duration ttl, boolean offHeap) {
+        this.delegate = delegate;
+        this.photoResponses = photoResponses;
+        this.maxObjectSize = maxObjectSize;
+        this.offHeap = offHeap;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(capacityBytes)
+                .weigher((String objectName, CachedPhoto photo) -> photo.content().capacity())
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * Com a foto em cache, 200/206/304/416 são respondidos sem ir ao storage.
+     * Sem ela, a resposta 200 do storage é guardada se couber no limite por objeto.
+     */
+    @Override
+    public ResponseEntity<InputStreamResource> downloadPhoto(String objectName, PhotoDownloadRequest request) {
+        CachedPhoto cached = cache.getIfPresent(objectName);
+        if (cached != null) {
+            return serve(cached, request);
+        }
+
+        ResponseEntity<InputStreamResource> response = delegate.downloadPhoto(objectName, request);
+        long contentLength = response.getHeaders().getContentLength();
+        if (response.getStatusCode() != HttpStatus.OK || response.getBody() == null
+                || contentLength < 0 || contentLength > maxObjectSize) {
+            return response;
+        }
+
+        try (InputStream stream = response.getBody().getInputStream()) {
+            CachedPhoto photo = new CachedPhoto(metadataFrom(objectName, response.getHeaders()),
+                    toBuffer(stream.readNBytes((int) contentLength)));
+            cache.put(objectName, photo);
+            return photoResponses.ok(photo.metadata(), photo.stream());
+        } catch (IOException e) {
+            log.error("Erro ao fazer download da foto: {}", objectName, e);
+            throw new RuntimeException("Erro ao fazer download da foto: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public String getPresignedDownloadUrl(String objectName, int expiryInMinutes) {
+        return delegate.getPresignedDownloadUrl(objectName, expiryInMinutes);
+    }
+
+    @Override
+    public PhotoPage listPhotos(String prefix, int limit, String cursor) {
+        return delegate.listPhotos(prefix, limit, cursor);
+    }
+
+    @Override
+    public Stream<String> streamPhotos(String prefix) {
+        return delegate.streamPhotos(prefix);
+    }
+
+    @Override
+    public Optional<PhotoMetadata> stat(String objectName) {
+        CachedPhoto cached = cache.getIfPresent(objectName);
+        if (cached != null) {
+            return Optional.of(copy(cached.metadata()));
+        }
+        return delegate.stat(objectName);
+    }
+
+    @Override
+    public boolean photoExists(String objectName) {
+        return cache.getIfPresent(objectName) != null || delegate.photoExists(objectName);
+    }
+
+    @Override
+    public PhotoMetadata getPhotoInfo(String objectName) {
+        CachedPhoto cached = cache.getIfPresent(objectName);
+        if (cached != null) {
+            return copy(cached.metadata());
+        }
+        return delegate.getPhotoInfo(objectName);
+    }
+
+    @Override
+    public String uploadPhoto(String objectName, InputStream photoStream, long size, String contentType) {
+        try {
+            return delegate.uploadPhoto(objectName, photoStream, size, contentType);
+        } finally {
+            cache.invalidate(objectName);
+        }
+    }
+
+    @Override
+    public void deletePhoto(String objectName) {
+        try {
+            delegate.deletePhoto(objectName);
+        } finally {
+            cache.invalidate(objectName);
+        }
+    }
+
+    @Override
+    public Map<String, String> deletePhotos(Collection<String> objectNames) {
+        try {
+            return delegate.deletePhotos(objectNames);
+        } finally {
+            cache.invalidateAll(objectNames);
+        }
+    }
+
+    private ResponseEntity<InputStreamResource> serve(CachedPhoto photo, PhotoDownloadRequest request) {
+        PhotoMetadata metadata = photo.metadata();
+        if (request.isNotModified(metadata.getEtag(), metadata.getLastModified())) {
+            return photoResponses.notModified(metadata);
+        }
+
+        Optional<HttpRange> range = request.rangeFor(metadata.getEtag(), metadata.getLastModified());
+        if (range.isEmpty()) {
+            return photoResponses.ok(metadata, photo.stream());
+        }
+
+        long start;
+        long end;
+        try {
+            start = range.get().getRangeStart(metadata.getSize());
+            end = range.get().getRangeEnd(metadata.getSize());
+        } catch (IllegalArgumentException e) {
+            return photoResponses.rangeNotSatisfiable(metadata);
+        }
+        ByteBuffer slice = photo.content().duplicate().position((int) start).limit((int) end + 1);
+        return photoResponses.partial(metadata, start, end, new ByteBufferInputStream(slice));
+    }
+
+    private PhotoMetadata metadataFrom(String objectName, HttpHeaders headers) {
+        MediaType contentType = headers.getContentType();
+        long lastModified = headers.getLastModified();
+        return new PhotoMetadata(
+                null,
+                objectName,
+                headers.getContentLength(),
+                contentType != null ? contentType.toString() : MediaType.APPLICATION_OCTET_STREAM_VALUE,
+                lastModified >= 0 ? ZonedDateTime.ofInstant(Instant.ofEpochMilli(lastModified), ZoneOffset.UTC) : null,
+                headers.getETag()
+        );
+    }
+
+    private ByteBuffer toBuffer(byte[] content) {
+        if (!offHeap) {
+            return ByteBuffer.wrap(content).asReadOnlyBuffer();
+        }
+        return ByteBuffer.allocateDirect(content.length).put(content).flip().asReadOnlyBuffer();
+    }
+
+    // PhotoMetadata é mutável: quem recebe não pode alterar a entrada do cache
+    private PhotoMetadata copy(PhotoMetadata metadata) {
+        return new PhotoMetadata(metadata.getBucket(), metadata.getObject(), metadata.getSize(),
+                metadata.getContentType(), metadata.getLastModified(), metadata.getEtag());
+    }
+
+    // O stream lê de um duplicate(), então leituras concorrentes não interferem entre si
+    private record CachedPhoto(PhotoMetadata metadata, ByteBuffer content) {
+
+        InputStream stream() {
+            return new ByteBufferInputStream(content.duplicate());
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package br.com.amooora.users.service.storage;
+
+import br.com.amooora.users.dto.PhotoDownloadRequest;
+import br.com.amooora.users.dto.PhotoMetadata;
+import br.com.amooora.users.dto.PhotoPage;
+import br.com.amooora.users.service.PhotoDedupService;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Resolve as fotos deduplicadas (referências para blobs/{sha256}) e desvia para o
+ * PhotoDedupService os uploads e remoções delas. Chaves que não são referências seguem
+ * para o StorageService de baixo sem mudança.
+ */
+public class DedupStorageService implements StorageService {
+
+    private final StorageService delegate;
+    private final PhotoDedupService dedup;
+
+    public DedupStorageService(StorageService delegate, PhotoDedupService dedup) {
+        this.delegate = delegate;
+        this.dedup = dedup;
+    }
+
+    @Override
+    public ResponseEntity<InputStreamResource> downloadPhoto(String objectName, PhotoDownloadRequest request) {
+        Optional<String> blob = dedup.resolve(objectName);
+        if (blob.isEmpty()) {
+            return delegate.downloadPhoto(objectName, request);
+        }
+        ResponseEntity<InputStreamResource> response = delegate.downloadPhoto(blob.get(), request);
+        if (!response.getHeaders().containsKey(HttpHeaders.CONTENT_DISPOSITION)) {
+            return response;
+        }
+        // O cliente vê o nome da foto, não o hash do blob
+        HttpHeaders headers = new HttpHeaders();
+        headers.addAll(response.getHeaders());
+        headers.set(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + objectName + "\"");
+        return new ResponseEntity<>(response.getBody(), headers, response.getStatusCode());
+    }
+
+    @Override
+    public String getPresignedDownloadUrl(String objectName, int expiryInMinutes) {
+        return delegate.getPresignedDownloadUrl(dedup.resolve(objectName).orElse(objectName), expiryInMinutes);
+    }
+
+    @Override
+    public PhotoPage listPhotos(String prefix, int limit, String cursor) {
+        return delegate.listPhotos(prefix, limit, cursor);
+    }
+
+    @Override
+    public Stream<String> streamPhotos(String prefix) {
+        return delegate.streamPhotos(prefix);
+    }
+
+    @Override
+    public Optional<PhotoMetadata> stat(String objectName) {
+        Optional<String> blob = dedup.resolve(objectName);
+        if (blob.isEmpty()) {
+            return delegate.stat(objectName);
+        }
+        return delegate.stat(blob.get()).map(metadata -> {
+            metadata.setObject(objectName);
+            return metadata;
+        });
+    }
+
+    @Override
+    public boolean photoExists(String objectName) {
+        return delegate.photoExists(dedup.resolve(objectName).orElse(objectName));
+    }
+
+    @Override
+    public PhotoMetadata getPhotoInfo(String objectName) {
+        Optional<String> blob = dedup.resolve(objectName);
+        if (blob.isEmpty()) {
+            return delegate.getPhotoInfo(objectName);
+        }
+        PhotoMetadata metadata = delegate.getPhotoInfo(blob.get());
+        metadata.setObject(objectName);
+        return metadata;
+    }
+
+    @Override
+    public String uploadPhoto(String objectName, InputStream photoStream, long size, String contentType) {
+        if (dedup.accepts(objectName)) {
+            return dedup.upload(objectName, photoStream, contentType);
+        }
+        // Deduplicação desligada depois de usada: o upload comum substitui a referência
+        dedup.unlink(List.of(objectName));
+        return delegate.uploadPhoto(objectName, photoStream, size, contentType);
+    }
+
+    @Override
+    public void deletePhoto(String objectName) {
+        if (dedup.unlink(List.of(objectName)).isEmpty()) {
+            delegate.deletePhoto(objectName);
+        }
+    }
+
+    @Override
+    public Map<String, String> deletePhotos(Collection<String> objectNames) {
+        Set<String> unlinked = dedup.unlink(objectNames);
+        List<String> stored = objectNames.stream().filter(objectName -> !unlinked.contains(objectName)).toList();
+        return stored.isEmpty() ? Map.of() : delegate.deletePhotos(stored);
+    }
+}
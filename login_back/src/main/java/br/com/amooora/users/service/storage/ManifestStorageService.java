@@ -0,0 +1,85 @@
+package br.com.amooora.users.service.storage;
+
+import br.com.amooora.users.dto.PhotoDownloadRequest;
+import br.com.amooora.users.dto.PhotoMetadata;
+import br.com.amooora.users.dto.PhotoPage;
+import br.com.amooora.users.service.UserPhotoManifest;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.http.ResponseEntity;
+
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Mantém o manifesto de fotos dos usuários (UserPhotoManifest) em dia com os uploads e
+ * remoções, qualquer que seja o caminho que os fez (controllers, serviços, lotes).
+ */
+public class ManifestStorageService implements StorageService {
+
+    private final StorageService delegate;
+    private final UserPhotoManifest manifest;
+
+    public ManifestStorageService(StorageService delegate, UserPhotoManifest manifest) {
+        this.delegate = delegate;
+        this.manifest = manifest;
+    }
+
+    @Override
+    public ResponseEntity<InputStreamResource> downloadPhoto(String objectName, PhotoDownloadRequest request) {
+        return delegate.downloadPhoto(objectName, request);
+    }
+
+    @Override
+    public String getPresignedDownloadUrl(String objectName, int expiryInMinutes) {
+        return delegate.getPresignedDownloadUrl(objectName, expiryInMinutes);
+    }
+
+    @Override
+    public PhotoPage listPhotos(String prefix, int limit, String cursor) {
+        return delegate.listPhotos(prefix, limit, cursor);
+    }
+
+    @Override
+    public Stream<String> streamPhotos(String prefix) {
+        return delegate.streamPhotos(prefix);
+    }
+
+    @Override
+    public Optional<PhotoMetadata> stat(String objectName) {
+        return delegate.stat(objectName);
+    }
+
+    @Override
+    public boolean photoExists(String objectName) {
+        return delegate.photoExists(objectName);
+    }
+
+    @Override
+    public PhotoMetadata getPhotoInfo(String objectName) {
+        return delegate.getPhotoInfo(objectName);
+    }
+
+    @Override
+    public String uploadPhoto(String objectName, InputStream photoStream, long size, String contentType) {
+        String uploadedName = delegate.uploadPhoto(objectName, photoStream, size, contentType);
+        manifest.recordUpload(objectName);
+        return uploadedName;
+    }
+
+    @Override
+    public void deletePhoto(String objectName) {
+        delegate.deletePhoto(objectName);
+        manifest.recordDelete(List.of(objectName));
+    }
+
+    @Override
+    public Map<String, String> deletePhotos(Collection<String> objectNames) {
+        Map<String, String> failures = delegate.deletePhotos(objectNames);
+        manifest.recordDelete(objectNames.stream().filter(objectName -> !failures.containsKey(objectName)).toList());
+        return failures;
+    }
+}
@@ -0,0 +1,228 @@
+package br.com.amooora.users.service.storage;
+
+import br.com.amooora.users.dto.PhotoDownloadRequest;
+import br.com.amooora.users.dto.PhotoMetadata;
+import br.com.amooora.users.dto.PhotoPage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ResponseEntity;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Métricas de cada chamada ao provider de storage:
+ * <ul>
+ *   <li>storage.requests (timer): latência por operation, provider e outcome;</li>
+ *   <li>storage.requests.active (gauge): chamadas em andamento por operation;</li>
+ *   <li>storage.bytes (contador): bytes enviados e lidos, por direction.</li>
+ * </ul>
+ * No download, o timer vai até a resposta (cabeçalhos e stream aberto) e os bytes são
+ * contados conforme o stream é lido. No stream da listagem, o timer vai até ele ser fechado.
+ * Percentis e histogramas são configurados em management.metrics.distribution.*.
+ */
+public class MetricsStorageService implements StorageService {
+
+    private final StorageService delegate;
+    private final MeterRegistry registry;
+    private final String provider;
+    private final Map<String, AtomicInteger> active = new ConcurrentHashMap<>();
+    private final Counter uploadedBytes;
+    private final Counter downloadedBytes;
+
+    public MetricsStorageService(StorageService delegate, MeterRegistry registry, String provider) {
+        this.delegate = delegate;
+        this.registry = registry;
+        this.provider = provider;
+        this.uploadedBytes = bytesCounter("upload");
+        this.downloadedBytes = bytesCounter("download");
+    }
+
+    @Override
+    public ResponseEntity<InputStreamResource> downloadPhoto(String objectName, PhotoDownloadRequest request) {
+        ResponseEntity<InputStreamResource> response = record("download",
+                () -> delegate.downloadPhoto(objectName, request), result -> outcome(result.getStatusCode()));
+        if (response.getBody() == null) {
+            return response;
+        }
+        InputStreamResource counted = new InputStreamResource(
+                new CountingInputStream(bodyStream(response), downloadedBytes));
+        return new ResponseEntity<>(counted, response.getHeaders(), response.getStatusCode());
+    }
+
+    @Override
+    public String getPresignedDownloadUrl(String objectName, int expiryInMinutes) {
+        return record("presign", () -> delegate.getPresignedDownloadUrl(objectName, expiryInMinutes));
+    }
+
+    @Override
+    public PhotoPage listPhotos(String prefix, int limit, String cursor) {
+        return record("list", () -> delegate.listPhotos(prefix, limit, cursor));
+    }
+
+    @Override
+    public Stream<String> streamPhotos(String prefix) {
+        AtomicInteger inFlight = active("list_stream");
+        inFlight.incrementAndGet();
+        Timer.Sample sample = Timer.start(registry);
+        try {
+            return delegate.streamPhotos(prefix).onClose(() -> {
+                inFlight.decrementAndGet();
+                sample.stop(timer("list_stream", "success"));
+            });
+        } catch (RuntimeException e) {
+            inFlight.decrementAndGet();
+            sample.stop(timer("list_stream", "error"));
+            throw e;
+        }
+    }
+
+    @Override
+    public Optional<PhotoMetadata> stat(String objectName) {
+        return stat("info", objectName);
+    }
+
+    @Override
+    public boolean photoExists(String objectName) {
+        return stat("exists", objectName).isPresent();
+    }
+
+    @Override
+    public PhotoMetadata getPhotoInfo(String objectName) {
+        return stat("info", objectName)
+                .orElseThrow(() -> new RuntimeException("Foto não encontrada: " + objectName));
+    }
+
+    @Override
+    public String uploadPhoto(String objectName, InputStream photoStream, long size, String contentType) {
+        InputStream counted = new CountingInputStream(photoStream, uploadedBytes);
+        return record("upload", () -> delegate.uploadPhoto(objectName, counted, size, contentType));
+    }
+
+    @Override
+    public void deletePhoto(String objectName) {
+        record("delete", () -> {
+            delegate.deletePhoto(objectName);
+            return null;
+        });
+    }
+
+    @Override
+    public Map<String, String> deletePhotos(Collection<String> objectNames) {
+        return record("delete_batch", () -> delegate.deletePhotos(objectNames),
+                failures -> failures.isEmpty() ? "success" : "partial");
+    }
+
+    private Optional<PhotoMetadata> stat(String operation, String objectName) {
+        return record(operation, () -> delegate.stat(objectName),
+                metadata -> metadata.isPresent() ? "success" : "not_found");
+    }
+
+    private <T> T record(String operation, Supplier<T> call) {
+        return record(operation, call, result -> "success");
+    }
+
+    private <T> T record(String operation, Supplier<T> call, Function<T, String> outcome) {
+        AtomicInteger inFlight = active(operation);
+        inFlight.incrementAndGet();
+        Timer.Sample sample = Timer.start(registry);
+        String result = "error";
+        try {
+            T value = call.get();
+            result = outcome.apply(value);
+            return value;
+        } finally {
+            inFlight.decrementAndGet();
+            sample.stop(timer(operation, result));
+        }
+    }
+
+    private Timer timer(String operation, String outcome) {
+        return Timer.builder("storage.requests")
+                .description("Chamadas ao provider de storage")
+                .tag("operation", operation)
+                .tag("provider", provider)
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    private AtomicInteger active(String operation) {
+        return active.computeIfAbsent(operation, key -> {
+            AtomicInteger gauge = new AtomicInteger();
+            Gauge.builder("storage.requests.active", gauge, AtomicInteger::get)
+                    .description("Chamadas ao provider de storage em andamento")
+                    .tag("operation", key)
+                    .tag("provider", provider)
+                    .register(registry);
+            return gauge;
+        });
+    }
+
+    private Counter bytesCounter(String direction) {
+        return Counter.builder("storage.bytes")
+                .description("Bytes transferidos com o provider de storage")
+                .baseUnit("bytes")
+                .tag("direction", direction)
+                .tag("provider", provider)
+                .register(registry);
+    }
+
+    private String outcome(HttpStatusCode status) {
+        return switch (status.value()) {
+            case 304 -> "not_modified";
+            case 404 -> "not_found";
+            case 416 -> "range_not_satisfiable";
+            default -> status.isError() ? "error" : "success";
+        };
+    }
+
+    private InputStream bodyStream(ResponseEntity<InputStreamResource> response) {
+        try {
+            return response.getBody().getInputStream();
+        } catch (IOException e) {
+            throw new RuntimeException("Erro ao fazer download da foto: " + e.getMessage());
+        }
+    }
+
+    // Conta os bytes conforme são lidos: no download, só o que o cliente de fato recebeu
+    private static class CountingInputStream extends FilterInputStream {
+
+        private final Counter counter;
+
+        CountingInputStream(InputStream in, Counter counter) {
+            super(in);
+            this.counter = counter;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value = super.read();
+            if (value >= 0) {
+                counter.increment();
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            int read = super.read(bytes, offset, length);
+            if (read > 0) {
+                counter.increment(read);
+            }
+            return read;
+        }
+    }
+}
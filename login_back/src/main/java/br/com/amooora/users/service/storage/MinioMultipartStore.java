@@ -0,0 +1,107 @@
+package br.com.amooora.users.service.storage;
+
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.Multimap;
+import io.minio.GetObjectArgs;
+import io.minio.ListPartsResponse;
+import io.minio.MinioClient;
+import io.minio.messages.Part;
+
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * Operações multipart do MinIO. O MinioClient 8.1 só expõe essas chamadas como protected
+ * (o putObject as usa em sequência), então esta classe estende o client copiando a
+ * configuração de um já existente.
+ */
+public class MinioMultipartStore extends MinioClient implements MultipartStore {
+
+    private static final int MAX_PARTS_PER_PAGE = 1000;
+
+    private final String bucketName;
+
+    public MinioMultipartStore(MinioClient client, String bucketName) {
+        super(client);
+        this.bucketName = bucketName;
+    }
+
+    @Override
+    public String createUpload(String objectName, String contentType) {
+        try {
+            Multimap<String, String> headers = contentType != null
+                    ? ImmutableMultimap.of("Content-Type", contentType)
+                    : ImmutableMultimap.of();
+            return createMultipartUpload(bucketName, null, objectName, headers, null).result().uploadId();
+        } catch (Exception e) {
+            throw new RuntimeException("Erro ao iniciar upload multipart: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public String uploadPart(String objectName, String uploadId, int partNumber, byte[] data) {
+        try {
+            return uploadPart(bucketName, null, objectName, data, data.length, uploadId, partNumber, null, null)
+                    .etag();
+        } catch (Exception e) {
+            throw new RuntimeException("Erro ao enviar parte " + partNumber + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Map<Integer, String> listParts(String objectName, String uploadId) {
+        try {
+            Map<Integer, String> parts = new HashMap<>();
+            int marker = 0;
+            ListPartsResponse response;
+            do {
+                response = listParts(bucketName, null, objectName, MAX_PARTS_PER_PAGE, marker, uploadId, null, null);
+                for (Part part : response.result().partList()) {
+                    parts.put(part.partNumber(), part.etag());
+                }
+                marker = response.result().nextPartNumberMarker();
+            } while (response.result().isTruncated());
+            return parts;
+        } catch (Exception e) {
+            throw new RuntimeException("Erro ao listar partes do upload: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void completeUpload(String objectName, String uploadId, SortedMap<Integer, String> etags) {
+        try {
+            Part[] parts = etags.entrySet().stream()
+                    .map(part -> new Part(part.getKey(), part.getValue()))
+                    .toArray(Part[]::new);
+            completeMultipartUpload(bucketName, null, objectName, uploadId, parts, null, null);
+        } catch (Exception e) {
+            throw new RuntimeException("Erro ao concluir upload multipart: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void abortUpload(String objectName, String uploadId) {
+        try {
+            abortMultipartUpload(bucketName, null, objectName, uploadId, null, null);
+        } catch (Exception e) {
+            throw new RuntimeException("Erro ao abortar upload multipart: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public InputStream getRange(String objectName, String etag, long start, long end) {
+        try {
+            return getObject(GetObjectArgs.builder()
+                    .bucket(bucketName)
+                    .object(objectName)
+                    .offset(start)
+                    .length(end - start + 1)
+                    .matchETag(etag)
+                    .build());
+        } catch (Exception e) {
+            throw new RuntimeException("Erro ao ler faixa da foto: " + e.getMessage(), e);
+        }
+    }
+}
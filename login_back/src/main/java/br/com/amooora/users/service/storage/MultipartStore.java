@@ -0,0 +1,36 @@
+package br.com.amooora.users.service.storage;
+
+import java.io.InputStream;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * Operações de upload multipart e leitura por faixa de um backend (S3 ou MinIO),
+ * usadas pelo MultipartTransferEngine. Falhas são propagadas como RuntimeException.
+ */
+public interface MultipartStore {
+
+    /**
+     * Inicia o upload multipart e devolve o uploadId
+     */
+    String createUpload(String objectName, String contentType);
+
+    /**
+     * Envia uma parte (numeradas a partir de 1) e devolve o ETag dela
+     */
+    String uploadPart(String objectName, String uploadId, int partNumber, byte[] data);
+
+    /**
+     * Partes já recebidas pelo storage (número → ETag), para retomar um upload interrompido
+     */
+    Map<Integer, String> listParts(String objectName, String uploadId);
+
+    void completeUpload(String objectName, String uploadId, SortedMap<Integer, String> etags);
+
+    void abortUpload(String objectName, String uploadId);
+
+    /**
+     * Bytes de start a end (inclusive) do objeto. Com etag, falha se o objeto mudou no meio da leitura.
+     */
+    InputStream getRange(String objectName, String etag, long start, long end);
+}
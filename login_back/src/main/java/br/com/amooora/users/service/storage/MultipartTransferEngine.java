@@ -0,0 +1,450 @@
+package br.com.amooora.users.service.storage;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+/**
+ * Transferência de objetos grandes em partes: uploads multipart com as partes enviadas
+ * em paralelo e downloads com GETs por faixa em paralelo. No máximo {@code concurrency}
+ * partes ficam em memória/em voo por transferência, então o consumo é concurrency × partSize.
+ * Nos streams de download (openStream) as partes lidas à frente também respeitam um limite
+ * global, download-buffer-size; esgotado, o download segue sequencial, sem buffer. As partes
+ * dos uploads precisam estar inteiras em memória: elas esperam por espaço num limite global
+ * próprio, upload-buffer-size, em vez de somar concurrency × partSize a cada upload simultâneo.
+ * <p>
+ * Cada parte é repetida até part-attempts vezes antes de a transferência falhar. Transferências
+ * de arquivo (uploadFile/downloadFile) gravam o progresso num arquivo de estado ao lado do
+ * arquivo local e são retomadas de onde pararam na próxima chamada. Uploads interrompidos
+ * ficam pendentes no storage até serem retomados (ou removidos por uma regra de ciclo de vida
+ * do bucket).
+ */
+@Component
+@Slf4j
+public class MultipartTransferEngine {
+
+    // Limites do S3/MinIO: partes (menos a última) com pelo menos 5MB e no máximo 10.000 partes
+    static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+    private static final int MAX_PARTS = 10_000;
+
+    private final long partSize;
+    private final int concurrency;
+    private final long threshold;
+    private final int partAttempts;
+    private final Semaphore prefetchBudget;
+    // Em permissões de partSize bytes; uma parte maior (objetos enormes) ocupa mais de uma
+    private final Semaphore uploadBudget;
+    private final int uploadBudgetPermits;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public MultipartTransferEngine(@Value("${storage.multipart.part-size:8388608}") long partSize,
+                                   @Value("${storage.multipart.concurrency:4}") int concurrency,
+                                   @Value("${storage.multipart.threshold:16777216}") long threshold,
+                                   @Value("${storage.multipart.part-attempts:3}") int partAttempts,
+                                   @Value("${storage.multipart.download-buffer-size:67108864}") long downloadBufferSize,
+                                   @Value("${storage.multipart.upload-buffer-size:67108864}") long uploadBufferSize) {
+        if (partSize < MIN_PART_SIZE || partSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("storage.multipart.part-size deve estar entre 5MB e 2GB");
+        }
+        this.partSize = partSize;
+        this.concurrency = Math.max(1, concurrency);
+        this.threshold = threshold;
+        this.partAttempts = Math.max(1, partAttempts);
+        // Uma permissão por parte que cabe no buffer; 0 desliga a leitura à frente
+        long bufferedParts = Math.max(0, downloadBufferSize) / partSize;
+        this.prefetchBudget = new Semaphore((int) Math.min(bufferedParts, Integer.MAX_VALUE));
+        // Ao menos uma parte, senão nenhum upload andaria
+        this.uploadBudgetPermits = (int) Math.clamp(Math.max(0, uploadBufferSize) / partSize, 1, Integer.MAX_VALUE);
+        this.uploadBudget = new Semaphore(uploadBudgetPermits, true);
+    }
+
+    /**
+     * Tamanho da primeira faixa lida nos downloads: objetos maiores que ela seguem em paralelo
+     */
+    public long partSize() {
+        return partSize;
+    }
+
+    /**
+     * Uploads a partir deste tamanho vão em partes
+     */
+    public boolean useMultipart(long size) {
+        return size >= threshold && size > partSize;
+    }
+
+    /**
+     * Upload multipart lendo o stream em ordem; as partes lidas são enviadas em paralelo.
+     * Em caso de falha o upload é abortado no storage (o stream não pode ser relido).
+     */
+    public void upload(MultipartStore store, String objectName, InputStream stream, long size, String contentType)
+            throws IOException {
+        long partSize = partSizeFor(size);
+        SortedMap<Integer, String> etags = new ConcurrentSkipListMap<>();
+        String uploadId = store.createUpload(objectName, contentType);
+        try {
+            runParts(objectName, partCount(size, partSize), Set.of(), uploadPermits(partSize), part -> {
+                int length = partLength(size, partSize, part);
+                byte[] data = stream.readNBytes(length);
+                if (data.length < length) {
+                    throw new EOFException("Stream terminou antes do tamanho informado: " + objectName);
+                }
+                return () -> etags.put(part, store.uploadPart(objectName, uploadId, part, data));
+            });
+            store.completeUpload(objectName, uploadId, etags);
+        } catch (IOException | RuntimeException e) {
+            abortQuietly(store, objectName, uploadId);
+            throw e;
+        }
+        log.info("Upload multipart concluído: {} ({} partes)", objectName, etags.size());
+    }
+
+    /**
+     * Upload multipart de um arquivo, retomável: as partes que o storage já tem não são reenviadas
+     */
+    public void uploadFile(MultipartStore store, String objectName, Path file, String contentType)
+            throws IOException {
+        long size = Files.size(file);
+        long partSize = partSizeFor(size);
+        String version = Long.toString(Files.getLastModifiedTime(file).toMillis());
+        Path statePath = file.resolveSibling(file.getFileName() + ".upload-state");
+
+        SortedMap<Integer, String> etags = new ConcurrentSkipListMap<>();
+        String uploadId = TransferState.load(statePath)
+                .filter(state -> state.matches(objectName, size, version, partSize))
+                .map(TransferState::uploadId)
+                .filter(id -> resumeUpload(store, objectName, id, etags))
+                .orElse(null);
+        if (uploadId == null) {
+            uploadId = store.createUpload(objectName, contentType);
+            new TransferState(objectName, size, version, partSize, uploadId, Set.of()).save(statePath);
+        } else {
+            log.info("Retomando upload de {}: {} partes já enviadas", objectName, etags.size());
+        }
+
+        String id = uploadId;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            runParts(objectName, partCount(size, partSize), Set.copyOf(etags.keySet()), uploadPermits(partSize),
+                    part -> () -> {
+                byte[] data = readAt(channel, (part - 1) * partSize, partLength(size, partSize, part));
+                return etags.put(part, store.uploadPart(objectName, id, part, data));
+            });
+        }
+        store.completeUpload(objectName, id, etags);
+        Files.deleteIfExists(statePath);
+        log.info("Upload multipart concluído: {} ({} partes)", objectName, etags.size());
+    }
+
+    /**
+     * Download por faixas em paralelo para um arquivo, retomável: as faixas já gravadas
+     * em {target}.part não são baixadas de novo enquanto o ETag do objeto for o mesmo
+     */
+    public void downloadFile(MultipartStore store, String objectName, long size, String etag, Path target)
+            throws IOException {
+        long partSize = partSizeFor(size);
+        Path partial = target.resolveSibling(target.getFileName() + ".part");
+        Path statePath = target.resolveSibling(target.getFileName() + ".download-state");
+
+        Set<Integer> done = ConcurrentHashMap.newKeySet();
+        TransferState.load(statePath)
+                .filter(state -> Files.exists(partial) && state.matches(objectName, size, etag, partSize))
+                .ifPresent(state -> done.addAll(state.parts()));
+        if (!done.isEmpty()) {
+            log.info("Retomando download de {}: {} partes já gravadas", objectName, done.size());
+        }
+        TransferState state = new TransferState(objectName, size, etag, partSize, null, done);
+
+        try (FileChannel channel = FileChannel.open(partial, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            // transferFrom não grava além do fim do arquivo: reserva o tamanho final antes
+            if (size > 0 && channel.size() < size) {
+                channel.write(ByteBuffer.allocate(1), size - 1);
+            }
+            runParts(objectName, partCount(size, partSize), Set.copyOf(done), 0, part -> () -> {
+                long start = (part - 1) * partSize;
+                int length = partLength(size, partSize, part);
+                try (InputStream stream = store.getRange(objectName, etag, start, start + length - 1)) {
+                    writeAt(channel, stream, start, length);
+                }
+                channel.force(false);
+                done.add(part);
+                synchronized (state) {
+                    state.save(statePath);
+                }
+                return null;
+            });
+        }
+        Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        Files.deleteIfExists(statePath);
+    }
+
+    /**
+     * Stream do objeto inteiro a partir da primeira faixa já aberta; o resto é buscado
+     * em paralelo conforme o stream é lido, enquanto houver espaço no download-buffer-size
+     */
+    public InputStream openStream(MultipartStore store, String objectName, String etag, long size,
+                                  InputStream firstPart, long firstPartLength) {
+        return new ParallelRangeInputStream(firstPart, firstPartLength, size, partSize, concurrency, prefetchBudget,
+                new ParallelRangeInputStream.RangeFetcher() {
+                    @Override
+                    public byte[] fetch(long start, long end) throws IOException {
+                        return withRetries(objectName, () -> {
+                            int length = (int) (end - start + 1);
+                            try (InputStream stream = store.getRange(objectName, etag, start, end)) {
+                                byte[] data = stream.readNBytes(length);
+                                if (data.length < length) {
+                                    throw new EOFException("Faixa incompleta de " + objectName);
+                                }
+                                return data;
+                            }
+                        });
+                    }
+
+                    @Override
+                    public InputStream open(long start, long end) throws IOException {
+                        return withRetries(objectName, () -> store.getRange(objectName, etag, start, end));
+                    }
+                },
+                executor);
+    }
+
+    /**
+     * Tamanho total a partir do Content-Range ("bytes {start}-{end}/{total}")
+     */
+    public static long totalLength(String contentRange) {
+        return Long.parseLong(contentRange.substring(contentRange.indexOf('/') + 1).trim());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @FunctionalInterface
+    private interface PartTask {
+        // Roda na thread de quem chamou (ex: lê a parte do stream); o Callable roda em paralelo
+        Callable<?> prepare(int partNumber) throws IOException;
+    }
+
+    // bufferPermits: quanto cada parte ocupa do upload-buffer-size enquanto está em memória (0 = nada)
+    private void runParts(String objectName, int partCount, Set<Integer> skip, int bufferPermits, PartTask task)
+            throws IOException {
+        Semaphore permits = new Semaphore(concurrency);
+        AtomicReference<IOException> failure = new AtomicReference<>();
+        List<Future<?>> futures = new ArrayList<>();
+        boolean finished = false;
+        try {
+            for (int part = 1; part <= partCount && failure.get() == null; part++) {
+                if (skip.contains(part)) {
+                    continue;
+                }
+                permits.acquire();
+                // Depois da vaga da transferência, para não segurar o buffer global enquanto espera por ela
+                try {
+                    uploadBudget.acquire(bufferPermits);
+                } catch (InterruptedException e) {
+                    permits.release();
+                    throw e;
+                }
+                Callable<?> work;
+                try {
+                    work = task.prepare(part);
+                } catch (IOException | RuntimeException e) {
+                    uploadBudget.release(bufferPermits);
+                    permits.release();
+                    throw e;
+                }
+                futures.add(executor.submit(() -> {
+                    try {
+                        withRetries(objectName, work);
+                    } catch (IOException e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        uploadBudget.release(bufferPermits);
+                        permits.release();
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            finished = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Transferência interrompida: " + objectName);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        } finally {
+            if (!finished) {
+                futures.forEach(future -> future.cancel(true));
+            }
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+    }
+
+    private <T> T withRetries(String objectName, Callable<T> call) throws IOException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return call.call();
+            } catch (InterruptedException | InterruptedIOException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Transferência interrompida: " + objectName);
+            } catch (Exception e) {
+                if (attempt >= partAttempts) {
+                    throw e instanceof IOException io ? io : new IOException(e.getMessage(), e);
+                }
+                log.warn("Falha numa parte de {} (tentativa {}/{}): {}", objectName, attempt, partAttempts,
+                        e.getMessage());
+            }
+        }
+    }
+
+    private boolean resumeUpload(MultipartStore store, String objectName, String uploadId,
+                                 SortedMap<Integer, String> etags) {
+        try {
+            etags.putAll(store.listParts(objectName, uploadId));
+            return true;
+        } catch (RuntimeException e) {
+            log.warn("Upload pendente de {} não pode ser retomado, recomeçando: {}", objectName, e.getMessage());
+            return false;
+        }
+    }
+
+    private void abortQuietly(MultipartStore store, String objectName, String uploadId) {
+        try {
+            store.abortUpload(objectName, uploadId);
+        } catch (RuntimeException e) {
+            log.warn("Não foi possível abortar o upload multipart de {}: {}", objectName, e.getMessage());
+        }
+    }
+
+    private int uploadPermits(long partSize) {
+        return (int) Math.min((partSize + this.partSize - 1) / this.partSize, uploadBudgetPermits);
+    }
+
+    // Objetos muito grandes usam partes maiores para caber no limite de partes
+    private long partSizeFor(long size) {
+        return Math.max(partSize, (size + MAX_PARTS - 1) / MAX_PARTS);
+    }
+
+    private static int partCount(long size, long partSize) {
+        return (int) ((size + partSize - 1) / partSize);
+    }
+
+    private static int partLength(long size, long partSize, int part) {
+        return (int) Math.min(partSize, size - (part - 1) * partSize);
+    }
+
+    private static byte[] readAt(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) == -1) {
+                throw new EOFException("Arquivo mudou durante o upload");
+            }
+        }
+        return buffer.array();
+    }
+
+    private static void writeAt(FileChannel channel, InputStream stream, long position, long length)
+            throws IOException {
+        ReadableByteChannel source = Channels.newChannel(stream);
+        long written = 0;
+        while (written < length) {
+            long transferred = channel.transferFrom(source, position + written, length - written);
+            if (transferred == 0) {
+                throw new EOFException("Faixa incompleta no download");
+            }
+            written += transferred;
+        }
+    }
+
+    /**
+     * Progresso de uma transferência de arquivo, gravado em Properties ao lado do arquivo local.
+     * version é o ETag do objeto (download) ou a data de modificação do arquivo (upload).
+     */
+    private record TransferState(String object, long size, String version, long partSize, String uploadId,
+                                 Set<Integer> parts) {
+
+        boolean matches(String object, long size, String version, long partSize) {
+            return this.object.equals(object) && this.size == size
+                    && this.version.equals(version) && this.partSize == partSize;
+        }
+
+        static Optional<TransferState> load(Path path) {
+            if (!Files.exists(path)) {
+                return Optional.empty();
+            }
+            Properties properties = new Properties();
+            try (Reader reader = Files.newBufferedReader(path)) {
+                properties.load(reader);
+                String parts = properties.getProperty("parts", "");
+                return Optional.of(new TransferState(
+                        properties.getProperty("object"),
+                        Long.parseLong(properties.getProperty("size")),
+                        properties.getProperty("version"),
+                        Long.parseLong(properties.getProperty("partSize")),
+                        properties.getProperty("uploadId"),
+                        parts.isEmpty() ? Set.of() : Arrays.stream(parts.split(","))
+                                .map(Integer::valueOf)
+                                .collect(Collectors.toSet())
+                ));
+            } catch (IOException | RuntimeException e) {
+                log.warn("Estado de transferência inválido, ignorando: {}", path, e);
+                return Optional.empty();
+            }
+        }
+
+        // Grava num temporário e move, para não deixar um estado pela metade
+        void save(Path path) throws IOException {
+            Properties properties = new Properties();
+            properties.setProperty("object", object);
+            properties.setProperty("size", Long.toString(size));
+            properties.setProperty("version", version);
+            properties.setProperty("partSize", Long.toString(partSize));
+            if (uploadId != null) {
+                properties.setProperty("uploadId", uploadId);
+            }
+            properties.setProperty("parts", parts.stream().sorted().map(String::valueOf)
+                    .collect(Collectors.joining(",")));
+
+            Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+            try (Writer writer = Files.newBufferedWriter(temp)) {
+                properties.store(writer, null);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package br.com.amooora.users.service.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Stream de um objeto grande lido em partes: a primeira vem do GET já aberto e as
+ * seguintes são buscadas por faixa em paralelo, até {@code window} à frente do leitor.
+ * Cada parte em memória ocupa uma permissão de {@code budget}, compartilhado entre os
+ * downloads; sem permissão livre e sem parte já buscada, o resto do objeto segue num
+ * único GET por faixa lido direto, sem buffer.
+ */
+class ParallelRangeInputStream extends InputStream {
+
+    interface RangeFetcher {
+        // Faixa inteira em memória, para as partes lidas em paralelo
+        byte[] fetch(long start, long end) throws IOException;
+
+        // Faixa como stream, lida direto conforme o leitor consome
+        InputStream open(long start, long end) throws IOException;
+    }
+
+    private final RangeFetcher fetcher;
+    private final ExecutorService executor;
+    private final long size;
+    private final long partSize;
+    private final int window;
+    private final Semaphore budget;
+    private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+    private InputStream current;
+    // current é uma parte buscada em paralelo e ainda segura a permissão dela
+    private boolean currentBuffered;
+    private long nextStart;
+
+    ParallelRangeInputStream(InputStream firstPart, long firstPartLength, long size, long partSize, int window,
+                             Semaphore budget, RangeFetcher fetcher, ExecutorService executor) {
+        this.current = firstPart;
+        this.nextStart = firstPartLength;
+        this.size = size;
+        this.partSize = partSize;
+        this.window = window;
+        this.budget = budget;
+        this.fetcher = fetcher;
+        this.executor = executor;
+        prefetch();
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        while (current != null) {
+            int read = current.read(buffer, offset, length);
+            if (read != -1) {
+                return read;
+            }
+            nextPart();
+        }
+        return -1;
+    }
+
+    @Override
+    public void close() throws IOException {
+        pending.forEach(part -> part.cancel(true));
+        budget.release(pending.size());
+        pending.clear();
+        releaseCurrent();
+        if (current != null) {
+            current.close();
+            current = null;
+        }
+    }
+
+    private void nextPart() throws IOException {
+        current.close();
+        releaseCurrent();
+        Future<byte[]> next = pending.poll();
+        if (next == null) {
+            current = nextStart < size ? fetcher.open(nextStart, size - 1) : null;
+            nextStart = size;
+            return;
+        }
+        currentBuffered = true;
+        try {
+            current = new ByteArrayInputStream(next.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Leitura da foto interrompida");
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+        }
+        prefetch();
+    }
+
+    private void prefetch() {
+        while (pending.size() < window && nextStart < size && budget.tryAcquire()) {
+            long start = nextStart;
+            long end = Math.min(start + partSize, size) - 1;
+            pending.add(executor.submit(() -> fetcher.fetch(start, end)));
+            nextStart = end + 1;
+        }
+    }
+
+    private void releaseCurrent() {
+        if (currentBuffered) {
+            currentBuffered = false;
+            budget.release();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package br.com.amooora.users.service.storage;
+
+import br.com.amooora.users.dto.PhotoMetadata;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.io.InputStream;
+import java.time.Duration;
+
+/**
+ * Monta as respostas HTTP de download de fotos com os mesmos headers de cache
+ * (ETag, Last-Modified e Cache-Control) e de faixas (Accept-Ranges, Content-Range)
+ * para todos os providers de storage.
+ */
+@Component
+public class PhotoResponses {
+
+    private final CacheControl cacheControl;
+
+    public PhotoResponses(@Value("${storage.download.cache-max-age-seconds:60}") long maxAgeSeconds) {
+        this.cacheControl = CacheControl.maxAge(Duration.ofSeconds(maxAgeSeconds)).cachePrivate();
+    }
+
+    /**
+     * 200 com o conteúdo da foto
+     */
+    public ResponseEntity<InputStreamResource> ok(PhotoMetadata metadata, InputStream stream) {
+        return ResponseEntity.ok()
+                .headers(validators(metadata))
+                .contentType(MediaType.parseMediaType(metadata.getContentType()))
+                .contentLength(metadata.getSize())
+                .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + metadata.getObject() + "\"")
+                .body(new InputStreamResource(stream));
+    }
+
+    /**
+     * 206 com a faixa [start, end] do objeto (stream já posicionado em start)
+     */
+    public ResponseEntity<InputStreamResource> partial(PhotoMetadata metadata, long start, long end,
+                                                       InputStream stream) {
+        return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                .headers(validators(metadata))
+                .contentType(MediaType.parseMediaType(metadata.getContentType()))
+                .contentLength(end - start + 1)
+                .header(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + metadata.getSize())
+                .body(new InputStreamResource(stream));
+    }
+
+    /**
+     * 206 a partir do Content-Range devolvido pelo storage ("bytes {start}-{end}/{total}"),
+     * corrigindo o tamanho dos metadados para o total do objeto
+     */
+    public ResponseEntity<InputStreamResource> partial(PhotoMetadata metadata, String contentRange,
+                                                       InputStream stream) {
+        String[] parts = contentRange.substring("bytes ".length()).split("[-/]");
+        metadata.setSize(Long.parseLong(parts[2]));
+        return partial(metadata, Long.parseLong(parts[0]), Long.parseLong(parts[1]), stream);
+    }
+
+    /**
+     * 416: a faixa pedida começa depois do fim do objeto
+     */
+    public ResponseEntity<InputStreamResource> rangeNotSatisfiable(PhotoMetadata metadata) {
+        return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .header(HttpHeaders.CONTENT_RANGE, "bytes */" + metadata.getSize())
+                .build();
+    }
+
+    /**
+     * 304 sem corpo: o cliente já tem a versão atual
+     */
+    public ResponseEntity<InputStreamResource> notModified(PhotoMetadata metadata) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .headers(validators(metadata))
+                .build();
+    }
+
+    private HttpHeaders validators(PhotoMetadata metadata) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setCacheControl(cacheControl);
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+        if (metadata.getEtag() != null) {
+            headers.setETag(quoted(metadata.getEtag()));
+        }
+        if (metadata.getLastModified() != null) {
+            headers.setLastModified(metadata.getLastModified());
+        }
+        return headers;
+    }
+
+    // O MinIO devolve o etag sem aspas, o S3 com aspas
+    private String quoted(String etag) {
+        return etag.startsWith("\"") || etag.startsWith("W/") ? etag : "\"" + etag + "\"";
+    }
+}
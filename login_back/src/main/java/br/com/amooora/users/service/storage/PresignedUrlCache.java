@@ -0,0 +1,102 @@
+package br.com.amooora.users.service.storage;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Reaproveita URLs pré-assinadas enquanto ainda resta tempo de validade suficiente.
+ * A URL de (objeto, expiração pedida) deixa de ser reaproveitada quando chega em
+ * min-remaining-ratio da validade, então quem recebe uma URL do cache sempre tem
+ * pelo menos essa fração do tempo pedido. URLs estáveis também deixam o navegador cachear a imagem.
+ * As URLs ficam agrupadas por objeto, para que invalidate() remova todas as expirações
+ * de um objeto sem varrer o cache.
+ */
+@Component
+public class PresignedUrlCache {
+
+    private final Cache<String, SignedUrls> urls;
+    private final double reuseRatio;
+
+    public PresignedUrlCache(@Value("${storage.presign-cache.max-size:50000}") long maxSize,
+                             @Value("${storage.presign-cache.min-remaining-ratio:0.5}") double minRemainingRatio) {
+        this.reuseRatio = 1 - minRemainingRatio;
+        this.urls = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new LastReuseExpiry())
+                .build();
+    }
+
+    /**
+     * Retorna a URL em cache ou assina uma nova com o signer
+     */
+    public String get(String objectName, int expiryInMinutes, Supplier<String> signer) {
+        long now = System.nanoTime();
+        SignedUrls signed = urls.asMap().compute(objectName, (name, current) -> {
+            SignedUrls reusable = current != null ? current.reusableAt(now) : SignedUrls.EMPTY;
+            if (reusable.byExpiry().containsKey(expiryInMinutes)) {
+                return reusable;
+            }
+            long reuseUntil = now + (long) (TimeUnit.MINUTES.toNanos(expiryInMinutes) * reuseRatio);
+            return reusable.with(expiryInMinutes, new SignedUrl(signer.get(), reuseUntil));
+        });
+        return signed.byExpiry().get(expiryInMinutes).url();
+    }
+
+    /**
+     * Remove as URLs de um objeto (ex: objeto apagado)
+     */
+    public void invalidate(String objectName) {
+        urls.invalidate(objectName);
+    }
+
+    private record SignedUrl(String url, long reuseUntil) {}
+
+    // URLs de um objeto por expiração pedida (em minutos); imutável, trocado inteiro a cada assinatura
+    private record SignedUrls(Map<Integer, SignedUrl> byExpiry) {
+
+        static final SignedUrls EMPTY = new SignedUrls(Map.of());
+
+        SignedUrls reusableAt(long now) {
+            Map<Integer, SignedUrl> reusable = new HashMap<>(byExpiry);
+            reusable.values().removeIf(signed -> signed.reuseUntil() - now <= 0);
+            return new SignedUrls(Map.copyOf(reusable));
+        }
+
+        SignedUrls with(int expiryInMinutes, SignedUrl signed) {
+            Map<Integer, SignedUrl> updated = new HashMap<>(byExpiry);
+            updated.put(expiryInMinutes, signed);
+            return new SignedUrls(Map.copyOf(updated));
+        }
+
+        long lastReuse() {
+            return byExpiry.values().stream().mapToLong(SignedUrl::reuseUntil).max().orElse(0);
+        }
+    }
+
+    // O objeto sai do cache quando a última das suas URLs deixa de ser reaproveitável
+    private static final class LastReuseExpiry implements Expiry<String, SignedUrls> {
+
+        @Override
+        public long expireAfterCreate(String objectName, SignedUrls signed, long currentTime) {
+            return Math.max(0, signed.lastReuse() - currentTime);
+        }
+
+        @Override
+        public long expireAfterUpdate(String objectName, SignedUrls signed, long currentTime, long currentDuration) {
+            return expireAfterCreate(objectName, signed, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String objectName, SignedUrls signed, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
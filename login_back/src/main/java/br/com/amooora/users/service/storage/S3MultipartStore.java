@@ -0,0 +1,102 @@
+package br.com.amooora.users.service.storage;
+
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.ListPartsRequest;
+import software.amazon.awssdk.services.s3.model.Part;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.stream.Collectors;
+
+/**
+ * Operações multipart de um bucket do S3 (ou compatível, ex: MinIO via S3ClientUtil)
+ */
+public class S3MultipartStore implements MultipartStore {
+
+    private final S3Client s3Client;
+    private final String bucketName;
+
+    public S3MultipartStore(S3Client s3Client, String bucketName) {
+        this.s3Client = s3Client;
+        this.bucketName = bucketName;
+    }
+
+    @Override
+    public String createUpload(String objectName, String contentType) {
+        return s3Client.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                .bucket(bucketName)
+                .key(objectName)
+                .contentType(contentType)
+                .build()).uploadId();
+    }
+
+    @Override
+    public String uploadPart(String objectName, String uploadId, int partNumber, byte[] data) {
+        // ByteArrayInputStream aceita mark/reset, então o SDK reenvia sem copiar a parte
+        return s3Client.uploadPart(UploadPartRequest.builder()
+                        .bucket(bucketName)
+                        .key(objectName)
+                        .uploadId(uploadId)
+                        .partNumber(partNumber)
+                        .contentLength((long) data.length)
+                        .build(),
+                RequestBody.fromInputStream(new ByteArrayInputStream(data), data.length)).eTag();
+    }
+
+    @Override
+    public Map<Integer, String> listParts(String objectName, String uploadId) {
+        return s3Client.listPartsPaginator(ListPartsRequest.builder()
+                        .bucket(bucketName)
+                        .key(objectName)
+                        .uploadId(uploadId)
+                        .build())
+                .parts().stream()
+                .collect(Collectors.toMap(Part::partNumber, Part::eTag));
+    }
+
+    @Override
+    public void completeUpload(String objectName, String uploadId, SortedMap<Integer, String> etags) {
+        s3Client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                .bucket(bucketName)
+                .key(objectName)
+                .uploadId(uploadId)
+                .multipartUpload(CompletedMultipartUpload.builder()
+                        .parts(etags.entrySet().stream()
+                                .map(part -> CompletedPart.builder()
+                                        .partNumber(part.getKey())
+                                        .eTag(part.getValue())
+                                        .build())
+                                .toList())
+                        .build())
+                .build());
+    }
+
+    @Override
+    public void abortUpload(String objectName, String uploadId) {
+        s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                .bucket(bucketName)
+                .key(objectName)
+                .uploadId(uploadId)
+                .build());
+    }
+
+    @Override
+    public InputStream getRange(String objectName, String etag, long start, long end) {
+        return s3Client.getObject(GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(objectName)
+                .range("bytes=" + start + "-" + end)
+                .ifMatch(etag)
+                .build());
+    }
+}
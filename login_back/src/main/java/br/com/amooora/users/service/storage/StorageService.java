@@ -1,22 +1,96 @@
 package br.com.amooora.users.service.storage;
 
+import br.com.amooora.users.dto.PhotoDownloadRequest;
 import br.com.amooora.users.dto.PhotoMetadata;
+import br.com.amooora.users.dto.PhotoPage;
 import org.springframework.core.io.InputStreamResource;
 import org.springframework.http.ResponseEntity;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface StorageService {
     
-    ResponseEntity<InputStreamResource> downloadPhoto(String objectName);
+    /**
+     * Faz download da foto respeitando If-None-Match/If-Modified-Since:
+     * responde 304 sem abrir o stream do objeto quando o cliente já tem a versão atual.
+     */
+    ResponseEntity<InputStreamResource> downloadPhoto(String objectName, PhotoDownloadRequest request);
+    
+    default ResponseEntity<InputStreamResource> downloadPhoto(String objectName) {
+        return downloadPhoto(objectName, PhotoDownloadRequest.unconditional());
+    }
     
     String getPresignedDownloadUrl(String objectName, int expiryInMinutes);
     
-    List<String> listPhotos(String prefix);
+    /**
+     * Lista uma página de fotos com o prefixo informado, incluindo as de subpastas, em ordem de chave.
+     * O cursor vem do nextCursor da página anterior (null para a primeira página): é a última
+     * chave lida, e a página seguinte começa depois dela, em todos os providers.
+     */
+    PhotoPage listPhotos(String prefix, int limit, String cursor);
+    
+    /**
+     * Percorre todas as fotos do prefixo (subpastas incluídas) de forma preguiçosa,
+     * buscando as páginas do storage conforme o stream é consumido.
+     */
+    Stream<String> streamPhotos(String prefix);
+    
+    default List<String> listPhotos(String prefix) {
+        try (Stream<String> photos = streamPhotos(prefix)) {
+            return photos.toList();
+        }
+    }
+    
+    /**
+     * Metadados da foto numa única consulta ao storage: vazio se o objeto não existir.
+     * Erros de comunicação não viram "não existe", são propagados.
+     */
+    Optional<PhotoMetadata> stat(String objectName);
+    
+    default boolean photoExists(String objectName) {
+        return stat(objectName).isPresent();
+    }
+    
+    default PhotoMetadata getPhotoInfo(String objectName) {
+        return stat(objectName)
+                .orElseThrow(() -> new RuntimeException("Foto não encontrada: " + objectName));
+    }
+    
+    /**
+     * Faz upload lendo o conteúdo do stream, sem carregar o arquivo inteiro em memória.
+     * O tamanho precisa ser conhecido (ex: MultipartFile.getSize()).
+     */
+    String uploadPhoto(String objectName, InputStream photoStream, long size, String contentType);
     
-    boolean photoExists(String objectName);
+    default String uploadPhoto(String objectName, byte[] photoData, String contentType) {
+        return uploadPhoto(objectName, new ByteArrayInputStream(photoData), photoData.length, contentType);
+    }
     
-    PhotoMetadata getPhotoInfo(String objectName);
+    /**
+     * Remove a foto do storage (não falha se ela não existir)
+     */
+    void deletePhoto(String objectName);
     
-    String uploadPhoto(String objectName, byte[] photoData, String contentType);
+    /**
+     * Remove várias fotos, em lote quando o provider permite. Devolve as que não puderam
+     * ser removidas (nome → erro); fotos inexistentes contam como removidas.
+     */
+    default Map<String, String> deletePhotos(Collection<String> objectNames) {
+        Map<String, String> failures = new LinkedHashMap<>();
+        for (String objectName : objectNames) {
+            try {
+                deletePhoto(objectName);
+            } catch (RuntimeException e) {
+                failures.put(objectName, e.getMessage());
+            }
+        }
+        return failures;
+    }
 }
\ No newline at end of file
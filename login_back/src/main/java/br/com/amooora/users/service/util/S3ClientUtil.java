@@ -1,28 +1,58 @@
 package br.com.amooora.users.service.util;
 
+import br.com.amooora.users.service.storage.MultipartTransferEngine;
+import br.com.amooora.users.service.storage.S3MultipartStore;
 import io.minio.MinioClient;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
 import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.http.SdkHttpClient;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.S3Configuration;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
 import software.amazon.awssdk.services.s3.model.ListObjectsV2Request;
 import software.amazon.awssdk.services.s3.model.ListObjectsV2Response;
 import software.amazon.awssdk.services.s3.model.PutObjectRequest;
 
 import java.io.File;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 
 public class S3ClientUtil {
 
+    // Partes de 8MB, 4 em paralelo; arquivos a partir de 16MB vão em partes
+    private static final long DEFAULT_PART_SIZE = 8L * 1024 * 1024;
+
     private final S3Client s3;
+    private final MultipartTransferEngine transfers;
+    private final boolean ownsTransfers;
 
     public S3ClientUtil(String endpoint, String accessKey, String secretKey, String region) {
+        this(endpoint, accessKey, secretKey, region, null);
+    }
+
+    // httpClient compartilhado (ex: o bean storageSdkHttpClient); null usa o cliente padrão do SDK
+    public S3ClientUtil(String endpoint, String accessKey, String secretKey, String region, SdkHttpClient httpClient) {
+        this(endpoint, accessKey, secretKey, region, httpClient, null);
+    }
+
+    // transfers compartilhado (ex: o bean MultipartTransferEngine); null cria um com a configuração padrão
+    public S3ClientUtil(String endpoint, String accessKey, String secretKey, String region, SdkHttpClient httpClient,
+                        MultipartTransferEngine transfers) {
+        this.ownsTransfers = transfers == null;
+        this.transfers = transfers != null
+                ? transfers
+                : new MultipartTransferEngine(DEFAULT_PART_SIZE, 4, 2 * DEFAULT_PART_SIZE, 3, 8 * DEFAULT_PART_SIZE,
+                        8 * DEFAULT_PART_SIZE);
+
         S3Configuration s3Config = S3Configuration.builder()
                 .pathStyleAccessEnabled(true) // importante para MinIO
                 .build();
@@ -34,36 +64,54 @@ public class S3ClientUtil {
                 .credentialsProvider(
                         StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey))
                 )
+                .httpClient(httpClient)
                 .build();
     }
 
-    // 📤 Upload de arquivo
+    // 📤 Upload de arquivo (arquivos grandes em partes paralelas, retomável se interrompido)
     public void uploadFile(String bucket, String key, String filePath) {
-        s3.putObject(
-                PutObjectRequest.builder()
-                        .bucket(bucket)
-                        .key(key)
-                        .build(),
-                RequestBody.fromFile(Paths.get(filePath))
-        );
+        Path path = Paths.get(filePath);
+        try {
+            if (transfers.useMultipart(Files.size(path))) {
+                transfers.uploadFile(new S3MultipartStore(s3, bucket), key, path, null);
+            } else {
+                s3.putObject(
+                        PutObjectRequest.builder()
+                                .bucket(bucket)
+                                .key(key)
+                                .build(),
+                        RequestBody.fromFile(path)
+                );
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Erro ao fazer upload do arquivo: " + e.getMessage());
+        }
         System.out.println("Upload concluído: " + key);
     }
 
-    // 📥 Download de arquivo
+    // 📥 Download de arquivo (arquivos grandes por faixas paralelas, retomável se interrompido)
     public void downloadFile(String bucket, String key, String outputPath) throws Exception {
+        HeadObjectResponse head = s3.headObject(HeadObjectRequest.builder()
+                .bucket(bucket)
+                .key(key)
+                .build());
+
+        if (head.contentLength() > transfers.partSize()) {
+            transfers.downloadFile(new S3MultipartStore(s3, bucket), key, head.contentLength(), head.eTag(),
+                    Paths.get(outputPath));
+            System.out.println("Download concluído: " + key);
+            return;
+        }
+
         GetObjectRequest request = GetObjectRequest.builder()
                 .bucket(bucket)
                 .key(key)
+                .ifMatch(head.eTag())
                 .build();
 
         try (InputStream inputStream = s3.getObject(request);
              FileOutputStream outputStream = new FileOutputStream(new File(outputPath))) {
-
-            byte[] buffer = new byte[4096];
-            int bytesRead;
-            while((bytesRead = inputStream.read(buffer)) != -1){
-                outputStream.write(buffer, 0, bytesRead);
-            }
+            inputStream.transferTo(outputStream);
         }
         System.out.println("Download concluído: " + key);
     }
@@ -80,5 +128,8 @@ public class S3ClientUtil {
 
     public void close() {
         s3.close();
+        if (ownsTransfers) {
+            transfers.shutdown();
+        }
     }
 }
@@ -0,0 +1,46 @@
+package br.com.amooora.users.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.http.HttpMetric;
+import software.amazon.awssdk.metrics.MetricCollector;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class S3PoolMetricPublisherTest {
+
+    @Test
+    void publishesPoolStateFromNestedHttpClientMetrics() {
+        S3PoolMetricPublisher publisher = new S3PoolMetricPublisher(50);
+        MeterRegistry registry = new SimpleMeterRegistry();
+        publisher.bindTo(registry);
+
+        MetricCollector apiCall = MetricCollector.create("ApiCall");
+        MetricCollector httpClient = apiCall.createChild("ApiCallAttempt").createChild("HttpClient");
+        httpClient.reportMetric(HttpMetric.MAX_CONCURRENCY, 100);
+        httpClient.reportMetric(HttpMetric.LEASED_CONCURRENCY, 7);
+        httpClient.reportMetric(HttpMetric.AVAILABLE_CONCURRENCY, 3);
+        httpClient.reportMetric(HttpMetric.PENDING_CONCURRENCY_ACQUIRES, 2);
+        publisher.publish(apiCall.collect());
+
+        assertEquals(100, gauge(registry, "storage.http.pool.max"));
+        assertEquals(7, gauge(registry, "storage.http.pool.leased"));
+        assertEquals(3, gauge(registry, "storage.http.pool.available"));
+        assertEquals(2, gauge(registry, "storage.http.pool.pending"));
+    }
+
+    @Test
+    void keepsConfiguredMaxUntilFirstCall() {
+        S3PoolMetricPublisher publisher = new S3PoolMetricPublisher(50);
+        MeterRegistry registry = new SimpleMeterRegistry();
+        publisher.bindTo(registry);
+
+        assertEquals(50, gauge(registry, "storage.http.pool.max"));
+        assertEquals(0, gauge(registry, "storage.http.pool.leased"));
+    }
+
+    private double gauge(MeterRegistry registry, String name) {
+        return registry.get(name).tag("client", "s3").gauge().value();
+    }
+}
@@ -0,0 +1,75 @@
+package br.com.amooora.users.config;
+
+import br.com.amooora.users.dto.PhotoMetadata;
+import br.com.amooora.users.service.PhotoDedupService;
+import br.com.amooora.users.service.UserPhotoManifest;
+import br.com.amooora.users.service.storage.PhotoResponses;
+import br.com.amooora.users.service.storage.StorageService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class StorageConfigTest {
+
+    private static final String PHOTO = "users/123/photo.jpg";
+    private static final String BLOB = "blobs/" + "a".repeat(64);
+
+    private final StorageService backend = mock(StorageService.class);
+    private final PhotoDedupService dedup = mock(PhotoDedupService.class);
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    // A cadeia montada pelo StorageConfig, só com o provider, o manifesto e a deduplicação falsos
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withUserConfiguration(StorageConfig.class)
+            .withBean("storageBackend", StorageService.class, () -> backend)
+            .withBean(MeterRegistry.class, () -> registry)
+            .withBean(PhotoResponses.class, () -> new PhotoResponses(60))
+            .withBean(UserPhotoManifest.class, () -> mock(UserPhotoManifest.class))
+            .withBean(PhotoDedupService.class, () -> dedup);
+
+    @Test
+    void photoExists_ThroughTheChain_ShouldBeRecordedAsExists() {
+        // Arrange
+        when(dedup.resolve(PHOTO)).thenReturn(Optional.empty());
+        when(backend.stat(PHOTO)).thenReturn(Optional.of(metadata(PHOTO)));
+
+        contextRunner.run(context -> {
+            // Act
+            boolean exists = context.getBean(StorageService.class).photoExists(PHOTO);
+
+            // Assert
+            assertTrue(exists);
+            assertEquals(1, registry.get("storage.requests").tag("operation", "exists").timer().count());
+            assertNull(registry.find("storage.requests").tag("operation", "info").timer());
+        });
+    }
+
+    @Test
+    void getPhotoInfo_ForDeduplicatedPhoto_ShouldReadBlobAndKeepPhotoName() {
+        // Arrange
+        when(dedup.resolve(PHOTO)).thenReturn(Optional.of(BLOB));
+        when(backend.stat(BLOB)).thenReturn(Optional.of(metadata(BLOB)));
+
+        contextRunner.run(context -> {
+            // Act
+            PhotoMetadata info = context.getBean(StorageService.class).getPhotoInfo(PHOTO);
+
+            // Assert
+            assertEquals(PHOTO, info.getObject());
+            assertEquals(1, registry.get("storage.requests").tag("operation", "info").timer().count());
+        });
+    }
+
+    private PhotoMetadata metadata(String objectName) {
+        PhotoMetadata metadata = new PhotoMetadata();
+        metadata.setObject(objectName);
+        metadata.setSize(10L);
+        return metadata;
+    }
+}
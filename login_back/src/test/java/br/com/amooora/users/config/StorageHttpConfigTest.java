@@ -0,0 +1,49 @@
+package br.com.amooora.users.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.OkHttpClient;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StorageHttpConfigTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withUserConfiguration(StorageHttpConfig.class);
+
+    @Test
+    void close_ShouldShutDownOkHttpDispatcherExecutor() {
+        // Arrange
+        AtomicReference<OkHttpClient> client = new AtomicReference<>();
+
+        // Act
+        contextRunner.run(context -> {
+            client.set(context.getBean(OkHttpClient.class));
+            assertFalse(client.get().dispatcher().executorService().isShutdown());
+        });
+
+        // Assert
+        assertTrue(client.get().dispatcher().executorService().isShutdown());
+        assertEquals(0, client.get().connectionPool().connectionCount());
+    }
+
+    @Test
+    void minioPoolMetrics_ShouldNotPublishPending() {
+        // Arrange
+        MeterRegistry registry = new SimpleMeterRegistry();
+
+        contextRunner.run(context -> {
+            // Act
+            context.getBean("minioPoolMetrics", MeterBinder.class).bindTo(registry);
+
+            // Assert
+            assertNotNull(registry.find("storage.http.pool.available").tag("client", "minio").gauge());
+            assertNull(registry.find("storage.http.pool.pending").tag("client", "minio").gauge());
+        });
+    }
+}
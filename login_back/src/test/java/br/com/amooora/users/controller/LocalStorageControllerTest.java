@@ -0,0 +1,62 @@
+package br.com.amooora.users.controller;
+
+import br.com.amooora.users.dto.PhotoDownloadRequest;
+import br.com.amooora.users.service.LocalStorageService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.ByteArrayInputStream;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(value = LocalStorageController.class, properties = "storage.provider=local")
+class LocalStorageControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private LocalStorageService localStorageService;
+
+    @Test
+    void download_WithValidSignature_ShouldServePhoto() throws Exception {
+        // Arrange
+        when(localStorageService.verifySignature("users/123/photo.jpg", 1700000000L, "sig")).thenReturn(true);
+        when(localStorageService.downloadPhoto(eq("users/123/photo.jpg"), any(PhotoDownloadRequest.class)))
+                .thenReturn(ResponseEntity.ok()
+                        .contentType(MediaType.IMAGE_JPEG)
+                        .body(new InputStreamResource(new ByteArrayInputStream("photo".getBytes()))));
+
+        // Act & Assert
+        mockMvc.perform(get("/api/storage/local")
+                        .param("object", "users/123/photo.jpg")
+                        .param("expires", "1700000000")
+                        .param("signature", "sig"))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes("photo".getBytes()));
+    }
+
+    @Test
+    void download_WithInvalidSignature_ShouldReturnForbidden() throws Exception {
+        // Arrange
+        when(localStorageService.verifySignature(anyString(), anyLong(), anyString())).thenReturn(false);
+
+        // Act & Assert
+        mockMvc.perform(get("/api/storage/local")
+                        .param("object", "users/123/photo.jpg")
+                        .param("expires", "1700000000")
+                        .param("signature", "forged"))
+                .andExpect(status().isForbidden());
+
+        verify(localStorageService, never()).downloadPhoto(anyString(), any(PhotoDownloadRequest.class));
+    }
+}
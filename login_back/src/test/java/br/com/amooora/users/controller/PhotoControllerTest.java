@@ -1,6 +1,8 @@
 package br.com.amooora.users.controller;
 
+import br.com.amooora.users.dto.PhotoDownloadRequest;
 import br.com.amooora.users.dto.PhotoMetadata;
+import br.com.amooora.users.dto.PhotoPage;
 import br.com.amooora.users.service.storage.StorageService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -8,15 +10,18 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.core.io.InputStreamResource;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.time.ZonedDateTime;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
@@ -44,7 +49,7 @@ class PhotoControllerTest {
                 "test-data".getBytes()
         );
 
-        when(storageService.uploadPhoto(anyString(), any(byte[].class), anyString()))
+        when(storageService.uploadPhoto(anyString(), any(InputStream.class), anyLong(), anyString()))
                 .thenReturn("test.jpg");
 
         // Act & Assert
@@ -57,7 +62,8 @@ class PhotoControllerTest {
 
         verify(storageService).uploadPhoto(
                 eq("test.jpg"),
-                any(byte[].class),
+                any(InputStream.class),
+                eq(9L),
                 eq(MediaType.IMAGE_JPEG_VALUE)
         );
     }
@@ -78,7 +84,7 @@ class PhotoControllerTest {
                 .andExpect(status().isBadRequest())
                 .andExpect(jsonPath("$.error").value("Arquivo não pode estar vazio"));
 
-        verify(storageService, never()).uploadPhoto(anyString(), any(byte[].class), anyString());
+        verify(storageService, never()).uploadPhoto(anyString(), any(InputStream.class), anyLong(), anyString());
     }
 
     @Test
@@ -91,7 +97,7 @@ class PhotoControllerTest {
                 "test-data".getBytes()
         );
 
-        when(storageService.uploadPhoto(anyString(), any(byte[].class), anyString()))
+        when(storageService.uploadPhoto(anyString(), any(InputStream.class), anyLong(), anyString()))
                 .thenReturn("original.jpg");
 
         // Act & Assert
@@ -113,14 +119,33 @@ class PhotoControllerTest {
                 .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"test.jpg\"")
                 .body(resource);
 
-        when(storageService.downloadPhoto("test.jpg")).thenReturn(response);
+        when(storageService.downloadPhoto(eq("test.jpg"), any(PhotoDownloadRequest.class))).thenReturn(response);
 
         // Act & Assert
         mockMvc.perform(get(BASE_URL + "/download/test.jpg"))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.IMAGE_JPEG));
 
-        verify(storageService).downloadPhoto("test.jpg");
+        verify(storageService).downloadPhoto(eq("test.jpg"), any(PhotoDownloadRequest.class));
+    }
+
+    @Test
+    void downloadPhoto_WithIfNoneMatch_ShouldForwardConditionToStorage() throws Exception {
+        // Arrange
+        ResponseEntity<InputStreamResource> notModified = ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag("\"etag456\"")
+                .build();
+
+        when(storageService.downloadPhoto(eq("test.jpg"), any(PhotoDownloadRequest.class))).thenReturn(notModified);
+
+        // Act & Assert
+        mockMvc.perform(get(BASE_URL + "/download/test.jpg")
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"etag456\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"etag456\""));
+
+        verify(storageService).downloadPhoto(eq("test.jpg"),
+                argThat(request -> request.ifNoneMatch().equals(List.of("\"etag456\""))));
     }
 
     @Test
@@ -155,23 +180,24 @@ class PhotoControllerTest {
     void listPhotos_WithoutPrefix_ShouldReturnAllPhotos() throws Exception {
         // Arrange
         List<String> photos = Arrays.asList("photo1.jpg", "photo2.jpg", "photo3.jpg");
-        when(storageService.listPhotos("")).thenReturn(photos);
+        when(storageService.listPhotos("", 1000, null)).thenReturn(new PhotoPage(photos, null));
 
         // Act & Assert
         mockMvc.perform(get(BASE_URL + "/list"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$[0]").value("photo1.jpg"))
                 .andExpect(jsonPath("$[1]").value("photo2.jpg"))
-                .andExpect(jsonPath("$[2]").value("photo3.jpg"));
+                .andExpect(jsonPath("$[2]").value("photo3.jpg"))
+                .andExpect(header().doesNotExist("X-Next-Cursor"));
 
-        verify(storageService).listPhotos("");
+        verify(storageService).listPhotos("", 1000, null);
     }
 
     @Test
     void listPhotos_WithPrefix_ShouldReturnFilteredPhotos() throws Exception {
         // Arrange
         List<String> photos = Arrays.asList("users/photo1.jpg", "users/photo2.jpg");
-        when(storageService.listPhotos("users/")).thenReturn(photos);
+        when(storageService.listPhotos("users/", 1000, null)).thenReturn(new PhotoPage(photos, null));
 
         // Act & Assert
         mockMvc.perform(get(BASE_URL + "/list")
@@ -180,7 +206,24 @@ class PhotoControllerTest {
                 .andExpect(jsonPath("$[0]").value("users/photo1.jpg"))
                 .andExpect(jsonPath("$[1]").value("users/photo2.jpg"));
 
-        verify(storageService).listPhotos("users/");
+        verify(storageService).listPhotos("users/", 1000, null);
+    }
+
+    @Test
+    void listPhotos_WithLimitAndCursor_ShouldReturnNextCursorHeader() throws Exception {
+        // Arrange
+        List<String> photos = Arrays.asList("photo3.jpg", "photo4.jpg");
+        when(storageService.listPhotos("", 2, "photo2.jpg"))
+                .thenReturn(new PhotoPage(photos, "photo4.jpg"));
+
+        // Act & Assert
+        mockMvc.perform(get(BASE_URL + "/list")
+                        .param("limit", "2")
+                        .param("cursor", "photo2.jpg"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Next-Cursor", "photo4.jpg"))
+                .andExpect(jsonPath("$[0]").value("photo3.jpg"))
+                .andExpect(jsonPath("$[1]").value("photo4.jpg"));
     }
 
     @Test
@@ -219,7 +262,7 @@ class PhotoControllerTest {
                 "etag456"
         );
 
-        when(storageService.getPhotoInfo("test.jpg")).thenReturn(metadata);
+        when(storageService.stat("test.jpg")).thenReturn(Optional.of(metadata));
 
         // Act & Assert
         mockMvc.perform(get(BASE_URL + "/info/test.jpg"))
@@ -229,6 +272,16 @@ class PhotoControllerTest {
                 .andExpect(jsonPath("$.contentType").value("image/jpeg"))
                 .andExpect(jsonPath("$.etag").value("etag456"));
 
-        verify(storageService).getPhotoInfo("test.jpg");
+        verify(storageService).stat("test.jpg");
+    }
+
+    @Test
+    void getPhotoInfo_WhenPhotoDoesNotExist_ShouldReturnNotFound() throws Exception {
+        // Arrange
+        when(storageService.stat("test.jpg")).thenReturn(Optional.empty());
+
+        // Act & Assert
+        mockMvc.perform(get(BASE_URL + "/info/test.jpg"))
+                .andExpect(status().isNotFound());
     }
 }
\ No newline at end of file
@@ -0,0 +1,223 @@
+package br.com.amooora.users.controller;
+
+import br.com.amooora.users.database.model.User;
+import br.com.amooora.users.service.UserImportService;
+import br.com.amooora.users.service.UserService;
+import br.com.amooora.users.service.dto.UserDTO;
+import br.com.amooora.users.service.dto.UserPatchDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(UserController.class)
+class UserControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private UserService userService;
+
+    @MockBean
+    private UserImportService userImportService;
+
+    @Test
+    void findAll_WithFullPage_ShouldLinkToNextPage() throws Exception {
+        // Arrange
+        when(userService.findPage(10L, 2)).thenReturn(List.of(user(11L), user(15L)));
+
+        // Act & Assert
+        mockMvc.perform(get("/users").param("limit", "2").param("after", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[1].id").value(15))
+                .andExpect(header().string(HttpHeaders.LINK, "<http://localhost/users?limit=2&after=15>; rel=\"next\""));
+    }
+
+    @Test
+    void findAll_OnLastPage_ShouldNotLinkToNextPage() throws Exception {
+        // Arrange
+        when(userService.findPage(0L, 100)).thenReturn(List.of(user(1L)));
+
+        // Act & Assert
+        mockMvc.perform(get("/users").accept(MediaType.ALL))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(header().doesNotExist(HttpHeaders.LINK));
+    }
+
+    @Test
+    void findAll_ShouldClampLimit() throws Exception {
+        // Arrange
+        when(userService.findPage(0L, 1000)).thenReturn(List.of());
+
+        // Act & Assert
+        mockMvc.perform(get("/users").param("limit", "50000"))
+                .andExpect(status().isOk());
+
+        verify(userService).findPage(0L, 1000);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void streamAll_ShouldWriteOneJsonPerLine() throws Exception {
+        // Arrange
+        doAnswer(invocation -> {
+            Consumer<UserDTO> consumer = invocation.getArgument(0);
+            consumer.accept(user(1L));
+            consumer.accept(user(2L));
+            return null;
+        }).when(userService).streamAll(any(Consumer.class));
+
+        // Act
+        MvcResult result = mockMvc.perform(get("/users").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Assert
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(
+                        "{\"id\":1,\"name\":\"Ana\",\"email\":\"ana@amooora.com.br\",\"phone_number\":\"11999999999\","
+                                + "\"cep\":\"01001000\",\"birthday\":\"01/02/1990\",\"biography\":null,\"url_picture\":null,\"version\":0}\n"
+                                + "{\"id\":2,\"name\":\"Ana\",\"email\":\"ana@amooora.com.br\",\"phone_number\":\"11999999999\","
+                                + "\"cep\":\"01001000\",\"birthday\":\"01/02/1990\",\"biography\":null,\"url_picture\":null,\"version\":0}\n"));
+    }
+
+    @Test
+    void patchUser_ShouldReturnNewVersion() throws Exception {
+        // Arrange
+        when(userService.patchUser(any(UserPatchDTO.class)))
+                .thenReturn(new UserService.PatchResult(UserService.PatchOutcome.UPDATED, 4L));
+
+        // Act & Assert
+        mockMvc.perform(patch("/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"id\":1,\"version\":3,\"biography\":\"Oi\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(1))
+                .andExpect(jsonPath("$.version").value(4));
+
+        verify(userService).patchUser(argThat(patch -> "Oi".equals(patch.biography()) && patch.name() == null));
+    }
+
+    @Test
+    void patchUser_WithStaleVersion_ShouldReturnConflict() throws Exception {
+        // Arrange
+        when(userService.patchUser(any(UserPatchDTO.class)))
+                .thenReturn(new UserService.PatchResult(UserService.PatchOutcome.VERSION_CONFLICT, null));
+
+        // Act & Assert
+        mockMvc.perform(patch("/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"id\":1,\"version\":2,\"name\":\"Ana Maria\"}"))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void patchUser_WithInvalidField_ShouldReturnBadRequest() throws Exception {
+        // Arrange
+        when(userService.patchUser(any(UserPatchDTO.class)))
+                .thenThrow(new IllegalArgumentException("Campo obrigatório: name"));
+
+        // Act & Assert
+        mockMvc.perform(patch("/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"id\":1,\"version\":2,\"name\":\" \"}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Campo obrigatório: name"));
+    }
+
+    @Test
+    void updateUser_WithStaleVersion_ShouldReturnConflict() throws Exception {
+        // Arrange
+        when(userService.updateUser(any(UserDTO.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(User.class, 1L));
+
+        // Act & Assert
+        mockMvc.perform(put("/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"id\":1,\"version\":2,\"name\":\"Ana Maria\"}"))
+                .andExpect(status().isConflict());
+    }
+
+    @Test
+    void updateUser_WithEmailTakenConcurrently_ShouldReturnConflict() throws Exception {
+        // Arrange
+        when(userService.updateUser(any(UserDTO.class)))
+                .thenThrow(new DataIntegrityViolationException("uk_user_email_normalized"));
+
+        // Act & Assert
+        mockMvc.perform(put("/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"id\":1,\"email\":\"bia@amooora.com.br\"}"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.error").value("E-mail já cadastrado"));
+    }
+
+    @Test
+    void saveUser_WithEmailTakenConcurrently_ShouldReturnConflict() throws Exception {
+        // Arrange
+        when(userService.saveUser(any(UserDTO.class)))
+                .thenThrow(new DataIntegrityViolationException("uk_user_email_normalized"));
+
+        // Act & Assert
+        mockMvc.perform(post("/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Bia\",\"email\":\"bia@amooora.com.br\"}"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.error").value("E-mail já cadastrado"));
+    }
+
+    @Test
+    void saveUser_WithRegisteredEmail_ShouldReturnBadRequest() throws Exception {
+        // Arrange
+        when(userService.saveUser(any(UserDTO.class)))
+                .thenThrow(new IllegalArgumentException("E-mail já cadastrado"));
+
+        // Act & Assert
+        mockMvc.perform(post("/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Bia\",\"email\":\"bia@amooora.com.br\"}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("E-mail já cadastrado"));
+    }
+
+    @Test
+    void importUsers_WithCsv_ShouldReturnReport() throws Exception {
+        // Arrange
+        when(userImportService.importUsers(any(), eq(UserImportService.Format.CSV)))
+                .thenReturn(new UserImportService.ImportReport(1, 1,
+                        List.of(new UserImportService.RowError(3, "E-mail inválido"))));
+
+        // Act & Assert
+        mockMvc.perform(post("/users/import")
+                        .contentType("text/csv")
+                        .content("name,email,phone_number,cep,birthday\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(1))
+                .andExpect(jsonPath("$.errors[0].line").value(3));
+    }
+
+    private UserDTO user(Long id) {
+        return new UserDTO(id, "Ana", "ana@amooora.com.br", "11999999999", "01001000",
+                LocalDate.of(1990, 2, 1), null, null, 0L);
+    }
+}
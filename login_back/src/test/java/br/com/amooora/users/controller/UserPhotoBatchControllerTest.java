@@ -0,0 +1,163 @@
+package br.com.amooora.users.controller;
+
+import br.com.amooora.users.dto.PhotoMetadata;
+import br.com.amooora.users.service.PhotoVariantService;
+import br.com.amooora.users.service.UserAvatarLocator;
+import br.com.amooora.users.service.UserPhotoBatchService;
+import br.com.amooora.users.service.VariantPrecomputeQueue;
+import br.com.amooora.users.service.storage.AsyncStorageService;
+import br.com.amooora.users.service.storage.StorageService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.hamcrest.Matchers.endsWith;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(value = UserPhotoBatchController.class, properties = "storage.batch.max-items=3")
+@Import({UserPhotoBatchService.class, UserAvatarLocator.class, AsyncStorageService.class})
+class UserPhotoBatchControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private StorageService storageService;
+
+    @MockBean
+    private PhotoVariantService variantService;
+
+    @MockBean
+    private VariantPrecomputeQueue precomputeQueue;
+
+    private static final String USER_ID = "123";
+    private static final String BATCH_URL = "/api/users/" + USER_ID + "/photos/batch";
+
+    @Test
+    void uploadUserPhotos_ShouldUploadEveryFile() throws Exception {
+        // Arrange
+        MockMultipartFile first = new MockMultipartFile("files", "a.jpg", MediaType.IMAGE_JPEG_VALUE, "a".getBytes());
+        MockMultipartFile second = new MockMultipartFile("files", "b.png", MediaType.IMAGE_PNG_VALUE, "b".getBytes());
+        when(storageService.uploadPhoto(anyString(), any(InputStream.class), anyLong(), anyString()))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act & Assert
+        mockMvc.perform(multipart(BATCH_URL).file(first).file(second))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.uploaded.length()").value(2))
+                .andExpect(jsonPath("$.uploaded[0].originalName").value("a.jpg"))
+                .andExpect(jsonPath("$.uploaded[1].photoName").value(endsWith(".png")))
+                .andExpect(jsonPath("$.failed.length()").value(0));
+
+        verify(precomputeQueue, times(2)).submit(startsWith("users/123/"), eq(VariantPrecomputeQueue.Kind.PHOTO));
+    }
+
+    @Test
+    void uploadUserPhotos_WhenOneFileFails_ShouldReturnMultiStatus() throws Exception {
+        // Arrange
+        MockMultipartFile good = new MockMultipartFile("files", "a.jpg", MediaType.IMAGE_JPEG_VALUE, "a".getBytes());
+        MockMultipartFile empty = new MockMultipartFile("files", "b.jpg", MediaType.IMAGE_JPEG_VALUE, new byte[0]);
+        when(storageService.uploadPhoto(anyString(), any(InputStream.class), anyLong(), anyString()))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act & Assert
+        mockMvc.perform(multipart(BATCH_URL).file(good).file(empty))
+                .andExpect(status().isMultiStatus())
+                .andExpect(jsonPath("$.uploaded.length()").value(1))
+                .andExpect(jsonPath("$.failed[0].originalName").value("b.jpg"))
+                .andExpect(jsonPath("$.failed[0].error").value("Arquivo não pode estar vazio"));
+    }
+
+    @Test
+    void getUserPhotosInfo_ShouldReturnFoundAndMissingPhotos() throws Exception {
+        // Arrange
+        when(storageService.stat("users/123/a.jpg")).thenReturn(Optional.of(
+                new PhotoMetadata("photos", "users/123/a.jpg", 10L, "image/jpeg", null, "\"etag-a\"")));
+        when(storageService.stat("users/123/b.jpg")).thenReturn(Optional.empty());
+
+        // Act & Assert
+        mockMvc.perform(post(BATCH_URL + "/info")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"photoNames\": [\"a.jpg\", \"b.jpg\"]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.photos[0].name").value("a.jpg"))
+                .andExpect(jsonPath("$.photos[0].size").value(10))
+                .andExpect(jsonPath("$.notFound[0]").value("b.jpg"));
+    }
+
+    @Test
+    void userPhotosExist_ShouldMapEachNameToItsExistence() throws Exception {
+        // Arrange
+        when(storageService.stat("users/123/a.jpg")).thenReturn(Optional.of(
+                new PhotoMetadata("photos", "users/123/a.jpg", 10L, "image/jpeg", null, "\"etag-a\"")));
+        when(storageService.stat("users/123/b.jpg")).thenReturn(Optional.empty());
+
+        // Act & Assert
+        mockMvc.perform(post(BATCH_URL + "/exists")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"photoNames\": [\"a.jpg\", \"b.jpg\"]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.photos['a.jpg']").value(true))
+                .andExpect(jsonPath("$.photos['b.jpg']").value(false));
+    }
+
+    @Test
+    void getUserPhotoUrls_ShouldPresignOnlyExistingPhotos() throws Exception {
+        // Arrange
+        when(storageService.stat("users/123/a.jpg")).thenReturn(Optional.of(
+                new PhotoMetadata("photos", "users/123/a.jpg", 10L, "image/jpeg", null, "\"etag-a\"")));
+        when(storageService.stat("users/123/b.jpg")).thenReturn(Optional.empty());
+        when(storageService.getPresignedDownloadUrl("users/123/a.jpg", 15)).thenReturn("https://signed/a");
+
+        // Act & Assert
+        mockMvc.perform(post(BATCH_URL + "/urls")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"photoNames\": [\"a.jpg\", \"b.jpg\"], \"expiryMinutes\": 15}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.photos[0].downloadUrl").value("https://signed/a"))
+                .andExpect(jsonPath("$.notFound[0]").value("b.jpg"));
+
+        verify(storageService, never()).getPresignedDownloadUrl(eq("users/123/b.jpg"), anyInt());
+    }
+
+    @Test
+    void deleteUserPhotos_ShouldDeleteInOneBatchAndCleanVariants() throws Exception {
+        // Arrange
+        when(storageService.deletePhotos(any())).thenReturn(Map.of("users/123/b.jpg", "AccessDenied"));
+
+        // Act & Assert
+        mockMvc.perform(post(BATCH_URL + "/delete")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"photoNames\": [\"a.jpg\", \"b.jpg\"]}"))
+                .andExpect(status().isMultiStatus())
+                .andExpect(jsonPath("$.deleted[0]").value("a.jpg"))
+                .andExpect(jsonPath("$.failed['b.jpg']").value("AccessDenied"));
+
+        verify(storageService).deletePhotos(argThat(names -> names.containsAll(
+                List.of("users/123/a.jpg", "users/123/b.jpg"))));
+        verify(variantService).invalidateAll("users/123/", List.of("users/123/a.jpg"));
+    }
+
+    @Test
+    void getUserPhotosInfo_WithTooManyNames_ShouldReturnBadRequest() throws Exception {
+        mockMvc.perform(post(BATCH_URL + "/info")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"photoNames\": [\"a.jpg\", \"b.jpg\", \"c.jpg\", \"d.jpg\"]}"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(storageService);
+    }
+}
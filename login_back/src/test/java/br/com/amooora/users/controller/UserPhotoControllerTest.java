@@ -1,11 +1,23 @@
 package br.com.amooora.users.controller;
 
+import br.com.amooora.users.dto.PhotoDownloadRequest;
 import br.com.amooora.users.dto.PhotoMetadata;
+import br.com.amooora.users.dto.PhotoPage;
+import br.com.amooora.users.dto.ResizeSpec;
+import br.com.amooora.users.dto.VariantJobStatus;
+import br.com.amooora.users.service.PhotoDedupService;
+import br.com.amooora.users.service.PhotoVariantService;
+import br.com.amooora.users.service.UserAvatarLocator;
+import br.com.amooora.users.service.UserPhotoManifest;
+import br.com.amooora.users.service.VariantPrecomputeQueue;
+import br.com.amooora.users.service.VariantSizePolicy;
+import br.com.amooora.users.service.storage.AsyncStorageService;
 import br.com.amooora.users.service.storage.StorageService;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.core.io.InputStreamResource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
@@ -14,9 +26,12 @@ import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.time.Instant;
 import java.time.ZonedDateTime;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
@@ -24,6 +39,7 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(UserPhotoController.class)
+@Import({UserAvatarLocator.class, AsyncStorageService.class, VariantSizePolicy.class})
 class UserPhotoControllerTest {
 
     @Autowired
@@ -32,6 +48,18 @@ class UserPhotoControllerTest {
     @MockBean
     private StorageService storageService;
 
+    @MockBean
+    private PhotoVariantService variantService;
+
+    @MockBean
+    private VariantPrecomputeQueue precomputeQueue;
+
+    @MockBean
+    private UserPhotoManifest manifest;
+
+    @MockBean
+    private PhotoDedupService dedup;
+
     private static final String USER_ID = "123";
     private static final String BASE_URL = "/api/users/" + USER_ID + "/photos";
 
@@ -45,7 +73,7 @@ class UserPhotoControllerTest {
                 "test-data".getBytes()
         );
 
-        when(storageService.uploadPhoto(anyString(), any(byte[].class), anyString()))
+        when(storageService.uploadPhoto(anyString(), any(InputStream.class), anyLong(), anyString()))
                 .thenReturn("users/123/test.jpg");
 
         // Act & Assert
@@ -59,11 +87,45 @@ class UserPhotoControllerTest {
 
         verify(storageService).uploadPhoto(
                 eq("users/123/test.jpg"),
-                any(byte[].class),
+                any(InputStream.class),
+                eq(9L),
                 eq(MediaType.IMAGE_JPEG_VALUE)
         );
     }
 
+    @Test
+    void linkUserPhoto_WhenContentIsStored_ShouldReturnCreatedWithoutUpload() throws Exception {
+        // Arrange
+        String sha256 = "a".repeat(64);
+        when(dedup.linkExisting("users/123/test.jpg", sha256)).thenReturn(true);
+
+        // Act & Assert
+        mockMvc.perform(post(BASE_URL + "/by-hash")
+                        .param("sha256", sha256)
+                        .param("photoName", "test.jpg"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.photoName").value("test.jpg"))
+                .andExpect(jsonPath("$.fullPath").value("users/123/test.jpg"));
+
+        verify(variantService).invalidate("users/123/test.jpg");
+        verify(storageService, never()).uploadPhoto(anyString(), any(InputStream.class), anyLong(), anyString());
+    }
+
+    @Test
+    void linkUserPhoto_WhenContentIsUnknown_ShouldReturnNotFound() throws Exception {
+        // Arrange
+        when(dedup.linkExisting(anyString(), anyString())).thenReturn(false);
+
+        // Act & Assert
+        mockMvc.perform(post(BASE_URL + "/by-hash")
+                        .param("sha256", "b".repeat(64))
+                        .param("fileName", "foto.png"))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.error").value("Conteúdo não encontrado, envie o arquivo"));
+
+        verify(precomputeQueue, never()).submit(anyString(), any());
+    }
+
     @Test
     void uploadUserPhoto_WithEmptyFile_ShouldReturnBadRequest() throws Exception {
         // Arrange
@@ -80,7 +142,7 @@ class UserPhotoControllerTest {
                 .andExpect(status().isBadRequest())
                 .andExpect(jsonPath("$.error").value("Arquivo não pode estar vazio"));
 
-        verify(storageService, never()).uploadPhoto(anyString(), any(byte[].class), anyString());
+        verify(storageService, never()).uploadPhoto(anyString(), any(InputStream.class), anyLong(), anyString());
     }
 
     @Test
@@ -93,7 +155,7 @@ class UserPhotoControllerTest {
                 "avatar-data".getBytes()
         );
 
-        when(storageService.uploadPhoto(anyString(), any(byte[].class), anyString()))
+        when(storageService.uploadPhoto(anyString(), any(InputStream.class), anyLong(), anyString()))
                 .thenReturn("users/123/avatar.jpg");
 
         // Act & Assert
@@ -103,6 +165,9 @@ class UserPhotoControllerTest {
                 .andExpect(jsonPath("$.message").value("Avatar enviado com sucesso"))
                 .andExpect(jsonPath("$.userId").value(USER_ID))
                 .andExpect(jsonPath("$.avatarPath").value("users/123/avatar.jpg"));
+
+        verify(variantService).invalidate("users/123/avatar.jpg");
+        verify(precomputeQueue).submit("users/123/avatar.jpg", VariantPrecomputeQueue.Kind.AVATAR);
     }
 
     @Test
@@ -117,20 +182,103 @@ class UserPhotoControllerTest {
                 .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"test.jpg\"")
                 .body(resource);
 
-        when(storageService.downloadPhoto("users/123/test.jpg")).thenReturn(response);
+        when(variantService.download(eq("users/123/test.jpg"), eq(Optional.empty()), any(PhotoDownloadRequest.class),
+                anyList())).thenReturn(response);
 
         // Act & Assert
         mockMvc.perform(get(BASE_URL + "/test.jpg"))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.IMAGE_JPEG));
 
-        verify(storageService).downloadPhoto("users/123/test.jpg");
+        verify(variantService).download(eq("users/123/test.jpg"), eq(Optional.empty()), any(PhotoDownloadRequest.class),
+                anyList());
+    }
+
+    @Test
+    void downloadUserPhoto_ShouldNegotiateFormatWithAcceptHeader() throws Exception {
+        // Arrange
+        when(variantService.download(eq("users/123/test.jpg"), eq(Optional.empty()), any(PhotoDownloadRequest.class),
+                anyList())).thenAnswer(invocation -> ResponseEntity.ok()
+                        .contentType(MediaType.parseMediaType("image/webp"))
+                        .header(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+                        .body(new InputStreamResource(new ByteArrayInputStream("webp".getBytes()))));
+
+        // Act & Assert
+        mockMvc.perform(get(BASE_URL + "/test.jpg").header(HttpHeaders.ACCEPT, "image/webp,image/*;q=0.8"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT));
+
+        verify(variantService).download(eq("users/123/test.jpg"), eq(Optional.empty()), any(PhotoDownloadRequest.class),
+                eq(MediaType.parseMediaTypes("image/webp,image/*;q=0.8")));
+    }
+
+    @Test
+    void downloadUserPhoto_WithPreset_ShouldServeVariant() throws Exception {
+        // Arrange
+        when(variantService.download(eq("users/123/test.jpg"), any(), any(PhotoDownloadRequest.class), anyList()))
+                .thenAnswer(invocation -> ResponseEntity.ok()
+                        .contentType(MediaType.IMAGE_JPEG)
+                        .body(new InputStreamResource(new ByteArrayInputStream("thumb".getBytes()))));
+
+        // Act & Assert
+        mockMvc.perform(get(BASE_URL + "/test.jpg").param("preset", "thumb"))
+                .andExpect(status().isOk());
+
+        verify(variantService).download(
+                eq("users/123/test.jpg"),
+                eq(Optional.of(new ResizeSpec(256, 256, ResizeSpec.Fit.COVER))),
+                any(PhotoDownloadRequest.class),
+                anyList()
+        );
+        verify(storageService, never()).downloadPhoto(anyString(), any(PhotoDownloadRequest.class));
+    }
+
+    @Test
+    void downloadUserPhoto_WithInvalidSize_ShouldReturnBadRequest() throws Exception {
+        // Act & Assert
+        mockMvc.perform(get(BASE_URL + "/test.jpg").param("w", "0"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(variantService);
+    }
+
+    @Test
+    void downloadUserPhoto_WithSizeOutsideAllowlist_ShouldReturnBadRequest() throws Exception {
+        // Act & Assert
+        mockMvc.perform(get(BASE_URL + "/test.jpg").param("w", "300").param("h", "301"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(variantService);
+    }
+
+    @Test
+    void downloadAvatar_ShouldResolveExtensionOnlyOnce() throws Exception {
+        // Arrange
+        byte[] photoData = "avatar-content".getBytes();
+        when(storageService.photoExists(anyString())).thenReturn(false);
+        when(storageService.photoExists("users/123/avatar.png")).thenReturn(true);
+        when(variantService.download(eq("users/123/avatar.png"), any(), any(PhotoDownloadRequest.class), anyList()))
+                .thenAnswer(invocation -> ResponseEntity.ok()
+                .contentType(MediaType.IMAGE_PNG)
+                .body(new InputStreamResource(new ByteArrayInputStream(photoData))));
+
+        // Act & Assert
+        mockMvc.perform(get(BASE_URL + "/avatar"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get(BASE_URL + "/avatar"))
+                .andExpect(status().isOk());
+
+        verify(storageService, times(4)).photoExists(anyString());
+        verify(variantService, times(2)).download(eq("users/123/avatar.png"), any(), any(PhotoDownloadRequest.class),
+                anyList());
     }
 
     @Test
     void getUserPhotoUrl_WhenPhotoExists_ShouldReturnUrl() throws Exception {
         // Arrange
-        when(storageService.photoExists("users/123/test.jpg")).thenReturn(true);
+        PhotoMetadata metadata = new PhotoMetadata();
+        metadata.setObject("users/123/test.jpg");
+        when(storageService.stat("users/123/test.jpg")).thenReturn(Optional.of(metadata));
         when(storageService.getPresignedDownloadUrl("users/123/test.jpg", 60))
                 .thenReturn("https://storage.example.com/test.jpg?token=xyz");
 
@@ -142,12 +290,14 @@ class UserPhotoControllerTest {
                 .andExpect(jsonPath("$.expiryMinutes").value("60"))
                 .andExpect(jsonPath("$.userId").value(USER_ID))
                 .andExpect(jsonPath("$.photoName").value("test.jpg"));
+
+        verify(storageService, never()).photoExists(anyString());
     }
 
     @Test
     void getUserPhotoUrl_WhenPhotoDoesNotExist_ShouldReturnNotFound() throws Exception {
         // Arrange
-        when(storageService.photoExists("users/123/test.jpg")).thenReturn(false);
+        when(storageService.stat("users/123/test.jpg")).thenReturn(Optional.empty());
 
         // Act & Assert
         mockMvc.perform(get(BASE_URL + "/test.jpg/url"))
@@ -159,21 +309,31 @@ class UserPhotoControllerTest {
     @Test
     void listUserPhotos_ShouldReturnPhotoList() throws Exception {
         // Arrange
-        List<String> photos = Arrays.asList(
-                "users/123/photo1.jpg",
-                "users/123/photo2.jpg",
-                "users/123/avatar.jpg"
-        );
-        when(storageService.listPhotos("users/123/")).thenReturn(photos);
+        List<String> photos = Arrays.asList("photo1.jpg", "photo2.jpg", "avatar.jpg");
+        when(manifest.listPhotos(USER_ID, 1000, null)).thenReturn(new PhotoPage(photos, null));
 
         // Act & Assert
         mockMvc.perform(get(BASE_URL))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.userId").value(USER_ID))
-                .andExpect(jsonPath("$.totalPhotos").value(3))
+                .andExpect(jsonPath("$.count").value(3))
                 .andExpect(jsonPath("$.photos[0]").value("photo1.jpg"))
                 .andExpect(jsonPath("$.photos[1]").value("photo2.jpg"))
-                .andExpect(jsonPath("$.photos[2]").value("avatar.jpg"));
+                .andExpect(jsonPath("$.photos[2]").value("avatar.jpg"))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
+    @Test
+    void listUserPhotos_WithLimit_ShouldReturnNextCursor() throws Exception {
+        // Arrange
+        List<String> photos = Arrays.asList("photo1.jpg", "photo2.jpg");
+        when(manifest.listPhotos(USER_ID, 2, null)).thenReturn(new PhotoPage(photos, "photo2.jpg"));
+
+        // Act & Assert
+        mockMvc.perform(get(BASE_URL).param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.count").value(2))
+                .andExpect(jsonPath("$.nextCursor").value("photo2.jpg"));
     }
 
     @Test
@@ -212,8 +372,7 @@ class UserPhotoControllerTest {
                 "etag123"
         );
 
-        when(storageService.photoExists("users/123/test.jpg")).thenReturn(true);
-        when(storageService.getPhotoInfo("users/123/test.jpg")).thenReturn(metadata);
+        when(storageService.stat("users/123/test.jpg")).thenReturn(Optional.of(metadata));
 
         // Act & Assert
         mockMvc.perform(get(BASE_URL + "/test.jpg/info"))
@@ -228,23 +387,43 @@ class UserPhotoControllerTest {
     @Test
     void getUserPhotoInfo_WhenPhotoDoesNotExist_ShouldReturnNotFound() throws Exception {
         // Arrange
-        when(storageService.photoExists("users/123/test.jpg")).thenReturn(false);
+        when(storageService.stat("users/123/test.jpg")).thenReturn(Optional.empty());
 
         // Act & Assert
         mockMvc.perform(get(BASE_URL + "/test.jpg/info"))
                 .andExpect(status().isNotFound());
 
-        verify(storageService, never()).getPhotoInfo(anyString());
+        verify(storageService).stat("users/123/test.jpg");
+    }
+
+    @Test
+    void getVariantStatus_AfterUpload_ShouldReturnJobState() throws Exception {
+        // Arrange
+        when(precomputeQueue.status("users/123/test.jpg")).thenReturn(Optional.of(new VariantJobStatus(
+                VariantJobStatus.State.DONE, List.of("w256-h256-cover"), 1, null, Instant.now())));
+
+        // Act & Assert
+        mockMvc.perform(get(BASE_URL + "/test.jpg/variants/status"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.state").value("DONE"))
+                .andExpect(jsonPath("$.variants[0]").value("w256-h256-cover"))
+                .andExpect(jsonPath("$.attempts").value(1));
+    }
+
+    @Test
+    void getVariantStatus_WithoutRecentUpload_ShouldReturnNotFound() throws Exception {
+        // Arrange
+        when(precomputeQueue.status("users/123/test.jpg")).thenReturn(Optional.empty());
+
+        // Act & Assert
+        mockMvc.perform(get(BASE_URL + "/test.jpg/variants/status"))
+                .andExpect(status().isNotFound());
     }
 
     @Test
     void getAllUserPhotoUrls_ShouldReturnUrlsForAllPhotos() throws Exception {
         // Arrange
-        List<String> photos = Arrays.asList(
-                "users/123/photo1.jpg",
-                "users/123/photo2.jpg"
-        );
-        when(storageService.listPhotos("users/123/")).thenReturn(photos);
+        when(manifest.listPhotos(USER_ID)).thenReturn(List.of("photo1.jpg", "photo2.jpg"));
         when(storageService.getPresignedDownloadUrl(anyString(), eq(60)))
                 .thenReturn("https://storage.example.com/photo.jpg?token=xyz");
 
@@ -0,0 +1,102 @@
+package br.com.amooora.users.dto;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PhotoDownloadRequestTest {
+
+    private static final ZonedDateTime LAST_MODIFIED = ZonedDateTime.of(2024, 1, 15, 10, 30, 0, 500, ZoneOffset.UTC);
+
+    @Test
+    void isNotModified_WhenEtagMatches_ShouldReturnTrue() {
+        // Arrange
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch("\"abc\"");
+
+        // Act & Assert
+        assertTrue(PhotoDownloadRequest.from(headers).isNotModified("abc", LAST_MODIFIED));
+        assertTrue(PhotoDownloadRequest.from(headers).isNotModified("\"abc\"", LAST_MODIFIED));
+    }
+
+    @Test
+    void isNotModified_WhenEtagDiffers_ShouldIgnoreIfModifiedSince() {
+        // Arrange
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch("\"old\"");
+        headers.setIfModifiedSince(LAST_MODIFIED.plusDays(1));
+
+        // Act & Assert
+        assertFalse(PhotoDownloadRequest.from(headers).isNotModified("\"abc\"", LAST_MODIFIED));
+    }
+
+    @Test
+    void isNotModified_WhenNotModifiedSinceDate_ShouldReturnTrue() {
+        // Arrange
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfModifiedSince(LAST_MODIFIED.withNano(0));
+
+        // Act & Assert
+        assertTrue(PhotoDownloadRequest.from(headers).isNotModified("\"abc\"", LAST_MODIFIED));
+        assertFalse(PhotoDownloadRequest.from(headers).isNotModified("\"abc\"", LAST_MODIFIED.plusSeconds(1)));
+    }
+
+    @Test
+    void isNotModified_WithoutConditions_ShouldReturnFalse() {
+        assertFalse(PhotoDownloadRequest.unconditional().isNotModified("\"abc\"", LAST_MODIFIED));
+    }
+
+    @Test
+    void rangeFor_WithSingleRange_ShouldReturnRange() {
+        // Arrange
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RANGE, "bytes=100-199");
+
+        // Act
+        HttpRange range = PhotoDownloadRequest.from(headers).rangeFor("\"abc\"", LAST_MODIFIED).orElseThrow();
+
+        // Assert
+        assertEquals(100, range.getRangeStart(1000));
+        assertEquals(199, range.getRangeEnd(1000));
+    }
+
+    @Test
+    void rangeFor_WithMultipleRanges_ShouldServeWholePhoto() {
+        // Arrange
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RANGE, "bytes=0-99,200-299");
+
+        // Act & Assert
+        assertTrue(PhotoDownloadRequest.from(headers).rangeFor("\"abc\"", LAST_MODIFIED).isEmpty());
+    }
+
+    @Test
+    void rangeFor_WhenIfRangeEtagIsOutdated_ShouldServeWholePhoto() {
+        // Arrange
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RANGE, "bytes=100-");
+        headers.set(HttpHeaders.IF_RANGE, "\"old\"");
+
+        // Act
+        PhotoDownloadRequest request = PhotoDownloadRequest.from(headers);
+
+        // Assert
+        assertTrue(request.rangeFor("\"abc\"", LAST_MODIFIED).isEmpty());
+        assertTrue(request.rangeFor("old", LAST_MODIFIED).isPresent());
+    }
+
+    @Test
+    void from_WithInvalidRange_ShouldIgnoreIt() {
+        // Arrange
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RANGE, "items=0-10");
+
+        // Act & Assert
+        assertTrue(PhotoDownloadRequest.from(headers).singleRange().isEmpty());
+    }
+}
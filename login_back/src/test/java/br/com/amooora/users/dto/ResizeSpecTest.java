@@ -0,0 +1,37 @@
+package br.com.amooora.users.dto;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResizeSpecTest {
+
+    @Test
+    void from_WithoutParameters_ShouldBeEmpty() {
+        assertTrue(ResizeSpec.from(null, null, null, null).isEmpty());
+    }
+
+    @Test
+    void from_WithPreset_ShouldUsePresetSize() {
+        ResizeSpec spec = ResizeSpec.from("Avatar", null, null, null).orElseThrow();
+
+        assertEquals(new ResizeSpec(64, 64, ResizeSpec.Fit.COVER), spec);
+        assertEquals("w64-h64-cover", spec.key());
+    }
+
+    @Test
+    void from_WithWidthOnly_ShouldDefaultToContain() {
+        ResizeSpec spec = ResizeSpec.from(null, 300, null, null).orElseThrow();
+
+        assertEquals(ResizeSpec.Fit.CONTAIN, spec.fit());
+        assertEquals("w300-contain", spec.key());
+    }
+
+    @Test
+    void from_WithInvalidValues_ShouldThrow() {
+        assertThrows(IllegalArgumentException.class, () -> ResizeSpec.from("huge", null, null, null));
+        assertThrows(IllegalArgumentException.class, () -> ResizeSpec.from(null, 100, 100, "zoom"));
+        assertThrows(IllegalArgumentException.class, () -> ResizeSpec.from(null, ResizeSpec.MAX_DIMENSION + 1, null, null));
+        assertThrows(IllegalArgumentException.class, () -> ResizeSpec.from(null, null, -5, null));
+    }
+}
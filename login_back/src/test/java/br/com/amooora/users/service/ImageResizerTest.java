@@ -0,0 +1,86 @@
+package br.com.amooora.users.service;
+
+import br.com.amooora.users.dto.ResizeSpec;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageResizerTest {
+
+    private final ImageResizer resizer = new ImageResizer(0.85f, 40_000_000);
+
+    @Test
+    void resize_WithCover_ShouldCropToExactSize() throws IOException {
+        ImageResizer.ResizedImage resized = resize(800, 400, new ResizeSpec(64, 64, ResizeSpec.Fit.COVER), ".jpg")
+                .orElseThrow();
+
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(resized.data()));
+        assertEquals("image/jpeg", resized.contentType());
+        assertEquals(64, image.getWidth());
+        assertEquals(64, image.getHeight());
+    }
+
+    @Test
+    void resize_WithContain_ShouldKeepAspectRatio() throws IOException {
+        ImageResizer.ResizedImage resized = resize(800, 400, new ResizeSpec(200, 200, ResizeSpec.Fit.CONTAIN), ".png")
+                .orElseThrow();
+
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(resized.data()));
+        assertEquals("image/png", resized.contentType());
+        assertEquals(200, image.getWidth());
+        assertEquals(100, image.getHeight());
+    }
+
+    @Test
+    void resize_ShouldNeverUpscale() throws IOException {
+        ImageResizer.ResizedImage resized = resize(100, 50, new ResizeSpec(1000, null, null), ".jpg")
+                .orElseThrow();
+
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(resized.data()));
+        assertEquals(100, image.getWidth());
+        assertEquals(50, image.getHeight());
+    }
+
+    @Test
+    void resize_WithUnreadableFormat_ShouldBeEmpty() throws IOException {
+        Optional<ImageResizer.ResizedImage> resized = resizer.resize(
+                new ByteArrayInputStream("not-an-image".getBytes()), new ResizeSpec(64, 64, null), ".jpg");
+
+        assertTrue(resized.isEmpty());
+    }
+
+    @Test
+    void resize_WithTooManyPixels_ShouldBeEmpty() throws IOException {
+        ImageResizer smallLimit = new ImageResizer(0.85f, 1000);
+
+        Optional<ImageResizer.ResizedImage> resized = smallLimit.resize(
+                new ByteArrayInputStream(png(100, 100)), new ResizeSpec(64, 64, null), ".jpg");
+
+        assertTrue(resized.isEmpty());
+    }
+
+    @Test
+    void outputExtension_ShouldKeepPngForTransparentFormats() {
+        assertEquals(".png", ImageResizer.outputExtension("users/1/photo.PNG"));
+        assertEquals(".png", ImageResizer.outputExtension("users/1/photo.gif"));
+        assertEquals(".jpg", ImageResizer.outputExtension("users/1/photo.jpeg"));
+    }
+
+    private Optional<ImageResizer.ResizedImage> resize(int width, int height, ResizeSpec spec, String extension)
+            throws IOException {
+        return resizer.resize(new ByteArrayInputStream(png(width, height)), spec, extension);
+    }
+
+    private byte[] png(int width, int height) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", output);
+        return output.toByteArray();
+    }
+}
@@ -0,0 +1,208 @@
+package br.com.amooora.users.service;
+
+import br.com.amooora.users.dto.PhotoDownloadRequest;
+import br.com.amooora.users.dto.PhotoMetadata;
+import br.com.amooora.users.dto.PhotoPage;
+import br.com.amooora.users.service.storage.PhotoResponses;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.util.UriComponents;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalStorageServiceTest {
+
+    private static final String PHOTO = "users/123/photo.jpg";
+    private static final byte[] CONTENT = "local-photo-content".getBytes();
+
+    @TempDir
+    private Path root;
+
+    private LocalStorageService storageService;
+
+    @BeforeEach
+    void setUp() {
+        storageService = newService();
+    }
+
+    @Test
+    void uploadPhoto_ThenDownload_ShouldReturnSameBytesAndMetadata() throws IOException {
+        // Act
+        storageService.uploadPhoto(PHOTO, CONTENT, "image/jpeg");
+        ResponseEntity<InputStreamResource> response = storageService.downloadPhoto(PHOTO);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertArrayEquals(CONTENT, body(response));
+        assertEquals(CONTENT.length, response.getHeaders().getContentLength());
+        assertNotNull(response.getHeaders().getETag());
+    }
+
+    @Test
+    void downloadPhoto_WithRange_ShouldReturnOnlyThoseBytes() throws IOException {
+        // Arrange
+        storageService.uploadPhoto(PHOTO, CONTENT, "image/jpeg");
+
+        // Act
+        ResponseEntity<InputStreamResource> response = storageService.downloadPhoto(PHOTO,
+                new PhotoDownloadRequest(List.of(), null, List.of(HttpRange.createByteRange(0, 4)), null));
+
+        // Assert
+        assertEquals(HttpStatus.PARTIAL_CONTENT, response.getStatusCode());
+        assertEquals("bytes 0-4/" + CONTENT.length, response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+        assertArrayEquals("local".getBytes(), body(response));
+    }
+
+    @Test
+    void downloadPhoto_WithMatchingEtag_ShouldReturnNotModified() {
+        // Arrange
+        storageService.uploadPhoto(PHOTO, CONTENT, "image/jpeg");
+        String etag = storageService.stat(PHOTO).orElseThrow().getEtag();
+
+        // Act
+        ResponseEntity<InputStreamResource> response = storageService.downloadPhoto(PHOTO,
+                new PhotoDownloadRequest(List.of("\"" + etag + "\""), null, List.of(), null));
+
+        // Assert
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+    }
+
+    @Test
+    void downloadPhoto_WhenMissing_ShouldReturnNotFound() {
+        assertEquals(HttpStatus.NOT_FOUND, storageService.downloadPhoto(PHOTO).getStatusCode());
+        assertTrue(storageService.stat(PHOTO).isEmpty());
+    }
+
+    @Test
+    void listPhotos_ShouldPaginateByPrefixInKeyOrder() {
+        // Arrange
+        storageService.uploadPhoto("users/123/a.jpg", CONTENT, "image/jpeg");
+        storageService.uploadPhoto("users/123/b.png", CONTENT, "image/png");
+        storageService.uploadPhoto("users/123/c.jpg", CONTENT, "image/jpeg");
+        storageService.uploadPhoto("users/123/notes.txt", CONTENT, "text/plain");
+        storageService.uploadPhoto("users/456/d.jpg", CONTENT, "image/jpeg");
+
+        // Act
+        PhotoPage first = storageService.listPhotos("users/123/", 2, null);
+        PhotoPage second = storageService.listPhotos("users/123/", 2, first.nextCursor());
+
+        // Assert
+        assertEquals(List.of("users/123/a.jpg", "users/123/b.png"), first.photos());
+        assertTrue(first.hasMore());
+        assertEquals(List.of("users/123/c.jpg"), second.photos());
+        assertFalse(second.hasMore());
+        try (Stream<String> photos = storageService.streamPhotos("users/123/")) {
+            assertEquals(3, photos.count());
+        }
+    }
+
+    @Test
+    void loadIndex_ShouldRebuildFromSidecarFiles() {
+        // Arrange
+        storageService.uploadPhoto(PHOTO, CONTENT, "image/jpeg");
+
+        // Act
+        LocalStorageService restarted = newService();
+
+        // Assert
+        PhotoMetadata metadata = restarted.stat(PHOTO).orElseThrow();
+        assertEquals(CONTENT.length, metadata.getSize());
+        assertEquals("image/jpeg", metadata.getContentType());
+    }
+
+    @Test
+    void deletePhoto_ShouldRemoveFileAndIndexEntry() {
+        // Arrange
+        storageService.uploadPhoto(PHOTO, CONTENT, "image/jpeg");
+
+        // Act
+        storageService.deletePhoto(PHOTO);
+
+        // Assert
+        assertTrue(storageService.stat(PHOTO).isEmpty());
+        assertTrue(newService().stat(PHOTO).isEmpty());
+    }
+
+    @Test
+    void downloadPhoto_WhenDataFileVanished_ShouldReturnNotFound() throws IOException {
+        // Arrange: entrada no índice cujo .bin já não existe
+        storageService.uploadPhoto(PHOTO, CONTENT, "image/jpeg");
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path data : files.filter(path -> path.toString().endsWith(".bin")).toList()) {
+                Files.delete(data);
+            }
+        }
+
+        // Act
+        ResponseEntity<InputStreamResource> response = storageService.downloadPhoto(PHOTO);
+
+        // Assert
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    }
+
+    @Test
+    void uploadAndDelete_Concurrently_ShouldKeepIndexAndFilesConsistent() throws Exception {
+        try (ExecutorService executor = Executors.newFixedThreadPool(4)) {
+            for (int i = 0; i < 200; i++) {
+                // Act
+                Future<?> upload = executor.submit(() -> storageService.uploadPhoto(PHOTO, CONTENT, "image/jpeg"));
+                Future<?> delete = executor.submit(() -> storageService.deletePhoto(PHOTO));
+                upload.get();
+                delete.get();
+
+                // Assert: se o índice tem a foto, o arquivo também existe
+                if (storageService.stat(PHOTO).isPresent()) {
+                    assertEquals(HttpStatus.OK, storageService.downloadPhoto(PHOTO).getStatusCode());
+                    assertTrue(newService().stat(PHOTO).isPresent());
+                } else {
+                    assertTrue(newService().stat(PHOTO).isEmpty());
+                }
+            }
+        }
+    }
+
+    @Test
+    void getPresignedDownloadUrl_ShouldBeVerifiableAndTamperProof() {
+        // Act
+        UriComponents url = UriComponentsBuilder.fromUriString(storageService.getPresignedDownloadUrl(PHOTO, 60)).build();
+        long expires = Long.parseLong(url.getQueryParams().getFirst("expires"));
+        String signature = url.getQueryParams().getFirst("signature");
+
+        // Assert
+        assertEquals("/api/storage/local", url.getPath());
+        assertTrue(storageService.verifySignature(PHOTO, expires, signature));
+        assertFalse(storageService.verifySignature("users/123/other.jpg", expires, signature));
+        assertFalse(storageService.verifySignature(PHOTO, expires + 1, signature));
+        assertFalse(storageService.verifySignature(PHOTO, 0, signature));
+    }
+
+    private LocalStorageService newService() {
+        LocalStorageService service = new LocalStorageService(new PhotoResponses(60), root.toString(),
+                "http://localhost:8080", "test-signing-key");
+        service.loadIndex();
+        return service;
+    }
+
+    private byte[] body(ResponseEntity<InputStreamResource> response) throws IOException {
+        try (InputStream stream = response.getBody().getInputStream()) {
+            return stream.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package br.com.amooora.users.service;
+
+import io.minio.ListObjectsArgs;
+import io.minio.MinioClient;
+import io.minio.Result;
+import io.minio.messages.Item;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * MinioClient falso que lista como o MinIO: sem recursive, só o primeiro nível abaixo do
+ * prefixo, com as subpastas devolvidas como diretórios (isDir); com recursive, as chaves.
+ */
+final class MinioListing {
+
+    private MinioListing() {
+    }
+
+    static MinioService service(Collection<String> keys) {
+        MinioClient client = mock(MinioClient.class);
+        lenient().when(client.listObjects(any(ListObjectsArgs.class)))
+                .thenAnswer(invocation -> list(keys, invocation.getArgument(0)));
+        MinioService service = new MinioService(client, null, null, null);
+        ReflectionTestUtils.setField(service, "bucketName", "photos");
+        return service;
+    }
+
+    private static Iterable<Result<Item>> list(Collection<String> keys, ListObjectsArgs args) {
+        String prefix = args.prefix() != null ? args.prefix() : "";
+        TreeSet<String> entries = new TreeSet<>();
+        for (String key : keys) {
+            if (!key.startsWith(prefix) || (args.startAfter() != null && key.compareTo(args.startAfter()) <= 0)) {
+                continue;
+            }
+            int slash = key.indexOf('/', prefix.length());
+            entries.add(args.recursive() || slash < 0 ? key : key.substring(0, slash + 1));
+        }
+
+        List<Result<Item>> results = new ArrayList<>();
+        for (String entry : entries) {
+            Item item = entry.endsWith("/") ? new Item(entry) {} : new Item() {
+                @Override
+                public String objectName() {
+                    return entry;
+                }
+            };
+            results.add(new Result<>(item));
+        }
+        return results;
+    }
+}
@@ -0,0 +1,232 @@
+package br.com.amooora.users.service;
+
+import br.com.amooora.users.database.model.PhotoBlob;
+import br.com.amooora.users.database.model.UserPhoto;
+import br.com.amooora.users.database.repository.PhotoBlobRepository;
+import br.com.amooora.users.database.repository.UserPhotoRepository;
+import br.com.amooora.users.dto.PhotoMetadata;
+import br.com.amooora.users.service.storage.StorageService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PhotoDedupServiceTest {
+
+    private static final String OBJECT_NAME = "users/123/photo.jpg";
+    private static final byte[] CONTENT = "conteudo-da-foto".getBytes(StandardCharsets.UTF_8);
+
+    @Mock
+    private PhotoBlobRepository blobRepository;
+
+    @Mock
+    private UserPhotoRepository photoRepository;
+
+    @Mock
+    private StorageService backend;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private PhotoDedupService dedup;
+    private String digest;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        dedup = new PhotoDedupService(blobRepository, photoRepository, backend, transactionManager, true, 60, 1000, 60);
+        dedup.init();
+        digest = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(CONTENT));
+    }
+
+    @Test
+    void upload_WithNewContent_ShouldStoreBlobOnceAndLinkPhoto() {
+        // Arrange
+        when(blobRepository.acquire(eq(digest), any())).thenReturn(0);
+        when(backend.stat("blobs/" + digest)).thenReturn(Optional.of(
+                new PhotoMetadata("bucket", "blobs/" + digest, (long) CONTENT.length, "image/jpeg", null, "\"e1\"")));
+        when(blobRepository.findByDigest(digest))
+                .thenReturn(Optional.of(new PhotoBlob(digest, (long) CONTENT.length, "image/jpeg", "\"e1\"")));
+        when(photoRepository.findByUserIdAndName("123", "photo.jpg")).thenReturn(Optional.empty());
+
+        // Act
+        String uploaded = dedup.upload(OBJECT_NAME, new ByteArrayInputStream(CONTENT), "image/jpeg");
+
+        // Assert
+        assertEquals(OBJECT_NAME, uploaded);
+        verify(backend).uploadPhoto(eq("blobs/" + digest), any(InputStream.class), eq((long) CONTENT.length),
+                eq("image/jpeg"));
+        verify(blobRepository).saveAndFlush(argThat(blob -> digest.equals(blob.getDigest()) && blob.getRefCount() == 1));
+        ArgumentCaptor<UserPhoto> photo = ArgumentCaptor.forClass(UserPhoto.class);
+        verify(photoRepository).save(photo.capture());
+        assertEquals(digest, photo.getValue().getBlobDigest());
+        assertEquals("\"e1\"", photo.getValue().getEtag());
+    }
+
+    @Test
+    void upload_WithStoredContent_ShouldNotSendBytesAndReleasePreviousBlob() {
+        // Arrange
+        UserPhoto existing = new UserPhoto("123", "photo.jpg");
+        existing.setId(7L);
+        existing.setBlobDigest("f".repeat(64));
+        when(blobRepository.acquire(eq(digest), any())).thenReturn(1);
+        when(blobRepository.findByDigest(digest))
+                .thenReturn(Optional.of(new PhotoBlob(digest, (long) CONTENT.length, "image/jpeg", "\"e1\"")));
+        when(photoRepository.findByUserIdAndName("123", "photo.jpg")).thenReturn(Optional.of(existing));
+
+        // Act
+        dedup.upload(OBJECT_NAME, new ByteArrayInputStream(CONTENT), "image/jpeg");
+
+        // Assert
+        verify(backend, never()).uploadPhoto(anyString(), any(InputStream.class), anyLong(), anyString());
+        verify(blobRepository).release(eq("f".repeat(64)), any());
+        verify(backend, never()).deletePhoto(anyString());
+        assertEquals(digest, existing.getBlobDigest());
+    }
+
+    @Test
+    void resolve_ShouldCacheResolutionAndNonReferences() {
+        // Arrange
+        UserPhoto reference = new UserPhoto("123", "photo.jpg");
+        reference.setBlobDigest(digest);
+        when(photoRepository.findByUserIdAndName("123", "photo.jpg")).thenReturn(Optional.of(reference));
+        when(photoRepository.findByUserIdAndName("123", "legacy.jpg")).thenReturn(Optional.empty());
+
+        // Act
+        dedup.resolve(OBJECT_NAME);
+        Optional<String> blob = dedup.resolve(OBJECT_NAME);
+        dedup.resolve("users/123/legacy.jpg");
+        Optional<String> legacy = dedup.resolve("users/123/legacy.jpg");
+
+        // Assert
+        assertEquals(Optional.of("blobs/" + digest), blob);
+        assertEquals(Optional.empty(), legacy);
+        verify(photoRepository, times(1)).findByUserIdAndName("123", "photo.jpg");
+        verify(photoRepository, times(1)).findByUserIdAndName("123", "legacy.jpg");
+    }
+
+    @Test
+    void resolve_AfterUploadOverReference_ShouldReturnNewBlob() {
+        // Arrange
+        UserPhoto existing = new UserPhoto("123", "photo.jpg");
+        existing.setId(7L);
+        existing.setBlobDigest("f".repeat(64));
+        when(blobRepository.acquire(eq(digest), any())).thenReturn(1);
+        when(blobRepository.findByDigest(digest))
+                .thenReturn(Optional.of(new PhotoBlob(digest, (long) CONTENT.length, "image/jpeg", "\"e1\"")));
+        when(photoRepository.findByUserIdAndName("123", "photo.jpg")).thenReturn(Optional.of(existing));
+        Optional<String> before = dedup.resolve(OBJECT_NAME);
+
+        // Act
+        dedup.upload(OBJECT_NAME, new ByteArrayInputStream(CONTENT), "image/jpeg");
+        Optional<String> after = dedup.resolve(OBJECT_NAME);
+
+        // Assert
+        assertEquals(Optional.of("blobs/" + "f".repeat(64)), before);
+        assertEquals(Optional.of("blobs/" + digest), after);
+    }
+
+    @Test
+    void resolve_AfterUnlink_ShouldNoLongerResolve() {
+        // Arrange
+        UserPhoto reference = new UserPhoto("123", "photo.jpg");
+        reference.setBlobDigest(digest);
+        when(photoRepository.findByUserIdAndName("123", "photo.jpg"))
+                .thenReturn(Optional.of(reference))
+                .thenReturn(Optional.of(reference))
+                .thenReturn(Optional.empty());
+        dedup.resolve(OBJECT_NAME);
+
+        // Act
+        dedup.unlink(List.of(OBJECT_NAME));
+
+        // Assert
+        assertEquals(Optional.empty(), dedup.resolve(OBJECT_NAME));
+    }
+
+    @Test
+    void linkExisting_WithUnknownHash_ShouldReturnFalse() {
+        // Arrange
+        when(blobRepository.acquire(eq(digest), any())).thenReturn(0);
+
+        // Act & Assert
+        assertFalse(dedup.linkExisting(OBJECT_NAME, digest.toUpperCase()));
+        assertFalse(dedup.linkExisting(OBJECT_NAME, "nao-e-um-hash"));
+        verifyNoInteractions(photoRepository);
+    }
+
+    @Test
+    void linkExisting_OverStoredObject_ShouldRemoveReplacedObject() {
+        // Arrange
+        UserPhoto stored = new UserPhoto("123", "photo.jpg");
+        stored.setId(7L);
+        when(blobRepository.acquire(eq(digest), any())).thenReturn(1);
+        when(blobRepository.findByDigest(digest))
+                .thenReturn(Optional.of(new PhotoBlob(digest, (long) CONTENT.length, "image/jpeg", "\"e1\"")));
+        when(photoRepository.findByUserIdAndName("123", "photo.jpg")).thenReturn(Optional.of(stored));
+
+        // Act
+        assertTrue(dedup.linkExisting(OBJECT_NAME, digest));
+
+        // Assert
+        verify(backend).deletePhoto(OBJECT_NAME);
+        assertEquals(digest, stored.getBlobDigest());
+    }
+
+    @Test
+    void unlink_ShouldReleaseBlobsAndReturnOnlyReferences() {
+        // Arrange
+        UserPhoto reference = new UserPhoto("123", "photo.jpg");
+        reference.setBlobDigest(digest);
+        when(photoRepository.findByUserIdAndName("123", "photo.jpg")).thenReturn(Optional.of(reference));
+        when(photoRepository.findByUserIdAndName("123", "legacy.jpg"))
+                .thenReturn(Optional.of(new UserPhoto("123", "legacy.jpg")));
+
+        // Act
+        Set<String> unlinked = dedup.unlink(List.of(OBJECT_NAME, "users/123/legacy.jpg", "variants/x.jpg"));
+
+        // Assert
+        assertEquals(Set.of(OBJECT_NAME), unlinked);
+        verify(photoRepository).delete(reference);
+        verify(blobRepository).release(eq(digest), any());
+    }
+
+    @Test
+    void collectGarbage_ShouldDeleteOnlyBlobsStillUnreferenced() {
+        // Arrange
+        PhotoBlob unreferenced = new PhotoBlob(digest, 1L, "image/jpeg", "\"e1\"");
+        unreferenced.setId(1L);
+        unreferenced.setRefCount(0);
+        PhotoBlob reacquired = new PhotoBlob("c".repeat(64), 1L, "image/jpeg", "\"e2\"");
+        reacquired.setId(2L);
+        when(blobRepository.findByRefCountAndUpdatedAtBefore(eq(0L), any(), eq(Limit.of(500))))
+                .thenReturn(List.of(unreferenced, reacquired));
+        when(blobRepository.lockById(1L)).thenReturn(Optional.of(unreferenced));
+        when(blobRepository.lockById(2L)).thenReturn(Optional.of(reacquired));
+
+        // Act
+        dedup.collectGarbage();
+
+        // Assert
+        verify(backend).deletePhoto("blobs/" + digest);
+        verify(blobRepository).delete(unreferenced);
+        verify(backend, never()).deletePhoto("blobs/" + "c".repeat(64));
+    }
+}
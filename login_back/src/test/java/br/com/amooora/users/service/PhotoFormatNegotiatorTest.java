@@ -0,0 +1,71 @@
+package br.com.amooora.users.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PhotoFormatNegotiatorTest {
+
+    // WebP tem writer (webp-imageio); AVIF não
+    private final PhotoFormatNegotiator negotiator = new PhotoFormatNegotiator(true, List.of("image/avif", "image/webp"));
+
+    @Test
+    void negotiate_ShouldPickCompactFormatWithImageIoWriter() {
+        assertEquals(Optional.of(".webp"),
+                negotiator.negotiate("users/1/photo.jpg", MediaType.parseMediaTypes("image/avif,image/webp,image/*")));
+    }
+
+    @Test
+    void negotiate_ShouldRespectMostSpecificQualityValue() {
+        assertEquals(Optional.empty(),
+                negotiator.negotiate("users/1/photo.jpg", MediaType.parseMediaTypes("image/*,image/webp;q=0")));
+    }
+
+    @Test
+    void negotiate_WithoutCompactFormatWriter_ShouldServeOriginal() {
+        // AVIF não tem writer e recomprimir um JPEG em JPEG nunca é negociado
+        PhotoFormatNegotiator noWriter = new PhotoFormatNegotiator(true, List.of("image/avif", "image/jpeg"));
+
+        assertEquals(Optional.empty(), noWriter.negotiate("users/1/photo.jpg", MediaType.parseMediaTypes("image/*")));
+        assertEquals(Optional.empty(), noWriter.negotiate("users/1/photo.jpg", MediaType.parseMediaTypes("image/avif")));
+        assertFalse(noWriter.varies("users/1/photo.jpg"));
+    }
+
+    @Test
+    void negotiate_WithoutExplicitImageType_ShouldServeOriginal() {
+        assertEquals(Optional.empty(), negotiator.negotiate("users/1/photo.jpg", List.of()));
+        assertEquals(Optional.empty(), negotiator.negotiate("users/1/photo.jpg", MediaType.parseMediaTypes("*/*")));
+    }
+
+    @Test
+    void negotiate_ShouldKeepAnimatedAndAlreadyCompactFormats() {
+        List<MediaType> accept = MediaType.parseMediaTypes("image/webp,image/*");
+
+        assertEquals(Optional.of(".webp"), negotiator.negotiate("users/1/photo.png", accept));
+        assertEquals(Optional.empty(), negotiator.negotiate("users/1/photo.gif", accept));
+        assertEquals(Optional.empty(), negotiator.negotiate("users/1/photo.webp", accept));
+        assertFalse(negotiator.varies("users/1/photo.gif"));
+        assertTrue(negotiator.varies("users/1/photo.jpeg"));
+    }
+
+    @Test
+    void negotiate_WhenDisabled_ShouldNeverConvert() {
+        PhotoFormatNegotiator disabled = new PhotoFormatNegotiator(false, List.of("image/webp"));
+
+        assertEquals(Optional.empty(), disabled.negotiate("users/1/photo.jpg", MediaType.parseMediaTypes("image/webp")));
+        assertFalse(disabled.varies("users/1/photo.jpg"));
+    }
+
+    @Test
+    void accept_WithMalformedHeader_ShouldBeEmpty() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.ACCEPT, "image/");
+
+        assertEquals(List.of(), PhotoFormatNegotiator.accept(headers));
+    }
+}
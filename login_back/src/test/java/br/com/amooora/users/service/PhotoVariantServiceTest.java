@@ -0,0 +1,321 @@
+package br.com.amooora.users.service;
+
+import br.com.amooora.users.dto.PhotoDownloadRequest;
+import br.com.amooora.users.dto.ResizeSpec;
+import br.com.amooora.users.service.storage.PhotoResponses;
+import br.com.amooora.users.service.storage.StorageService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PhotoVariantServiceTest {
+
+    private static final String ORIGINAL = "users/123/photo.jpg";
+    private static final String VARIANT = "variants/users/123/photo.jpg/w64-h64-cover.jpg";
+    private static final ResizeSpec SPEC = new ResizeSpec(64, 64, ResizeSpec.Fit.COVER);
+
+    @Mock
+    private StorageService storageService;
+
+    @Mock
+    private PhotoFormatNegotiator formatNegotiator;
+
+    @Mock
+    private VariantPrecomputeQueue precomputeQueue;
+
+    private PhotoVariantService variantService;
+
+    @BeforeEach
+    void setUp() {
+        variantService = new PhotoVariantService(storageService, new ImageResizer(0.85f, 40_000_000),
+                formatNegotiator, precomputeQueue);
+    }
+
+    @Test
+    void downloadVariant_WhenAlreadyGenerated_ShouldServeStoredVariant() {
+        // Arrange
+        PhotoDownloadRequest request = PhotoDownloadRequest.unconditional();
+        when(storageService.downloadPhoto(VARIANT, request)).thenReturn(ResponseEntity.ok().build());
+
+        // Act
+        ResponseEntity<InputStreamResource> response = variantService.downloadVariant(ORIGINAL, SPEC, request);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        verify(storageService, never()).downloadPhoto(ORIGINAL);
+        verify(storageService, never()).uploadPhoto(anyString(), any(byte[].class), anyString());
+    }
+
+    @Test
+    void downloadVariant_WhenMissing_ShouldGenerateAndStoreOnce() throws IOException {
+        // Arrange
+        PhotoDownloadRequest request = PhotoDownloadRequest.unconditional();
+        when(storageService.downloadPhoto(VARIANT, request))
+                .thenReturn(ResponseEntity.notFound().build())
+                .thenReturn(ResponseEntity.ok().build());
+        when(storageService.downloadPhoto(ORIGINAL))
+                .thenReturn(ResponseEntity.ok(new InputStreamResource(new ByteArrayInputStream(jpeg(640, 480)))));
+
+        // Act
+        ResponseEntity<InputStreamResource> response = variantService.downloadVariant(ORIGINAL, SPEC, request);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        verify(storageService).uploadPhoto(eq(VARIANT), any(byte[].class), eq("image/jpeg"));
+        verify(storageService, times(2)).downloadPhoto(VARIANT, request);
+    }
+
+    @Test
+    void downloadVariant_ConcurrentRequestsForMissingVariant_ShouldGenerateOnce() throws Exception {
+        // Arrange: a primeira geração fica parada no download do original até a segunda requisição esperar por ela
+        PhotoDownloadRequest request = PhotoDownloadRequest.unconditional();
+        byte[] original = jpeg(640, 480);
+        CountDownLatch originalRequested = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(storageService.downloadPhoto(VARIANT, request))
+                .thenReturn(ResponseEntity.notFound().build())
+                .thenReturn(ResponseEntity.notFound().build())
+                .thenReturn(ResponseEntity.ok().build());
+        when(storageService.downloadPhoto(ORIGINAL)).thenAnswer(invocation -> {
+            originalRequested.countDown();
+            release.await();
+            return ResponseEntity.ok(new InputStreamResource(new ByteArrayInputStream(original)));
+        });
+        List<ResponseEntity<InputStreamResource>> responses = new CopyOnWriteArrayList<>();
+        Thread first = new Thread(() -> responses.add(variantService.downloadVariant(ORIGINAL, SPEC, request)));
+        Thread second = new Thread(() -> responses.add(variantService.downloadVariant(ORIGINAL, SPEC, request)));
+
+        // Act
+        first.start();
+        assertTrue(originalRequested.await(5, TimeUnit.SECONDS));
+        second.start();
+        while (second.getState() != Thread.State.WAITING && second.isAlive()) {
+            Thread.onSpinWait();
+        }
+        release.countDown();
+        first.join(5000);
+        second.join(5000);
+
+        // Assert
+        assertEquals(2, responses.size());
+        assertTrue(responses.stream().allMatch(response -> response.getStatusCode() == HttpStatus.OK));
+        verify(storageService, times(1)).downloadPhoto(ORIGINAL);
+        verify(storageService, times(1)).uploadPhoto(eq(VARIANT), any(byte[].class), eq("image/jpeg"));
+    }
+
+    @Test
+    void downloadVariant_WhenOriginalMissing_ShouldReturnNotFound() {
+        // Arrange
+        PhotoDownloadRequest request = PhotoDownloadRequest.unconditional();
+        when(storageService.downloadPhoto(VARIANT, request)).thenReturn(ResponseEntity.notFound().build());
+        when(storageService.downloadPhoto(ORIGINAL)).thenReturn(ResponseEntity.notFound().build());
+        when(storageService.downloadPhoto(ORIGINAL, request)).thenReturn(ResponseEntity.notFound().build());
+
+        // Act
+        ResponseEntity<InputStreamResource> response = variantService.downloadVariant(ORIGINAL, SPEC, request);
+
+        // Assert
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+        verify(storageService, never()).uploadPhoto(anyString(), any(byte[].class), anyString());
+    }
+
+    @Test
+    void download_WithConversionReady_ShouldServeConvertedPhotoAndVaryOnAccept() {
+        // Arrange
+        String converted = "variants/users/123/photo.jpg/original.webp";
+        PhotoDownloadRequest request = PhotoDownloadRequest.unconditional();
+        List<MediaType> accept = MediaType.parseMediaTypes("image/webp,image/*;q=0.8");
+        when(formatNegotiator.negotiate(ORIGINAL, accept)).thenReturn(Optional.of(".webp"));
+        when(formatNegotiator.varies(ORIGINAL)).thenReturn(true);
+        when(storageService.downloadPhoto(converted, request)).thenReturn(ResponseEntity.ok().build());
+
+        // Act
+        ResponseEntity<InputStreamResource> response = variantService.download(ORIGINAL, Optional.empty(), request, accept);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(List.of(HttpHeaders.ACCEPT), response.getHeaders().getVary());
+        verify(storageService, never()).downloadPhoto(ORIGINAL, request);
+        verifyNoInteractions(precomputeQueue);
+    }
+
+    @Test
+    void download_WhenConversionMissing_ShouldQueueItAndServeOriginal() {
+        // Arrange
+        PhotoDownloadRequest request = PhotoDownloadRequest.unconditional();
+        List<MediaType> accept = MediaType.parseMediaTypes("image/webp,image/*;q=0.8");
+        when(formatNegotiator.negotiate(ORIGINAL, accept)).thenReturn(Optional.of(".webp"));
+        when(formatNegotiator.varies(ORIGINAL)).thenReturn(true);
+        when(storageService.downloadPhoto("variants/users/123/photo.jpg/original.webp", request))
+                .thenReturn(ResponseEntity.notFound().build());
+        when(storageService.downloadPhoto(ORIGINAL, request)).thenReturn(ResponseEntity.ok().build());
+
+        // Act
+        ResponseEntity<InputStreamResource> response = variantService.download(ORIGINAL, Optional.empty(), request, accept);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(List.of(HttpHeaders.ACCEPT), response.getHeaders().getVary());
+        verify(precomputeQueue).submitConversion(ORIGINAL, ".webp");
+        verify(storageService, never()).downloadPhoto(ORIGINAL);
+        verify(storageService, never()).uploadPhoto(anyString(), any(byte[].class), anyString());
+    }
+
+    @Test
+    void download_WithoutNegotiatedFormat_ShouldServeOriginal() {
+        // Arrange
+        PhotoDownloadRequest request = PhotoDownloadRequest.unconditional();
+        List<MediaType> accept = MediaType.parseMediaTypes("*/*");
+        when(formatNegotiator.negotiate(ORIGINAL, accept)).thenReturn(Optional.empty());
+        when(storageService.downloadPhoto(ORIGINAL, request)).thenReturn(ResponseEntity.ok().build());
+
+        // Act
+        ResponseEntity<InputStreamResource> response = variantService.download(ORIGINAL, Optional.empty(), request, accept);
+
+        // Assert
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        verifyNoInteractions(precomputeQueue);
+        verify(storageService, never()).uploadPhoto(anyString(), any(byte[].class), anyString());
+    }
+
+    @Test
+    void download_WithPreset_ShouldUseNegotiatedFormatInVariantKey() {
+        // Arrange
+        String webpVariant = "variants/users/123/photo.jpg/w64-h64-cover.webp";
+        PhotoDownloadRequest request = PhotoDownloadRequest.unconditional();
+        List<MediaType> accept = MediaType.parseMediaTypes("image/webp");
+        when(formatNegotiator.negotiate(ORIGINAL, accept)).thenReturn(Optional.of(".webp"));
+        when(storageService.downloadPhoto(webpVariant, request)).thenReturn(ResponseEntity.ok().build());
+
+        // Act
+        variantService.download(ORIGINAL, Optional.of(SPEC), request, accept);
+
+        // Assert
+        verify(storageService).downloadPhoto(webpVariant, request);
+        verify(storageService, never()).downloadPhoto(ORIGINAL);
+    }
+
+    @Test
+    void download_WithRealJpegAndWebpAccept_ShouldServeConvertedWebp(@TempDir Path root) throws IOException {
+        // Arrange: storage local de verdade, com o writer de WebP do classpath e a fila convertendo na hora
+        LocalStorageService storage = new LocalStorageService(new PhotoResponses(60), root.toString(),
+                "http://localhost:8080", "test-signing-key");
+        storage.loadIndex();
+        byte[] original = gradientJpeg(640, 480);
+        storage.uploadPhoto(ORIGINAL, original, "image/jpeg");
+        PhotoVariantService service = new PhotoVariantService(storage, new ImageResizer(0.85f, 40_000_000),
+                new PhotoFormatNegotiator(true, List.of("image/avif", "image/webp")), precomputeQueue);
+        doAnswer(invocation -> service.convert(invocation.getArgument(0), invocation.getArgument(1)))
+                .when(precomputeQueue).submitConversion(ORIGINAL, ".webp");
+        PhotoDownloadRequest request = PhotoDownloadRequest.unconditional();
+        List<MediaType> accept = MediaType.parseMediaTypes("image/avif,image/webp,image/*");
+
+        // Act
+        ResponseEntity<InputStreamResource> first = service.download(ORIGINAL, Optional.empty(), request, accept);
+        ResponseEntity<InputStreamResource> converted = service.download(ORIGINAL, Optional.empty(), request, accept);
+
+        // Assert: o primeiro pedido recebe o original e agenda a conversão; o seguinte já recebe WebP
+        assertEquals(MediaType.IMAGE_JPEG, first.getHeaders().getContentType());
+        assertEquals(List.of(HttpHeaders.ACCEPT), first.getHeaders().getVary());
+        assertEquals(HttpStatus.OK, converted.getStatusCode());
+        assertEquals(MediaType.parseMediaType("image/webp"), converted.getHeaders().getContentType());
+        assertEquals(List.of(HttpHeaders.ACCEPT), converted.getHeaders().getVary());
+        byte[] webp;
+        try (InputStream stream = converted.getBody().getInputStream()) {
+            webp = stream.readAllBytes();
+        }
+        assertEquals("WEBP", new String(webp, 8, 4, StandardCharsets.US_ASCII));
+        assertTrue(webp.length < original.length);
+        assertEquals(640, ImageIO.read(new ByteArrayInputStream(webp)).getWidth());
+    }
+
+    @Test
+    void invalidate_ShouldDeleteAllVariantsOfThePhoto() {
+        // Arrange
+        when(storageService.streamPhotos("variants/users/123/photo.jpg/"))
+                .thenReturn(Stream.of(VARIANT, "variants/users/123/photo.jpg/w256-h256-cover.jpg"));
+
+        // Act
+        variantService.invalidate(ORIGINAL);
+
+        // Assert
+        verify(storageService).deletePhotos(List.of(VARIANT, "variants/users/123/photo.jpg/w256-h256-cover.jpg"));
+    }
+
+    @Test
+    void invalidateAll_ShouldDeleteOnlyVariantsOfTheGivenPhotosInOneBatch() {
+        // Arrange
+        when(storageService.streamPhotos("variants/users/123/"))
+                .thenReturn(Stream.of(VARIANT, "variants/users/123/other.jpg/w64-h64-cover.jpg"));
+
+        // Act
+        variantService.invalidateAll("users/123/", List.of(ORIGINAL));
+
+        // Assert
+        verify(storageService).deletePhotos(List.of(VARIANT));
+    }
+
+    @Test
+    void invalidateAll_WhenBackendListsOneLevelAtATime_ShouldStillFindTheVariants() {
+        // Arrange
+        MinioService minio = spy(MinioListing.service(List.of(ORIGINAL, VARIANT,
+                "variants/users/123/photo.jpg/w256-h256-cover.jpg", "variants/users/123/other.jpg/w64-h64-cover.jpg")));
+        doReturn(Map.of()).when(minio).deletePhotos(anyCollection());
+        PhotoVariantService service = new PhotoVariantService(minio, new ImageResizer(0.85f, 40_000_000),
+                new PhotoFormatNegotiator(true, List.of("image/webp")), precomputeQueue);
+
+        // Act
+        service.invalidateAll("users/123/", List.of(ORIGINAL));
+
+        // Assert
+        verify(minio).deletePhotos(List.of("variants/users/123/photo.jpg/w256-h256-cover.jpg", VARIANT));
+    }
+
+    // Degradê com um pouco de textura: um JPEG de tamanho realista, diferente de uma imagem lisa
+    private byte[] gradientJpeg(int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                image.setRGB(x, y, (x * 255 / width) << 16 | (y * 255 / height) << 8 | ((x + y) % 32) * 8);
+            }
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpeg", output);
+        return output.toByteArray();
+    }
+
+    private byte[] jpeg(int width, int height) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "jpeg", output);
+        return output.toByteArray();
+    }
+}
@@ -0,0 +1,98 @@
+package br.com.amooora.users.service;
+
+import br.com.amooora.users.service.storage.AsyncStorageService;
+import br.com.amooora.users.service.storage.StorageService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserAvatarLocatorTest {
+
+    @Mock
+    private StorageService storageService;
+
+    private UserAvatarLocator avatarLocator;
+
+    @BeforeEach
+    void setUp() {
+        avatarLocator = new UserAvatarLocator(new AsyncStorageService(storageService, 16), 100, 300, 60);
+    }
+
+    @Test
+    void findAvatar_WhenCalledTwice_ShouldProbeStorageOnlyOnce() {
+        // Arrange
+        when(storageService.photoExists(anyString())).thenReturn(false);
+        when(storageService.photoExists("users/123/avatar.webp")).thenReturn(true);
+
+        // Act
+        Optional<String> first = avatarLocator.findAvatar("123");
+        Optional<String> second = avatarLocator.findAvatar("123");
+
+        // Assert
+        assertEquals(Optional.of("users/123/avatar.webp"), first);
+        assertEquals(first, second);
+        verify(storageService, times(4)).photoExists(anyString());
+    }
+
+    @Test
+    void findAvatar_WhenUserHasNoAvatar_ShouldCacheNegativeResult() {
+        // Arrange
+        when(storageService.photoExists(anyString())).thenReturn(false);
+
+        // Act
+        avatarLocator.findAvatar("123");
+        Optional<String> result = avatarLocator.findAvatar("123");
+
+        // Assert
+        assertTrue(result.isEmpty());
+        verify(storageService, times(4)).photoExists(anyString());
+    }
+
+    @Test
+    void findAvatar_WhenSeveralExtensionsExist_ShouldPreferFirstInOrder() {
+        // Arrange
+        when(storageService.photoExists(anyString())).thenReturn(false);
+        when(storageService.photoExists("users/123/avatar.png")).thenReturn(true);
+        when(storageService.photoExists("users/123/avatar.jpeg")).thenReturn(true);
+
+        // Act & Assert
+        assertEquals(Optional.of("users/123/avatar.jpeg"), avatarLocator.findAvatar("123"));
+    }
+
+    @Test
+    void findAvatar_WhenStorageFails_ShouldNotCacheFailure() {
+        // Arrange
+        when(storageService.photoExists(anyString()))
+                .thenThrow(new RuntimeException("storage indisponível"))
+                .thenReturn(false);
+
+        // Act & Assert
+        RuntimeException error = assertThrows(RuntimeException.class, () -> avatarLocator.findAvatar("123"));
+        assertEquals("storage indisponível", error.getMessage());
+        assertTrue(avatarLocator.findAvatar("123").isEmpty());
+    }
+
+    @Test
+    void evict_ShouldForceNewLookup() {
+        // Arrange
+        when(storageService.photoExists(anyString())).thenReturn(false);
+        avatarLocator.findAvatar("123");
+        when(storageService.photoExists("users/123/avatar.jpg")).thenReturn(true);
+
+        // Act
+        avatarLocator.evict("123");
+        Optional<String> result = avatarLocator.findAvatar("123");
+
+        // Assert
+        assertEquals(Optional.of("users/123/avatar.jpg"), result);
+    }
+}
@@ -0,0 +1,69 @@
+package br.com.amooora.users.service;
+
+import br.com.amooora.users.database.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.DefaultApplicationArguments;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserEmailBackfillTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @InjectMocks
+    private UserEmailBackfill backfill;
+
+    @Test
+    void run_ShouldNormalizeEveryIdRangeAndComplete() {
+        // Arrange
+        when(userRepository.findMaxId()).thenReturn(Optional.of(2500L));
+        when(userRepository.normalizeEmails(anyLong(), anyLong())).thenReturn(1000, 1000, 499);
+        when(userRepository.countByEmailNormalizedIsNullAndEmailIsNotNull()).thenReturn(0L);
+
+        // Act
+        backfill.run(new DefaultApplicationArguments());
+
+        // Assert
+        verify(userRepository).normalizeEmails(0, 1000);
+        verify(userRepository).normalizeEmails(1000, 2000);
+        verify(userRepository).normalizeEmails(2000, 3000);
+        assertTrue(backfill.isComplete());
+    }
+
+    @Test
+    void run_WithCollidingEmails_ShouldStayIncomplete() {
+        // Arrange
+        when(userRepository.findMaxId()).thenReturn(Optional.of(10L));
+        when(userRepository.normalizeEmails(0, 1000)).thenReturn(9);
+        when(userRepository.countByEmailNormalizedIsNullAndEmailIsNotNull()).thenReturn(1L);
+
+        // Act
+        backfill.run(new DefaultApplicationArguments());
+
+        // Assert
+        assertFalse(backfill.isComplete());
+    }
+
+    @Test
+    void run_WhenDatabaseFails_ShouldStayIncomplete() {
+        // Arrange
+        when(userRepository.findMaxId()).thenReturn(Optional.of(10L));
+        when(userRepository.normalizeEmails(0, 1000)).thenThrow(new RuntimeException("timeout"));
+
+        // Act
+        backfill.run(new DefaultApplicationArguments());
+
+        // Assert
+        assertFalse(backfill.isComplete());
+    }
+}
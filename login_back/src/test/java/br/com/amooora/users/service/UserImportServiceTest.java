@@ -0,0 +1,123 @@
+package br.com.amooora.users.service;
+
+import br.com.amooora.users.database.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserImportServiceTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private UserRepository userRepository;
+
+    private UserImportService importService;
+
+    @BeforeEach
+    void setUp() {
+        importService = new UserImportService(jdbcTemplate, userRepository,
+                new ObjectMapper().registerModule(new JavaTimeModule()), 2);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void importUsers_WithNdjson_ShouldInsertInBatchesAndReportInvalidRows() {
+        // Arrange
+        String ndjson = json("ana@amooora.com.br") + "\n"
+                + "{\"name\":\"Sem email\"}\n"
+                + json("bia@amooora.com.br") + "\n"
+                + "\n"
+                + json("Ana@Amooora.com.br ") + "\n"
+                + json("cris@amooora.com.br") + "\n";
+        when(userRepository.findRegisteredEmails(anyCollection())).thenReturn(List.of());
+
+        // Act
+        UserImportService.ImportReport report = importService.importUsers(stream(ndjson), UserImportService.Format.NDJSON);
+
+        // Assert
+        assertEquals(3, report.imported());
+        assertEquals(2, report.failed());
+        assertEquals(List.of(new UserImportService.RowError(2, "Campo obrigatório: email"),
+                new UserImportService.RowError(5, "E-mail já cadastrado")), report.errors());
+        ArgumentCaptor<List<Object[]>> batches = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), batches.capture());
+        assertEquals(2, batches.getAllValues().get(0).size());
+        assertEquals("bia@amooora.com.br", batches.getAllValues().get(0).get(1)[2]);
+        assertEquals(1, batches.getAllValues().get(1).size());
+    }
+
+    @Test
+    void importUsers_WithCsv_ShouldParseQuotedFieldsAndSkipRegisteredEmails() {
+        // Arrange
+        String csv = "name,email,phone_number,cep,birthday,biography\n"
+                + "Ana,ana@amooora.com.br,11999999999,01001000,01/02/1990,\"Oi, eu sou a \"\"Ana\"\"\"\n"
+                + "Bia,bia@amooora.com.br,11999999999,01001000,1990-02-01,\n"
+                + "Cris,cris@amooora.com.br,11999999999,01001000,01/02/1990,\n";
+        when(userRepository.findRegisteredEmails(anyCollection())).thenReturn(List.of("cris@amooora.com.br"));
+
+        // Act
+        UserImportService.ImportReport report = importService.importUsers(stream(csv), UserImportService.Format.CSV);
+
+        // Assert
+        assertEquals(1, report.imported());
+        assertEquals(List.of(new UserImportService.RowError(3, "Data de nascimento inválida, use dd/MM/yyyy"),
+                new UserImportService.RowError(4, "E-mail já cadastrado")), report.errors());
+        verify(jdbcTemplate).batchUpdate(anyString(), argThat((List<Object[]> rows) ->
+                rows.size() == 1 && "Oi, eu sou a \"Ana\"".equals(rows.get(0)[6])));
+    }
+
+    @Test
+    void importUsers_WhenBatchFails_ShouldInsertRowByRow() {
+        // Arrange
+        String ndjson = json("ana@amooora.com.br") + "\n" + json("bia@amooora.com.br") + "\n";
+        when(userRepository.findRegisteredEmails(anyCollection())).thenReturn(List.of());
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenThrow(new DuplicateKeyException("duplicado"));
+        when(jdbcTemplate.update(anyString(), any(Object[].class)))
+                .thenReturn(1)
+                .thenThrow(new DuplicateKeyException("Duplicate entry 'bia@amooora.com.br'"));
+
+        // Act
+        UserImportService.ImportReport report = importService.importUsers(stream(ndjson), UserImportService.Format.NDJSON);
+
+        // Assert
+        assertEquals(1, report.imported());
+        assertEquals(1, report.failed());
+        assertEquals(2, report.errors().get(0).line());
+    }
+
+    @Test
+    void importUsers_WithCsvMissingRequiredColumns_ShouldThrowException() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class,
+                () -> importService.importUsers(stream("name,email\n"), UserImportService.Format.CSV));
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    private String json(String email) {
+        return "{\"name\":\"Ana\",\"email\":\"" + email + "\",\"phone_number\":\"11999999999\","
+                + "\"cep\":\"01001000\",\"birthday\":\"01/02/1990\"}";
+    }
+
+    private InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,204 @@
+package br.com.amooora.users.service;
+
+import br.com.amooora.users.database.model.UserPhoto;
+import br.com.amooora.users.database.repository.UserPhotoRepository;
+import br.com.amooora.users.dto.PhotoMetadata;
+import br.com.amooora.users.dto.PhotoPage;
+import br.com.amooora.users.service.storage.StorageService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserPhotoManifestTest {
+
+    private static final String USER_ID = "123";
+
+    @Mock
+    private UserPhotoRepository repository;
+
+    @Mock
+    private StorageService backend;
+
+    private UserPhotoManifest manifest;
+
+    @BeforeEach
+    void setUp() {
+        manifest = new UserPhotoManifest(repository, backend, true);
+    }
+
+    @Test
+    void listPhotos_BeforeFirstReconcile_ShouldUseStorageListing() {
+        // Arrange
+        when(backend.listPhotos("users/123/", 2, null))
+                .thenReturn(new PhotoPage(List.of("users/123/a.jpg", "users/123/b.jpg"), "users/123/b.jpg"));
+
+        // Act
+        PhotoPage page = manifest.listPhotos(USER_ID, 2, null);
+
+        // Assert
+        assertEquals(List.of("a.jpg", "b.jpg"), page.photos());
+        assertEquals("b.jpg", page.nextCursor());
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    void listPhotos_WithCursorAcrossFirstReconcile_ShouldContinueAfterSameName() {
+        // Arrange
+        when(backend.listPhotos("users/123/", 2, null))
+                .thenReturn(new PhotoPage(List.of("users/123/a.jpg", "users/123/b.jpg"), "users/123/b.jpg"));
+        when(backend.listPhotos("users/123/", 2, "users/123/b.jpg"))
+                .thenReturn(new PhotoPage(List.of("users/123/c.jpg"), null));
+        when(repository.findByUserIdAndNameGreaterThanOrderByNameAsc(USER_ID, "b.jpg", Limit.of(3)))
+                .thenReturn(List.of(photo("c.jpg")));
+
+        // Act: o mesmo cursor antes da reconciliação (storage) e depois dela (manifesto)
+        String cursor = manifest.listPhotos(USER_ID, 2, null).nextCursor();
+        PhotoPage fromStorage = manifest.listPhotos(USER_ID, 2, cursor);
+        reconcileEmptyBucket();
+        PhotoPage fromManifest = manifest.listPhotos(USER_ID, 2, cursor);
+
+        // Assert
+        assertEquals(List.of("c.jpg"), fromStorage.photos());
+        assertEquals(List.of("c.jpg"), fromManifest.photos());
+    }
+
+    @Test
+    void listPhotos_AfterReconcile_ShouldPageByNameFromManifest() {
+        // Arrange
+        reconcileEmptyBucket();
+        when(repository.findByUserIdAndNameGreaterThanOrderByNameAsc(USER_ID, "a.jpg", Limit.of(3)))
+                .thenReturn(List.of(photo("b.jpg"), photo("c.jpg"), photo("d.jpg")));
+
+        // Act
+        PhotoPage page = manifest.listPhotos(USER_ID, 2, "a.jpg");
+
+        // Assert
+        assertEquals(List.of("b.jpg", "c.jpg"), page.photos());
+        assertEquals("c.jpg", page.nextCursor());
+        verify(backend, never()).listPhotos(anyString(), anyInt(), any());
+    }
+
+    @Test
+    void recordUpload_ShouldSaveStorageMetadata() {
+        // Arrange
+        when(backend.stat("users/123/photo.jpg")).thenReturn(Optional.of(
+                new PhotoMetadata("bucket", "users/123/photo.jpg", 42L, "image/jpeg", null, "\"abc\"")));
+        when(repository.findByUserIdAndName(USER_ID, "photo.jpg")).thenReturn(Optional.empty());
+
+        // Act
+        manifest.recordUpload("users/123/photo.jpg");
+
+        // Assert
+        ArgumentCaptor<UserPhoto> saved = ArgumentCaptor.forClass(UserPhoto.class);
+        verify(repository).save(saved.capture());
+        assertEquals(USER_ID, saved.getValue().getUserId());
+        assertEquals("photo.jpg", saved.getValue().getName());
+        assertEquals(42L, saved.getValue().getSize());
+        assertEquals("image/jpeg", saved.getValue().getContentType());
+        assertEquals("\"abc\"", saved.getValue().getEtag());
+        assertNotNull(saved.getValue().getUploadedAt());
+    }
+
+    @Test
+    void recordUpload_OutsideUserDirectory_ShouldBeIgnored() {
+        // Act
+        manifest.recordUpload("variants/users/123/photo.jpg/w64.jpg");
+
+        // Assert
+        verifyNoInteractions(backend, repository);
+    }
+
+    @Test
+    void recordDelete_ShouldGroupNamesByUser() {
+        // Act
+        manifest.recordDelete(List.of("users/123/a.jpg", "users/456/b.png", "users/123/c.jpg"));
+
+        // Assert
+        verify(repository).deleteByUserIdAndNameIn(USER_ID, List.of("a.jpg", "c.jpg"));
+        verify(repository).deleteByUserIdAndNameIn("456", List.of("b.png"));
+    }
+
+    @Test
+    void reconcile_ShouldAddMissingAndRemoveStaleEntries() {
+        // Arrange: o bucket é listado como no MinIO, por prefixo e com subpastas
+        MinioService minio = spy(MinioListing.service(List.of(
+                "users/123/kept.jpg", "users/123/new.jpg", "users/789/other.jpg", "variants/users/123/kept.jpg/w64.jpg")));
+        UserPhotoManifest manifest = new UserPhotoManifest(repository, minio, true);
+        when(repository.findByUserIdOrderByNameAsc(USER_ID))
+                .thenReturn(List.of(photo("kept.jpg"), photo("gone.jpg")));
+        when(repository.findByUserIdOrderByNameAsc("789")).thenReturn(List.of(photo("other.jpg")));
+        when(repository.findDistinctUserIds()).thenReturn(List.of(USER_ID, "456", "789"));
+        when(repository.findByUserIdOrderByNameAsc("456")).thenReturn(List.of(photo("old.jpg")));
+        doReturn(Optional.of(new PhotoMetadata("bucket", "users/123/new.jpg", 10L, "image/jpeg", null, "\"new\"")))
+                .when(minio).stat("users/123/new.jpg");
+        when(repository.findByUserIdAndName(USER_ID, "new.jpg")).thenReturn(Optional.empty());
+
+        // Act
+        manifest.reconcile();
+
+        // Assert
+        verify(repository).deleteByUserIdAndNameIn(USER_ID, List.of("gone.jpg"));
+        verify(repository).deleteByUserIdAndNameIn("456", List.of("old.jpg"));
+        verify(repository, never()).deleteByUserIdAndNameIn(eq("789"), anyList());
+        verify(repository).save(argThat(photo -> "new.jpg".equals(photo.getName())));
+        assertTrue(manifest.isReady());
+    }
+
+    @Test
+    void reconcile_WhenListingFindsNoUsers_ShouldKeepManifestAndStayNotReady() {
+        // Arrange: só subpastas no LIST, sem nenhuma foto
+        when(backend.streamPhotos("users/")).thenReturn(Stream.empty());
+        when(repository.findDistinctUserIds()).thenReturn(List.of(USER_ID));
+
+        // Act
+        manifest.reconcile();
+
+        // Assert
+        verify(repository, never()).deleteByUserIdAndNameIn(anyString(), anyList());
+        assertFalse(manifest.isReady());
+    }
+
+    @Test
+    void reconcile_ShouldKeepEntriesRecordedDuringTheScan() {
+        // Arrange
+        UserPhoto recent = photo("recent.jpg");
+        recent.setUploadedAt(Instant.now().plusSeconds(60));
+        when(backend.streamPhotos("users/")).thenReturn(Stream.of("users/456/photo.jpg"));
+        when(repository.findByUserIdOrderByNameAsc("456")).thenReturn(List.of());
+        when(backend.stat("users/456/photo.jpg")).thenReturn(Optional.empty());
+        when(repository.findDistinctUserIds()).thenReturn(List.of(USER_ID));
+        when(repository.findByUserIdOrderByNameAsc(USER_ID)).thenReturn(List.of(recent));
+
+        // Act
+        manifest.reconcile();
+
+        // Assert
+        verify(repository, never()).deleteByUserIdAndNameIn(anyString(), anyList());
+    }
+
+    private void reconcileEmptyBucket() {
+        when(backend.streamPhotos("users/")).thenReturn(Stream.empty());
+        when(repository.findDistinctUserIds()).thenReturn(List.of());
+        manifest.reconcile();
+    }
+
+    private UserPhoto photo(String name) {
+        UserPhoto photo = new UserPhoto(USER_ID, name);
+        photo.setUploadedAt(Instant.now().minusSeconds(3600));
+        return photo;
+    }
+}
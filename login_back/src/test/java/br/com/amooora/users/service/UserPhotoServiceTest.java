@@ -1,16 +1,19 @@
 package br.com.amooora.users.service;
 
+import br.com.amooora.users.database.repository.UserPhotoRepository;
 import br.com.amooora.users.dto.PhotoMetadata;
+import br.com.amooora.users.service.storage.AsyncStorageService;
 import br.com.amooora.users.service.storage.StorageService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.time.ZonedDateTime;
 import java.util.Arrays;
 import java.util.List;
@@ -25,10 +28,18 @@ class UserPhotoServiceTest {
     @Mock
     private StorageService storageService;
 
+    @Mock
+    private PhotoVariantService variantService;
+
+    @Mock
+    private VariantPrecomputeQueue precomputeQueue;
+
+    @Mock
+    private UserPhotoRepository photoRepository;
+
     @Mock
     private MultipartFile mockFile;
 
-    @InjectMocks
     private UserPhotoService userPhotoService;
 
     private static final String USER_ID = "123";
@@ -38,15 +49,20 @@ class UserPhotoServiceTest {
 
     @BeforeEach
     void setUp() {
-        when(mockFile.getOriginalFilename()).thenReturn(PHOTO_NAME);
-        when(mockFile.getContentType()).thenReturn(CONTENT_TYPE);
+        userPhotoService = new UserPhotoService(
+                storageService, new UserAvatarLocator(new AsyncStorageService(storageService, 16), 100, 300, 60), variantService, precomputeQueue,
+                // Antes da primeira reconciliação o manifesto lista pelo storage
+                new UserPhotoManifest(photoRepository, storageService, true));
+        lenient().when(mockFile.getOriginalFilename()).thenReturn(PHOTO_NAME);
+        lenient().when(mockFile.getContentType()).thenReturn(CONTENT_TYPE);
     }
 
     @Test
     void uploadUserPhoto_WithAutoGeneratedName_ShouldUploadSuccessfully() throws IOException {
         // Arrange
-        when(mockFile.getBytes()).thenReturn(PHOTO_DATA);
-        when(storageService.uploadPhoto(anyString(), any(byte[].class), eq(CONTENT_TYPE)))
+        when(mockFile.getInputStream()).thenReturn(new ByteArrayInputStream(PHOTO_DATA));
+        when(mockFile.getSize()).thenReturn((long) PHOTO_DATA.length);
+        when(storageService.uploadPhoto(anyString(), any(InputStream.class), anyLong(), eq(CONTENT_TYPE)))
                 .thenReturn("users/123/uuid-generated.jpg");
 
         // Act
@@ -57,7 +73,8 @@ class UserPhotoServiceTest {
         assertTrue(result.endsWith(".jpg"));
         verify(storageService).uploadPhoto(
                 argThat(path -> path.startsWith("users/123/")),
-                eq(PHOTO_DATA),
+                any(InputStream.class),
+                eq((long) PHOTO_DATA.length),
                 eq(CONTENT_TYPE)
         );
     }
@@ -65,8 +82,9 @@ class UserPhotoServiceTest {
     @Test
     void uploadUserPhoto_WithSpecificName_ShouldUploadWithGivenName() throws IOException {
         // Arrange
-        when(mockFile.getBytes()).thenReturn(PHOTO_DATA);
-        when(storageService.uploadPhoto(anyString(), any(byte[].class), eq(CONTENT_TYPE)))
+        when(mockFile.getInputStream()).thenReturn(new ByteArrayInputStream(PHOTO_DATA));
+        when(mockFile.getSize()).thenReturn((long) PHOTO_DATA.length);
+        when(storageService.uploadPhoto(anyString(), any(InputStream.class), anyLong(), eq(CONTENT_TYPE)))
                 .thenReturn("users/123/custom-photo.jpg");
 
         // Act
@@ -76,7 +94,8 @@ class UserPhotoServiceTest {
         assertEquals("custom-photo.jpg", result);
         verify(storageService).uploadPhoto(
                 eq("users/123/custom-photo.jpg"),
-                eq(PHOTO_DATA),
+                any(InputStream.class),
+                eq((long) PHOTO_DATA.length),
                 eq(CONTENT_TYPE)
         );
     }
@@ -84,8 +103,9 @@ class UserPhotoServiceTest {
     @Test
     void uploadUserAvatar_ShouldUploadWithAvatarName() throws IOException {
         // Arrange
-        when(mockFile.getBytes()).thenReturn(PHOTO_DATA);
-        when(storageService.uploadPhoto(anyString(), any(byte[].class), eq(CONTENT_TYPE)))
+        when(mockFile.getInputStream()).thenReturn(new ByteArrayInputStream(PHOTO_DATA));
+        when(mockFile.getSize()).thenReturn((long) PHOTO_DATA.length);
+        when(storageService.uploadPhoto(anyString(), any(InputStream.class), anyLong(), eq(CONTENT_TYPE)))
                 .thenReturn("users/123/avatar.jpg");
 
         // Act
@@ -95,14 +115,18 @@ class UserPhotoServiceTest {
         assertEquals("users/123/avatar.jpg", result);
         verify(storageService).uploadPhoto(
                 eq("users/123/avatar.jpg"),
-                eq(PHOTO_DATA),
+                any(InputStream.class),
+                eq((long) PHOTO_DATA.length),
                 eq(CONTENT_TYPE)
         );
+        verify(variantService).invalidate("users/123/avatar.jpg");
+        verify(precomputeQueue).submit("users/123/avatar.jpg", VariantPrecomputeQueue.Kind.AVATAR);
     }
 
     @Test
     void getUserAvatarUrl_WhenAvatarExists_ShouldReturnUrl() {
-        // Arrange
+        // Arrange: as extensões do avatar são consultadas em paralelo
+        when(storageService.photoExists(anyString())).thenReturn(false);
         when(storageService.photoExists("users/123/avatar.jpg")).thenReturn(true);
         when(storageService.getPresignedDownloadUrl("users/123/avatar.jpg", 60))
                 .thenReturn("https://storage.example.com/avatar.jpg?token=xyz");
@@ -139,7 +163,7 @@ class UserPhotoServiceTest {
                 "users/123/photo2.png",
                 "users/123/avatar.jpg"
         );
-        when(storageService.listPhotos("users/123/")).thenReturn(fullPaths);
+        when(storageService.streamPhotos("users/123/")).thenReturn(fullPaths.stream());
 
         // Act
         List<String> result = userPhotoService.listUserPhotos(USER_ID);
@@ -154,7 +178,8 @@ class UserPhotoServiceTest {
 
     @Test
     void userHasAvatar_WhenAvatarExists_ShouldReturnTrue() {
-        // Arrange
+        // Arrange: as extensões do avatar são consultadas em paralelo
+        when(storageService.photoExists(anyString())).thenReturn(false);
         when(storageService.photoExists("users/123/avatar.jpg")).thenReturn(true);
 
         // Act
@@ -198,7 +223,7 @@ class UserPhotoServiceTest {
                 "users/123/photo2.jpg",
                 "users/123/photo3.jpg"
         );
-        when(storageService.listPhotos("users/123/")).thenReturn(photos);
+        when(storageService.streamPhotos("users/123/")).thenReturn(photos.stream());
 
         // Act
         int result = userPhotoService.countUserPhotos(USER_ID);
@@ -242,7 +267,7 @@ class UserPhotoServiceTest {
                 "users/123/photo1.jpg",
                 "users/123/photo2.jpg"
         );
-        when(storageService.listPhotos("users/123/")).thenReturn(photos);
+        when(storageService.streamPhotos("users/123/")).thenReturn(photos.stream());
         when(storageService.getPresignedDownloadUrl(anyString(), eq(60)))
                 .thenReturn("https://storage.example.com/photo.jpg?token=xyz");
 
@@ -0,0 +1,160 @@
+package br.com.amooora.users.service;
+
+import br.com.amooora.users.dto.ResizeSpec;
+import br.com.amooora.users.dto.VariantJobStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class VariantPrecomputeQueueTest {
+
+    private static final String PHOTO = "users/123/photo.jpg";
+
+    @Mock
+    private PhotoVariantService variantService;
+
+    private VariantPrecomputeQueue queue;
+
+    @AfterEach
+    void tearDown() {
+        queue.shutdown();
+    }
+
+    @Test
+    void submit_ShouldGenerateConfiguredPresetsInBackground() throws Exception {
+        // Arrange
+        queue = new VariantPrecomputeQueue(variantService, List.of("thumb", "medium"), List.of("avatar"), 1, 10, 3, 1);
+        when(variantService.generate(eq(PHOTO), any(ResizeSpec.class))).thenReturn(true);
+
+        // Act
+        queue.submit(PHOTO, VariantPrecomputeQueue.Kind.PHOTO);
+
+        // Assert
+        VariantJobStatus status = awaitFinished(PHOTO);
+        assertEquals(VariantJobStatus.State.DONE, status.state());
+        assertEquals(List.of("w256-h256-cover", "w1024-h1024-contain"), status.variants());
+        verify(variantService).generate(PHOTO, new ResizeSpec(256, 256, ResizeSpec.Fit.COVER));
+        verify(variantService).generate(PHOTO, new ResizeSpec(1024, 1024, ResizeSpec.Fit.CONTAIN));
+    }
+
+    @Test
+    void submit_WhenGenerationFails_ShouldRetryThenMarkFailed() throws Exception {
+        // Arrange
+        queue = new VariantPrecomputeQueue(variantService, List.of("thumb"), List.of(), 1, 10, 3, 1);
+        when(variantService.generate(eq(PHOTO), any(ResizeSpec.class)))
+                .thenThrow(new RuntimeException("storage indisponível"));
+
+        // Act
+        queue.submit(PHOTO, VariantPrecomputeQueue.Kind.PHOTO);
+
+        // Assert
+        VariantJobStatus status = awaitFinished(PHOTO);
+        assertEquals(VariantJobStatus.State.FAILED, status.state());
+        assertEquals(3, status.attempts());
+        assertEquals("storage indisponível", status.error());
+        verify(variantService, times(3)).generate(eq(PHOTO), any(ResizeSpec.class));
+    }
+
+    @Test
+    void submit_WhenQueueIsFull_ShouldRejectWithoutBlocking() throws Exception {
+        // Arrange: um worker ocupado e fila de uma posição
+        queue = new VariantPrecomputeQueue(variantService, List.of("thumb"), List.of(), 1, 1, 1, 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(variantService.generate(anyString(), any(ResizeSpec.class))).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return true;
+        });
+
+        // Act
+        queue.submit("users/123/a.jpg", VariantPrecomputeQueue.Kind.PHOTO);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        VariantJobStatus queued = queue.submit("users/123/b.jpg", VariantPrecomputeQueue.Kind.PHOTO);
+        VariantJobStatus rejected = queue.submit("users/123/c.jpg", VariantPrecomputeQueue.Kind.PHOTO);
+        release.countDown();
+
+        // Assert
+        assertEquals(VariantJobStatus.State.QUEUED, queued.state());
+        assertEquals(VariantJobStatus.State.REJECTED, rejected.state());
+        assertEquals(VariantJobStatus.State.REJECTED, queue.status("users/123/c.jpg").orElseThrow().state());
+    }
+
+    @Test
+    void submit_WithoutConfiguredPresets_ShouldDoNothing() {
+        // Arrange
+        queue = new VariantPrecomputeQueue(variantService, List.of(), List.of(), 1, 10, 3, 1);
+
+        // Act & Assert
+        assertNull(queue.submit(PHOTO, VariantPrecomputeQueue.Kind.PHOTO));
+        assertTrue(queue.status(PHOTO).isEmpty());
+        verifyNoInteractions(variantService);
+    }
+
+    @Test
+    void submitConversion_WhileQueued_ShouldConvertOnlyOnce() throws Exception {
+        // Arrange
+        queue = new VariantPrecomputeQueue(variantService, List.of(), List.of(), 1, 10, 3, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch converted = new CountDownLatch(1);
+        when(variantService.convert(PHOTO, ".webp")).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            converted.countDown();
+            return true;
+        });
+
+        // Act
+        queue.submitConversion(PHOTO, ".webp");
+        queue.submitConversion(PHOTO, ".webp");
+        release.countDown();
+
+        // Assert
+        assertTrue(converted.await(5, TimeUnit.SECONDS));
+        verify(variantService, timeout(5000).times(1)).convert(PHOTO, ".webp");
+    }
+
+    @Test
+    void submitConversion_WhenConversionFails_ShouldNotRetryOnEveryDownload() throws Exception {
+        // Arrange
+        queue = new VariantPrecomputeQueue(variantService, List.of(), List.of(), 1, 10, 3, 1);
+        CountDownLatch attempted = new CountDownLatch(1);
+        when(variantService.convert(PHOTO, ".webp")).thenAnswer(invocation -> {
+            attempted.countDown();
+            throw new RuntimeException("storage indisponível");
+        });
+
+        // Act
+        queue.submitConversion(PHOTO, ".webp");
+        assertTrue(attempted.await(5, TimeUnit.SECONDS));
+        queue.submitConversion(PHOTO, ".webp");
+
+        // Assert
+        verify(variantService, after(200).times(1)).convert(PHOTO, ".webp");
+    }
+
+    private VariantJobStatus awaitFinished(String objectName) throws InterruptedException {
+        Instant deadline = Instant.now().plus(Duration.ofSeconds(5));
+        while (Instant.now().isBefore(deadline)) {
+            VariantJobStatus status = queue.status(objectName).orElseThrow();
+            if (status.state() == VariantJobStatus.State.DONE || status.state() == VariantJobStatus.State.FAILED) {
+                return status;
+            }
+            Thread.sleep(10);
+        }
+        fail("Job de variantes não terminou: " + queue.status(objectName));
+        return null;
+    }
+}
@@ -0,0 +1,40 @@
+package br.com.amooora.users.service;
+
+import br.com.amooora.users.dto.ResizeSpec;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VariantSizePolicyTest {
+
+    private final VariantSizePolicy policy = new VariantSizePolicy(List.of(" W128-h128-cover ", ""));
+
+    @Test
+    void resolve_WithPresetOrItsDimensions_ShouldAllow() {
+        // Act
+        ResizeSpec byPreset = policy.resolve("thumb", null, null, null).orElseThrow();
+        ResizeSpec byDimensions = policy.resolve(null, 256, 256, "cover").orElseThrow();
+
+        // Assert
+        assertEquals(byPreset, byDimensions);
+    }
+
+    @Test
+    void resolve_WithConfiguredSize_ShouldAllow() {
+        assertEquals(new ResizeSpec(128, 128, ResizeSpec.Fit.COVER),
+                policy.resolve(null, 128, 128, "cover").orElseThrow());
+    }
+
+    @Test
+    void resolve_WithoutParameters_ShouldServeOriginal() {
+        assertTrue(policy.resolve(null, null, null, null).isEmpty());
+    }
+
+    @Test
+    void resolve_WithArbitrarySize_ShouldThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> policy.resolve(null, 300, null, null));
+        assertThrows(IllegalArgumentException.class, () -> policy.resolve(null, 128, 128, "fill"));
+    }
+}
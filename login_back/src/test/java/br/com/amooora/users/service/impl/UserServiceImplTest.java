@@ -0,0 +1,347 @@
+package br.com.amooora.users.service.impl;
+
+import br.com.amooora.users.database.model.User;
+import br.com.amooora.users.database.repository.UserRepository;
+import br.com.amooora.users.service.UserCache;
+import br.com.amooora.users.service.UserEmailBackfill;
+import br.com.amooora.users.service.UserService;
+import br.com.amooora.users.service.dto.UserDTO;
+import br.com.amooora.users.service.dto.UserPatchDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserServiceImplTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private UserEmailBackfill emailBackfill;
+
+    private SimpleMeterRegistry registry;
+    private UserServiceImpl userService;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        userService = new UserServiceImpl(userRepository, entityManager, emailBackfill,
+                new UserCache(registry, 100, 300));
+    }
+
+    @Test
+    void findPage_ShouldQueryAfterLastId() {
+        // Arrange
+        when(userRepository.findByIdGreaterThanOrderByIdAsc(10L, Limit.of(2))).thenReturn(List.of(user(11L)));
+
+        // Act
+        List<UserDTO> page = userService.findPage(10L, 2);
+
+        // Assert
+        assertEquals(List.of(11L), page.stream().map(UserDTO::id).toList());
+    }
+
+    @Test
+    void streamAll_ShouldDetachEachUserAndCloseStream() {
+        // Arrange
+        User first = user(1L);
+        User second = user(2L);
+        AtomicBoolean closed = new AtomicBoolean();
+        when(userRepository.streamAll()).thenReturn(Stream.of(first, second).onClose(() -> closed.set(true)));
+        List<Long> received = new ArrayList<>();
+
+        // Act
+        userService.streamAll(user -> received.add(user.id()));
+
+        // Assert
+        assertEquals(List.of(1L, 2L), received);
+        verify(entityManager).detach(first);
+        verify(entityManager).detach(second);
+        assertTrue(closed.get());
+    }
+
+    @Test
+    void findUserByEmail_ShouldLookUpNormalizedEmail() {
+        // Arrange
+        when(emailBackfill.isComplete()).thenReturn(true);
+        when(userRepository.findByEmailNormalized("ana@amooora.com.br")).thenReturn(Optional.of(user(1L)));
+
+        // Act
+        UserDTO found = userService.findUserByEmail("  Ana@Amooora.com.BR ");
+
+        // Assert
+        assertEquals(1L, found.id());
+        verify(userRepository, never()).findUnnormalizedByEmail(anyString());
+    }
+
+    @Test
+    void findUserByEmail_BeforeBackfillCompletes_ShouldAlsoMatchUnnormalizedRows() {
+        // Arrange
+        when(userRepository.findByEmailNormalized("ana@amooora.com.br")).thenReturn(Optional.empty());
+        when(emailBackfill.isComplete()).thenReturn(false);
+        when(userRepository.findUnnormalizedByEmail("ana@amooora.com.br")).thenReturn(List.of(user(1L)));
+
+        // Act & Assert
+        assertEquals(1L, userService.findUserByEmail("Ana@amooora.com.br").id());
+    }
+
+    @Test
+    void findUserByEmail_WithCollidingEmails_ShouldOnlyMatchExactEmail() {
+        // Arrange: o backfill deixou o segundo usuário sem a coluna, em conflito com o primeiro
+        User first = user(1L);
+        User second = user(2L);
+        second.setEmail("Ana@amooora.com.br");
+        when(emailBackfill.isComplete()).thenReturn(false);
+        when(userRepository.findByEmailNormalized("ana@amooora.com.br")).thenReturn(Optional.of(first));
+        when(userRepository.findUnnormalizedByEmail("ana@amooora.com.br")).thenReturn(List.of(second));
+
+        // Act & Assert
+        assertEquals(2L, userService.findUserByEmail("Ana@amooora.com.br").id());
+        assertEquals(1L, userService.findUserByEmail("ana@amooora.com.br").id());
+        assertThrows(RuntimeException.class, () -> userService.findUserByEmail("ANA@amooora.com.br"));
+    }
+
+    @Test
+    void findUserByEmail_WithWildcard_ShouldNotMatchOtherUsers() {
+        // Arrange
+        when(userRepository.findByEmailNormalized("%")).thenReturn(Optional.empty());
+        when(emailBackfill.isComplete()).thenReturn(true);
+
+        // Act & Assert
+        assertThrows(RuntimeException.class, () -> userService.findUserByEmail("%"));
+    }
+
+    @Test
+    void saveUser_WithRegisteredEmail_ShouldThrowException() {
+        // Arrange
+        when(userRepository.findByEmailNormalized("ana@amooora.com.br")).thenReturn(Optional.of(user(1L)));
+        UserDTO newUser = new UserDTO(null, "Ana", "ANA@amooora.com.br", "11999999999", "01001000",
+                LocalDate.of(1990, 2, 1), null, null, null);
+
+        // Act & Assert
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> userService.saveUser(newUser));
+        assertEquals("E-mail já cadastrado", exception.getMessage());
+        verify(userRepository, never()).save(any());
+    }
+
+    @Test
+    void findUserById_SecondRead_ShouldBeServedFromCache() {
+        // Arrange
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user(1L)));
+
+        // Act
+        userService.findUserById(1L);
+        userService.findUserById(1L);
+
+        // Assert
+        verify(userRepository, times(1)).findById(1L);
+        assertEquals(1, registry.get("cache.gets").tag("cache", "users.by-id").tag("result", "hit")
+                .functionCounter().count());
+    }
+
+    @Test
+    void findUserById_WhenEvictedDuringLoad_ShouldNotCacheStaleUser() {
+        // Arrange: a alteração de outra requisição é confirmada enquanto a leitura está no banco
+        UserCache cache = new UserCache(registry, 100, 300);
+        UserServiceImpl service = new UserServiceImpl(userRepository, entityManager, emailBackfill, cache);
+        User stale = user(1L);
+        User updated = user(1L);
+        updated.setName("Ana Maria");
+        when(userRepository.findById(1L))
+                .thenAnswer(invocation -> {
+                    cache.evict(1L);
+                    return Optional.of(stale);
+                })
+                .thenReturn(Optional.of(updated));
+
+        // Act
+        service.findUserById(1L);
+        UserDTO reloaded = service.findUserById(1L);
+
+        // Assert
+        assertEquals("Ana Maria", reloaded.name());
+        verify(userRepository, times(2)).findById(1L);
+    }
+
+    @Test
+    void findUserByEmail_AfterLookupById_ShouldNotHitDatabaseAgain() {
+        // Arrange
+        when(emailBackfill.isComplete()).thenReturn(true);
+        when(userRepository.findByEmailNormalized("ana@amooora.com.br")).thenReturn(Optional.of(user(1L)));
+        userService.findUserByEmail("ana@amooora.com.br");
+
+        // Act
+        UserDTO byId = userService.findUserById(1L);
+        UserDTO byEmail = userService.findUserByEmail("ANA@amooora.com.br");
+
+        // Assert
+        assertEquals(byId, byEmail);
+        verify(userRepository, never()).findById(anyLong());
+        verify(userRepository, times(1)).findByEmailNormalized("ana@amooora.com.br");
+    }
+
+    @Test
+    void updateUser_ShouldChangeLoadedEntityAndEvictCache() {
+        // Arrange
+        User stored = user(1L);
+        stored.setOpen_network(true);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(stored));
+        when(userRepository.saveAndFlush(stored)).thenAnswer(invocation -> {
+            stored.setVersion(1L);
+            return stored;
+        });
+        userService.findUserById(1L);
+        UserDTO changes = new UserDTO(1L, "Ana Maria", "ana@amooora.com.br", "11999999999", "01001000",
+                LocalDate.of(1990, 2, 1), "Oi", null, 0L);
+
+        // Act
+        UserDTO updated = userService.updateUser(changes);
+        UserDTO reloaded = userService.findUserById(1L);
+
+        // Assert
+        assertEquals(1L, updated.version());
+        assertEquals("Ana Maria", reloaded.name());
+        assertTrue(stored.isOpen_network());
+        verify(userRepository, times(3)).findById(1L);
+    }
+
+    @Test
+    void updateUser_WithStaleVersion_ShouldThrowConflictWithoutSaving() {
+        // Arrange
+        User stored = user(1L);
+        stored.setVersion(3L);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(stored));
+        UserDTO changes = new UserDTO(1L, "Ana Maria", "ana@amooora.com.br", "11999999999", "01001000",
+                LocalDate.of(1990, 2, 1), "Oi", null, 2L);
+
+        // Act & Assert
+        assertThrows(OptimisticLockingFailureException.class, () -> userService.updateUser(changes));
+        assertEquals("Ana", stored.getName());
+        verify(userRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void updateUser_WithoutVersion_ShouldUpdateAsLastWrite() {
+        // Arrange
+        User stored = user(1L);
+        stored.setVersion(3L);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(stored));
+        when(userRepository.findByEmailNormalized("ana@amooora.com.br")).thenReturn(Optional.of(stored));
+        when(userRepository.saveAndFlush(stored)).thenReturn(stored);
+        UserDTO changes = new UserDTO(1L, "Ana Maria", "ana@amooora.com.br", "11999999999", "01001000",
+                LocalDate.of(1990, 2, 1), "Oi", null, null);
+
+        // Act
+        UserDTO updated = userService.updateUser(changes);
+
+        // Assert
+        assertEquals("Ana Maria", updated.name());
+        assertEquals("Ana Maria", stored.getName());
+    }
+
+    @Test
+    void updateUser_WithEmailOfAnotherUser_ShouldThrowWithoutSaving() {
+        // Arrange
+        User stored = user(1L);
+        when(userRepository.findById(1L)).thenReturn(Optional.of(stored));
+        when(userRepository.findByEmailNormalized("bia@amooora.com.br")).thenReturn(Optional.of(user(2L)));
+        UserDTO changes = new UserDTO(1L, "Ana", " Bia@amooora.com.br", "11999999999", "01001000",
+                LocalDate.of(1990, 2, 1), null, null, 0L);
+
+        // Act & Assert
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> userService.updateUser(changes));
+        assertEquals("E-mail já cadastrado", exception.getMessage());
+        assertEquals("ana@amooora.com.br", stored.getEmail());
+        verify(userRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void deleteUser_ShouldEvictCachedUser() {
+        // Arrange
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user(1L))).thenReturn(Optional.empty());
+        when(userRepository.existsById(1L)).thenReturn(true);
+        userService.findUserById(1L);
+
+        // Act
+        userService.deleteUser(1L);
+
+        // Assert
+        assertThrows(RuntimeException.class, () -> userService.findUserById(1L));
+    }
+
+    @Test
+    void patchUser_ShouldRunSingleVersionedUpdate() {
+        // Arrange
+        EntityManager entityManager = mock(EntityManager.class, RETURNS_DEEP_STUBS);
+        UserServiceImpl service = new UserServiceImpl(userRepository, entityManager, emailBackfill,
+                new UserCache(registry, 100, 300));
+        when(entityManager.createQuery(any(CriteriaUpdate.class)).executeUpdate()).thenReturn(1);
+
+        // Act
+        UserService.PatchResult result = service.patchUser(patch(3L, "Oi"));
+
+        // Assert
+        assertEquals(UserService.PatchOutcome.UPDATED, result.outcome());
+        assertEquals(4L, result.version());
+        verify(userRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    void patchUser_WhenNoRowMatchesVersion_ShouldReportConflict() {
+        // Arrange
+        EntityManager entityManager = mock(EntityManager.class, RETURNS_DEEP_STUBS);
+        UserServiceImpl service = new UserServiceImpl(userRepository, entityManager, emailBackfill,
+                new UserCache(registry, 100, 300));
+        when(entityManager.createQuery(any(CriteriaUpdate.class)).executeUpdate()).thenReturn(0);
+        when(userRepository.existsById(1L)).thenReturn(true);
+
+        // Act
+        UserService.PatchResult result = service.patchUser(patch(2L, "Oi"));
+
+        // Assert
+        assertEquals(UserService.PatchOutcome.VERSION_CONFLICT, result.outcome());
+    }
+
+    @Test
+    void patchUser_WithoutChanges_ShouldThrowException() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> userService.patchUser(patch(2L, null)));
+        assertThrows(IllegalArgumentException.class, () -> userService.patchUser(
+                new UserPatchDTO(1L, 2L, " ", null, null, null, null, null, null, null)));
+    }
+
+    private UserPatchDTO patch(Long version, String biography) {
+        return new UserPatchDTO(1L, version, null, null, null, null, null, null, biography, null);
+    }
+
+    private User user(Long id) {
+        User user = new User("Ana", "ana@amooora.com.br", "11999999999", "01001000",
+                LocalDate.of(1990, 2, 1), null, null);
+        user.setId(id);
+        user.setVersion(0L);
+        return user;
+    }
+}
@@ -0,0 +1,87 @@
+package br.com.amooora.users.service.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AsyncStorageServiceTest {
+
+    @Mock
+    private StorageService storageService;
+
+    private AsyncStorageService asyncStorageService;
+
+    @AfterEach
+    void tearDown() {
+        asyncStorageService.shutdown();
+    }
+
+    @Test
+    void photoExists_ShouldRunOnVirtualThreads() {
+        // Arrange
+        asyncStorageService = new AsyncStorageService(storageService, 4);
+        AtomicInteger virtualCalls = new AtomicInteger();
+        when(storageService.photoExists(anyString())).thenAnswer(invocation -> {
+            if (Thread.currentThread().isVirtual()) {
+                virtualCalls.incrementAndGet();
+            }
+            return true;
+        });
+
+        // Act
+        boolean exists = asyncStorageService.photoExists("users/123/photo.jpg").join();
+
+        // Assert
+        assertTrue(exists);
+        assertEquals(1, virtualCalls.get());
+    }
+
+    @Test
+    void calls_ShouldNotExceedMaxConcurrency() {
+        // Arrange
+        asyncStorageService = new AsyncStorageService(storageService, 2);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        when(storageService.photoExists(anyString())).thenAnswer(invocation -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            inFlight.decrementAndGet();
+            return false;
+        });
+
+        // Act
+        List<CompletableFuture<Boolean>> calls = IntStream.range(0, 10)
+                .mapToObj(i -> asyncStorageService.photoExists("users/123/photo" + i + ".jpg"))
+                .toList();
+        calls.forEach(CompletableFuture::join);
+
+        // Assert
+        assertTrue(maxInFlight.get() <= 2);
+        verify(storageService, times(10)).photoExists(anyString());
+    }
+
+    @Test
+    void stat_WhenStorageFails_ShouldCompleteExceptionally() {
+        // Arrange
+        asyncStorageService = new AsyncStorageService(storageService, 4);
+        when(storageService.stat(anyString())).thenThrow(new RuntimeException("storage indisponível"));
+
+        // Act & Assert
+        CompletionException error = assertThrows(CompletionException.class,
+                () -> asyncStorageService.stat("users/123/photo.jpg").join());
+        assertEquals("storage indisponível", error.getCause().getMessage());
+    }
+}
@@ -0,0 +1,146 @@
+package br.com.amooora.users.service.storage;
+
+import br.com.amooora.users.dto.PhotoDownloadRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CachingStorageServiceTest {
+
+    private static final String AVATAR = "users/123/avatar.jpg";
+    private static final byte[] CONTENT = "avatar-content".getBytes();
+
+    @Mock
+    private StorageService delegate;
+
+    private CachingStorageService storageService;
+
+    @BeforeEach
+    void setUp() {
+        storageService = new CachingStorageService(delegate, new PhotoResponses(60), 1024, 1024 * 1024,
+                Duration.ofMinutes(5), true);
+    }
+
+    @Test
+    void downloadPhoto_SecondRead_ShouldBeServedFromMemory() throws IOException {
+        // Arrange
+        when(delegate.downloadPhoto(eq(AVATAR), any(PhotoDownloadRequest.class))).thenAnswer(invocation -> stored(CONTENT));
+
+        // Act
+        ResponseEntity<InputStreamResource> first = storageService.downloadPhoto(AVATAR);
+        ResponseEntity<InputStreamResource> second = storageService.downloadPhoto(AVATAR);
+
+        // Assert
+        assertArrayEquals(CONTENT, body(first));
+        assertArrayEquals(CONTENT, body(second));
+        assertEquals("\"etag123\"", second.getHeaders().getETag());
+        assertEquals(MediaType.IMAGE_JPEG, second.getHeaders().getContentType());
+        verify(delegate, times(1)).downloadPhoto(eq(AVATAR), any(PhotoDownloadRequest.class));
+    }
+
+    @Test
+    void downloadPhoto_WhenCachedAndNotModified_ShouldReturn304WithoutStorage() {
+        // Arrange
+        when(delegate.downloadPhoto(eq(AVATAR), any(PhotoDownloadRequest.class))).thenAnswer(invocation -> stored(CONTENT));
+        storageService.downloadPhoto(AVATAR);
+
+        // Act
+        ResponseEntity<InputStreamResource> response = storageService.downloadPhoto(AVATAR,
+                new PhotoDownloadRequest(List.of("\"etag123\""), null, List.of(), null));
+
+        // Assert
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        verify(delegate, times(1)).downloadPhoto(eq(AVATAR), any(PhotoDownloadRequest.class));
+    }
+
+    @Test
+    void downloadPhoto_WhenCachedWithRange_ShouldServeSlice() throws IOException {
+        // Arrange
+        when(delegate.downloadPhoto(eq(AVATAR), any(PhotoDownloadRequest.class))).thenAnswer(invocation -> stored(CONTENT));
+        storageService.downloadPhoto(AVATAR);
+
+        // Act
+        ResponseEntity<InputStreamResource> response = storageService.downloadPhoto(AVATAR,
+                new PhotoDownloadRequest(List.of(), null, List.of(HttpRange.createByteRange(0, 5)), null));
+
+        // Assert
+        assertEquals(HttpStatus.PARTIAL_CONTENT, response.getStatusCode());
+        assertEquals("bytes 0-5/" + CONTENT.length, response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+        assertArrayEquals("avatar".getBytes(), body(response));
+    }
+
+    @Test
+    void downloadPhoto_WithLargeObject_ShouldNotCache() {
+        // Arrange
+        byte[] large = new byte[2048];
+        when(delegate.downloadPhoto(eq(AVATAR), any(PhotoDownloadRequest.class))).thenAnswer(invocation -> stored(large));
+
+        // Act
+        storageService.downloadPhoto(AVATAR);
+        storageService.downloadPhoto(AVATAR);
+
+        // Assert
+        verify(delegate, times(2)).downloadPhoto(eq(AVATAR), any(PhotoDownloadRequest.class));
+    }
+
+    @Test
+    void uploadPhoto_ShouldInvalidateCachedObject() {
+        // Arrange
+        when(delegate.downloadPhoto(eq(AVATAR), any(PhotoDownloadRequest.class))).thenAnswer(invocation -> stored(CONTENT));
+        storageService.downloadPhoto(AVATAR);
+
+        // Act
+        storageService.uploadPhoto(AVATAR, "new".getBytes(), MediaType.IMAGE_JPEG_VALUE);
+        storageService.downloadPhoto(AVATAR);
+
+        // Assert
+        verify(delegate).uploadPhoto(eq(AVATAR), any(InputStream.class), eq(3L), eq(MediaType.IMAGE_JPEG_VALUE));
+        verify(delegate, times(2)).downloadPhoto(eq(AVATAR), any(PhotoDownloadRequest.class));
+    }
+
+    @Test
+    void stat_WhenCached_ShouldNotCallStorage() {
+        // Arrange
+        when(delegate.downloadPhoto(eq(AVATAR), any(PhotoDownloadRequest.class))).thenAnswer(invocation -> stored(CONTENT));
+        storageService.downloadPhoto(AVATAR);
+
+        // Act & Assert
+        assertEquals((long) CONTENT.length, storageService.stat(AVATAR).orElseThrow().getSize());
+        verify(delegate, never()).stat(anyString());
+    }
+
+    private ResponseEntity<InputStreamResource> stored(byte[] content) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.IMAGE_JPEG)
+                .contentLength(content.length)
+                .eTag("\"etag123\"")
+                .lastModified(Instant.parse("2024-01-15T10:30:00Z"))
+                .body(new InputStreamResource(new ByteArrayInputStream(content)));
+    }
+
+    private byte[] body(ResponseEntity<InputStreamResource> response) throws IOException {
+        try (InputStream stream = response.getBody().getInputStream()) {
+            return stream.readAllBytes();
+        }
+    }
+}
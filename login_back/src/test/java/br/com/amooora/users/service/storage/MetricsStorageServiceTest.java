@@ -0,0 +1,104 @@
+package br.com.amooora.users.service.storage;
+
+import br.com.amooora.users.dto.PhotoDownloadRequest;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.http.ResponseEntity;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MetricsStorageServiceTest {
+
+    private static final String AVATAR = "users/123/avatar.jpg";
+    private static final byte[] CONTENT = "avatar-content".getBytes();
+
+    @Mock
+    private StorageService delegate;
+
+    private SimpleMeterRegistry registry;
+    private MetricsStorageService storageService;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        storageService = new MetricsStorageService(delegate, registry, "minio");
+    }
+
+    @Test
+    void uploadPhoto_ShouldTimeCallAndCountBytesReadByProvider() {
+        // Arrange
+        when(delegate.uploadPhoto(eq(AVATAR), any(InputStream.class), eq((long) CONTENT.length), eq("image/jpeg")))
+                .thenAnswer(invocation -> {
+                    invocation.getArgument(1, InputStream.class).readAllBytes();
+                    return AVATAR;
+                });
+
+        // Act
+        storageService.uploadPhoto(AVATAR, new ByteArrayInputStream(CONTENT), CONTENT.length, "image/jpeg");
+
+        // Assert
+        assertEquals(1, timer("upload", "success").count());
+        assertEquals(CONTENT.length, registry.get("storage.bytes").tag("direction", "upload").counter().count());
+        assertEquals(0, registry.get("storage.requests.active").tag("operation", "upload").gauge().value());
+    }
+
+    @Test
+    void downloadPhoto_ShouldCountBytesAsStreamIsRead() throws Exception {
+        // Arrange
+        when(delegate.downloadPhoto(eq(AVATAR), any(PhotoDownloadRequest.class)))
+                .thenReturn(ResponseEntity.ok(new InputStreamResource(new ByteArrayInputStream(CONTENT))));
+
+        // Act
+        ResponseEntity<InputStreamResource> response = storageService.downloadPhoto(AVATAR);
+
+        // Assert
+        assertEquals(1, timer("download", "success").count());
+        assertEquals(0, registry.get("storage.bytes").tag("direction", "download").counter().count());
+        assertArrayEquals(CONTENT, response.getBody().getInputStream().readAllBytes());
+        assertEquals(CONTENT.length, registry.get("storage.bytes").tag("direction", "download").counter().count());
+    }
+
+    @Test
+    void stat_ShouldTagMissingObjectsAsNotFound() {
+        // Arrange
+        when(delegate.stat(AVATAR)).thenReturn(Optional.empty());
+
+        // Act
+        assertFalse(storageService.photoExists(AVATAR));
+
+        // Assert
+        assertEquals(1, timer("exists", "not_found").count());
+    }
+
+    @Test
+    void deletePhoto_WhenProviderFails_ShouldRecordErrorAndRethrow() {
+        // Arrange
+        doThrow(new RuntimeException("timeout")).when(delegate).deletePhoto(AVATAR);
+
+        // Act & Assert
+        assertThrows(RuntimeException.class, () -> storageService.deletePhoto(AVATAR));
+        assertEquals(1, timer("delete", "error").count());
+        assertEquals(0, registry.get("storage.requests.active").tag("operation", "delete").gauge().value());
+    }
+
+    private Timer timer(String operation, String outcome) {
+        return registry.get("storage.requests")
+                .tag("operation", operation)
+                .tag("provider", "minio")
+                .tag("outcome", outcome)
+                .timer();
+    }
+}
@@ -0,0 +1,317 @@
+package br.com.amooora.users.service.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MultipartTransferEngineTest {
+
+    private static final long PART_SIZE = MultipartTransferEngine.MIN_PART_SIZE;
+    private static final String OBJECT = "users/123/original.jpg";
+    // Duas partes cheias e uma menor no fim
+    private static final byte[] CONTENT = randomBytes((int) (2 * PART_SIZE + 1234));
+
+    @TempDir
+    private Path dir;
+
+    private MultipartTransferEngine engine;
+    private InMemoryStore store;
+
+    @BeforeEach
+    void setUp() {
+        engine = new MultipartTransferEngine(PART_SIZE, 2, PART_SIZE * 2, 2, PART_SIZE * 2, PART_SIZE * 2);
+        store = new InMemoryStore();
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.shutdown();
+    }
+
+    @Test
+    void useMultipart_ShouldStartAtThreshold() {
+        assertFalse(engine.useMultipart(PART_SIZE * 2 - 1));
+        assertTrue(engine.useMultipart(PART_SIZE * 2));
+    }
+
+    @Test
+    void upload_ShouldSendAllPartsAndAssembleObject() throws IOException {
+        // Act
+        engine.upload(store, OBJECT, new ByteArrayInputStream(CONTENT), CONTENT.length, "image/jpeg");
+
+        // Assert
+        assertArrayEquals(CONTENT, store.objects.get(OBJECT));
+        assertEquals(3, store.uploadedParts.get());
+    }
+
+    @Test
+    void upload_WhenPartFailsOnce_ShouldRetryIt() throws IOException {
+        // Arrange
+        store.failuresLeft.put(2, 1);
+
+        // Act
+        engine.upload(store, OBJECT, new ByteArrayInputStream(CONTENT), CONTENT.length, "image/jpeg");
+
+        // Assert
+        assertArrayEquals(CONTENT, store.objects.get(OBJECT));
+    }
+
+    @Test
+    void upload_WhenPartKeepsFailing_ShouldAbortUpload() {
+        // Arrange
+        store.failuresLeft.put(2, Integer.MAX_VALUE);
+
+        // Act & Assert
+        assertThrows(IOException.class, () ->
+                engine.upload(store, OBJECT, new ByteArrayInputStream(CONTENT), CONTENT.length, "image/jpeg"));
+        assertTrue(store.aborted.get());
+        assertFalse(store.objects.containsKey(OBJECT));
+    }
+
+    @Test
+    void upload_ConcurrentUploads_ShouldShareUploadBuffer() throws Exception {
+        // Arrange — buffer de uma parte para todos os uploads, cada um com concurrency 2
+        MultipartTransferEngine oneBufferedPart =
+                new MultipartTransferEngine(PART_SIZE, 2, PART_SIZE * 2, 2, PART_SIZE * 2, PART_SIZE);
+        store.partDelayMillis = 20;
+        ExecutorService uploads = Executors.newFixedThreadPool(2);
+
+        // Act
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (String object : List.of(OBJECT, "users/456/original.jpg")) {
+                futures.add(uploads.submit(() -> {
+                    oneBufferedPart.upload(store, object, new ByteArrayInputStream(CONTENT), CONTENT.length,
+                            "image/jpeg");
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            uploads.shutdownNow();
+            oneBufferedPart.shutdown();
+        }
+
+        // Assert
+        assertArrayEquals(CONTENT, store.objects.get(OBJECT));
+        assertArrayEquals(CONTENT, store.objects.get("users/456/original.jpg"));
+        assertEquals(1, store.maxPartsInFlight.get());
+    }
+
+    @Test
+    void uploadFile_AfterInterruption_ShouldResendOnlyMissingParts() throws IOException {
+        // Arrange
+        Path file = Files.write(dir.resolve("original.jpg"), CONTENT);
+        store.failuresLeft.put(3, Integer.MAX_VALUE);
+        assertThrows(IOException.class, () -> engine.uploadFile(store, OBJECT, file, "image/jpeg"));
+        assertTrue(Files.exists(dir.resolve("original.jpg.upload-state")));
+        store.failuresLeft.clear();
+        int partsBeforeResume = store.uploadedParts.get();
+
+        // Act
+        engine.uploadFile(store, OBJECT, file, "image/jpeg");
+
+        // Assert
+        assertArrayEquals(CONTENT, store.objects.get(OBJECT));
+        assertEquals(1, store.uploadedParts.get() - partsBeforeResume);
+        assertFalse(Files.exists(dir.resolve("original.jpg.upload-state")));
+    }
+
+    @Test
+    void downloadFile_AfterInterruption_ShouldFetchOnlyMissingRanges() throws IOException {
+        // Arrange
+        store.objects.put(OBJECT, CONTENT);
+        Path target = dir.resolve("copy.jpg");
+        store.failingRangeStart = 2 * PART_SIZE;
+        assertThrows(IOException.class, () -> engine.downloadFile(store, OBJECT, CONTENT.length, "etag", target));
+        assertTrue(Files.exists(dir.resolve("copy.jpg.download-state")));
+        store.failingRangeStart = -1;
+        int rangesBeforeResume = store.rangeReads.get();
+
+        // Act
+        engine.downloadFile(store, OBJECT, CONTENT.length, "etag", target);
+
+        // Assert
+        assertArrayEquals(CONTENT, Files.readAllBytes(target));
+        assertEquals(1, store.rangeReads.get() - rangesBeforeResume);
+        assertFalse(Files.exists(dir.resolve("copy.jpg.part")));
+        assertFalse(Files.exists(dir.resolve("copy.jpg.download-state")));
+    }
+
+    @Test
+    void openStream_ShouldReturnWholeObjectInOrder() throws IOException {
+        // Arrange
+        store.objects.put(OBJECT, CONTENT);
+        InputStream firstPart = new ByteArrayInputStream(CONTENT, 0, (int) PART_SIZE);
+
+        // Act
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (InputStream stream = engine.openStream(store, OBJECT, "etag", CONTENT.length, firstPart, PART_SIZE)) {
+            stream.transferTo(output);
+        }
+
+        // Assert
+        assertArrayEquals(CONTENT, output.toByteArray());
+        assertEquals(2, store.rangeReads.get());
+    }
+
+    @Test
+    void openStream_WhenDownloadBufferIsTaken_ShouldReadTheRestSequentially() throws IOException {
+        // Arrange — o primeiro stream reserva as duas partes que cabem no buffer
+        store.objects.put(OBJECT, CONTENT);
+        InMemoryStore other = new InMemoryStore();
+        other.objects.put(OBJECT, CONTENT);
+        InputStream first = engine.openStream(store, OBJECT, "etag", CONTENT.length,
+                new ByteArrayInputStream(CONTENT, 0, (int) PART_SIZE), PART_SIZE);
+
+        // Act
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (InputStream second = engine.openStream(other, OBJECT, "etag", CONTENT.length,
+                new ByteArrayInputStream(CONTENT, 0, (int) PART_SIZE), PART_SIZE)) {
+            second.transferTo(output);
+        }
+
+        // Assert
+        assertArrayEquals(CONTENT, output.toByteArray());
+        assertEquals(1, other.rangeReads.get());
+        first.close();
+    }
+
+    @Test
+    void openStream_AfterClose_ShouldReturnBufferToOtherDownloads() throws IOException {
+        // Arrange
+        store.objects.put(OBJECT, CONTENT);
+        InMemoryStore other = new InMemoryStore();
+        other.objects.put(OBJECT, CONTENT);
+        engine.openStream(store, OBJECT, "etag", CONTENT.length,
+                new ByteArrayInputStream(CONTENT, 0, (int) PART_SIZE), PART_SIZE).close();
+
+        // Act
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (InputStream stream = engine.openStream(other, OBJECT, "etag", CONTENT.length,
+                new ByteArrayInputStream(CONTENT, 0, (int) PART_SIZE), PART_SIZE)) {
+            stream.transferTo(output);
+        }
+
+        // Assert
+        assertArrayEquals(CONTENT, output.toByteArray());
+        assertEquals(2, other.rangeReads.get());
+    }
+
+    @Test
+    void totalLength_ShouldParseContentRange() {
+        assertEquals(123456789L, MultipartTransferEngine.totalLength("bytes 0-8388607/123456789"));
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(42).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static class InMemoryStore implements MultipartStore {
+
+        private final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+        private final Map<String, Map<Integer, byte[]>> uploads = new ConcurrentHashMap<>();
+        private final Map<Integer, Integer> failuresLeft = new ConcurrentHashMap<>();
+        private final AtomicInteger uploadedParts = new AtomicInteger();
+        private final AtomicInteger rangeReads = new AtomicInteger();
+        private final AtomicBoolean aborted = new AtomicBoolean();
+        private final AtomicInteger uploadIds = new AtomicInteger();
+        private final AtomicInteger partsInFlight = new AtomicInteger();
+        private final AtomicInteger maxPartsInFlight = new AtomicInteger();
+        private volatile long failingRangeStart = -1;
+        private volatile long partDelayMillis;
+
+        @Override
+        public String createUpload(String objectName, String contentType) {
+            String uploadId = "upload-" + uploadIds.getAndIncrement();
+            uploads.put(uploadId, new ConcurrentHashMap<>());
+            return uploadId;
+        }
+
+        @Override
+        public String uploadPart(String objectName, String uploadId, int partNumber, byte[] data) {
+            maxPartsInFlight.accumulateAndGet(partsInFlight.incrementAndGet(), Math::max);
+            try {
+                if (partDelayMillis > 0) {
+                    Thread.sleep(partDelayMillis);
+                }
+                return storePart(uploadId, partNumber, data);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } finally {
+                partsInFlight.decrementAndGet();
+            }
+        }
+
+        private String storePart(String uploadId, int partNumber, byte[] data) {
+            if (failuresLeft.getOrDefault(partNumber, 0) > 0) {
+                failuresLeft.computeIfPresent(partNumber, (part, left) -> left - 1);
+                throw new RuntimeException("falha simulada na parte " + partNumber);
+            }
+            uploads.get(uploadId).put(partNumber, data);
+            uploadedParts.incrementAndGet();
+            return "etag-" + partNumber;
+        }
+
+        @Override
+        public Map<Integer, String> listParts(String objectName, String uploadId) {
+            Map<Integer, String> parts = new HashMap<>();
+            uploads.get(uploadId).keySet().forEach(part -> parts.put(part, "etag-" + part));
+            return parts;
+        }
+
+        @Override
+        public void completeUpload(String objectName, String uploadId, SortedMap<Integer, String> etags) {
+            Map<Integer, byte[]> parts = uploads.remove(uploadId);
+            assertEquals(Set.copyOf(parts.keySet()), etags.keySet());
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            etags.keySet().forEach(part -> output.writeBytes(parts.get(part)));
+            objects.put(objectName, output.toByteArray());
+        }
+
+        @Override
+        public void abortUpload(String objectName, String uploadId) {
+            uploads.remove(uploadId);
+            aborted.set(true);
+        }
+
+        @Override
+        public InputStream getRange(String objectName, String etag, long start, long end) {
+            if (start == failingRangeStart) {
+                throw new RuntimeException("falha simulada na faixa " + start);
+            }
+            rangeReads.incrementAndGet();
+            return new ByteArrayInputStream(Arrays.copyOfRange(objects.get(objectName), (int) start, (int) end + 1));
+        }
+    }
+}
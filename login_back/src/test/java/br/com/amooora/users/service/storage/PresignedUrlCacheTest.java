@@ -0,0 +1,79 @@
+package br.com.amooora.users.service.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PresignedUrlCacheTest {
+
+    private final PresignedUrlCache cache = new PresignedUrlCache(100, 0.5);
+
+    @Test
+    void get_WithSameObjectAndExpiry_ShouldSignOnlyOnce() {
+        // Arrange
+        AtomicInteger signatures = new AtomicInteger();
+
+        // Act
+        String first = cache.get("users/123/photo.jpg", 60, () -> "url-" + signatures.incrementAndGet());
+        String second = cache.get("users/123/photo.jpg", 60, () -> "url-" + signatures.incrementAndGet());
+
+        // Assert
+        assertEquals("url-1", first);
+        assertEquals(first, second);
+        assertEquals(1, signatures.get());
+    }
+
+    @Test
+    void get_WithDifferentExpiry_ShouldSignAgain() {
+        // Act
+        String oneHour = cache.get("users/123/photo.jpg", 60, () -> "url-60");
+        String oneDay = cache.get("users/123/photo.jpg", 1440, () -> "url-1440");
+
+        // Assert
+        assertEquals("url-60", oneHour);
+        assertEquals("url-1440", oneDay);
+    }
+
+    @Test
+    void invalidate_ShouldDropEveryExpiryOfTheObject() {
+        // Arrange
+        cache.get("users/123/photo.jpg", 60, () -> "old-60");
+        cache.get("users/123/photo.jpg", 1440, () -> "old-1440");
+
+        // Act
+        cache.invalidate("users/123/photo.jpg");
+
+        // Assert
+        assertEquals("new-60", cache.get("users/123/photo.jpg", 60, () -> "new-60"));
+        assertEquals("new-1440", cache.get("users/123/photo.jpg", 1440, () -> "new-1440"));
+    }
+
+    @Test
+    void invalidate_ShouldKeepUrlsOfOtherObjects() {
+        // Arrange
+        cache.get("users/123/photo.jpg", 60, () -> "photo-60");
+        cache.get("users/123/other.jpg", 60, () -> "other-60");
+
+        // Act
+        cache.invalidate("users/123/photo.jpg");
+
+        // Assert
+        assertEquals("other-60", cache.get("users/123/other.jpg", 60, () -> "other-new"));
+    }
+
+    @Test
+    void get_WhenUrlIsPastItsReuseWindow_ShouldSignAgainAndKeepOtherExpiries() {
+        // Arrange — sem janela de reuso a URL de 0 minutos já nasce vencida
+        cache.get("users/123/photo.jpg", 1440, () -> "url-1440");
+        cache.get("users/123/photo.jpg", 0, () -> "old-0");
+
+        // Act
+        String resigned = cache.get("users/123/photo.jpg", 0, () -> "new-0");
+
+        // Assert
+        assertEquals("new-0", resigned);
+        assertEquals("url-1440", cache.get("users/123/photo.jpg", 1440, () -> "other-1440"));
+    }
+}